@@ -0,0 +1,165 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.components.script.execution.jython;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.script.ScriptEngine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.rcenvironment.core.scripting.ScriptingService;
+import de.rcenvironment.core.scripting.internal.ScriptingServiceImpl;
+
+/**
+ * Tests for {@link JythonInterpreterPool} with actual Jython interpreters.
+ * 
+ * @author agent
+ */
+public class JythonInterpreterPoolTest {
+
+    private static final int CONCURRENT_SCRIPTS = 4;
+
+    private static final int PRINT_ITERATIONS = 500;
+
+    private static final int TEST_TIMEOUT_SEC = 30;
+
+    private static final long BLOCKING_CHECK_MSEC = 200;
+
+    private final ScriptingService scriptingService = new ScriptingServiceImpl();
+
+    private ExecutorService executor;
+
+    /**
+     * Common setup.
+     */
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Common cleanup.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Verifies that scripts running concurrently in different interpreters do not share console output or sys.path.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void concurrentInterpretersAreIsolated() throws Exception {
+        final JythonInterpreterPool pool = new JythonInterpreterPool(CONCURRENT_SCRIPTS);
+        final List<Future<String>> outputs = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_SCRIPTS; i++) {
+            final String id = "id" + i;
+            outputs.add(executor.submit(new Callable<String>() {
+
+                @Override
+                public String call() throws Exception {
+                    final JythonInterpreterPool.PooledInterpreter interpreter = pool.acquire(scriptingService);
+                    try {
+                        final StringWriter output = new StringWriter();
+                        interpreter.getEngine().getContext().setWriter(output);
+                        interpreter.getEngine().eval(
+                            "import sys\nsys.path.append('" + id + "')\nfor i in range(" + PRINT_ITERATIONS + "):\n    print '" + id + "'\n"
+                                + "print len([p for p in sys.path if p.startswith('id')])");
+                        return output.toString();
+                    } finally {
+                        pool.release(interpreter);
+                    }
+                }
+            }));
+        }
+        for (int i = 0; i < CONCURRENT_SCRIPTS; i++) {
+            final String[] lines = outputs.get(i).get(TEST_TIMEOUT_SEC, TimeUnit.SECONDS).trim().split("\\s+");
+            assertEquals(PRINT_ITERATIONS + 1, lines.length);
+            for (int line = 0; line < PRINT_ITERATIONS; line++) {
+                assertEquals("id" + i, lines[line]);
+            }
+            // each interpreter only sees its own sys.path modification
+            assertEquals("1", lines[PRINT_ITERATIONS]);
+        }
+    }
+
+    /**
+     * Verifies that released interpreters are reused with fresh globals, and that compiled scripts are cached per interpreter.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void interpretersAreReusedWithFreshGlobals() throws Exception {
+        final JythonInterpreterPool pool = new JythonInterpreterPool(1);
+        final String script = "x = 1";
+        final JythonInterpreterPool.PooledInterpreter first = pool.acquire(scriptingService);
+        first.evalCached(script);
+        first.evalCached(script);
+        assertEquals(1, first.getCompiledScriptCount());
+        pool.release(first);
+
+        final JythonInterpreterPool.PooledInterpreter second = pool.acquire(scriptingService);
+        assertSame(first, second);
+        final ScriptEngine engine = second.getEngine();
+        final StringWriter output = new StringWriter();
+        engine.getContext().setWriter(output);
+        // note: globals() can not be iterated in Jython 2.5, so probe for the variable instead
+        engine.eval("try:\n    x\n    print 'defined'\nexcept NameError:\n    print 'undefined'");
+        assertEquals("undefined", output.toString().trim());
+        pool.release(second);
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    /**
+     * Verifies that the number of acquired interpreters is bounded, and that discarded interpreters are not reused.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void poolIsBounded() throws Exception {
+        final JythonInterpreterPool pool = new JythonInterpreterPool(1);
+        final JythonInterpreterPool.PooledInterpreter first = pool.acquire(scriptingService);
+        final Future<JythonInterpreterPool.PooledInterpreter> pendingAcquire =
+            executor.submit(new Callable<JythonInterpreterPool.PooledInterpreter>() {
+
+                @Override
+                public JythonInterpreterPool.PooledInterpreter call() throws Exception {
+                    return pool.acquire(scriptingService);
+                }
+            });
+        try {
+            pendingAcquire.get(BLOCKING_CHECK_MSEC, TimeUnit.MILLISECONDS);
+            fail("Acquiring more interpreters than the pool size should block");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        pool.discard(first);
+        final JythonInterpreterPool.PooledInterpreter second = pendingAcquire.get(TEST_TIMEOUT_SEC, TimeUnit.SECONDS);
+        assertNotSame(first, second);
+        pool.release(second);
+    }
+}
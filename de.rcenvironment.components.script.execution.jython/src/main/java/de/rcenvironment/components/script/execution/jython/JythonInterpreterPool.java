@@ -0,0 +1,189 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.components.script.execution.jython;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.python.core.Py;
+import org.python.core.PySystemState;
+
+import de.rcenvironment.core.scripting.ScriptingService;
+import de.rcenvironment.core.utils.common.StringUtils;
+import de.rcenvironment.core.utils.scripting.ScriptLanguage;
+
+/**
+ * A bounded pool of Jython interpreters that can execute scripts concurrently.
+ * 
+ * By default, all Jython script engines share a single Python system state, which holds sys.stdout/sys.stderr, sys.path, and the current
+ * working directory, so scripts executed at the same time would interfere with each other. Each pooled interpreter is therefore created
+ * with its own system state. Interpreters are reused across runs, and each of them keeps the compiled code of the scripts it has executed
+ * via {@link PooledInterpreter#evalCached(String)}, so static scripts like the RCE API definitions are only compiled once per interpreter.
+ * 
+ * @author agent
+ */
+final class JythonInterpreterPool {
+
+    /**
+     * A pooled Jython interpreter; only used by one thread at a time, between {@link JythonInterpreterPool#acquire(ScriptingService)} and
+     * {@link JythonInterpreterPool#release(PooledInterpreter)} or {@link JythonInterpreterPool#discard(PooledInterpreter)}.
+     * 
+     * @author agent
+     */
+    static final class PooledInterpreter {
+
+        private final ScriptEngine engine;
+
+        // least recently used entries are removed first; compiled scripts are bound to the engine that compiled them
+        private final Map<String, CompiledScript> compiledScripts = new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 5180214358223468497L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                return size() > MAX_COMPILED_SCRIPTS_PER_INTERPRETER;
+            }
+        };
+
+        private PooledInterpreter(ScriptEngine engine) {
+            this.engine = engine;
+        }
+
+        /**
+         * @return the {@link ScriptEngine} of this interpreter
+         */
+        ScriptEngine getEngine() {
+            return engine;
+        }
+
+        /**
+         * Evaluates the given script, reusing its compiled code if the same script has been executed by this interpreter before. Intended
+         * for scripts that are executed repeatedly; scripts containing run-specific values should be passed to
+         * {@link ScriptEngine#eval(String)} directly instead.
+         * 
+         * @param script the script to evaluate
+         * @return the result of the evaluation
+         * @throws ScriptException on compilation or execution errors
+         */
+        Object evalCached(String script) throws ScriptException {
+            if (!(engine instanceof Compilable)) {
+                return engine.eval(script);
+            }
+            CompiledScript compiledScript = compiledScripts.get(script);
+            if (compiledScript == null) {
+                compiledScript = ((Compilable) engine).compile(script);
+                compiledScripts.put(script, compiledScript);
+            }
+            return compiledScript.eval();
+        }
+
+        int getCompiledScriptCount() {
+            return compiledScripts.size();
+        }
+
+        private void resetGlobals() {
+            // a fresh engine scope means fresh Python globals, so no variables leak from previous runs
+            engine.setBindings(engine.createBindings(), ScriptContext.ENGINE_SCOPE);
+        }
+    }
+
+    private static final int MAX_COMPILED_SCRIPTS_PER_INTERPRETER = 32;
+
+    private final int maxSize;
+
+    private final Semaphore permits;
+
+    // most recently used interpreters first, so that warm interpreters are preferred; guarded by itself
+    private final Deque<PooledInterpreter> idleInterpreters = new ArrayDeque<>();
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    /**
+     * @param maxSize the maximum number of interpreters, which is also the maximum number of concurrently executed scripts
+     */
+    JythonInterpreterPool(int maxSize) {
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Acquires an interpreter for exclusive use, waiting until one becomes available if necessary. New interpreters are created on demand.
+     * 
+     * @param scriptingService the {@link ScriptingService} to create new interpreters with
+     * @return the interpreter, with empty Python globals
+     * @throws InterruptedException on interruption while waiting
+     */
+    PooledInterpreter acquire(ScriptingService scriptingService) throws InterruptedException {
+        permits.acquire();
+        PooledInterpreter interpreter;
+        synchronized (idleInterpreters) {
+            interpreter = idleInterpreters.pollFirst();
+        }
+        try {
+            if (interpreter == null) {
+                interpreter = new PooledInterpreter(createIsolatedEngine(scriptingService));
+                log.debug(StringUtils.format("Created a new pooled Jython interpreter (maximum: %d)", maxSize));
+            }
+            interpreter.resetGlobals();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        return interpreter;
+    }
+
+    /**
+     * Returns an interpreter to the pool after successful use.
+     * 
+     * @param interpreter the interpreter
+     */
+    void release(PooledInterpreter interpreter) {
+        synchronized (idleInterpreters) {
+            idleInterpreters.addFirst(interpreter);
+        }
+        permits.release();
+    }
+
+    /**
+     * Removes an interpreter from the pool, typically because a failed or interrupted execution may have left it in an undefined state.
+     * 
+     * @param interpreter the interpreter
+     */
+    void discard(PooledInterpreter interpreter) {
+        permits.release();
+    }
+
+    int getIdleCount() {
+        synchronized (idleInterpreters) {
+            return idleInterpreters.size();
+        }
+    }
+
+    private ScriptEngine createIsolatedEngine(ScriptingService scriptingService) {
+        // the Jython script engine binds to the system state of the creating thread, so temporarily provide a new one
+        final PySystemState callerSystemState = Py.getSystemState();
+        Py.setSystemState(new PySystemState());
+        try {
+            return scriptingService.createScriptEngine(ScriptLanguage.Jython);
+        } finally {
+            Py.setSystemState(callerSystemState);
+        }
+    }
+}
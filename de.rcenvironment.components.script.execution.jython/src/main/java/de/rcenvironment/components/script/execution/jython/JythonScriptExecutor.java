@@ -16,6 +16,8 @@ import javax.script.ScriptException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.python.core.Py;
+import org.python.core.PySystemState;
 
 import de.rcenvironment.components.script.common.ScriptComponentHistoryDataItem;
 import de.rcenvironment.components.script.common.registry.ScriptExecutor;
@@ -50,6 +52,8 @@ public class JythonScriptExecutor extends DefaultScriptExecutor {
 
     protected String preHeader;
 
+    protected String apiScript;
+
     protected String header;
 
     protected String body;
@@ -60,6 +64,28 @@ public class JythonScriptExecutor extends DefaultScriptExecutor {
 
     protected String workingPath = "";
 
+    // null if scripts should be executed by a new script engine for each run, one at a time
+    private final JythonInterpreterPool interpreterPool;
+
+    // the pooled interpreter used by the current run; held from runScript() until postRun(), which reads the script's outputs from it
+    private JythonInterpreterPool.PooledInterpreter interpreter;
+
+    /**
+     * Creates an executor that uses a new script engine for each run, and runs at most one script at a time within the JVM.
+     */
+    public JythonScriptExecutor() {
+        this(null);
+    }
+
+    /**
+     * Creates an executor that runs scripts with interpreters from the given pool, concurrently to other scripts.
+     * 
+     * @param interpreterPool the pool to acquire interpreters from; if null, the behavior of {@link #JythonScriptExecutor()} is used
+     */
+    JythonScriptExecutor(JythonInterpreterPool interpreterPool) {
+        this.interpreterPool = interpreterPool;
+    }
+
     @Override
     public boolean prepareExecutor(ComponentContext componentContext) throws ComponentException {
         boolean successful = super.prepareExecutor(componentContext);
@@ -88,10 +114,13 @@ public class JythonScriptExecutor extends DefaultScriptExecutor {
     public void prepareNewRun(ScriptLanguage scriptLanguage, String userScript,
         ScriptComponentHistoryDataItem dataItem) throws ComponentException {
         historyDataItem = dataItem;
-        scriptEngine = scriptingService.createScriptEngine(scriptLanguage);
+        if (interpreterPool == null) {
+            scriptEngine = scriptingService.createScriptEngine(scriptLanguage);
+        }
         body = "";
         foot = "";
-        header = ScriptingUtils.prepareHeaderScript(stateMap, componentContext, tempDir, tempFiles);
+        apiScript = ScriptingUtils.getJythonAPIScript();
+        header = ScriptingUtils.prepareHeaderVariablesScript(stateMap, componentContext, tempDir, tempFiles);
         loadScript(userScript);
         foot =
             "\nRCE_Dict_OutputChannels = RCE.get_output_internal()\nRCE_CloseOutputChannelsList = RCE.get_closed_outputs_internal()\n"
@@ -109,68 +138,130 @@ public class JythonScriptExecutor extends DefaultScriptExecutor {
 
     @Override
     public void runScript() throws ComponentException {
+        if (interpreterPool == null) {
+            // As the Jython script engine is not thread safe (console outputs of multiple script
+            // executions are mixed), we must ensure that at most one script is executed at the same
+            // time
+            synchronized (ScriptingUtils.SCRIPT_EVAL_LOCK_OBJECT) {
+                executeWrappedScript();
+            }
+            return;
+        }
 
-        // As the Jython script engine is not thread safe (console outputs of multiple script
-        // executions are mixed), we must ensure that at most one script is executed at the same
-        // time
-        synchronized (ScriptingUtils.SCRIPT_EVAL_LOCK_OBJECT) {
+        // pooled interpreters have their own system state, so no global lock is needed
+        try {
+            interpreter = interpreterPool.acquire(scriptingService);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ComponentException("Interrupted while waiting for a Jython interpreter to become available");
+        }
+        scriptEngine = interpreter.getEngine();
+        final PySystemState callerSystemState = Py.getSystemState();
+        boolean successful = false;
+        try {
+            executeWrappedScript();
+            successful = true;
+        } finally {
+            // the engine binds its system state to the executing thread; restore the previous one for other Jython users on this thread
+            Py.setSystemState(callerSystemState);
+            if (!successful) {
+                // a failed or interrupted execution may leave the interpreter in an undefined state, so do not reuse it
+                interpreterPool.discard(interpreter);
+                interpreter = null;
+            }
+        }
+    }
 
-            prepareOutputForRun();
-            try {
-                // include two important paths which the header script need
-                scriptEngine
-                    .eval("RCE_Bundle_Jython_Path = " + QUOTE + jythonPath.getAbsolutePath().replaceAll(ESCAPESLASH, SLASH) + QUOTE);
-                scriptEngine.eval("RCE_Temp_working_path = " + QUOTE + workingPath + QUOTE);
-
-                // execute the headerScript, this defines the RCE_Channel class and some important
-                // imports, variables and
-                // its changig the working directory.
-                scriptEngine.eval(header);
+    private void executeWrappedScript() throws ComponentException {
+        prepareOutputForRun();
+        try {
+            // include two important paths which the header script need
+            scriptEngine
+                .eval("RCE_Bundle_Jython_Path = " + QUOTE + jythonPath.getAbsolutePath().replaceAll(ESCAPESLASH, SLASH) + QUOTE);
+            scriptEngine.eval("RCE_Temp_working_path = " + QUOTE + workingPath + QUOTE);
 
-            } catch (IOError | ScriptException e) {
-                throw new ComponentException("Failed to execute script that is wrapped around the actual script", e);
+            // execute the headerScript, this defines the RCE_Channel class and some important
+            // imports, variables and
+            // its changig the working directory.
+            if (interpreter != null) {
+                interpreter.evalCached(apiScript);
+                scriptEngine.eval(header);
+            } else {
+                scriptEngine.eval(apiScript + header);
             }
-            try {
-                // execute the script, written by the user.
+
+        } catch (IOError | ScriptException e) {
+            throw new ComponentException("Failed to execute script that is wrapped around the actual script", e);
+        }
+        try {
+            // execute the script, written by the user.
+            if (interpreter != null) {
+                interpreter.evalCached(body);
+            } else {
                 scriptEngine.eval(body);
-            } catch (IOError e) {
-                throw new ComponentException("Failed to execute script", e);
-            } catch (ScriptException e) {
-                if (e.getCause() != null) {
-                    // expected case
-                    throw new ComponentException("Script execution error: " + e.getMessage() + "\n" + e.getCause().toString());
-                } else {
-                    // fallback in unexpected cause == null case
-                    throw new ComponentException("Script execution error: " + e.getMessage());
-                }
             }
-            try {
-                // this script defines the outputChannel, so that all outputs sent with
-                // RCE.write_output() work properly.
+        } catch (IOError e) {
+            throw new ComponentException("Failed to execute script", e);
+        } catch (ScriptException e) {
+            if (e.getCause() != null) {
+                // expected case
+                throw new ComponentException("Script execution error: " + e.getMessage() + "\n" + e.getCause().toString());
+            } else {
+                // fallback in unexpected cause == null case
+                throw new ComponentException("Script execution error: " + e.getMessage());
+            }
+        }
+        try {
+            // this script defines the outputChannel, so that all outputs sent with
+            // RCE.write_output() work properly.
+            if (interpreter != null) {
+                interpreter.evalCached(foot);
+            } else {
                 scriptEngine.eval(foot);
-                ((WorkflowConsoleForwardingWriter) scriptEngine.getContext().getWriter()).awaitPrintingLinesFinished();
-                ((WorkflowConsoleForwardingWriter) scriptEngine.getContext().getErrorWriter()).awaitPrintingLinesFinished();
-            } catch (IOError | ScriptException e) {
-                throw new ComponentException("Failed to execute script that is wrapped around the actual script", e);
-            } catch (InterruptedException e) {
-                componentContext.getLog().componentError("Waiting for script output was interrupted. Some output might be missing");
-                LOGGER.error("Waiting for stdout or stderr of Jython script execution was interrupted");
             }
+            ((WorkflowConsoleForwardingWriter) scriptEngine.getContext().getWriter()).awaitPrintingLinesFinished();
+            ((WorkflowConsoleForwardingWriter) scriptEngine.getContext().getErrorWriter()).awaitPrintingLinesFinished();
+        } catch (IOError | ScriptException e) {
+            throw new ComponentException("Failed to execute script that is wrapped around the actual script", e);
+        } catch (InterruptedException e) {
+            componentContext.getLog().componentError("Waiting for script output was interrupted. Some output might be missing");
+            LOGGER.error("Waiting for stdout or stderr of Jython script execution was interrupted");
         }
     }
 
     @Override
     public boolean postRun() throws ComponentException {
-        ScriptingUtils.writeAPIOutput(stateMap, componentContext, scriptEngine, workingPath, historyDataItem);
         try {
-            closeConsoleWriters();
-        } catch (IOException e) {
-            LOGGER.error("Failed to close stdout or stderr writer", e);
+            ScriptingUtils.writeAPIOutput(stateMap, componentContext, scriptEngine, workingPath, historyDataItem);
+            try {
+                closeConsoleWriters();
+            } catch (IOException e) {
+                LOGGER.error("Failed to close stdout or stderr writer", e);
+            }
+        } finally {
+            releaseInterpreter();
         }
 
         return true;
     }
 
+    @Override
+    public void deleteTempFiles() {
+        // safeguard in case postRun() was not reached; as the run did not complete normally, the interpreter may be in an undefined state
+        if (interpreter != null) {
+            interpreterPool.discard(interpreter);
+            interpreter = null;
+        }
+        super.deleteTempFiles();
+    }
+
+    private void releaseInterpreter() {
+        if (interpreter != null) {
+            interpreterPool.release(interpreter);
+            interpreter = null;
+        }
+    }
+
     @Override
     public void setWorkingPath(String workingPath) {
         this.workingPath = workingPath;
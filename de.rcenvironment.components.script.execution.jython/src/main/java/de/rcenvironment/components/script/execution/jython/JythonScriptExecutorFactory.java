@@ -10,9 +10,12 @@ package de.rcenvironment.components.script.execution.jython;
 
 import java.io.File;
 
+import org.apache.commons.logging.LogFactory;
+
 import de.rcenvironment.components.script.common.registry.ScriptExecutor;
 import de.rcenvironment.components.script.common.registry.ScriptExecutorFactory;
 import de.rcenvironment.core.configuration.bootstrap.BootstrapConfiguration;
+import de.rcenvironment.core.utils.common.StringUtils;
 import de.rcenvironment.core.utils.scripting.ScriptLanguage;
 
 /**
@@ -23,9 +26,22 @@ import de.rcenvironment.core.utils.scripting.ScriptLanguage;
  */
 public class JythonScriptExecutorFactory implements ScriptExecutorFactory {
 
+    // the maximum number of Jython scripts executed in parallel; defaults to the number of available processors
+    private static final String INTERPRETER_POOL_SIZE_PROPERTY = "rce.scripting.jythonInterpreterPoolSize";
+
+    // restores the previous behavior of executing at most one Jython script at a time, each with a new script engine
+    private static final String DISABLE_INTERPRETER_POOL_PROPERTY = "rce.scripting.disableJythonInterpreterPool";
+
+    private final JythonInterpreterPool interpreterPool;
+
     public JythonScriptExecutorFactory() {
         File internalDataDirectory = BootstrapConfiguration.getInstance().getInternalDataDirectory();
         System.setProperty("python.cachedir", new File(internalDataDirectory, "cache/jython").getAbsolutePath());
+        if (System.getProperties().containsKey(DISABLE_INTERPRETER_POOL_PROPERTY)) {
+            interpreterPool = null;
+        } else {
+            interpreterPool = new JythonInterpreterPool(getInterpreterPoolSize());
+        }
     }
 
     @Override
@@ -35,7 +51,29 @@ public class JythonScriptExecutorFactory implements ScriptExecutorFactory {
 
     @Override
     public ScriptExecutor createScriptExecutor() {
-        return new JythonScriptExecutor();
+        return new JythonScriptExecutor(interpreterPool);
+    }
+
+    private static int getInterpreterPoolSize() {
+        int poolSize = Runtime.getRuntime().availableProcessors();
+        String poolSizeArg = System.getProperty(INTERPRETER_POOL_SIZE_PROPERTY);
+        if (poolSizeArg != null) {
+            try {
+                int parsedValue = Integer.parseInt(poolSizeArg);
+                if (parsedValue > 0) {
+                    poolSize = parsedValue;
+                } else {
+                    LogFactory.getLog(JythonScriptExecutorFactory.class)
+                        .error("Invalid Jython interpreter pool size specified: minimum value is 1");
+                }
+            } catch (NumberFormatException e) {
+                LogFactory.getLog(JythonScriptExecutorFactory.class)
+                    .error("Failed to parse " + INTERPRETER_POOL_SIZE_PROPERTY + " setting; using default", e);
+            }
+        }
+        LogFactory.getLog(JythonScriptExecutorFactory.class)
+            .debug(StringUtils.format("Executing up to %d Jython scripts in parallel", poolSize));
+        return poolSize;
     }
 
 }
@@ -12,6 +12,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.logging.LogFactory;
@@ -65,7 +66,8 @@ public class BuiltInCommandPlugin implements CommandPlugin {
         contributions.add(new CommandDescription(CMD_CRASH, "<delay>", true,
             "\"kills\" the instance without proper shutdown at <delay> milliseconds after the command is executed"));
         contributions.add(new CommandDescription(CMD_HELP_DEV, "", true, "list available commands (including developer commands)"));
-        contributions.add(new CommandDescription(CMD_STATS, "", true, "show internal statistics"));
+        contributions.add(new CommandDescription(CMD_STATS, "[--percentiles]", true, "show internal statistics",
+            "--percentiles - Show the latency percentiles of critical paths instead"));
         contributions.add(new CommandDescription(CMD_OSGI, "[-o <filename>] <command>", true,
             "executes an OSGi/Equinox console command; use -o to write text output to a file"));
         contributions.add(new CommandDescription(CMD_TASKS, "[-a] [-i]", true, "show information about internal tasks",
@@ -220,7 +222,13 @@ public class BuiltInCommandPlugin implements CommandPlugin {
     }
 
     private void performStats(CommandContext context) {
-        for (String line : StatsCounter.getFullReportAsStandardTextRepresentation()) {
+        final List<String> lines;
+        if (context.consumeNextTokenIfEquals("--percentiles")) {
+            lines = StatsCounter.getValueDistributionReportAsStandardTextRepresentation();
+        } else {
+            lines = StatsCounter.getFullReportAsStandardTextRepresentation();
+        }
+        for (String line : lines) {
             context.println(line);
         }
     }
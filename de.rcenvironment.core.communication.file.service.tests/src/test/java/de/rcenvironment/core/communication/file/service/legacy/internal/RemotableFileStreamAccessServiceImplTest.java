@@ -8,13 +8,17 @@
 
 package de.rcenvironment.core.communication.file.service.legacy.internal;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
@@ -256,6 +260,57 @@ public class RemotableFileStreamAccessServiceImplTest {
         }
     }
 
+    /**
+     * Verifies that chunks requested out of order are served by their offsets without waiting for the preceding chunks, that skipping
+     * works in chunked mode, and that sequential reads are rejected once a stream is read in chunks.
+     * 
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testReadChunkByOffset() throws Exception {
+        final int chunkSize = 10;
+        final byte[] content = new byte[4 * chunkSize + 5];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        inputStream = new ByteArrayInputStream(content);
+        final String uuid = fileService.open(FileType.RCE_DM, dmUri);
+
+        try {
+            fileService.readChunk(uuid, 1L << 30, chunkSize);
+            fail();
+        } catch (IOException e) {
+            assertTrue(true);
+        }
+
+        // request the third chunk first; the first two chunks are read ahead and served afterwards
+        assertArrayEquals(Arrays.copyOfRange(content, 2 * chunkSize, 3 * chunkSize),
+            fileService.readChunk(uuid, 2L * chunkSize, chunkSize));
+        assertArrayEquals(Arrays.copyOfRange(content, chunkSize, 2 * chunkSize), fileService.readChunk(uuid, (long) chunkSize, chunkSize));
+        assertArrayEquals(Arrays.copyOfRange(content, 0, chunkSize), fileService.readChunk(uuid, 0L, chunkSize));
+        try {
+            fileService.readChunk(uuid, 0L, chunkSize);
+            fail();
+        } catch (IOException e) {
+            assertTrue(true);
+        }
+
+        assertEquals(chunkSize, fileService.skipChunk(uuid, 3L * chunkSize, (long) chunkSize));
+        // the last chunk is shorter than requested, and all following chunks are empty
+        assertArrayEquals(Arrays.copyOfRange(content, 4 * chunkSize, content.length),
+            fileService.readChunk(uuid, 4L * chunkSize, chunkSize));
+        assertEquals(0, fileService.readChunk(uuid, 5L * chunkSize, chunkSize).length);
+        assertEquals(0, fileService.skipChunk(uuid, 5L * chunkSize, (long) chunkSize));
+
+        try {
+            fileService.read(uuid, 1);
+            fail();
+        } catch (IOException e) {
+            assertTrue(true);
+        }
+        fileService.close(uuid);
+    }
+
     /**
      * Test {@link FileDataService} implementation.
      * 
@@ -320,6 +375,12 @@ public class RemotableFileStreamAccessServiceImplTest {
             return null;
         }
 
+        @Override
+        public DataReference newReferenceFromFile(File file, MetaDataSet metaDataSet, NetworkDestination platform,
+            boolean alreadyCompressed) throws AuthorizationException, IOException, InterruptedException, CommunicationException {
+            return null;
+        }
+
     }
 
 }
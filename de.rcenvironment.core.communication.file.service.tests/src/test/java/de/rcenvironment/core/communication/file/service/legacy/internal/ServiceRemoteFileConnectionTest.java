@@ -8,12 +8,18 @@
 
 package de.rcenvironment.core.communication.file.service.legacy.internal;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.After;
 import org.junit.Before;
@@ -28,6 +34,7 @@ import de.rcenvironment.core.communication.file.service.legacy.api.RemotableFile
 import de.rcenvironment.core.communication.fileaccess.api.RemoteFileConnection;
 import de.rcenvironment.core.communication.fileaccess.api.RemoteFileConnection.FileType;
 import de.rcenvironment.core.communication.testutils.CommunicationServiceDefaultStub;
+import de.rcenvironment.core.utils.common.rpc.RemoteOperationException;
 
 /**
  * Test cases for {@link ServiceRemoteFileConnection}.
@@ -40,6 +47,10 @@ public class ServiceRemoteFileConnectionTest {
 
     private static final String TEST_INSTANCE_ID_STRING = NodeIdentifierTestUtils.createTestInstanceNodeIdString();
 
+    private static final int RANDOM_SEED = 42;
+
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
     private final UUID dmUuid = UUID.randomUUID();
 
     // TODO review/encapsulate
@@ -79,6 +90,82 @@ public class ServiceRemoteFileConnectionTest {
         connection.close();
     }
 
+    /**
+     * Verifies that a file larger than the prefetch buffer is transferred completely and in the correct order, and that the chunk
+     * requests are enlarged as the transfer continues.
+     * 
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void chunkedTransfer() throws Exception {
+        final byte[] content = createTestContent(2 * ChunkPrefetcher.MAX_PREFETCH_BUFFER_SIZE + 123);
+        final ContentRemotableFileStreamAccessService remoteService = new ContentRemotableFileStreamAccessService(content, true);
+        final RemoteFileConnection connection = new ServiceRemoteFileConnection(new URI(uri), new DummyCommunicationService(remoteService));
+        assertArrayEquals(content, readFully(connection));
+        connection.close();
+        assertEquals(0, remoteService.sequentialReadCount.get());
+        // much fewer requests than with fixed-size initial chunks
+        assertTrue(remoteService.chunkReadCount.get() < content.length / ChunkPrefetcher.INITIAL_CHUNK_SIZE / 4);
+    }
+
+    /**
+     * Verifies the fallback to sequential reading if the remote node does not support chunked reading, and that skipping works in both
+     * modes.
+     * 
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void sequentialReadingFallbackAndSkipping() throws Exception {
+        final byte[] content = createTestContent(3 * ChunkPrefetcher.INITIAL_CHUNK_SIZE + 5);
+        final int skipLength = ChunkPrefetcher.INITIAL_CHUNK_SIZE + 1;
+        final byte[] expected = Arrays.copyOfRange(content, skipLength, content.length);
+        for (boolean chunkedReadingSupported : new boolean[] { true, false }) {
+            final ContentRemotableFileStreamAccessService remoteService =
+                new ContentRemotableFileStreamAccessService(content, chunkedReadingSupported);
+            final RemoteFileConnection connection =
+                new ServiceRemoteFileConnection(new URI(uri), new DummyCommunicationService(remoteService));
+            assertEquals(skipLength, connection.skip(skipLength));
+            assertArrayEquals(expected, readFully(connection));
+            connection.close();
+            assertEquals(chunkedReadingSupported, remoteService.sequentialReadCount.get() == 0);
+        }
+    }
+
+    /**
+     * Verifies that skipping a large range in chunked mode does not transfer the skipped data.
+     * 
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void remoteSkipping() throws Exception {
+        final byte[] content = createTestContent(2 * ChunkPrefetcher.MAX_PREFETCH_BUFFER_SIZE);
+        final int skipLength = ChunkPrefetcher.MAX_PREFETCH_BUFFER_SIZE * 3 / 2;
+        final ContentRemotableFileStreamAccessService remoteService = new ContentRemotableFileStreamAccessService(content, true);
+        final RemoteFileConnection connection = new ServiceRemoteFileConnection(new URI(uri), new DummyCommunicationService(remoteService));
+        assertEquals(content[0] & 0xff, connection.read());
+        assertEquals(skipLength, connection.skip(skipLength));
+        assertArrayEquals(Arrays.copyOfRange(content, skipLength + 1, content.length), readFully(connection));
+        assertEquals(0, connection.skip(1));
+        connection.close();
+        assertTrue(remoteService.transferredBytes.get() < content.length - skipLength + ChunkPrefetcher.MAX_PREFETCH_BUFFER_SIZE);
+    }
+
+    private byte[] createTestContent(int length) {
+        final byte[] content = new byte[length];
+        new Random(RANDOM_SEED).nextBytes(content);
+        return content;
+    }
+
+    private byte[] readFully(RemoteFileConnection connection) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int n;
+        while ((n = connection.read(buffer, 0, buffer.length)) != -1) {
+            result.write(buffer, 0, n);
+        }
+        return result.toByteArray();
+    }
+
     /**
      * Dummy {@link CommunicationService} implementation.
      * 
@@ -86,6 +173,16 @@ public class ServiceRemoteFileConnectionTest {
      */
     private static class DummyCommunicationService extends CommunicationServiceDefaultStub {
 
+        private final RemotableFileStreamAccessService remoteService;
+
+        DummyCommunicationService() {
+            this(new MockRemotableFileStreamAccessService());
+        }
+
+        DummyCommunicationService(RemotableFileStreamAccessService remoteService) {
+            this.remoteService = remoteService;
+        }
+
         @SuppressWarnings("unchecked")
         @Override
         public <T> T getRemotableService(Class<T> iface, NetworkDestination dest) throws IllegalStateException {
@@ -94,7 +191,7 @@ public class ServiceRemoteFileConnectionTest {
             if (nodeId.isSameInstanceNodeAs(NodeIdentifierUtils
                 .parseArbitraryIdStringToLogicalNodeIdWithExceptionWrapping(TEST_INSTANCE_ID_STRING))
                 && iface == RemotableFileStreamAccessService.class) {
-                return (T) new MockRemotableFileStreamAccessService();
+                return (T) remoteService;
             }
             return null;
         }
@@ -135,6 +232,14 @@ public class ServiceRemoteFileConnectionTest {
             return new byte[0];
         }
 
+        @Override
+        public byte[] readChunk(String uuid, Long offset, Integer len) throws IOException {
+            if (uuid.equals(testUUID)) {
+                return new byte[len];
+            }
+            return new byte[0];
+        }
+
         @Override
         public long skip(String uuid, Long n) throws IOException {
             if (uuid.equals(testUUID)) {
@@ -143,5 +248,86 @@ public class ServiceRemoteFileConnectionTest {
             return 0;
         }
 
+        @Override
+        public long skipChunk(String uuid, Long offset, Long n) throws IOException {
+            return skip(uuid, n);
+        }
+
+    }
+
+    /**
+     * Mock {@link RemotableFileStreamAccessService} implementation serving the given content, optionally simulating a remote node that
+     * does not support chunked reading.
+     * 
+     * @author agent
+     */
+    private static class ContentRemotableFileStreamAccessService implements RemotableFileStreamAccessService {
+
+        private final byte[] content;
+
+        private final boolean chunkedReadingSupported;
+
+        private final AtomicInteger chunkReadCount = new AtomicInteger();
+
+        private final AtomicInteger sequentialReadCount = new AtomicInteger();
+
+        private final AtomicLong transferredBytes = new AtomicLong();
+
+        private int sequentialPosition;
+
+        ContentRemotableFileStreamAccessService(byte[] content, boolean chunkedReadingSupported) {
+            this.content = content;
+            this.chunkedReadingSupported = chunkedReadingSupported;
+        }
+
+        @Override
+        public String open(FileType type, String file) {
+            return "test";
+        }
+
+        @Override
+        public int read(String uuid) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public synchronized byte[] read(String uuid, Integer len) {
+            sequentialReadCount.incrementAndGet();
+            final int end = Math.min(sequentialPosition + len, content.length);
+            final byte[] result = Arrays.copyOfRange(content, sequentialPosition, end);
+            sequentialPosition = end;
+            return result;
+        }
+
+        @Override
+        public byte[] readChunk(String uuid, Long offset, Integer len) throws RemoteOperationException {
+            if (!chunkedReadingSupported) {
+                throw new RemoteOperationException("Simulated unknown method");
+            }
+            chunkReadCount.incrementAndGet();
+            final int start = (int) Math.min(offset, content.length);
+            final byte[] result = Arrays.copyOfRange(content, start, (int) Math.min(offset + len, content.length));
+            transferredBytes.addAndGet(result.length);
+            return result;
+        }
+
+        @Override
+        public long skipChunk(String uuid, Long offset, Long n) throws RemoteOperationException {
+            if (!chunkedReadingSupported) {
+                throw new RemoteOperationException("Simulated unknown method");
+            }
+            return Math.max(0, Math.min(n, content.length - offset));
+        }
+
+        @Override
+        public synchronized long skip(String uuid, Long n) {
+            final int end = (int) Math.min(sequentialPosition + n, content.length);
+            final long skipped = end - sequentialPosition;
+            sequentialPosition = end;
+            return skipped;
+        }
+
+        @Override
+        public void close(String uuid) {}
     }
 }
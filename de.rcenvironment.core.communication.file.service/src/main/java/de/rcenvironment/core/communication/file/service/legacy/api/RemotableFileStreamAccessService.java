@@ -63,6 +63,40 @@ public interface RemotableFileStreamAccessService {
      */
     byte[] read(String uuid, Integer len) throws IOException, RemoteOperationException;
 
+    /**
+     * Reads a chunk of a file at the given offset; intended for bulk transfers of whole files with several chunk requests in flight.
+     * Unlike {@link #read(String, Integer)}, the returned chunk is always filled completely unless the end of the file is reached, so the
+     * caller can determine the offsets of subsequent chunks in advance.
+     * 
+     * The chunks of a file must be requested gaplessly and exactly once each, starting at offset zero; they may arrive in any order,
+     * though. As the file is read sequentially, a request for a chunk that arrives before the requests for its preceding chunks reads
+     * their data ahead, and keeps it until they arrive; this is limited to 32 MiB. This method must only be mixed with
+     * {@link #skipChunk(String, Long, Long)}, not with the other read or skip methods on the same file.
+     * 
+     * @param uuid the id of the file
+     * @param offset the offset of the chunk within the file
+     * @param len the length of the chunk; must not exceed 16 MiB
+     * @return the data of the chunk; shorter than the requested length if the end of the file was reached, and empty if the offset is at
+     *         or beyond the end of the file
+     * @throws IOException on read errors, if the file has been closed, if the chunk was already read, or if the chunk is too far ahead
+     *         of the chunks requested so far
+     * @throws RemoteOperationException standard remote operation exception
+     */
+    byte[] readChunk(String uuid, Long offset, Integer len) throws IOException, RemoteOperationException;
+
+    /**
+     * Skips over and discards bytes of a file that is read via {@link #readChunk(String, Long, Integer)}. The skipped range takes the
+     * place of a chunk, but must only be requested once all preceding chunks have been read.
+     * 
+     * @param uuid the id of the file
+     * @param offset the offset of the skipped range within the file
+     * @param n the number of bytes to skip
+     * @return the actual number of bytes skipped; less than requested if the end of the file was reached
+     * @throws IOException on read errors, if the file has been closed, or if the preceding chunks have not been read
+     * @throws RemoteOperationException standard remote operation exception
+     */
+    long skipChunk(String uuid, Long offset, Long n) throws IOException, RemoteOperationException;
+
     /**
      * Skips over and discards bytes from a file.
      * 
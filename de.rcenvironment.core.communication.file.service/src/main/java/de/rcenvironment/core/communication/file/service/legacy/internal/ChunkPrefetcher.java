@@ -0,0 +1,246 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.communication.file.service.legacy.internal;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import de.rcenvironment.core.communication.file.service.legacy.api.RemotableFileStreamAccessService;
+import de.rcenvironment.core.toolkitbridge.transitional.ConcurrencyUtils;
+import de.rcenvironment.core.utils.common.rpc.RemoteOperationException;
+
+/**
+ * Reads a remote file via {@link RemotableFileStreamAccessService#readChunk(String, Long, Integer)}, keeping several chunk requests in
+ * flight so that the transfer rate is not limited by the round-trip time of a single request.
+ * 
+ * The transfer starts with a single small chunk request, which keeps the overhead low for small files and partial reads. With each
+ * complete chunk received, both the chunk size and the number of requests in flight are increased up to their maximum values. The total
+ * size of all requested chunks is limited by a prefetch buffer size.
+ * 
+ * Like {@link ServiceRemoteFileConnection}, this class is not thread safe.
+ * 
+ * @author agent
+ */
+final class ChunkPrefetcher {
+
+    static final int INITIAL_CHUNK_SIZE = 64 * 1024;
+
+    static final int MAX_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    static final int MAX_REQUESTS_IN_FLIGHT = 4;
+
+    static final int MAX_PREFETCH_BUFFER_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * A requested chunk.
+     * 
+     * @author agent
+     */
+    private static final class PendingChunk {
+
+        private final int requestedLength;
+
+        private final Future<byte[]> future;
+
+        PendingChunk(int requestedLength, Future<byte[]> future) {
+            this.requestedLength = requestedLength;
+            this.future = future;
+        }
+    }
+
+    private final RemotableFileStreamAccessService fileService;
+
+    private final String remoteInputStreamUUID;
+
+    private final Deque<PendingChunk> pendingChunks = new ArrayDeque<>();
+
+    private long nextChunkOffset = 0;
+
+    private int nextChunkSize = INITIAL_CHUNK_SIZE;
+
+    private int maxRequestsInFlight = 1;
+
+    // the sum of the requested lengths of all pending chunks
+    private long pendingChunkBytes = 0;
+
+    private byte[] currentChunk;
+
+    private int currentChunkPosition;
+
+    private boolean dataReceived = false;
+
+    // true once a chunk shorter than requested was received, the end of the file was skipped to, or an error occurred; no more chunks are
+    // requested after that
+    private boolean endOfRequests = false;
+
+    ChunkPrefetcher(RemotableFileStreamAccessService fileService, String remoteInputStreamUUID) {
+        this.fileService = fileService;
+        this.remoteInputStreamUUID = remoteInputStreamUUID;
+    }
+
+    /**
+     * Reads data with the semantics of {@link java.io.InputStream#read(byte[], int, int)}.
+     * 
+     * @param b the buffer to read into
+     * @param off the start offset in the buffer
+     * @param len the maximum number of bytes to read
+     * @return the number of bytes read, or -1 at the end of the file
+     * @throws IOException on read errors
+     * @throws RemoteOperationException if the first chunk request failed on the RPC level, which is the case if the remote node does not
+     *         support chunked reading; all other errors are converted to {@link IOException}s
+     */
+    int read(byte[] b, int off, int len) throws IOException, RemoteOperationException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureCurrentChunkHasData()) {
+            return -1;
+        }
+        final int n = Math.min(len, currentChunk.length - currentChunkPosition);
+        System.arraycopy(currentChunk, currentChunkPosition, b, off, n);
+        currentChunkPosition += n;
+        return n;
+    }
+
+    /**
+     * Skips data. Data that has already been requested is discarded when it arrives; the rest is skipped on the remote side without
+     * transferring it.
+     * 
+     * @param n the number of bytes to skip
+     * @return the number of bytes skipped
+     * @throws IOException on read errors
+     * @throws RemoteOperationException see {@link #read(byte[], int, int)}
+     */
+    long skip(long n) throws IOException, RemoteOperationException {
+        long skipped = 0;
+        while (skipped < n) {
+            if (currentChunk != null && currentChunkPosition < currentChunk.length) {
+                final int step = (int) Math.min(n - skipped, currentChunk.length - currentChunkPosition);
+                currentChunkPosition += step;
+                skipped += step;
+            } else if (pendingChunks.isEmpty() || !receiveNextChunk()) {
+                break;
+            }
+        }
+        if (skipped < n && !endOfRequests) {
+            final long remoteSkipped = skipRemotely(n - skipped);
+            if (remoteSkipped < n - skipped) {
+                endOfRequests = true;
+            }
+            nextChunkOffset += remoteSkipped;
+            skipped += remoteSkipped;
+            // the caller may only read parts of the file, so start over with a single small chunk request
+            nextChunkSize = INITIAL_CHUNK_SIZE;
+            maxRequestsInFlight = 1;
+        }
+        return skipped;
+    }
+
+    /**
+     * Discards all pending chunk requests; their results are ignored when they arrive.
+     */
+    void cancel() {
+        endOfRequests = true;
+        for (PendingChunk chunk : pendingChunks) {
+            chunk.future.cancel(false);
+        }
+        pendingChunks.clear();
+        pendingChunkBytes = 0;
+    }
+
+    boolean hasReceivedData() {
+        return dataReceived;
+    }
+
+    private boolean ensureCurrentChunkHasData() throws IOException, RemoteOperationException {
+        while (currentChunk == null || currentChunkPosition == currentChunk.length) {
+            if (!fetchNextChunk()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean fetchNextChunk() throws IOException, RemoteOperationException {
+        requestChunks();
+        final boolean hasData = receiveNextChunk();
+        // keep the next requests in flight while the caller consumes this chunk
+        requestChunks();
+        return hasData;
+    }
+
+    private boolean receiveNextChunk() throws IOException, RemoteOperationException {
+        final PendingChunk chunk = pendingChunks.pollFirst();
+        if (chunk == null) {
+            return false;
+        }
+        pendingChunkBytes -= chunk.requestedLength;
+        final byte[] data = awaitChunk(chunk);
+        if (data.length < chunk.requestedLength) {
+            // end of file reached; any further pending chunks are empty
+            cancel();
+        } else {
+            // the file is larger than what has been read so far, so speed up the transfer
+            nextChunkSize = Math.min(nextChunkSize * 2, MAX_CHUNK_SIZE);
+            maxRequestsInFlight = Math.min(maxRequestsInFlight + 1, MAX_REQUESTS_IN_FLIGHT);
+        }
+        currentChunk = data;
+        currentChunkPosition = 0;
+        dataReceived = dataReceived || data.length != 0;
+        return data.length != 0;
+    }
+
+    private long skipRemotely(long n) throws IOException, RemoteOperationException {
+        try {
+            return fileService.skipChunk(remoteInputStreamUUID, nextChunkOffset, n);
+        } catch (RemoteOperationException e) {
+            endOfRequests = true;
+            if (!dataReceived) {
+                throw e;
+            }
+            throw new IOException(e.toString());
+        }
+    }
+
+    private void requestChunks() {
+        while (!endOfRequests && pendingChunks.size() < maxRequestsInFlight
+            && (pendingChunks.isEmpty() || pendingChunkBytes + nextChunkSize <= MAX_PREFETCH_BUFFER_SIZE)) {
+            final long offset = nextChunkOffset;
+            final int size = nextChunkSize;
+            final Future<byte[]> future = ConcurrencyUtils.getAsyncTaskService().submit("Remote file access: Fetch chunk",
+                () -> fileService.readChunk(remoteInputStreamUUID, offset, size));
+            pendingChunks.addLast(new PendingChunk(size, future));
+            pendingChunkBytes += size;
+            nextChunkOffset += size;
+        }
+    }
+
+    private byte[] awaitChunk(PendingChunk chunk) throws IOException, RemoteOperationException {
+        try {
+            return chunk.future.get();
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for data of remote input stream " + remoteInputStreamUUID);
+        } catch (ExecutionException e) {
+            cancel();
+            final Throwable cause = e.getCause();
+            if (cause instanceof RemoteOperationException && !dataReceived) {
+                throw (RemoteOperationException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else {
+                throw new IOException(cause.toString());
+            }
+        }
+    }
+}
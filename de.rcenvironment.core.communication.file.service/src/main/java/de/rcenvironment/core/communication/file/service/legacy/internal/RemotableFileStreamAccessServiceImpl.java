@@ -10,10 +10,15 @@ package de.rcenvironment.core.communication.file.service.legacy.internal;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -45,13 +50,50 @@ public class RemotableFileStreamAccessServiceImpl implements RemotableFileStream
 
     private static final Log LOGGER = LogFactory.getLog(RemotableFileStreamAccessServiceImpl.class);
 
+    private static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    // the maximum amount of data that is kept for chunks that were read ahead of their requests; clients keep at most 16 MiB of chunk
+    // requests in flight, so this is only exceeded by invalid offsets
+    private static final long MAX_READ_AHEAD_SIZE = 2 * MAX_CHUNK_SIZE;
+
     /**
      * The {@link Map} to store the open {@link InputStream} objects.
      */
     private static Map<String, InputStream> inputStreamMap = Collections.synchronizedMap(new HashMap<String, InputStream>());
 
+    /**
+     * The read positions of the open {@link InputStream}s that are read via {@link #readChunk(String, Long, Integer)}.
+     */
+    private static Map<String, ChunkedReadState> chunkedReadStates = Collections.synchronizedMap(new HashMap<String, ChunkedReadState>());
+
     private FileDataService dataService;
 
+    /**
+     * The state of a chunked transfer. As the underlying stream can only be read sequentially, a chunk request that arrives before the
+     * requests for its preceding chunks reads their data ahead and keeps it until they arrive.
+     * 
+     * Reading from the stream is serialized by the stream lock. The monitor of this object guards the other fields, and is never held
+     * while reading from the stream.
+     * 
+     * @author agent
+     */
+    private static final class ChunkedReadState {
+
+        private final Lock streamLock = new ReentrantLock();
+
+        // the position of the underlying stream; only advanced while holding both the stream lock and the monitor
+        private long position;
+
+        private boolean endOfStream;
+
+        private boolean closed;
+
+        // the data that was read ahead of its chunk requests, by offset
+        private final NavigableMap<Long, byte[]> readAheadData = new TreeMap<>();
+
+        private long readAheadSize;
+    }
+
     private MetaDataBackendService metaDataBackendService;
 
     protected void bindMetadataBackendService(MetaDataBackendService newService) {
@@ -70,6 +112,13 @@ public class RemotableFileStreamAccessServiceImpl implements RemotableFileStream
             inputStreamMap.get(uuid).close();
             inputStreamMap.remove(uuid);
         }
+        final ChunkedReadState chunkedReadState = chunkedReadStates.remove(uuid);
+        if (chunkedReadState != null) {
+            synchronized (chunkedReadState) {
+                chunkedReadState.closed = true;
+                chunkedReadState.readAheadData.clear();
+            }
+        }
     }
 
     @Override
@@ -112,6 +161,7 @@ public class RemotableFileStreamAccessServiceImpl implements RemotableFileStream
         if (inputStream == null) {
             throw new IOException(ERROR_INPUT_STREAM_NOT_FOUND + uuid);
         } else {
+            checkNotReadInChunks(uuid);
             return inputStream.read();
         }
     }
@@ -127,6 +177,7 @@ public class RemotableFileStreamAccessServiceImpl implements RemotableFileStream
         if (inputStream == null) {
             throw new IOException(ERROR_INPUT_STREAM_NOT_FOUND + uuid);
         } else {
+            checkNotReadInChunks(uuid);
             byte[] buffer = new byte[len];
             int nRead = inputStream.read(buffer, 0, len);
             if (nRead == len) {
@@ -144,6 +195,124 @@ public class RemotableFileStreamAccessServiceImpl implements RemotableFileStream
         }
     }
 
+    @Override
+    @AllowRemoteAccess
+    public byte[] readChunk(String uuid, Long offset, Integer len) throws IOException {
+
+        Assertions.isDefined(uuid, StringUtils.format(ERROR_PARAMETERS_NULL, PARAMETER_UUID));
+        Assertions.isDefined(offset, StringUtils.format(ERROR_PARAMETERS_NULL, "offset"));
+        Assertions.isDefined(len, StringUtils.format(ERROR_PARAMETERS_NULL, "len"));
+        if (len < 0 || len > MAX_CHUNK_SIZE) {
+            throw new IOException("Invalid chunk size: " + len);
+        }
+
+        final InputStream inputStream = inputStreamMap.get(uuid);
+        if (inputStream == null) {
+            throw new IOException(ERROR_INPUT_STREAM_NOT_FOUND + uuid);
+        }
+        final ChunkedReadState state = getChunkedReadState(uuid);
+
+        // chunk requests are processed concurrently, so they may arrive out of order; a chunk that was already read ahead by the request
+        // for a later chunk is served without touching the stream
+        synchronized (state) {
+            checkNotClosed(state, uuid);
+            if (offset < state.position) {
+                return takeReadAheadData(state, uuid, offset, len);
+            }
+        }
+
+        state.streamLock.lock();
+        try {
+            final int readAheadLength;
+            synchronized (state) {
+                checkNotClosed(state, uuid);
+                if (offset < state.position) {
+                    // read ahead by another request while waiting for the stream lock
+                    return takeReadAheadData(state, uuid, offset, len);
+                }
+                if (state.endOfStream) {
+                    return new byte[0];
+                }
+                if (state.readAheadSize + offset - state.position > MAX_READ_AHEAD_SIZE) {
+                    throw new IOException(StringUtils.format("The chunk at offset %d of input stream %s is too far ahead of the chunks "
+                        + "requested so far", offset, uuid));
+                }
+                readAheadLength = (int) (offset - state.position);
+            }
+
+            // read the data of the preceding chunks that have not been requested yet, and then the requested chunk itself
+            final byte[] readAhead = readFully(inputStream, readAheadLength);
+            final byte[] chunk;
+            if (readAhead.length == readAheadLength) {
+                chunk = readFully(inputStream, len);
+            } else {
+                chunk = new byte[0];
+            }
+
+            synchronized (state) {
+                if (readAhead.length != 0) {
+                    state.readAheadData.put(state.position, readAhead);
+                    state.readAheadSize += readAhead.length;
+                }
+                state.position += readAhead.length + chunk.length;
+                state.endOfStream = readAhead.length < readAheadLength || chunk.length < len;
+            }
+            return chunk;
+        } finally {
+            state.streamLock.unlock();
+        }
+    }
+
+    @Override
+    @AllowRemoteAccess
+    public long skipChunk(String uuid, Long offset, Long n) throws IOException {
+
+        Assertions.isDefined(uuid, StringUtils.format(ERROR_PARAMETERS_NULL, PARAMETER_UUID));
+        Assertions.isDefined(offset, StringUtils.format(ERROR_PARAMETERS_NULL, "offset"));
+        Assertions.isDefined(n, StringUtils.format(ERROR_PARAMETERS_NULL, "n"));
+
+        final InputStream inputStream = inputStreamMap.get(uuid);
+        if (inputStream == null) {
+            throw new IOException(ERROR_INPUT_STREAM_NOT_FOUND + uuid);
+        }
+        final ChunkedReadState state = getChunkedReadState(uuid);
+
+        state.streamLock.lock();
+        try {
+            synchronized (state) {
+                checkNotClosed(state, uuid);
+                if (state.endOfStream) {
+                    return 0;
+                }
+                if (offset != state.position) {
+                    throw new IOException(StringUtils.format("Skipping at offset %d of input stream %s while reading at offset %d",
+                        offset, uuid, state.position));
+                }
+            }
+
+            long skipped = 0;
+            while (skipped < n) {
+                final long step = inputStream.skip(n - skipped);
+                if (step > 0) {
+                    skipped += step;
+                } else if (inputStream.read() >= 0) {
+                    // InputStream.skip() may skip nothing before the end of the stream is reached
+                    skipped++;
+                } else {
+                    break;
+                }
+            }
+
+            synchronized (state) {
+                state.position += skipped;
+                state.endOfStream = skipped < n;
+            }
+            return skipped;
+        } finally {
+            state.streamLock.unlock();
+        }
+    }
+
     @Override
     public long skip(String uuid, Long n) throws IOException {
 
@@ -154,8 +323,66 @@ public class RemotableFileStreamAccessServiceImpl implements RemotableFileStream
         if (inputStream == null) {
             throw new IOException(ERROR_INPUT_STREAM_NOT_FOUND + uuid);
         } else {
+            checkNotReadInChunks(uuid);
             return inputStream.skip(n.longValue());
         }
     }
 
+    private ChunkedReadState getChunkedReadState(String uuid) {
+        // safe as this is a synchronized map, so computeIfAbsent() is atomic
+        return chunkedReadStates.computeIfAbsent(uuid, key -> new ChunkedReadState());
+    }
+
+    private void checkNotClosed(ChunkedReadState state, String uuid) throws IOException {
+        if (state.closed) {
+            throw new IOException(ERROR_INPUT_STREAM_NOT_FOUND + uuid);
+        }
+    }
+
+    private byte[] takeReadAheadData(ChunkedReadState state, String uuid, long offset, int len) throws IOException {
+        final Map.Entry<Long, byte[]> entry = state.readAheadData.floorEntry(offset);
+        if (entry == null || offset >= entry.getKey() + entry.getValue().length) {
+            throw new IOException(StringUtils.format("The chunk at offset %d of input stream %s was already read", offset, uuid));
+        }
+        final long start = entry.getKey();
+        final byte[] data = entry.getValue();
+        final int from = (int) (offset - start);
+        final int to = Math.min(from + len, data.length);
+        // remove the returned range, keeping the data of the other chunks that were read ahead together with it
+        state.readAheadData.remove(start);
+        if (from > 0) {
+            state.readAheadData.put(start, Arrays.copyOfRange(data, 0, from));
+        }
+        if (to < data.length) {
+            state.readAheadData.put(start + to, Arrays.copyOfRange(data, to, data.length));
+        }
+        state.readAheadSize -= to - from;
+        if (from == 0 && to == data.length) {
+            return data;
+        } else {
+            return Arrays.copyOfRange(data, from, to);
+        }
+    }
+
+    private byte[] readFully(InputStream inputStream, int len) throws IOException {
+        final byte[] buffer = new byte[len];
+        int filled = 0;
+        while (filled < len) {
+            final int nRead = inputStream.read(buffer, filled, len - filled);
+            if (nRead < 0) {
+                return Arrays.copyOf(buffer, filled);
+            }
+            filled += nRead;
+        }
+        return buffer;
+    }
+
+    private void checkNotReadInChunks(String uuid) throws IOException {
+        // prevents silently returning data from the wrong position, e.g. if a client falls back to sequential reading after a failed
+        // chunk request that was actually executed
+        if (chunkedReadStates.containsKey(uuid)) {
+            throw new IOException("Input stream " + uuid + " is being read in chunks, which must not be mixed with other read operations");
+        }
+    }
+
 }
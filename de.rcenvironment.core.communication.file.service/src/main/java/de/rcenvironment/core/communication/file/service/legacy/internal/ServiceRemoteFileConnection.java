@@ -11,6 +11,9 @@ package de.rcenvironment.core.communication.file.service.legacy.internal;
 import java.io.IOException;
 import java.net.URI;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import de.rcenvironment.core.communication.api.CommunicationService;
 import de.rcenvironment.core.communication.common.CommunicationException;
 import de.rcenvironment.core.communication.file.service.legacy.api.RemotableFileStreamAccessService;
@@ -22,6 +25,9 @@ import de.rcenvironment.core.utils.incubator.Assertions;
 /**
  * This class provides access remote files via the communication bundle service call concept.
  * 
+ * Reading is performed by a {@link ChunkPrefetcher}, which transfers the file in large chunks with several requests in flight. If the
+ * remote node does not support this, this class falls back to one sequential request per read call.
+ * 
  * @author Heinrich Wendel
  * @author Doreen Seider
  * @author Robert Mischke (adapted for 7.0.0)
@@ -35,6 +41,8 @@ public class ServiceRemoteFileConnection implements RemoteFileConnection {
 
     private static final String ERROR_PARAMETERS_NULL = "The parameter \"%s\" must not be null.";
 
+    private static final Log LOGGER = LogFactory.getLog(ServiceRemoteFileConnection.class);
+
     /**
      * The {@link RemotableFileStreamAccessService} of the remote instance where the file is located.
      */
@@ -45,6 +53,10 @@ public class ServiceRemoteFileConnection implements RemoteFileConnection {
      */
     private final String remoteInputStreamUUID;
 
+    private ChunkPrefetcher chunkPrefetcher;
+
+    private boolean sequentialReadFallback = false;
+
     /**
      * Creates a new {@link ServiceRemoteFileConnection} of a remote file and initialize it.
      * @param uri URI pointing to remote file. (rce://node-id/dataReferenceUUID/revision)
@@ -74,38 +86,34 @@ public class ServiceRemoteFileConnection implements RemoteFileConnection {
 
         Assertions.isDefined(b, StringUtils.format(ERROR_PARAMETERS_NULL, "b"));
 
-        Byte[] objectB = new Byte[b.length];
-        for (int i = 0; i < b.length; i++) {
-            objectB[i] = new Byte(b[i]);
-        }
-        int read = 0;
-        try {
-            byte[] buffer = (byte[]) fileService.read(remoteInputStreamUUID, new Integer(len));
-
-            if (buffer.length > 0) {
-                System.arraycopy(buffer, 0, b, off, buffer.length);
-                read = buffer.length;
-            } else {
-                read = MINUS_ONE;
+        if (!sequentialReadFallback) {
+            try {
+                return getChunkPrefetcher().read(b, off, len);
+            } catch (RemoteOperationException e) {
+                switchToSequentialReading(e);
             }
-        } catch (RemoteOperationException e) {
-            throw new IOException(e.toString());
         }
-
-        return read;
+        return readSequentially(b, off, len);
     }
 
     @Override
     public int read() throws IOException {
-        try {
-            return fileService.read(remoteInputStreamUUID);
-        } catch (RemoteOperationException e) {
-            throw new IOException(e.toString());
+        final byte[] buffer = new byte[1];
+        if (read(buffer, 0, 1) < 0) {
+            return MINUS_ONE;
         }
+        return buffer[0] & 0xff;
     }
 
     @Override
     public long skip(long n) throws IOException {
+        if (!sequentialReadFallback) {
+            try {
+                return getChunkPrefetcher().skip(n);
+            } catch (RemoteOperationException e) {
+                switchToSequentialReading(e);
+            }
+        }
         try {
             return fileService.skip(remoteInputStreamUUID, n);
         } catch (RemoteOperationException e) {
@@ -115,6 +123,9 @@ public class ServiceRemoteFileConnection implements RemoteFileConnection {
 
     @Override
     public void close() throws IOException {
+        if (chunkPrefetcher != null) {
+            chunkPrefetcher.cancel();
+        }
         try {
             fileService.close(remoteInputStreamUUID);
         } catch (RemoteOperationException e) {
@@ -122,4 +133,39 @@ public class ServiceRemoteFileConnection implements RemoteFileConnection {
         }
     }
 
+    private ChunkPrefetcher getChunkPrefetcher() {
+        if (chunkPrefetcher == null) {
+            chunkPrefetcher = new ChunkPrefetcher(fileService, remoteInputStreamUUID);
+        }
+        return chunkPrefetcher;
+    }
+
+    private void switchToSequentialReading(RemoteOperationException e) {
+        // typically, the remote node runs an older version without chunked reading; if the failed chunk request was actually executed,
+        // the remote node rejects all sequential reads, so this can not cause data to be skipped silently
+        LOGGER.debug("Failed to read remote input stream " + remoteInputStreamUUID
+            + " in chunks; falling back to sequential reading: " + e.toString());
+        chunkPrefetcher.cancel();
+        chunkPrefetcher = null;
+        sequentialReadFallback = true;
+    }
+
+    private int readSequentially(byte[] b, int off, int len) throws IOException {
+        int read = 0;
+        try {
+            byte[] buffer = (byte[]) fileService.read(remoteInputStreamUUID, new Integer(len));
+
+            if (buffer.length > 0) {
+                System.arraycopy(buffer, 0, b, off, buffer.length);
+                read = buffer.length;
+            } else {
+                read = MINUS_ONE;
+            }
+        } catch (RemoteOperationException e) {
+            throw new IOException(e.toString());
+        }
+
+        return read;
+    }
+
 }
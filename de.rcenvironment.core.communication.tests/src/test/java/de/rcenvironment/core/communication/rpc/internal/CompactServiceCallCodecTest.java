@@ -0,0 +1,202 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.communication.rpc.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.rcenvironment.core.communication.common.LogicalNodeSessionId;
+import de.rcenvironment.core.communication.common.NodeIdentifierTestUtils;
+import de.rcenvironment.core.communication.common.SerializationException;
+import de.rcenvironment.core.communication.rpc.ServiceCallRequest;
+import de.rcenvironment.core.communication.rpc.ServiceCallResult;
+import de.rcenvironment.core.communication.utils.MessageUtils;
+import de.rcenvironment.core.communication.utils.PayloadCodecRegistry;
+
+/**
+ * {@link CompactServiceCallCodec} test case.
+ * 
+ * @author agent
+ */
+public class CompactServiceCallCodecTest {
+
+    private static final String CODEC = CompactServiceCallCodec.CODEC_NAME;
+
+    private LogicalNodeSessionId targetId;
+
+    private LogicalNodeSessionId callerId;
+
+    /**
+     * Common setup.
+     */
+    @Before
+    public void setup() {
+        PayloadCodecRegistry.registerCodec(new CompactServiceCallCodec());
+        NodeIdentifierTestUtils.attachTestNodeIdentifierServiceToCurrentThread();
+        targetId = NodeIdentifierTestUtils.createTestLogicalNodeSessionId(true);
+        callerId = NodeIdentifierTestUtils.createTestLogicalNodeSessionId(true);
+    }
+
+    /**
+     * Common teardown.
+     */
+    @After
+    public void teardown() {
+        NodeIdentifierTestUtils.removeTestNodeIdentifierServiceFromCurrentThread();
+    }
+
+    /**
+     * Tests a round-trip of a {@link ServiceCallRequest} with common parameter types, and verifies that the encoding is detected
+     * automatically.
+     * 
+     * @throws SerializationException on unexpected errors
+     */
+    @Test
+    public void requestRoundTrip() throws SerializationException {
+        final HashMap<String, Serializable> mapParameter = new HashMap<>();
+        mapParameter.put("key", -5L);
+        mapParameter.put("id", callerId);
+        final ArrayList<Serializable> parameters = new ArrayList<>();
+        parameters.add("text");
+        parameters.add(Integer.MIN_VALUE);
+        parameters.add(Long.MAX_VALUE);
+        parameters.add(1.5);
+        parameters.add(true);
+        parameters.add(null);
+        parameters.add(new byte[] { 1, 2, 3 });
+        parameters.add(mapParameter);
+        parameters.add(new ArrayList<>(Arrays.asList("text", "other text")));
+        parameters.add(new Date(0)); // not natively supported -> embedded via Java serialization
+
+        final ServiceCallRequest original =
+            new ServiceCallRequest(targetId, callerId, "some.Service", "someMethod", parameters, "stream-id", 7L);
+        final byte[] encoded = MessageUtils.serializeObject(original, CODEC);
+        assertEquals(CODEC, MessageUtils.detectPayloadCodecName(encoded));
+
+        final ServiceCallRequest restored = MessageUtils.deserializeObject(encoded, ServiceCallRequest.class);
+        assertEquals(targetId, restored.getTargetNodeId());
+        assertEquals(callerId, restored.getCallerNodeId());
+        assertEquals("some.Service", restored.getServiceName());
+        assertEquals("someMethod", restored.getMethodName());
+        assertEquals("stream-id", restored.getReliableRPCStreamId());
+        assertEquals(7L, restored.getSequenceNumber());
+
+        final List<? extends Serializable> restoredParameters = restored.getParameterList();
+        assertEquals(parameters.size(), restoredParameters.size());
+        for (int i = 0; i < parameters.size(); i++) {
+            if (parameters.get(i) instanceof byte[]) {
+                assertArrayEquals((byte[]) parameters.get(i), (byte[]) restoredParameters.get(i));
+            } else {
+                assertEquals(parameters.get(i), restoredParameters.get(i));
+            }
+        }
+    }
+
+    /**
+     * Tests a round-trip of a {@link ServiceCallRequest} without a parameter list.
+     * 
+     * @throws SerializationException on unexpected errors
+     */
+    @Test
+    public void requestWithoutParameters() throws SerializationException {
+        final ServiceCallRequest original = new ServiceCallRequest(targetId, callerId, "some.Service", "someMethod", null, null);
+        final ServiceCallRequest restored =
+            MessageUtils.deserializeObject(MessageUtils.serializeObject(original, CODEC), ServiceCallRequest.class);
+        assertNull(restored.getParameterList());
+        assertNull(restored.getReliableRPCStreamId());
+    }
+
+    /**
+     * Tests a round-trip of a {@link ServiceCallRequest} between non-default logical nodes.
+     * 
+     * @throws SerializationException on unexpected errors
+     */
+    @Test
+    public void requestWithNonDefaultLogicalNodeIds() throws SerializationException {
+        final LogicalNodeSessionId logicalTargetId =
+            NodeIdentifierTestUtils.createTestInstanceNodeSessionId().expandToLogicalNodeSessionId("target1");
+        final LogicalNodeSessionId logicalCallerId =
+            NodeIdentifierTestUtils.createTestInstanceNodeSessionId().expandToLogicalNodeSessionId("caller1");
+        final ServiceCallRequest original =
+            new ServiceCallRequest(logicalTargetId, logicalCallerId, "some.Service", "someMethod", null, null);
+        final ServiceCallRequest restored =
+            MessageUtils.deserializeObject(MessageUtils.serializeObject(original, CODEC), ServiceCallRequest.class);
+        assertEquals(logicalTargetId, restored.getTargetNodeId());
+        assertEquals(logicalCallerId, restored.getCallerNodeId());
+        assertEquals("caller1", restored.getCallerNodeId().getLogicalNodePart());
+    }
+
+    /**
+     * Tests a round-trip of {@link ServiceCallResult}s, and verifies that the compact form is smaller than Java serialization.
+     * 
+     * @throws SerializationException on unexpected errors
+     */
+    @Test
+    public void resultRoundTrip() throws SerializationException {
+        final ServiceCallResult original = new ServiceCallResult("return value", null, null, null);
+        final byte[] encoded = MessageUtils.serializeObject(original, CODEC);
+        assertTrue(encoded.length < MessageUtils.serializeObject(original).length);
+
+        final ServiceCallResult restored = MessageUtils.deserializeObject(encoded, ServiceCallResult.class);
+        assertEquals("return value", restored.getReturnValue());
+        assertTrue(restored.isSuccess());
+
+        final ServiceCallResult errorResult = new ServiceCallResult(null, null, null, "error");
+        final ServiceCallResult restoredError =
+            MessageUtils.deserializeObject(MessageUtils.serializeObject(errorResult, CODEC), ServiceCallResult.class);
+        assertNull(restoredError.getReturnValue());
+        assertEquals("error", restoredError.getRemoteOperationExceptionMessage());
+    }
+
+    /**
+     * Verifies that Java-serialized payloads are still accepted, and that truncated compact payloads are rejected.
+     * 
+     * @throws SerializationException on unexpected errors
+     */
+    @Test
+    public void fallbackAndMalformedInput() throws SerializationException {
+        final byte[] javaSerialized = MessageUtils.serializeObject("test");
+        assertNull(MessageUtils.detectPayloadCodecName(javaSerialized));
+        assertEquals("test", MessageUtils.deserializeObject(javaSerialized));
+        assertNull(MessageUtils.detectPayloadCodecName(MessageUtils.serializeObject("test", null)));
+
+        final byte[] encoded = MessageUtils.serializeObject(new ServiceCallResult("return value", null, null, null), CODEC);
+        try {
+            MessageUtils.deserializeObject(Arrays.copyOf(encoded, encoded.length - 2));
+            throw new AssertionError("Exception expected");
+        } catch (SerializationException e) {
+            assertTrue(true);
+        }
+    }
+
+    /**
+     * Tests codec negotiation from announced codec lists.
+     */
+    @Test
+    public void negotiation() {
+        assertNull(PayloadCodecRegistry.negotiateCodec(null));
+        assertNull(PayloadCodecRegistry.negotiateCodec(""));
+        assertNull(PayloadCodecRegistry.negotiateCodec("unknown-codec"));
+        assertEquals(CODEC, PayloadCodecRegistry.negotiateCodec("unknown-codec," + CODEC));
+        assertEquals(CODEC, PayloadCodecRegistry.negotiateCodec(PayloadCodecRegistry.getSupportedCodecsString()));
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.communication.rpc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.rcenvironment.core.communication.common.LogicalNodeSessionId;
+import de.rcenvironment.core.communication.common.NodeIdentifierTestUtils;
+import de.rcenvironment.core.communication.messaging.internal.InternalMessagingException;
+import de.rcenvironment.core.communication.rpc.ServiceCallRequest;
+import de.rcenvironment.core.communication.rpc.ServiceCallResult;
+import de.rcenvironment.core.communication.rpc.ServiceCallResultFactory;
+
+/**
+ * {@link ReliableRPCStreamReceiver} test case.
+ * 
+ * @author agent
+ */
+public class ReliableRPCStreamReceiverTest {
+
+    private static final String STREAM_ID = "1";
+
+    private static final int WINDOW_SIZE = 4;
+
+    private static final int WAIT_MSEC = 5000;
+
+    private static final int POLL_INTERVAL_MSEC = 10;
+
+    private final List<String> executedMethods = Collections.synchronizedList(new ArrayList<>());
+
+    private final Set<String> methodsToFailOnce = ConcurrentHashMap.newKeySet();
+
+    private LogicalNodeSessionId targetId;
+
+    private LogicalNodeSessionId callerId;
+
+    private ReliableRPCStreamReceiver receiver;
+
+    /**
+     * Common setup.
+     */
+    @Before
+    public void setup() {
+        NodeIdentifierTestUtils.attachTestNodeIdentifierServiceToCurrentThread();
+        targetId = NodeIdentifierTestUtils.createTestLogicalNodeSessionId(true);
+        callerId = NodeIdentifierTestUtils.createTestLogicalNodeSessionId(true);
+        receiver = new ReliableRPCStreamReceiver(STREAM_ID, request -> {
+            executedMethods.add(request.getMethodName());
+            if (methodsToFailOnce.remove(request.getMethodName())) {
+                throw new InternalMessagingException("Simulated failure", null);
+            }
+            return ServiceCallResultFactory.wrapReturnValue(request.getMethodName());
+        }, WINDOW_SIZE);
+    }
+
+    /**
+     * Common teardown.
+     */
+    @After
+    public void teardown() {
+        NodeIdentifierTestUtils.removeTestNodeIdentifierServiceFromCurrentThread();
+    }
+
+    /**
+     * Tests that requests arriving out of order are held back without blocking, and executed in sequence number order.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void outOfOrderRequestsAreExecutedInOrder() throws Exception {
+        assertNull(receiver.handle(createRequest(3)));
+        assertNull(receiver.handle(createRequest(2)));
+        assertEquals(0, executedMethods.size());
+
+        assertEquals("m1", receiver.handle(createRequest(1)).getReturnValue());
+        assertEquals("m3", handleUntilExecuted(3).getReturnValue());
+        assertEquals("m2", handleUntilExecuted(2).getReturnValue());
+        assertEquals(Arrays.asList("m1", "m2", "m3"), executedMethods);
+    }
+
+    /**
+     * Tests that repeated requests are answered with the cached result, and that repetitions of a held back request are held back as well.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void repeatedRequestsAreNotExecutedAgain() throws Exception {
+        assertNull(receiver.handle(createRequest(2)));
+        assertNull(receiver.handle(createRequest(2)));
+        receiver.handle(createRequest(1));
+        assertEquals("m2", handleUntilExecuted(2).getReturnValue());
+        assertEquals("m2", receiver.handle(createRequest(2)).getReturnValue());
+        assertEquals("m1", receiver.handle(createRequest(1)).getReturnValue());
+        assertEquals(Arrays.asList("m1", "m2"), executedMethods);
+    }
+
+    /**
+     * Tests that cached results are released once they have been implicitly acknowledged, and that requests outside of the window are
+     * rejected.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void acknowledgedResultsAreReleased() throws Exception {
+        for (int i = 1; i <= WINDOW_SIZE; i++) {
+            receiver.handle(createRequest(i));
+        }
+        // implies that the result of request 1 has been received by the sender
+        receiver.handle(createRequest(WINDOW_SIZE + 1));
+        try {
+            receiver.handle(createRequest(1));
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals(WINDOW_SIZE + 1, executedMethods.size());
+        }
+        // still within the window, so the cached result is returned
+        assertEquals("m2", receiver.handle(createRequest(2)).getReturnValue());
+
+        try {
+            receiver.handle(createRequest(2 * WINDOW_SIZE + 2));
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals(WINDOW_SIZE + 1, executedMethods.size());
+        }
+    }
+
+    /**
+     * Tests that a held back request that fails when it is dispatched from the reorder buffer is executed again when it is repeated.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void failedHeldBackRequestIsExecutedAgainOnRepetition() throws Exception {
+        methodsToFailOnce.add("m3");
+        assertNull(receiver.handle(createRequest(2)));
+        assertNull(receiver.handle(createRequest(3)));
+        assertEquals("m1", receiver.handle(createRequest(1)).getReturnValue());
+        assertEquals("m2", handleUntilExecuted(2).getReturnValue());
+        // request 3 was dispatched in the background, failed, and was executed again by its repetition
+        assertEquals("m3", handleUntilExecuted(3).getReturnValue());
+        assertEquals(Arrays.asList("m1", "m2", "m3", "m3"), executedMethods);
+    }
+
+    private ServiceCallResult handleUntilExecuted(long sequenceNumber) throws Exception {
+        final long deadline = System.currentTimeMillis() + WAIT_MSEC;
+        while (true) {
+            try {
+                final ServiceCallResult result = receiver.handle(createRequest(sequenceNumber));
+                if (result != null) {
+                    return result;
+                }
+            } catch (InternalMessagingException e) {
+                // like the sender, repeat the request after a failed execution
+                assertEquals("Simulated failure", e.getMessage());
+            }
+            assertTrue("Request was not executed in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(POLL_INTERVAL_MSEC);
+        }
+    }
+
+    private ServiceCallRequest createRequest(long sequenceNumber) {
+        return new ServiceCallRequest(targetId, callerId, "service", "m" + sequenceNumber, null, STREAM_ID, sequenceNumber);
+    }
+}
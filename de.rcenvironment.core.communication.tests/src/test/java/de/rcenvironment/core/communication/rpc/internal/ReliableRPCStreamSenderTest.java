@@ -0,0 +1,224 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.communication.rpc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.rcenvironment.core.communication.common.InstanceNodeSessionId;
+import de.rcenvironment.core.communication.common.LogicalNodeSessionId;
+import de.rcenvironment.core.communication.common.NetworkGraphLink;
+import de.rcenvironment.core.communication.common.NodeIdentifierTestUtils;
+import de.rcenvironment.core.communication.common.SerializationException;
+import de.rcenvironment.core.communication.model.NetworkRequest;
+import de.rcenvironment.core.communication.model.NetworkResponse;
+import de.rcenvironment.core.communication.model.impl.NetworkResponseImpl;
+import de.rcenvironment.core.communication.protocol.ProtocolConstants.ResultCode;
+import de.rcenvironment.core.communication.routing.MessageRoutingService;
+import de.rcenvironment.core.communication.rpc.ServiceCallRequest;
+import de.rcenvironment.core.communication.rpc.ServiceCallResult;
+import de.rcenvironment.core.communication.rpc.ServiceCallResultFactory;
+import de.rcenvironment.core.communication.utils.MessageUtils;
+
+/**
+ * {@link ReliableRPCStreamSender} test case.
+ * 
+ * @author agent
+ */
+public class ReliableRPCStreamSenderTest {
+
+    private static final String STREAM_ID = "1";
+
+    private static final int WAIT_MSEC = 10000;
+
+    private static final int SHORT_WAIT_MSEC = 100;
+
+    private static final int QUEUED_CALLERS = 5;
+
+    private static final int HELD_BACK_RESPONSES = 3;
+
+    /**
+     * A {@link MessageRoutingService} stub that answers each request according to the method name of the sent
+     * {@link ServiceCallRequest}, which is provided by the calling thread.
+     * 
+     * @author agent
+     */
+    private final class RoutingServiceStub implements MessageRoutingService {
+
+        @Override
+        public NetworkResponse performRoutedRequest(byte[] payload, String messageType, InstanceNodeSessionId receiver) {
+            final String methodName = currentMethodName.get();
+            synchronized (sentMethodNames) {
+                sentMethodNames.add(methodName);
+            }
+            try {
+                if (methodName.startsWith("blocking")) {
+                    firstRequestReleased.await(WAIT_MSEC, TimeUnit.MILLISECONDS);
+                } else if (methodName.equals("fatal")) {
+                    return new NetworkResponseImpl(null, "id", ResultCode.TARGET_NODE_RESTARTED);
+                } else if (methodName.equals("heldBack") && heldBackResponsesLeft.getAndDecrement() > 0) {
+                    return new NetworkResponseImpl(null, "id", ResultCode.REQUEST_HELD_BACK);
+                } else if (methodName.equals("retrying")) {
+                    retryingRequestSent.countDown();
+                    return new NetworkResponseImpl(null, "id", ResultCode.EXCEPTION_AT_DESTINATION);
+                }
+                return new NetworkResponseImpl(MessageUtils.serializeObject(ServiceCallResultFactory.wrapReturnValue(methodName)), "id",
+                    ResultCode.SUCCESS);
+            } catch (InterruptedException | SerializationException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public NetworkResponse performRoutedRequest(byte[] payload, String messageType, InstanceNodeSessionId receiver,
+            int timeoutMsec) {
+            return performRoutedRequest(payload, messageType, receiver);
+        }
+
+        @Override
+        public NetworkResponse forwardAndAwait(NetworkRequest forwardingRequest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<? extends NetworkGraphLink> getRouteTo(InstanceNodeSessionId destination) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final List<String> sentMethodNames = new ArrayList<>();
+
+    private final ThreadLocal<String> currentMethodName = new ThreadLocal<>();
+
+    private final CountDownLatch firstRequestReleased = new CountDownLatch(1);
+
+    private final CountDownLatch retryingRequestSent = new CountDownLatch(1);
+
+    private final AtomicInteger heldBackResponsesLeft = new AtomicInteger(HELD_BACK_RESPONSES);
+
+    private LogicalNodeSessionId targetId;
+
+    private LogicalNodeSessionId callerId;
+
+    private ExecutorService threadPool;
+
+    /**
+     * Common setup.
+     */
+    @Before
+    public void setup() {
+        NodeIdentifierTestUtils.attachTestNodeIdentifierServiceToCurrentThread();
+        targetId = NodeIdentifierTestUtils.createTestLogicalNodeSessionId(true);
+        callerId = NodeIdentifierTestUtils.createTestLogicalNodeSessionId(true);
+        threadPool = Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Common teardown.
+     */
+    @After
+    public void teardown() {
+        threadPool.shutdownNow();
+        NodeIdentifierTestUtils.removeTestNodeIdentifierServiceFromCurrentThread();
+    }
+
+    /**
+     * Tests that callers waiting for a free slot in the window are assigned sequence numbers in the order of their calls.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void waitingCallersAreAdmittedInCallOrder() throws Exception {
+        final ReliableRPCStreamSender sender = createSender(1);
+        final List<ServiceCallRequest> requests = new ArrayList<>();
+        final List<Future<ServiceCallResult>> results = new ArrayList<>();
+        for (int i = 0; i < QUEUED_CALLERS; i++) {
+            final ServiceCallRequest request = createRequest("blocking" + i);
+            requests.add(request);
+            results.add(performAsync(sender, request));
+            // make sure that the callers start waiting in a defined order
+            Thread.sleep(SHORT_WAIT_MSEC);
+        }
+        firstRequestReleased.countDown();
+        for (int i = 0; i < QUEUED_CALLERS; i++) {
+            assertTrue(results.get(i).get(WAIT_MSEC, TimeUnit.MILLISECONDS).isSuccess());
+            assertEquals(i + 1, requests.get(i).getSequenceNumber());
+        }
+    }
+
+    /**
+     * Tests that abandoning a request after a non-recoverable error aborts the stream, so that other requests in flight stop retrying and
+     * new requests fail without being sent.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void abandonedRequestAbortsStream() throws Exception {
+        final ReliableRPCStreamSender sender = createSender(ReliableRPCStreamSender.DEFAULT_WINDOW_SIZE);
+        final Future<ServiceCallResult> retryingResult = performAsync(sender, createRequest("retrying"));
+        assertTrue(retryingRequestSent.await(WAIT_MSEC, TimeUnit.MILLISECONDS));
+
+        assertFalse(perform(sender, createRequest("fatal")).isSuccess());
+        assertFalse(retryingResult.get(WAIT_MSEC, TimeUnit.MILLISECONDS).isSuccess());
+        assertFalse(perform(sender, createRequest("afterAbort")).isSuccess());
+        synchronized (sentMethodNames) {
+            assertFalse(sentMethodNames.contains("afterAbort"));
+        }
+    }
+
+    /**
+     * Tests that a request held back by the receiver is repeated quickly until its result is available, without the delay of a retry
+     * after an error.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void heldBackRequestIsRepeatedUntilExecuted() throws Exception {
+        final ReliableRPCStreamSender sender = createSender(ReliableRPCStreamSender.DEFAULT_WINDOW_SIZE);
+        final long startTime = System.currentTimeMillis();
+        final ServiceCallResult result = perform(sender, createRequest("heldBack"));
+        assertTrue(result.isSuccess());
+        assertEquals("heldBack", result.getReturnValue());
+        assertTrue(System.currentTimeMillis() - startTime < WAIT_MSEC / 2);
+        synchronized (sentMethodNames) {
+            assertEquals(HELD_BACK_RESPONSES + 1, sentMethodNames.size());
+        }
+    }
+
+    private ReliableRPCStreamSender createSender(int windowSize) {
+        return new ReliableRPCStreamSender(new ReliableRPCStreamHandleImpl(targetId, STREAM_ID), new RoutingServiceStub(), windowSize);
+    }
+
+    private ServiceCallResult perform(ReliableRPCStreamSender sender, ServiceCallRequest request) throws SerializationException {
+        currentMethodName.set(request.getMethodName());
+        return sender.performRequest(request);
+    }
+
+    private Future<ServiceCallResult> performAsync(ReliableRPCStreamSender sender, ServiceCallRequest request) {
+        return threadPool.submit(() -> perform(sender, request));
+    }
+
+    private ServiceCallRequest createRequest(String methodName) {
+        return new ServiceCallRequest(targetId, callerId, "service", methodName, null, STREAM_ID, 0);
+    }
+}
@@ -46,6 +46,7 @@ public class ActiveMQTransportProvider extends AbstractJmsTransportProvider {
     // OSGi-DS component lifecycle method
     protected void deactivate() {
         log.debug("Deactivating ActiveMQ transport");
+        disposeSharedResources();
     }
 
 }
@@ -9,14 +9,15 @@ package de.rcenvironment.core.communication.transport.jms.common;
 
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jms.Connection;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
 import javax.jms.Queue;
 import javax.jms.Session;
-import javax.jms.TemporaryQueue;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -36,6 +37,7 @@ import de.rcenvironment.core.utils.common.StringUtils;
 import de.rcenvironment.core.utils.incubator.DebugSettings;
 import de.rcenvironment.toolkit.modules.concurrency.api.AsyncTaskService;
 import de.rcenvironment.toolkit.modules.concurrency.api.TaskDescription;
+import de.rcenvironment.toolkit.modules.concurrency.api.TimeoutWheel;
 
 /**
  * The abstract superclass for both self-initiated and remote-initiated JMS connections.
@@ -62,10 +64,19 @@ public abstract class AbstractJmsMessageChannel extends AbstractMessageChannel i
 
     private NonBlockingResponseInboxConsumer responseInboxConsumer;
 
+    private final TimeoutWheel responseTimeoutWheel;
+
+    private volatile boolean useBytesMessages;
+
+    private volatile boolean useClientCorrelationIds;
+
+    private final AtomicLong correlationIdSequence = new AtomicLong();
+
     private final boolean verboseRequestLoggingEnabled = DebugSettings.getVerboseLoggingEnabled("NetworkRequests");
 
     /**
-     * A {@link Runnable} that holds a single queue for outgoing {@link NetworkRequest}, and sends them sequentially.
+     * A {@link Runnable} that holds a single queue for outgoing {@link NetworkRequest}, and sends them sequentially. The JMS session,
+     * producer and reply-to destination are created once and reused for all requests of the channel.
      * 
      * @author Robert Mischke
      */
@@ -75,7 +86,9 @@ public abstract class AbstractJmsMessageChannel extends AbstractMessageChannel i
 
         private Session jmsSession;
 
-        private Queue jmsDestinationQueue;
+        private MessageProducer jmsProducer;
+
+        private Queue jmsReplyToQueue;
 
         private volatile boolean cancelled = false;
 
@@ -88,16 +101,18 @@ public abstract class AbstractJmsMessageChannel extends AbstractMessageChannel i
                 try {
                     // IMPORTANT: although this is not stated in the JMS JavaDoc, this ActiveMQ call can block the thread! - misc_ro
                     jmsSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-                    jmsDestinationQueue = jmsSession.createQueue(outgoingRequestQueueName);
+                    jmsProducer = jmsSession.createProducer(jmsSession.createQueue(outgoingRequestQueueName));
+                    JmsProtocolUtils.configureMessageProducer(jmsProducer);
+                    jmsReplyToQueue = jmsSession.createQueue(sharedResponseQueueName);
                 } catch (JMSException e) {
-                    log.error("Error creating JMS session or destination for request sender loop", e);
+                    log.error("Error creating JMS session, producer or destinations for request sender loop", e);
                     return;
                 }
                 runDispatchLoop();
             } finally {
                 try {
                     if (jmsSession != null) {
-                        jmsSession.close();
+                        jmsSession.close(); // also closes the producer
                     }
                 } catch (JMSException e) {
                     log.error("Error closing JMS session after running request sender loop", e);
@@ -115,10 +130,14 @@ public abstract class AbstractJmsMessageChannel extends AbstractMessageChannel i
                     log.warn("Request sender interrupted; shutting down");
                     return;
                 }
-                if (cancelled) {
+                if (nextTask instanceof FinalMessagesTask) {
+                    nextTask.run();
                     log.debug("Clean request sender shutdown");
                     return;
                 }
+                if (cancelled) {
+                    continue; // discard requests that were enqueued while shutting down
+                }
                 nextTask.run(); // important: run in same single thread, not dispatched to thread pool
             }
         }
@@ -131,25 +150,30 @@ public abstract class AbstractJmsMessageChannel extends AbstractMessageChannel i
 
                 @Override
                 public void run() {
-                    sendNonBlockingRequest(jmsSession, jmsDestinationQueue, request, responseHandler, timeoutMsec);
+                    sendNonBlockingRequest(jmsSession, jmsProducer, jmsReplyToQueue, request, responseHandler, timeoutMsec);
 
                     // store transit time statistics; intended to check if JMS producer stalling occurs
                     final int rangeValue = request.getContentBytes().length / SIZE_CATEGORY_DIVISOR;
                     final String categoryString = StringUtils.format("Size range: %1$s00..%1$s99 kiB", rangeValue);
-                    StatsCounter.registerValue("Messaging: Outgoing request queue transit time", categoryString,
+                    StatsCounter.registerValueWithDistribution("Messaging: Outgoing request queue transit time", categoryString,
                         System.currentTimeMillis() - startTime);
                 }
             });
         }
 
-        public void shutdown() {
-            // discard all enqueued messages when closing the channel; that the shutdown information signal is sent outside of this queue
+        /**
+         * @param sendChannelClosingMessage true to send a "channel closing" message to the remote request inbox before terminating
+         * @param sendQueueShutdownMessage true to send a "queue shutdown" message to the remote request inbox before terminating
+         */
+        public void shutdown(boolean sendChannelClosingMessage, boolean sendQueueShutdownMessage) {
+            // discard all enqueued messages when closing the channel; the shutdown messages are sent by the final task
             // (note: there is no point in trying go get an exact number here, as new messages can be enqueued at any time)
             int numDiscarded = queue.size();
             queue.clear();
 
             cancelled = true;
-            enqueue(null, null, 0); // ensure that the dispatcher wakes up to "see" the shutdown flag
+            // also ensures that the dispatcher wakes up to "see" the shutdown flag
+            queue.add(new FinalMessagesTask(sendChannelClosingMessage, sendQueueShutdownMessage));
             if (numDiscarded != 0) {
                 log.debug(StringUtils.format("Discarded %d pending requests for %s as channel %s is shutting down", numDiscarded,
                     getRemoteNodeInformation().getInstanceNodeSessionId(), getChannelId()));
@@ -158,63 +182,62 @@ public abstract class AbstractJmsMessageChannel extends AbstractMessageChannel i
     }
 
     /**
-     * @param transportContext
+     * The last task of a {@link RequestSender}, which sends the shutdown messages to the remote request inbox (if requested) using the
+     * sender's session and producer.
+     * 
+     * @author agent
      */
-    public AbstractJmsMessageChannel(InstanceNodeSessionId localNodeId) {
-        this.localNodeId = localNodeId;
-    }
+    private final class FinalMessagesTask implements Runnable {
 
-    @Override
-    public void sendRequest(final NetworkRequest request, final MessageChannelResponseHandler responseHandler, final int timeoutMsec) {
-        requestSender.enqueue(request, responseHandler, timeoutMsec); // new approach
-        // spawnBlockingRequestResponseTask(request, responseHandler, timeoutMsec); // old approach
-    }
+        private final boolean sendChannelClosingMessage;
 
-    protected void sendShutdownMessageToRemoteRequestInbox() {
-        try {
-            final Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        private final boolean sendQueueShutdownMessage;
+
+        FinalMessagesTask(boolean sendChannelClosingMessage, boolean sendQueueShutdownMessage) {
+            this.sendChannelClosingMessage = sendChannelClosingMessage;
+            this.sendQueueShutdownMessage = sendQueueShutdownMessage;
+        }
+
+        @Override
+        public void run() {
+            final Session session = requestSender.jmsSession;
+            final MessageProducer producer = requestSender.jmsProducer;
             try {
-                final Queue destinationQueue = session.createQueue(outgoingRequestQueueName);
-                Message shutdownMessage = JmsProtocolUtils.createChannelShutdownMessage(session, getChannelId(), shutdownSecurityToken);
-                session.createProducer(destinationQueue).send(shutdownMessage); // disposed in finally block (as part of the session)
-            } finally {
-                session.close();
+                if (sendChannelClosingMessage) {
+                    producer.send(JmsProtocolUtils.createChannelShutdownMessage(session, getChannelId(), shutdownSecurityToken));
+                }
+                if (sendQueueShutdownMessage) {
+                    // allows the remote queue listener to terminate cleanly
+                    producer.send(JmsProtocolUtils.createQueueShutdownMessage(session, shutdownSecurityToken));
+                }
+            } catch (JMSException e) {
+                // typically caused by the remote side or the connection being gone already; only log the compact exception
+                log.debug(StringUtils.format("Failed to send shutdown message(s) to queue %s while closing channel %s: %s",
+                    outgoingRequestQueueName, getChannelId(), e.toString()));
             }
-        } catch (JMSException e) {
-            log.debug("Failed to send shutdown message while closing channel " + getChannelId(), e);
         }
     }
 
     /**
-     * Sends a shutdown message to the broker-to-client (B2C) queue at the JMS broker. This allows the client-side queue listener to
-     * terminate cleanly.
-     * 
-     * @throws JMSException on JMS errors
+     * @param localNodeId the id of the local node
+     * @param responseTimeoutWheel the {@link TimeoutWheel} to track response timeouts with; owned by the transport provider
      */
-    protected void asyncSendShutdownMessageToB2CJmsQueue() throws JMSException {
-        threadPool.execute("JMS Network Transport: Send shutdown signal to Client-to-Broker queue", () -> {
+    public AbstractJmsMessageChannel(InstanceNodeSessionId localNodeId, TimeoutWheel responseTimeoutWheel) {
+        this.localNodeId = localNodeId;
+        this.responseTimeoutWheel = responseTimeoutWheel;
+    }
 
-            Session session;
-            try {
-                session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-                try {
-                    final Queue destinationQueue = session.createQueue(outgoingRequestQueueName);
-                    Message shutdownMessage = JmsProtocolUtils.createQueueShutdownMessage(session, shutdownSecurityToken);
-                    session.createProducer(destinationQueue).send(shutdownMessage); // disposed in finally block (part of the session)
-                } finally {
-                    session.close();
-                }
-            } catch (JMSException e) {
-                String message = e.toString();
-                // ignore exceptions that just report that the temporary queue is already gone,
-                // which is normal on client connection breakdown - misc_ro
-                if (!message.contains("")) {
-                    log.warn(StringUtils.format("Exception on sending shutdown signal to Client-to-Broker JMS queue %s: %s",
-                        outgoingRequestQueueName, message));
-                }
-            }
+    @Override
+    public void sendRequest(final NetworkRequest request, final MessageChannelResponseHandler responseHandler, final int timeoutMsec) {
+        requestSender.enqueue(request, responseHandler, timeoutMsec);
+    }
 
-        });
+    @Override
+    public void setRemoteWireFormats(String remoteWireFormats) {
+        this.useBytesMessages =
+            JmsProtocolUtils.negotiateWireFormat(remoteWireFormats, JmsProtocolConstants.WIRE_FORMAT_BYTES_MESSAGE);
+        this.useClientCorrelationIds =
+            JmsProtocolUtils.negotiateWireFormat(remoteWireFormats, JmsProtocolConstants.WIRE_FORMAT_CLIENT_CORRELATION_IDS);
     }
 
     @Override
@@ -225,21 +248,24 @@ public abstract class AbstractJmsMessageChannel extends AbstractMessageChannel i
     @Override
     public void setupNonBlockingRequestSending(String outgoingRequestQueue, String incomingResponseQueue) throws JMSException {
 
-        // set up request sending
+        // note: both queue names must be set before starting the request sender, as it uses them for its reply-to destination
         log.debug(StringUtils.format("Setting outgoing request queue for channel %s to %s", getChannelId(), outgoingRequestQueue));
         this.outgoingRequestQueueName = outgoingRequestQueue;
+        log.debug(StringUtils.format("Setting incoming response queue for channel %s to %s", getChannelId(), incomingResponseQueue));
+        this.sharedResponseQueueName = incomingResponseQueue;
+
+        // set up request sending
         startRequestSender(StringUtils.format("Request Sender for channel %s @ %s", getChannelId(), outgoingRequestQueue));
 
         // set up response handling
-        log.debug(StringUtils.format("Setting incoming response queue for channel %s to %s", getChannelId(), incomingResponseQueue));
-        this.sharedResponseQueueName = incomingResponseQueue;
         startResponseConsumer(StringUtils.format("Response Inbox Consumer for channel %s @ %s", getChannelId(), incomingResponseQueue));
     }
 
     @Override
     protected void onClosedOrBroken() {
         if (requestSender != null) {
-            requestSender.shutdown();
+            // on a clean shutdown, send a "goodbye" message as the final message of the request sender
+            requestSender.shutdown(getState() == MessageChannelState.CLOSED, isQueueShutdownMessageRequired());
         }
         try {
             if (responseInboxConsumer != null) {
@@ -256,7 +282,7 @@ public abstract class AbstractJmsMessageChannel extends AbstractMessageChannel i
     }
 
     private void startResponseConsumer(String taskName) throws JMSException {
-        responseInboxConsumer = new NonBlockingResponseInboxConsumer(sharedResponseQueueName, connection);
+        responseInboxConsumer = new NonBlockingResponseInboxConsumer(sharedResponseQueueName, connection, responseTimeoutWheel);
         threadPool.execute(responseInboxConsumer, taskName);
     }
 
@@ -269,105 +295,44 @@ public abstract class AbstractJmsMessageChannel extends AbstractMessageChannel i
         return shutdownSecurityToken;
     }
 
-    private void spawnBlockingRequestResponseTask(final NetworkRequest request, final MessageChannelResponseHandler responseHandler,
-        final int timeoutMsec) {
-        // note: old approach
-        threadPool.execute("JMS Network Transport: blocking request/response", () -> {
-            // check if channel was closed or marked as broken in the meantime
-            if (!isReadyToUse()) {
-                NetworkResponse response =
-                    NetworkResponseFactory.generateResponseForCloseOrBrokenChannelDuringRequestDelivery(request, localNodeId, null);
-                responseHandler.onResponseAvailable(response);
-                return;
-            }
-
-            performBlockingRequestResponse(request, responseHandler, timeoutMsec);
-        });
-    }
-
-    private void performBlockingRequestResponse(final NetworkRequest request, final MessageChannelResponseHandler responseHandler,
-        final int timeoutMsec) {
-        try {
-            // IMPORTANT: although this is not stated in the JMS JavaDoc, this ActiveMQ call can block the thread! - misc_ro
-            final Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-            try {
-                final Queue destinationQueue = session.createQueue(outgoingRequestQueueName);
-                // construct message
-                Message jmsRequest = JmsProtocolUtils.createMessageFromNetworkRequest(request, session);
-                Message jmsResponse = performBlockingJmsRequestResponse(session, jmsRequest, destinationQueue, timeoutMsec);
-                NetworkResponse response = JmsProtocolUtils.createNetworkResponseFromMessage(jmsResponse, request);
-                responseHandler.onResponseAvailable(response);
-            } finally {
-                session.close();
-            }
-        } catch (TimeoutException e) {
-            // do not print the irrelevant stacktrace for this exception; only use message
-            log.debug(StringUtils.format("Timeout while waiting for response to request '%s' of type '%s': %s",
-                request.getRequestId(), request.getMessageType(), e.getMessage()));
-            NetworkResponse response =
-                NetworkResponseFactory.generateResponseForTimeoutWaitingForResponse(request, localNodeId);
-            responseHandler.onResponseAvailable(response);
-        } catch (JMSException e) {
-            // TODO detect broken connections
-            responseHandler.onChannelBroken(request, AbstractJmsMessageChannel.this);
-            String errorId = LogUtils.logErrorAndAssignUniqueMarker(
-                log, StringUtils.format("Error sending JMS message via channel %s; channel will be marked as broken (exception: %s) ",
-                    getChannelId(), e.toString()));
-            NetworkResponse response = NetworkResponseFactory.generateResponseForErrorDuringDelivery(request, localNodeId, errorId);
-            responseHandler.onResponseAvailable(response);
-        }
+    /**
+     * @return true if a "queue shutdown" message should be sent to the remote request inbox when this channel is closed or broken
+     */
+    protected boolean isQueueShutdownMessageRequired() {
+        return false;
     }
 
+    /**
+     * Sends a message and waits for the response on an existing queue. As no other consumer may listen on the response queue at the same
+     * time, this is only intended for the initial handshake, which runs before the channel's non-blocking response consumer is started.
+     * 
+     * @param session the JMS session to use
+     * @param message the message to send
+     * @param destinationQueue the queue to send the message to
+     * @param responseQueue the queue to receive the response from; set as the reply-to destination of the message
+     * @param timeoutMsec the maximum time to wait for the response
+     * @return the received response
+     * @throws JMSException on JMS errors
+     * @throws TimeoutException if no response was received within the timeout
+     */
     protected final Message performBlockingJmsRequestResponse(final Session session, Message message,
-        final Queue destinationQueue, int timeoutMsec) throws JMSException, TimeoutException {
-        final TemporaryQueue tempResponseQueue = session.createTemporaryQueue();
+        final Queue destinationQueue, final Queue responseQueue, int timeoutMsec) throws JMSException, TimeoutException {
+        message.setJMSReplyTo(responseQueue);
+        // create the consumer before sending to make sure that the response can not be missed
+        final MessageConsumer consumer = session.createConsumer(responseQueue);
         try {
-            message.setJMSReplyTo(tempResponseQueue);
             // send
-            sendRequest(session, message, destinationQueue);
+            JmsProtocolUtils.sendWithTransientProducer(session, message, destinationQueue);
             // receive
-            return receiveResponse(session, timeoutMsec, tempResponseQueue);
-        } finally { // close temporary queue
-            try {
-                tempResponseQueue.delete();
-            } catch (JMSException e) {
-                // only log compact exception
-                log.debug(StringUtils.format(
-                    "Exception on deleting a temporary response queue for channel %s (%s - %s): %s",
-                    getChannelId(), tempResponseQueue.getQueueName(), getState(), e.toString()));
-            }
-        }
-    }
-
-    private void sendNonBlockingRequestInTempSession(final NetworkRequest request, final MessageChannelResponseHandler responseHandler,
-        final int timeoutMsec) {
-
-        Session session = null;
-        Queue destinationQueue = null;
-        try {
-            // IMPORTANT: although this is not stated in the JMS JavaDoc, this ActiveMQ call can block the thread! - misc_ro
-            try {
-                session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-                destinationQueue = session.createQueue(outgoingRequestQueueName);
-            } catch (JMSException e) {
-                log.error("Error creating JMS session or destination for message sending", e);
-                return;
-            }
-            sendNonBlockingRequest(session, destinationQueue, request, responseHandler, timeoutMsec);
+            return receiveResponse(consumer, timeoutMsec, responseQueue);
         } finally {
-            try {
-                if (session != null) {
-                    session.close();
-                }
-            } catch (JMSException e) {
-                log.error("Error closing JMS session after message sending", e);
-                return;
-            }
+            // close the consumer so that the non-blocking response consumer can take over this queue
+            consumer.close();
         }
     }
 
-    private void sendNonBlockingRequest(final Session session, final Queue destinationQueue, final NetworkRequest request,
-        final MessageChannelResponseHandler responseHandler, final int timeoutMsec) {
+    private void sendNonBlockingRequest(final Session session, final MessageProducer producer, final Queue replyToQueue,
+        final NetworkRequest request, final MessageChannelResponseHandler responseHandler, final int timeoutMsec) {
         try {
             final int requestPayloadSize = request.getContentBytes().length;
             if (verboseRequestLoggingEnabled) {
@@ -379,67 +344,25 @@ public abstract class AbstractJmsMessageChannel extends AbstractMessageChannel i
                     request.getRequestId(), request.accessMetaData().getFinalRecipient(), request.getMessageType(), requestPayloadSize));
             }
             // construct message
-            Message jmsRequest = JmsProtocolUtils.createMessageFromNetworkRequest(request, session);
-            final Queue replyToQueue = session.createQueue(sharedResponseQueueName);
+            Message jmsRequest = JmsProtocolUtils.createMessageFromNetworkRequest(request, session, useBytesMessages);
             jmsRequest.setJMSReplyTo(replyToQueue);
-            // send
-            sendRequest(session, jmsRequest, destinationQueue);
-            String messageId = jmsRequest.getJMSMessageID();
-
-            responseInboxConsumer.registerResponseListener(messageId, new JmsResponseCallback() {
-
-                @Override
-                public void onResponseReceived(Message jmsResponse) {
-                    NetworkResponse response;
-                    try {
-                        response = JmsProtocolUtils.createNetworkResponseFromMessage(jmsResponse, request);
-                        final int responsePayloadSize = response.getContentBytes().length;
-                        if (verboseRequestLoggingEnabled) {
-                            log.debug(
-                                StringUtils.format("Received response %s from %s: response payload length is %d", response.getRequestId(),
-                                    request.accessMetaData().getFinalRecipient(), responsePayloadSize));
-                        }
-                        if (responsePayloadSize >= NETWORK_PAYLOAD_SIZE_WARNING_THRESHOLD) {
-                            log.debug(StringUtils.format(
-                                "Received large network response %s from %s: request type was %s, response payload length is %d",
-                                response.getRequestId(), request.accessMetaData().getFinalRecipient(), request.getMessageType(),
-                                responsePayloadSize));
-                        } else if (requestPayloadSize >= NETWORK_PAYLOAD_SIZE_WARNING_THRESHOLD) {
-                            // non-large response to large request
-                            log.debug(StringUtils.format("Received network response %s for a large request sent to %s: "
-                                + "request type was %s, response payload length is %d",
-                                response.getRequestId(), request.accessMetaData().getFinalRecipient(), request.getMessageType(),
-                                responsePayloadSize));
-                        }
-                        responseHandler.onResponseAvailable(response);
-                    } catch (JMSException e) {
-                        // check: log full stacktrace here, or compress it?
-                        String errorId = LogUtils.logExceptionWithStacktraceAndAssignUniqueMarker(log,
-                            "JMS exception while parsing response message", e);
-                        response = NetworkResponseFactory.generateResponseForErrorDuringDelivery(request, localNodeId, errorId);
-                        responseHandler.onResponseAvailable(response);
-                    }
-                }
-
-                @Override
-                public void onTimeoutReached() {
-                    log.debug(StringUtils.format("Timeout reached while waiting for response to request '%s' of type '%s'",
-                        request.getRequestId(), request.getMessageType()));
-                    NetworkResponse response =
-                        NetworkResponseFactory.generateResponseForTimeoutWaitingForResponse(request, localNodeId);
-                    responseHandler.onResponseAvailable(response);
-                }
-
-                @Override
-                public void onChannelClosed() {
-                    log.debug(StringUtils.format("Message channel closed while waiting for response to request '%s' of type '%s'",
-                        request.getRequestId(), request.getMessageType()));
-                    NetworkResponse response =
-                        NetworkResponseFactory.generateResponseForChannelCloseWhileWaitingForResponse(request, localNodeId, null);
-                    responseHandler.onResponseAvailable(response);
+            final JmsResponseCallback responseCallback = createResponseCallback(request, responseHandler, requestPayloadSize);
+            if (useClientCorrelationIds) {
+                // register the response listener before sending, so there is no race with the response arriving
+                final String correlationId = Long.toString(correlationIdSequence.incrementAndGet());
+                jmsRequest.setJMSCorrelationID(correlationId);
+                responseInboxConsumer.registerResponseListener(correlationId, responseCallback, timeoutMsec);
+                try {
+                    producer.send(jmsRequest);
+                } catch (JMSException e) {
+                    responseInboxConsumer.unregisterResponseListener(correlationId);
+                    throw e;
                 }
-
-            }, timeoutMsec);
+            } else {
+                // legacy remote node: the response will be correlated via the broker-assigned message id
+                producer.send(jmsRequest);
+                responseInboxConsumer.registerResponseListener(jmsRequest.getJMSMessageID(), responseCallback, timeoutMsec);
+            }
         } catch (JMSException e) {
             responseHandler.onChannelBroken(request, AbstractJmsMessageChannel.this);
             String errorId = LogUtils.logErrorAndAssignUniqueMarker(log, StringUtils.format(
@@ -450,36 +373,82 @@ public abstract class AbstractJmsMessageChannel extends AbstractMessageChannel i
         }
     }
 
-    private void sendRequest(final Session session, Message message, final Queue destinationQueue) throws JMSException {
-        JmsProtocolUtils.sendWithTransientProducer(session, message, destinationQueue);
-    }
+    private JmsResponseCallback createResponseCallback(final NetworkRequest request, final MessageChannelResponseHandler responseHandler,
+        final int requestPayloadSize) {
+        return new JmsResponseCallback() {
 
-    private Message receiveResponse(final Session session, int timeoutMsec, final TemporaryQueue tempResponseQueue) throws JMSException,
-        TimeoutException {
-        MessageConsumer consumer = session.createConsumer(tempResponseQueue);
-        try {
-            Message response;
-            response = consumer.receive(timeoutMsec);
-            if (response != null) {
-                return response;
-            } else {
-                // null return value indicates timeout
-                MessageChannelState currentState = getState();
-                if (currentState == MessageChannelState.CLOSED || currentState == MessageChannelState.MARKED_AS_BROKEN) {
-                    throw new TimeoutException(StringUtils.format(
-                        "Received JMS exception while waiting for a response from message channel %s (on queue %s), "
-                            + "which is already %s",
-                        getChannelId(), tempResponseQueue.getQueueName(), currentState));
-                } else {
-                    throw new TimeoutException(StringUtils.format(
-                        "Timeout (%d ms) exceeded while waiting for a response from message channel %s (on queue %s), "
-                            + "which is in state %s",
-                        timeoutMsec, getChannelId(), tempResponseQueue.getQueueName(), currentState));
+            @Override
+            public void onResponseReceived(Message jmsResponse) {
+                NetworkResponse response;
+                try {
+                    response = JmsProtocolUtils.createNetworkResponseFromMessage(jmsResponse, request);
+                    final int responsePayloadSize = response.getContentBytes().length;
+                    if (verboseRequestLoggingEnabled) {
+                        log.debug(
+                            StringUtils.format("Received response %s from %s: response payload length is %d", response.getRequestId(),
+                                request.accessMetaData().getFinalRecipient(), responsePayloadSize));
+                    }
+                    if (responsePayloadSize >= NETWORK_PAYLOAD_SIZE_WARNING_THRESHOLD) {
+                        log.debug(StringUtils.format(
+                            "Received large network response %s from %s: request type was %s, response payload length is %d",
+                            response.getRequestId(), request.accessMetaData().getFinalRecipient(), request.getMessageType(),
+                            responsePayloadSize));
+                    } else if (requestPayloadSize >= NETWORK_PAYLOAD_SIZE_WARNING_THRESHOLD) {
+                        // non-large response to large request
+                        log.debug(StringUtils.format("Received network response %s for a large request sent to %s: "
+                            + "request type was %s, response payload length is %d",
+                            response.getRequestId(), request.accessMetaData().getFinalRecipient(), request.getMessageType(),
+                            responsePayloadSize));
+                    }
+                    responseHandler.onResponseAvailable(response);
+                } catch (JMSException e) {
+                    // check: log full stacktrace here, or compress it?
+                    String errorId = LogUtils.logExceptionWithStacktraceAndAssignUniqueMarker(log,
+                        "JMS exception while parsing response message", e);
+                    response = NetworkResponseFactory.generateResponseForErrorDuringDelivery(request, localNodeId, errorId);
+                    responseHandler.onResponseAvailable(response);
                 }
             }
-        } finally {
-            // close the consumer as it blocks the temporary queue from deletion otherwise
-            consumer.close();
+
+            @Override
+            public void onTimeoutReached() {
+                log.debug(StringUtils.format("Timeout reached while waiting for response to request '%s' of type '%s'",
+                    request.getRequestId(), request.getMessageType()));
+                NetworkResponse response =
+                    NetworkResponseFactory.generateResponseForTimeoutWaitingForResponse(request, localNodeId);
+                responseHandler.onResponseAvailable(response);
+            }
+
+            @Override
+            public void onChannelClosed() {
+                log.debug(StringUtils.format("Message channel closed while waiting for response to request '%s' of type '%s'",
+                    request.getRequestId(), request.getMessageType()));
+                NetworkResponse response =
+                    NetworkResponseFactory.generateResponseForChannelCloseWhileWaitingForResponse(request, localNodeId, null);
+                responseHandler.onResponseAvailable(response);
+            }
+
+        };
+    }
+
+    private Message receiveResponse(final MessageConsumer consumer, int timeoutMsec, final Queue responseQueue) throws JMSException,
+        TimeoutException {
+        Message response = consumer.receive(timeoutMsec);
+        if (response != null) {
+            return response;
+        }
+        // null return value indicates timeout
+        MessageChannelState currentState = getState();
+        if (currentState == MessageChannelState.CLOSED || currentState == MessageChannelState.MARKED_AS_BROKEN) {
+            throw new TimeoutException(StringUtils.format(
+                "Received JMS exception while waiting for a response from message channel %s (on queue %s), "
+                    + "which is already %s",
+                getChannelId(), responseQueue.getQueueName(), currentState));
+        } else {
+            throw new TimeoutException(StringUtils.format(
+                "Timeout (%d ms) exceeded while waiting for a response from message channel %s (on queue %s), "
+                    + "which is in state %s",
+                timeoutMsec, getChannelId(), responseQueue.getQueueName(), currentState));
         }
     }
 
@@ -28,12 +28,13 @@ import de.rcenvironment.core.communication.common.InstanceNodeSessionId;
 import de.rcenvironment.core.communication.model.InitialNodeInformation;
 import de.rcenvironment.core.communication.model.NetworkContactPoint;
 import de.rcenvironment.core.communication.transport.spi.BrokenMessageChannelListener;
-import de.rcenvironment.core.communication.transport.spi.HandshakeInformation;
 import de.rcenvironment.core.communication.transport.spi.MessageChannel;
 import de.rcenvironment.core.communication.transport.spi.MessageChannelEndpointHandler;
 import de.rcenvironment.core.communication.transport.spi.NetworkTransportProvider;
+import de.rcenvironment.core.communication.utils.PayloadCodecRegistry;
 import de.rcenvironment.core.toolkitbridge.transitional.ConcurrencyUtils;
 import de.rcenvironment.toolkit.modules.concurrency.api.AsyncTaskService;
+import de.rcenvironment.toolkit.modules.concurrency.api.TimeoutWheel;
 
 /**
  * Abstract base class for JMS transport providers. This base class provides the aspects of a JMS transport provider that are independent of
@@ -43,6 +44,11 @@ import de.rcenvironment.toolkit.modules.concurrency.api.AsyncTaskService;
  */
 public abstract class AbstractJmsTransportProvider implements NetworkTransportProvider {
 
+    private static final int RESPONSE_TIMEOUT_WHEEL_TICK_MSEC = 100;
+
+    // with the tick duration above, one revolution covers the common network timeouts without wrapping around
+    private static final int RESPONSE_TIMEOUT_WHEEL_SIZE = 1024;
+
     protected final Map<ServerContactPoint, JmsBroker> serverEndpoints =
         new HashMap<ServerContactPoint, JmsBroker>();
 
@@ -54,6 +60,9 @@ public abstract class AbstractJmsTransportProvider implements NetworkTransportPr
 
     protected final JmsArtifactFactory artifactFactory;
 
+    // shared by the response consumers of all channels of this provider; disposed on provider shutdown
+    protected final TimeoutWheel responseTimeoutWheel;
+
     /**
      * Common JMS implementation of the {@link RemoteInitiatedMessageChannelFactory} interface.
      * 
@@ -72,13 +81,16 @@ public abstract class AbstractJmsTransportProvider implements NetworkTransportPr
 
             JmsMessageChannel remoteInitiatedConnection =
                 new RemoteInitiatedJmsMessageChannel(receivingNodeInformation.getInstanceNodeSessionId(), localJmsConnection,
-                    associatedSCP);
+                    associatedSCP, responseTimeoutWheel);
             remoteInitiatedConnection.setRemoteNodeInformation(remoteNodeInformation);
             remoteInitiatedConnection.setAssociatedMirrorChannelId(remoteHandshakeInformation.getChannelId());
             // FIXME add proper token
             remoteInitiatedConnection.setShutdownSecurityToken("passive." + remoteNodeInformation.getInstanceNodeSessionIdString());
             remoteInitiatedConnection.setChannelId(connectionId);
             remoteInitiatedConnection.setInitiatedByRemote(true);
+            remoteInitiatedConnection.setNegotiatedPayloadCodec(
+                PayloadCodecRegistry.negotiateCodec(remoteHandshakeInformation.getSupportedPayloadCodecs()));
+            remoteInitiatedConnection.setRemoteWireFormats(remoteHandshakeInformation.getSupportedWireFormats());
 
             // initialize the temporary queues created by the server
             RequestResponseQueuesManager tempQueueManager = new RequestResponseQueuesManager();
@@ -105,6 +117,8 @@ public abstract class AbstractJmsTransportProvider implements NetworkTransportPr
     public AbstractJmsTransportProvider(MessageChannelIdFactory connectionIdFactory, JmsArtifactFactory artifactFactory) {
         this.connectionIdFactory = connectionIdFactory;
         this.artifactFactory = artifactFactory;
+        this.responseTimeoutWheel = ConcurrencyUtils.getFactory().createTimeoutWheel(
+            "JMS Network Transport: Response timeouts", RESPONSE_TIMEOUT_WHEEL_TICK_MSEC, RESPONSE_TIMEOUT_WHEEL_SIZE);
     }
 
     @Override
@@ -116,7 +130,8 @@ public abstract class AbstractJmsTransportProvider implements NetworkTransportPr
             try {
                 ConnectionFactory connectionFactory = artifactFactory.createConnectionFactory(ncp);
                 InstanceNodeSessionId localNodeId = ownNodeInformation.getInstanceNodeSessionId();
-                newChannel = new SelfInitiatedJmsMessageChannel(localNodeId, connectionFactory, brokenConnectionListener);
+                newChannel = new SelfInitiatedJmsMessageChannel(localNodeId, connectionFactory, brokenConnectionListener,
+                    responseTimeoutWheel);
                 newChannel.setChannelId(connectionIdFactory.generateId(true));
                 newChannel.connectToJmsBroker();
 
@@ -126,13 +141,18 @@ public abstract class AbstractJmsTransportProvider implements NetworkTransportPr
                 ownHandshakeInformation.setProtocolVersionString(ownProtocolVersion);
                 ownHandshakeInformation.setInitialNodeInformation(ownNodeInformation);
                 ownHandshakeInformation.setChannelId(newChannel.getChannelId());
+                ownHandshakeInformation.setSupportedPayloadCodecs(PayloadCodecRegistry.getSupportedCodecsString());
+                ownHandshakeInformation.setSupportedWireFormats(JmsProtocolUtils.getSupportedWireFormatsString());
 
                 // this throws a CommunicationException in case of protocol version mismatch
-                HandshakeInformation remoteHandshakeInformation =
+                JMSHandshakeInformation remoteHandshakeInformation =
                     newChannel.performInitialHandshake(ownHandshakeInformation, inverseConnectionEndpointHandler);
 
                 InitialNodeInformation remoteNodeInformation = remoteHandshakeInformation.getInitialNodeInformation();
                 newChannel.setRemoteNodeInformation(remoteNodeInformation);
+                newChannel.setNegotiatedPayloadCodec(
+                    PayloadCodecRegistry.negotiateCodec(remoteHandshakeInformation.getSupportedPayloadCodecs()));
+                newChannel.setRemoteWireFormats(remoteHandshakeInformation.getSupportedWireFormats());
 
                 log.debug("Successfully performed JMS handshake with remote node " + remoteNodeInformation.getLogDescription());
                 // basic check against duplicate node ids; does not guard against non-neighbor nodes
@@ -188,4 +208,11 @@ public abstract class AbstractJmsTransportProvider implements NetworkTransportPr
         }
         broker.stop();
     }
+
+    /**
+     * Releases the resources shared by all channels of this provider; to be called when the provider is shut down.
+     */
+    protected void disposeSharedResources() {
+        responseTimeoutWheel.dispose();
+    }
 }
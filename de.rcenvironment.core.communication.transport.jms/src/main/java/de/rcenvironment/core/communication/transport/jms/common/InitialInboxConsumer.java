@@ -17,6 +17,7 @@ import javax.jms.Session;
 import de.rcenvironment.core.communication.channel.ServerContactPoint;
 import de.rcenvironment.core.communication.model.InitialNodeInformation;
 import de.rcenvironment.core.communication.transport.spi.MessageChannelEndpointHandler;
+import de.rcenvironment.core.communication.utils.PayloadCodecRegistry;
 import de.rcenvironment.core.toolkitbridge.transitional.ConcurrencyUtils;
 import de.rcenvironment.core.utils.common.StringUtils;
 import de.rcenvironment.toolkit.modules.concurrency.api.AsyncTaskService;
@@ -122,6 +123,8 @@ public final class InitialInboxConsumer extends AbstractJmsQueueConsumer impleme
             ownHandshakeInformation.setProtocolVersionString(expectedProtocolVersion);
             ownHandshakeInformation.setChannelId(remoteInitiatedChannel.getChannelId());
             ownHandshakeInformation.setInitialNodeInformation(ownNodeInformation);
+            ownHandshakeInformation.setSupportedPayloadCodecs(PayloadCodecRegistry.getSupportedCodecsString());
+            ownHandshakeInformation.setSupportedWireFormats(JmsProtocolUtils.getSupportedWireFormatsString());
             // ownHandshakeInformation.setClientGeneratedTemporaryQueueNames(JmsProtocolConstants.QUEUE_NAME_C2B_REQUEST_INBOX);
             log.debug("Remote-initiated connection established, sending handshake response to " + remoteNodeInformation);
 
@@ -19,6 +19,8 @@ public class JMSHandshakeInformation extends HandshakeInformation {
 
     private String temporaryQueueInformation;
 
+    private String supportedWireFormats;
+
     public String getTemporaryQueueInformation() {
         return temporaryQueueInformation;
     }
@@ -26,4 +28,12 @@ public class JMSHandshakeInformation extends HandshakeInformation {
     public void setTemporaryQueueInformation(String newValue) {
         this.temporaryQueueInformation = newValue;
     }
+
+    public String getSupportedWireFormats() {
+        return supportedWireFormats;
+    }
+
+    public void setSupportedWireFormats(String newValue) {
+        this.supportedWireFormats = newValue;
+    }
 }
@@ -38,4 +38,12 @@ public interface JmsMessageChannel extends MessageChannel {
      */
     void setupNonBlockingRequestSending(String outgoingRequestQueueName, String incomingResponseQueueName) throws JMSException;
 
+    /**
+     * Configures the wire format features to use for outgoing requests.
+     * 
+     * @param remoteWireFormats the comma-separated wire format features announced by the remote node during the handshake; null if the
+     *        remote node does not support negotiation
+     */
+    void setRemoteWireFormats(String remoteWireFormats);
+
 }
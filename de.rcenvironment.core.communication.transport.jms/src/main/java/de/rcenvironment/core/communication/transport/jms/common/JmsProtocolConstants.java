@@ -54,6 +54,31 @@ public abstract class JmsProtocolConstants {
      */
     public static final String MESSAGE_FIELD_CHANNEL_ID = "channel.id";
 
+    /**
+     * JMS property key for the comma-separated list of supported payload codecs, sent in both directions during the initial handshake.
+     * Not set by older instances, which always use standard Java serialization.
+     */
+    public static final String MESSAGE_FIELD_PAYLOAD_CODECS = "payload.codecs";
+
+    /**
+     * JMS property key for the comma-separated list of supported wire format features for requests and responses, sent in both directions
+     * during the initial handshake. Not set by older instances, which always use {@link javax.jms.ObjectMessage} bodies and correlate
+     * responses via the JMS message id of the request.
+     */
+    public static final String MESSAGE_FIELD_WIRE_FORMATS = "wire.formats";
+
+    /**
+     * Wire format value for sending the serialized request and response content as the raw body of a {@link javax.jms.BytesMessage},
+     * instead of wrapping it in a {@link javax.jms.ObjectMessage} (which would serialize the byte array a second time).
+     */
+    public static final String WIRE_FORMAT_BYTES_MESSAGE = "bytes";
+
+    /**
+     * Wire format value for echoing a client-assigned JMS correlation id of a request in its response. This allows the sender to register
+     * its response listener before sending the request, instead of waiting for the broker-assigned JMS message id.
+     */
+    public static final String WIRE_FORMAT_CLIENT_CORRELATION_IDS = "correlation.ids";
+
     /**
      * Message type value for the initial handshake request.
      */
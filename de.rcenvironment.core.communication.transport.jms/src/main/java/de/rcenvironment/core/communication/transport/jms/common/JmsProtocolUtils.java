@@ -10,6 +10,7 @@ package de.rcenvironment.core.communication.transport.jms.common;
 import java.net.ProtocolException;
 import java.util.Map;
 
+import javax.jms.BytesMessage;
 import javax.jms.DeliveryMode;
 import javax.jms.Destination;
 import javax.jms.JMSException;
@@ -38,6 +39,11 @@ import de.rcenvironment.core.communication.utils.MessageUtils;
  */
 public final class JmsProtocolUtils {
 
+    private static final String WIRE_FORMAT_LIST_SEPARATOR = ",";
+
+    // allows falling back to ObjectMessage bodies without a protocol change, e.g. for diagnosing broker issues
+    private static final boolean BYTES_MESSAGES_DISABLED = System.getProperty("rce.network.jms.disableBytesMessages") != null;
+
     private JmsProtocolUtils() {
         // prevent instantiation
     }
@@ -59,6 +65,14 @@ public final class JmsProtocolUtils {
         initialMessage.setStringProperty(JmsProtocolConstants.MESSAGE_FIELD_CHANNEL_ID, handshakeInformation.getChannelId());
         initialMessage.setStringProperty(JmsProtocolConstants.MESSAGE_FIELD_REMOTE_INITIATED_REQUEST_INBOX,
             handshakeInformation.getTemporaryQueueInformation());
+        if (handshakeInformation.getSupportedPayloadCodecs() != null) {
+            initialMessage.setStringProperty(JmsProtocolConstants.MESSAGE_FIELD_PAYLOAD_CODECS,
+                handshakeInformation.getSupportedPayloadCodecs());
+        }
+        if (handshakeInformation.getSupportedWireFormats() != null) {
+            initialMessage.setStringProperty(JmsProtocolConstants.MESSAGE_FIELD_WIRE_FORMATS,
+                handshakeInformation.getSupportedWireFormats());
+        }
 
         InitialNodeInformation initialNodeInformation = handshakeInformation.getInitialNodeInformation();
         if (initialNodeInformation != null) {
@@ -94,6 +108,10 @@ public final class JmsProtocolUtils {
         }
 
         result.setChannelId(message.getStringProperty(JmsProtocolConstants.MESSAGE_FIELD_CHANNEL_ID));
+        // null if the remote node does not support codec negotiation
+        result.setSupportedPayloadCodecs(message.getStringProperty(JmsProtocolConstants.MESSAGE_FIELD_PAYLOAD_CODECS));
+        // null if the remote node only supports ObjectMessage bodies
+        result.setSupportedWireFormats(message.getStringProperty(JmsProtocolConstants.MESSAGE_FIELD_WIRE_FORMATS));
 
         byte[] handshakeRequestBytes = (byte[]) ((ObjectMessage) message).getObject();
         if (handshakeRequestBytes == null || handshakeRequestBytes.length == 0) {
@@ -107,18 +125,56 @@ public final class JmsProtocolUtils {
         return result;
     }
 
+    /**
+     * @return the comma-separated list of locally supported wire format features, as announced during the initial handshake
+     */
+    public static String getSupportedWireFormatsString() {
+        if (BYTES_MESSAGES_DISABLED) {
+            return JmsProtocolConstants.WIRE_FORMAT_CLIENT_CORRELATION_IDS;
+        }
+        return JmsProtocolConstants.WIRE_FORMAT_BYTES_MESSAGE + WIRE_FORMAT_LIST_SEPARATOR
+            + JmsProtocolConstants.WIRE_FORMAT_CLIENT_CORRELATION_IDS;
+    }
+
+    /**
+     * Determines whether a wire format feature can be used for requests sent to a remote node. Responses always mirror the format of the
+     * request they refer to, so no further negotiation is necessary for them.
+     * 
+     * @param remoteWireFormatsString the comma-separated list announced by the remote node; null for nodes that do not support
+     *        negotiation
+     * @param wireFormat the wire format feature to check, e.g. {@link JmsProtocolConstants#WIRE_FORMAT_BYTES_MESSAGE}
+     * @return true if both sides support the given feature
+     */
+    public static boolean negotiateWireFormat(String remoteWireFormatsString, String wireFormat) {
+        if (remoteWireFormatsString == null || !containsWireFormat(getSupportedWireFormatsString(), wireFormat)) {
+            return false;
+        }
+        return containsWireFormat(remoteWireFormatsString, wireFormat);
+    }
+
+    private static boolean containsWireFormat(String wireFormatsString, String wireFormat) {
+        for (String format : wireFormatsString.split(WIRE_FORMAT_LIST_SEPARATOR)) {
+            if (wireFormat.equals(format.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Creates a JMS message from a given {@link NetworkRequest}.
      * 
      * @param request the request to transform
      * @param session the JMS session to use
+     * @param useBytesMessage true to send the content as a {@link BytesMessage} body, which must have been negotiated with the receiver;
+     *        false to use the legacy {@link ObjectMessage} form
      * @return the equivalent JMS message
      * @throws JMSException on JMS errors
      */
-    public static Message createMessageFromNetworkRequest(final NetworkRequest request, Session session) throws JMSException {
+    public static Message createMessageFromNetworkRequest(final NetworkRequest request, Session session, boolean useBytesMessage)
+        throws JMSException {
         Map<String, String> metadata = request.accessRawMetaData();
-        ObjectMessage jmsRequest = session.createObjectMessage();
-        jmsRequest.setObject(request.getContentBytes());
+        Message jmsRequest = createMessageWithBody(request.getContentBytes(), session, useBytesMessage);
         jmsRequest.setObjectProperty(JmsProtocolConstants.MESSAGE_FIELD_METADATA, metadata);
         jmsRequest.setStringProperty(JmsProtocolConstants.MESSAGE_FIELD_MESSAGE_TYPE, JmsProtocolConstants.MESSAGE_TYPE_REQUEST);
         return jmsRequest;
@@ -133,8 +189,8 @@ public final class JmsProtocolUtils {
      * @throws CommunicationException on message format errors
      */
     public static NetworkRequest createNetworkRequestFromMessage(Message jmsRequest) throws JMSException, CommunicationException {
-        byte[] content = (byte[]) ((ObjectMessage) jmsRequest).getObject();
-        if (content.length == 0) {
+        byte[] content = extractMessageBody(jmsRequest);
+        if (content == null || content.length == 0) {
             throw new CommunicationException("Received message with zero-length payload");
         }
         @SuppressWarnings("unchecked") Map<String, String> requestMetadata = (Map<String, String>) jmsRequest
@@ -148,12 +204,13 @@ public final class JmsProtocolUtils {
      * 
      * @param response the response to transform
      * @param session the JMS session to use
+     * @param useBytesMessage true to send the content as a {@link BytesMessage} body; should match the body type of the request
      * @return the equivalent JMS message
      * @throws JMSException on JMS errors
      */
-    public static Message createMessageFromNetworkResponse(NetworkResponse response, Session session) throws JMSException {
-        ObjectMessage jmsResponse = session.createObjectMessage();
-        jmsResponse.setObject(response.getContentBytes());
+    public static Message createMessageFromNetworkResponse(NetworkResponse response, Session session, boolean useBytesMessage)
+        throws JMSException {
+        Message jmsResponse = createMessageWithBody(response.getContentBytes(), session, useBytesMessage);
         jmsResponse.setIntProperty(JmsProtocolConstants.MESSAGE_FIELD_RESULT_CODE, response.getResultCode().getCode());
         // TODO add metadata?
         return jmsResponse;
@@ -168,7 +225,7 @@ public final class JmsProtocolUtils {
      * @throws JMSException on JMS errors
      */
     public static NetworkResponse createNetworkResponseFromMessage(Message jmsResponse, final NetworkRequest request) throws JMSException {
-        byte[] content = (byte[]) ((ObjectMessage) jmsResponse).getObject();
+        byte[] content = extractMessageBody(jmsResponse);
         if (jmsResponse.propertyExists(JmsProtocolConstants.MESSAGE_FIELD_RESULT_CODE)) {
             int resultCode = jmsResponse.getIntProperty(JmsProtocolConstants.MESSAGE_FIELD_RESULT_CODE);
             return NetworkResponseFactory.generateResponseWithResultCode(request, content, resultCode);
@@ -178,6 +235,39 @@ public final class JmsProtocolUtils {
         }
     }
 
+    /**
+     * Extracts the byte array content of a request or response message, regardless of whether it was sent as a {@link BytesMessage} or
+     * as a legacy {@link ObjectMessage}.
+     * 
+     * @param message the received message
+     * @return the content bytes
+     * @throws JMSException on JMS errors, or if the message is of an unexpected type
+     */
+    public static byte[] extractMessageBody(Message message) throws JMSException {
+        if (message instanceof BytesMessage) {
+            final BytesMessage bytesMessage = (BytesMessage) message;
+            final byte[] content = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(content);
+            return content;
+        } else if (message instanceof ObjectMessage) {
+            return (byte[]) ((ObjectMessage) message).getObject();
+        } else {
+            throw new JMSException("Unexpected JMS message type for request or response content: " + message.getClass().getName());
+        }
+    }
+
+    private static Message createMessageWithBody(byte[] content, Session session, boolean useBytesMessage) throws JMSException {
+        if (useBytesMessage) {
+            final BytesMessage message = session.createBytesMessage();
+            message.writeBytes(content);
+            return message;
+        } else {
+            final ObjectMessage message = session.createObjectMessage();
+            message.setObject(content);
+            return message;
+        }
+    }
+
     /**
      * Creates a JMS message to send to a JMS queue to terminate one {@link AbstractJmsQueueConsumer} listening on this queue ("poison pill"
      * pattern).
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+package de.rcenvironment.core.communication.transport.jms.common;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.Connection;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A pool of JMS {@link Session}s for a single {@link Connection}, each with a cached anonymous {@link MessageProducer}. Creating and
+ * closing a session or producer involves a broker round-trip in ActiveMQ, so reusing them avoids significant latency when sending many
+ * short-lived messages (for example, responses to incoming requests).
+ * 
+ * As JMS sessions must not be used concurrently, each {@link PooledSession} is exclusively owned by the thread that acquired it until it is
+ * released again.
+ * 
+ * @author agent
+ */
+public final class JmsSessionPool {
+
+    private final Connection connection;
+
+    private final int maxIdleSessions;
+
+    private final Deque<PooledSession> idleSessions = new ConcurrentLinkedDeque<>();
+
+    // tracked separately as ConcurrentLinkedDeque.size() is not a constant-time operation
+    private final AtomicInteger idleSessionCount = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    /**
+     * A JMS {@link Session} with an associated anonymous {@link MessageProducer}.
+     * 
+     * @author agent
+     */
+    public static final class PooledSession {
+
+        private final Session session;
+
+        private final MessageProducer producer;
+
+        private boolean invalidated;
+
+        PooledSession(Session session) throws JMSException {
+            this.session = session;
+            // an anonymous producer can send to any destination, so a single one per session is sufficient
+            this.producer = session.createProducer(null);
+            JmsProtocolUtils.configureMessageProducer(producer);
+        }
+
+        public Session getSession() {
+            return session;
+        }
+
+        /**
+         * Sends a message using the cached producer.
+         * 
+         * @param message the message to send
+         * @param destination the JMS destination
+         * @throws JMSException on JMS errors
+         */
+        public void send(Message message, Destination destination) throws JMSException {
+            producer.send(destination, message);
+        }
+
+        /**
+         * Marks this session as unfit for reuse, typically after a {@link JMSException}; it will be closed instead of being returned to
+         * the pool on release.
+         */
+        public void invalidate() {
+            invalidated = true;
+        }
+
+        void close() throws JMSException {
+            // closing the session implicitly closes the producer
+            session.close();
+        }
+    }
+
+    /**
+     * @param connection the JMS connection to create sessions from
+     * @param maxIdleSessions the maximum number of idle sessions to retain; surplus sessions are closed on release
+     */
+    public JmsSessionPool(Connection connection, int maxIdleSessions) {
+        this.connection = connection;
+        this.maxIdleSessions = maxIdleSessions;
+    }
+
+    /**
+     * Takes an idle session from the pool, or creates a new one if none is available.
+     * 
+     * @return the session, which must be passed to {@link #release(PooledSession)} after use
+     * @throws JMSException on failure to create a new session
+     */
+    public PooledSession acquire() throws JMSException {
+        PooledSession pooledSession = idleSessions.pollFirst();
+        if (pooledSession != null) {
+            idleSessionCount.decrementAndGet();
+            return pooledSession;
+        }
+        // IMPORTANT: although this is not stated in the JMS JavaDoc, this ActiveMQ call can block the thread! - misc_ro
+        final Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        try {
+            return new PooledSession(session);
+        } catch (JMSException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a session to the pool. Invalidated sessions, surplus sessions, and all sessions released after {@link #close()} are closed
+     * instead.
+     * 
+     * @param pooledSession the session to release; may be null for convenience
+     */
+    public void release(PooledSession pooledSession) {
+        if (pooledSession == null) {
+            return;
+        }
+        if (closed || pooledSession.invalidated) {
+            closeQuietly(pooledSession);
+            return;
+        }
+        if (idleSessionCount.incrementAndGet() > maxIdleSessions) {
+            idleSessionCount.decrementAndGet();
+            closeQuietly(pooledSession);
+            return;
+        }
+        idleSessions.offerFirst(pooledSession); // LIFO to keep recently used sessions "warm"
+        // re-check to avoid leaking a session that was added while the pool was being closed
+        if (closed) {
+            closeIdleSessions();
+        }
+    }
+
+    /**
+     * Closes all idle sessions, and causes all sessions that are still in use to be closed on release.
+     */
+    public void close() {
+        closed = true;
+        closeIdleSessions();
+    }
+
+    private void closeIdleSessions() {
+        PooledSession pooledSession;
+        while ((pooledSession = idleSessions.pollFirst()) != null) {
+            idleSessionCount.decrementAndGet();
+            closeQuietly(pooledSession);
+        }
+    }
+
+    private void closeQuietly(PooledSession pooledSession) {
+        try {
+            pooledSession.close();
+        } catch (JMSException e) {
+            // typically caused by the connection being closed already, so only log the compact exception
+            log.debug("Exception while closing a pooled JMS session: " + e.toString());
+        }
+    }
+}
@@ -7,8 +7,8 @@
  */
 package de.rcenvironment.core.communication.transport.jms.common;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.jms.Connection;
 import javax.jms.JMSException;
@@ -17,9 +17,13 @@ import javax.jms.Message;
 import de.rcenvironment.core.toolkitbridge.transitional.ConcurrencyUtils;
 import de.rcenvironment.toolkit.modules.concurrency.api.AsyncTaskService;
 import de.rcenvironment.toolkit.modules.concurrency.api.TaskDescription;
+import de.rcenvironment.toolkit.modules.concurrency.api.TimeoutWheel;
+import de.rcenvironment.toolkit.modules.concurrency.api.TimeoutWheel.TimeoutHandle;
 
 /**
- * A single-threaded consumer that listens for all responses sent to a shared queue.
+ * A single-threaded consumer that listens for all responses sent to a shared queue. Responses are associated with their pending requests
+ * via their JMS correlation ids; response timeouts are tracked by a {@link TimeoutWheel} that is shared by all channels of a transport
+ * provider, and owned by it.
  * 
  * @author Robert Mischke
  */
@@ -63,17 +67,45 @@ public final class NonBlockingResponseInboxConsumer extends AbstractJmsQueueCons
         void onChannelClosed();
     }
 
+    /**
+     * A registered {@link JmsResponseCallback} with its associated timeout.
+     * 
+     * @author agent
+     */
+    private static final class PendingResponse {
+
+        private final JmsResponseCallback callback;
+
+        // set right after registration; may be null if the response arrives before that
+        private volatile TimeoutHandle timeoutHandle;
+
+        PendingResponse(JmsResponseCallback callback) {
+            this.callback = callback;
+        }
+
+        void cancelTimeout() {
+            final TimeoutHandle handle = timeoutHandle;
+            if (handle != null) {
+                handle.cancel();
+            }
+        }
+    }
+
     private final AsyncTaskService threadPool = ConcurrencyUtils.getAsyncTaskService();
 
-    private final Map<String, JmsResponseCallback> responseListenerMap = new HashMap<>();
+    private final Map<String, PendingResponse> responseListenerMap = new ConcurrentHashMap<>();
 
-    public NonBlockingResponseInboxConsumer(String queueName, Connection connection)
+    private final TimeoutWheel timeoutWheel;
+
+    public NonBlockingResponseInboxConsumer(String queueName, Connection connection, TimeoutWheel timeoutWheel)
         throws JMSException {
         super(connection, queueName);
+        this.timeoutWheel = timeoutWheel;
     }
 
     /**
-     * Registers the destination to send the non-blocking response to when it arrives, along with a timeout parameter.
+     * Registers the destination to send the non-blocking response to when it arrives, along with a timeout parameter. If possible, this
+     * should be done before the request is sent, using a client-assigned correlation id.
      * 
      * @param messageId the message correlation id
      * @param jmsResponseListener the callback listener
@@ -89,49 +121,50 @@ public final class NonBlockingResponseInboxConsumer extends AbstractJmsQueueCons
         }
 
         // log.debug("Registering response listener for message id " + messageId);
-        synchronized (responseListenerMap) {
-            JmsResponseCallback replaced = responseListenerMap.put(messageId, jmsResponseListener);
-            // sanity check
-            if (replaced != null) {
-                log.error("Internal consistency error: There was already a response listener registered for message id " + messageId);
-                jmsResponseListener.onTimeoutReached(); // arbitrary handling in case of this abnormal situation
-                return;
-            }
+        final PendingResponse pendingResponse = new PendingResponse(jmsResponseListener);
+        final PendingResponse existing = responseListenerMap.putIfAbsent(messageId, pendingResponse);
+        // sanity check
+        if (existing != null) {
+            log.error("Internal consistency error: There was already a response listener registered for message id " + messageId);
+            jmsResponseListener.onTimeoutReached(); // arbitrary handling in case of this abnormal situation
+            return;
         }
-        threadPool.scheduleAfterDelay(new Runnable() {
-
-            @Override
-            @TaskDescription("JMS Network Transport: Check for request completion after timeout")
-            public void run() {
-                final JmsResponseCallback unfulfilledResponseListener;
-                synchronized (responseListenerMap) {
-                    unfulfilledResponseListener = responseListenerMap.remove(messageId);
-                }
-                if (unfulfilledResponseListener != null) {
-                    log.debug("Reached timeout (" + timeoutMsec + "ms) for message id " + messageId);
-                    unfulfilledResponseListener.onTimeoutReached();
-                }
-
+        pendingResponse.timeoutHandle = timeoutWheel.schedule(() -> {
+            // only remove the listener if it was not replaced or fulfilled in the meantime
+            if (responseListenerMap.remove(messageId, pendingResponse)) {
+                log.debug("Reached timeout (" + timeoutMsec + "ms) for message id " + messageId);
+                jmsResponseListener.onTimeoutReached();
             }
         }, timeoutMsec);
     }
 
+    /**
+     * Removes a response listener without notifying it, typically because sending the associated request has failed.
+     * 
+     * @param messageId the message correlation id
+     */
+    public void unregisterResponseListener(final String messageId) {
+        final PendingResponse pendingResponse = responseListenerMap.remove(messageId);
+        if (pendingResponse != null) {
+            pendingResponse.cancelTimeout();
+        }
+    }
+
     @Override
     @TaskDescription("JMS Network Transport: Non-blocking response listener")
     public void run() {
         super.run();
-        synchronized (responseListenerMap) {
-            if (!responseListenerMap.isEmpty()) {
-                log.debug("Response listener for queue " + queueName + " has been shut down while " + responseListenerMap.size()
-                    + " request(s) were still pending; generating failure responses");
-                for (final JmsResponseCallback listener : responseListenerMap.values()) {
+        if (!responseListenerMap.isEmpty()) {
+            log.debug("Response listener for queue " + queueName + " has been shut down while " + responseListenerMap.size()
+                + " request(s) were still pending; generating failure responses");
+            for (final String messageId : responseListenerMap.keySet()) {
+                // requests are handled here; do not send timeout responses, too
+                final PendingResponse pendingResponse = responseListenerMap.remove(messageId);
+                if (pendingResponse != null) {
+                    pendingResponse.cancelTimeout();
                     threadPool.execute("JMS Network Transport: Handle pending non-blocking request after queue listener shutdown",
-                        listener::onChannelClosed);
-
-
+                        pendingResponse.callback::onChannelClosed);
                 }
-                // requests are handled; do not send timeout responses, too
-                responseListenerMap.clear();
             }
         }
     }
@@ -153,23 +186,23 @@ public final class NonBlockingResponseInboxConsumer extends AbstractJmsQueueCons
                 // TODO add an error callback for this? right now, the timeout will handle it
                 return;
             }
-            JmsResponseCallback responseListener;
-            // As the JMS broker-generated message ids are used for correlation, the response listener cannot be registered until after
-            // the JMS message has been sent. Usually, this is not a problem. If local CPU load and/or thread congestion is very high,
-            // however, the response can arrive before the sender has managed to register its response listener in the synchronized map.
-            // This retry loop fixes this problem by waiting briefly in case no listener is found. - misc_ro
+            PendingResponse responseListener;
+            // If the JMS broker-generated message ids are used for correlation (for remote nodes that do not support client-assigned
+            // correlation ids), the response listener cannot be registered until after the JMS message has been sent. Usually, this is not
+            // a problem. If local CPU load and/or thread congestion is very high, however, the response can arrive before the sender has
+            // managed to register its response listener in the map. This retry loop fixes this problem by waiting briefly in case no
+            // listener is found. - misc_ro
             int retryCount = 0;
             while (true) {
-                synchronized (responseListenerMap) {
-                    responseListener = responseListenerMap.remove(messageId);
-                }
+                responseListener = responseListenerMap.remove(messageId);
                 if (responseListener != null) {
+                    responseListener.cancelTimeout();
                     if (retryCount > 0) {
                         log.debug("Successfully fetched mapping information for a network response after retrying for "
                             + retryCount * RESPONSE_LISTENER_RETRY_WAIT_MSEC
                             + " msec; there is probably high CPU load on the local instance");
                     }
-                    responseListener.onResponseReceived(message);
+                    responseListener.callback.onResponseReceived(message);
                     break;
                 }
                 if (retryCount >= RESPONSE_LISTENER_MAX_RETRY_COUNT) {
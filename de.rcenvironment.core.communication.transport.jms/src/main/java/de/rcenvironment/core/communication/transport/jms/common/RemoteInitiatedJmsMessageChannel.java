@@ -10,9 +10,9 @@ package de.rcenvironment.core.communication.transport.jms.common;
 import javax.jms.Connection;
 import javax.jms.JMSException;
 
-import de.rcenvironment.core.communication.channel.MessageChannelState;
 import de.rcenvironment.core.communication.channel.ServerContactPoint;
 import de.rcenvironment.core.communication.common.InstanceNodeSessionId;
+import de.rcenvironment.toolkit.modules.concurrency.api.TimeoutWheel;
 
 /**
  * Represents a remote-initiated connection, ie a logical connection that was triggered by a network-level connection by a remote node to
@@ -28,11 +28,12 @@ public class RemoteInitiatedJmsMessageChannel extends AbstractJmsMessageChannel
      * @param localNodeId
      * @param connection an already-started JMS connection; expected to be managed externally, ie this class will never attempt to close it
      * @param associatedSCP
+     * @param responseTimeoutWheel the {@link TimeoutWheel} to track response timeouts with; owned by the transport provider
      * @throws JMSException
      */
-    public RemoteInitiatedJmsMessageChannel(InstanceNodeSessionId localNodeId, Connection connection, ServerContactPoint associatedSCP)
-        throws JMSException {
-        super(localNodeId);
+    public RemoteInitiatedJmsMessageChannel(InstanceNodeSessionId localNodeId, Connection connection, ServerContactPoint associatedSCP,
+        TimeoutWheel responseTimeoutWheel) throws JMSException {
+        super(localNodeId, responseTimeoutWheel);
         this.connection = connection;
         this.associatedSCP = associatedSCP;
     }
@@ -40,23 +41,18 @@ public class RemoteInitiatedJmsMessageChannel extends AbstractJmsMessageChannel
     @Override
     protected void onClosedOrBroken() {
         log.debug("Closing remote-initiated channel " + getChannelId());
+        // note: the shutdown messages are sent by the request sender of the superclass
         super.onClosedOrBroken();
+    }
 
-        // on a clean shutdown, send "goodbye" message
-        if (getState() == MessageChannelState.CLOSED) {
-            sendShutdownMessageToRemoteRequestInbox();
-        }
-
-        if (getShutdownSecurityToken() != null) {
-            try {
-                asyncSendShutdownMessageToB2CJmsQueue();
-            } catch (JMSException e) {
-                log.debug("Error sending shutdown message for queue " + getOutgoingRequestQueueName(), e);
-            }
-        } else {
+    @Override
+    protected boolean isQueueShutdownMessageRequired() {
+        // a shutdown message to the broker-to-client (B2C) queue allows the client-side queue listener to terminate cleanly
+        if (getShutdownSecurityToken() == null) {
             log.warn("No shutdown security token set for remote-initiated connection");
+            return false;
         }
-
+        return true;
     }
 
 }
@@ -7,14 +7,15 @@
  */
 package de.rcenvironment.core.communication.transport.jms.common;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.JMSException;
 import javax.jms.Message;
-import javax.jms.Session;
 
 import de.rcenvironment.core.communication.common.CommunicationException;
 import de.rcenvironment.core.communication.model.NetworkRequest;
 import de.rcenvironment.core.communication.model.NetworkResponse;
+import de.rcenvironment.core.communication.transport.jms.common.JmsSessionPool.PooledSession;
 import de.rcenvironment.core.communication.transport.spi.MessageChannelEndpointHandler;
 import de.rcenvironment.core.toolkitbridge.transitional.ConcurrencyUtils;
 import de.rcenvironment.core.utils.common.StringUtils;
@@ -33,35 +34,44 @@ public final class RequestInboxConsumer extends AbstractJmsQueueConsumer impleme
     // TODO >7.0.0: set to a much lower value once relay forwarding is asynchronous as well
     private static final long SLOW_DISPATCH_LOGGING_THRESHOLD_MSEC = 25 * 1000; // 25 sec
 
+    // the number of idle response sessions to keep; more sessions are created on demand if many requests are dispatched concurrently
+    private static final int MAX_IDLE_RESPONSE_SESSIONS = 8;
+
     private final MessageChannelEndpointHandler endpointHandler;
 
     private final AsyncTaskService threadPool = ConcurrencyUtils.getAsyncTaskService();
 
     private final boolean verboseRequestLoggingEnabled = DebugSettings.getVerboseLoggingEnabled("NetworkRequests");
 
+    private final JmsSessionPool responseSessionPool;
+
     public RequestInboxConsumer(String queueName, Connection connection, MessageChannelEndpointHandler endpointHandler)
         throws JMSException {
         super(connection, queueName);
         this.endpointHandler = endpointHandler;
+        this.responseSessionPool = new JmsSessionPool(connection, MAX_IDLE_RESPONSE_SESSIONS);
     }
 
     @Override
     @TaskDescription("JMS Network Transport: Incoming request listener")
     public void run() {
-        super.run();
+        try {
+            super.run();
+        } finally {
+            // sessions still in use by dispatch tasks are closed when they are released
+            responseSessionPool.close();
+        }
     }
 
     @Override
     protected void dispatchMessage(final Message message, final Connection jmsConnection) {
         threadPool.execute("JMS Network Transport: Dispatch incoming request", () -> {
             try {
-                Session responseSession = jmsConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                PooledSession responseSession = responseSessionPool.acquire();
                 try {
                     dispatchMessageInternal(message, responseSession);
                 } finally {
-                    if (responseSession != null) {
-                        responseSession.close();
-                    }
+                    responseSessionPool.release(responseSession);
                 }
             } catch (JMSException e) {
                 // do not log stacktrace, as it contains no additional information
@@ -70,7 +80,7 @@ public final class RequestInboxConsumer extends AbstractJmsQueueConsumer impleme
         });
     }
 
-    private void dispatchMessageInternal(Message message, Session session) {
+    private void dispatchMessageInternal(Message message, PooledSession responseSession) {
         String messageType;
         try {
             messageType = message.getStringProperty(JmsProtocolConstants.MESSAGE_FIELD_MESSAGE_TYPE);
@@ -104,8 +114,15 @@ public final class RequestInboxConsumer extends AbstractJmsQueueConsumer impleme
                         request.getMessageType()));
                 }
                 try {
-                    Message jmsResponse = JmsProtocolUtils.createMessageFromNetworkResponse(response, session);
-                    final String messageId = message.getJMSMessageID();
+                    // mirror the body format of the request, which is guaranteed to be supported by the requesting node
+                    Message jmsResponse = JmsProtocolUtils.createMessageFromNetworkResponse(response, responseSession.getSession(),
+                        message instanceof BytesMessage);
+                    // requesters that support client-assigned correlation ids set them on the request; otherwise, the response is
+                    // correlated via the request's message id
+                    String messageId = message.getJMSCorrelationID();
+                    if (messageId == null) {
+                        messageId = message.getJMSMessageID();
+                    }
                     // sanity check
                     if (messageId == null) {
                         log.error("Unexpected state: null JMS message id");
@@ -116,8 +133,10 @@ public final class RequestInboxConsumer extends AbstractJmsQueueConsumer impleme
                         log.debug(StringUtils.format("Sending response  %s: payload length %d", request.getRequestId(),
                             response.getContentBytes().length));
                     }
-                    JmsProtocolUtils.sendWithTransientProducer(session, jmsResponse, message.getJMSReplyTo());
+                    responseSession.send(jmsResponse, message.getJMSReplyTo());
                 } catch (JMSException e) {
+                    // do not risk reusing a session in an undefined state
+                    responseSession.invalidate();
                     log.debug(StringUtils
                         .format("Error sending JMS response after successful request dispatch; most likely, the remote side "
                             + "has closed the connection after sending the request (request type: %s, exception: %s)",
@@ -22,10 +22,10 @@ import de.rcenvironment.core.communication.channel.MessageChannelState;
 import de.rcenvironment.core.communication.common.CommunicationException;
 import de.rcenvironment.core.communication.common.InstanceNodeSessionId;
 import de.rcenvironment.core.communication.transport.spi.BrokenMessageChannelListener;
-import de.rcenvironment.core.communication.transport.spi.HandshakeInformation;
 import de.rcenvironment.core.communication.transport.spi.MessageChannelEndpointHandler;
 import de.rcenvironment.core.toolkitbridge.transitional.ConcurrencyUtils;
 import de.rcenvironment.core.utils.common.StringUtils;
+import de.rcenvironment.toolkit.modules.concurrency.api.TimeoutWheel;
 
 /**
  * Represents a self-initiated JMS connection, ie a connection that was established from the local node to a remote node.
@@ -43,8 +43,8 @@ public class SelfInitiatedJmsMessageChannel extends AbstractJmsMessageChannel {
     // private TemporaryQueue remoteInitiatedRequestInboxQueue;
 
     public SelfInitiatedJmsMessageChannel(InstanceNodeSessionId localNodeId, ConnectionFactory connectionFactory,
-        BrokenMessageChannelListener brokenConnectionListener) {
-        super(localNodeId);
+        BrokenMessageChannelListener brokenConnectionListener, TimeoutWheel responseTimeoutWheel) {
+        super(localNodeId, responseTimeoutWheel);
         this.connectionFactory = connectionFactory;
         this.brokenConnectionListener = brokenConnectionListener;
     }
@@ -76,9 +76,8 @@ public class SelfInitiatedJmsMessageChannel extends AbstractJmsMessageChannel {
     }
 
     private void tearDownJmsConnection(boolean isActiveShutdown) {
-        // on a clean shutdown, send "goodbye" message and wait
+        // on a clean shutdown, give the request sender time to send the "goodbye" message before closing the connection
         if (isActiveShutdown) {
-            sendShutdownMessageToRemoteRequestInbox();
             try {
                 Thread.sleep(JmsProtocolConstants.WAIT_AFTER_SENDING_SHUTDOWN_MESSAGE_MSEC);
             } catch (InterruptedException e1) {
@@ -99,7 +98,7 @@ public class SelfInitiatedJmsMessageChannel extends AbstractJmsMessageChannel {
         }
     }
 
-    HandshakeInformation performInitialHandshake(JMSHandshakeInformation ownHandshakeInformation,
+    JMSHandshakeInformation performInitialHandshake(JMSHandshakeInformation ownHandshakeInformation,
         MessageChannelEndpointHandler remoteInitiatedConnectionEndpointHandler) throws JMSException,
         CommunicationException, TimeoutException, IOException {
         Session initialSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
@@ -117,10 +116,12 @@ public class SelfInitiatedJmsMessageChannel extends AbstractJmsMessageChannel {
             // create request message
             Message handshakeRequestMessage = JmsProtocolUtils.createHandshakeMessage(ownHandshakeInformation, initialSession);
 
-            // perform handshake
+            // perform handshake; the response is received on the channel's (not yet used) response queue instead of a
+            // separate temporary queue, as the response consumer for this queue is only started after the handshake
+            final Queue handshakeResponseQueue = initialSession.createQueue(tempQueueManager.getC2BResponseQueue());
             ObjectMessage handshakeResponseMessage =
                 (ObjectMessage) performBlockingJmsRequestResponse(initialSession, handshakeRequestMessage, initialInbox,
-                    INITIAL_HANDSHAKE_TIMEOUT_MSEC);
+                    handshakeResponseQueue, INITIAL_HANDSHAKE_TIMEOUT_MSEC);
 
             // extract the response, expecting the protocol set in the local HandshakeInformation
             JMSHandshakeInformation remoteHandshakeInformation =
@@ -9,6 +9,7 @@
 package de.rcenvironment.core.communication.uplink.client.tests.execution;
 
 import static org.easymock.EasyMock.capture;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -19,6 +20,7 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import org.easymock.Capture;
 import org.easymock.EasyMock;
@@ -112,6 +114,32 @@ public class DataTransferUtilsTest {
         assertTrue(expectedFile.exists());
     }
 
+    /**
+     * Tests that a file larger than a single message block is streamed through upload and download without modification.
+     * 
+     * @throws Exception on error
+     */
+    @Test
+    public void testLargeFileRoundTrip() throws Exception {
+        final File largeInputDir = createAndVerifySubdir(testRootDir, "largeInput");
+        final File largeFile = new File(largeInputDir, "large.bin");
+        // more than 3 blocks of 256 kb, with an incomplete last block
+        final byte[] content = new byte[3 * 256 * 1024 + 17];
+        new Random().nextBytes(content);
+        Files.write(largeFile.toPath(), content);
+
+        DataTransferUtils.uploadDirectory(largeInputDir, new DirectoryUploadContext() {
+
+            @Override
+            public void provideFile(FileDataSource dataSource) throws IOException {
+                assertEquals(content.length, dataSource.getSize());
+                DataTransferUtils.receiveFile(dataSource, outputDirectory);
+            }
+        }, "");
+
+        assertArrayEquals(content, Files.readAllBytes(new File(outputDirectory, "large.bin").toPath()));
+    }
+
     /**
      * Test receiving file with incorrect path. 
      * 
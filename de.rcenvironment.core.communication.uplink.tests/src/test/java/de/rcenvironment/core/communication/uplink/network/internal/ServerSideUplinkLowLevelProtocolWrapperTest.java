@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 DLR, Germany
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ *
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.communication.uplink.network.internal;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+/**
+ * {@link ServerSideUplinkLowLevelProtocolWrapper} test.
+ *
+ * @author agent
+ */
+public class ServerSideUplinkLowLevelProtocolWrapperTest {
+
+    private static final int SESSION_END_TIMEOUT_MSEC = UplinkProtocolConstants.HANDSHAKE_RESPONSE_TIMEOUT_MSEC * 5;
+
+    private static final int ANNOUNCED_BLOCK_SIZE = 100;
+
+    private static final int SENT_BLOCK_DATA_LENGTH = 10;
+
+    /**
+     * Tests that the handshake fails after the timeout if the client announces a message block, but stops sending in the middle of its
+     * data.
+     *
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void handshakeTimesOutOnIncompleteMessageBlock() throws Exception {
+        final PipedOutputStream clientOutput = new PipedOutputStream();
+        final PipedInputStream serverInput = new PipedInputStream(clientOutput);
+        final UplinkConnectionLowLevelEventHandler eventHandler = EasyMock.createNiceMock(UplinkConnectionLowLevelEventHandler.class);
+        eventHandler.onNonProtocolError(EasyMock.anyObject(IOException.class));
+        EasyMock.expectLastCall().once();
+        EasyMock.replay(eventHandler);
+        final ServerSideUplinkLowLevelProtocolWrapper wrapper =
+            new ServerSideUplinkLowLevelProtocolWrapper(serverInput, new ByteArrayOutputStream(), eventHandler, "test");
+
+        final DataOutputStream clientDataOutput = new DataOutputStream(clientOutput);
+        clientDataOutput.write(UplinkProtocolConstants.HANDSHAKE_HEADER_STRING.getBytes(UplinkProtocolConstants.DEFAULT_CHARSET));
+        clientDataOutput.writeLong(UplinkProtocolConstants.DEFAULT_CHANNEL_ID);
+        clientDataOutput.writeInt(ANNOUNCED_BLOCK_SIZE);
+        clientDataOutput.writeByte(UplinkProtocolConstants.MESSAGE_TYPE_HANDSHAKE);
+        clientDataOutput.write(new byte[SENT_BLOCK_DATA_LENGTH]);
+        clientDataOutput.flush();
+        // note: the client stream is intentionally left open, so the server must not receive an end-of-stream
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<?> session = executor.submit(wrapper::runSession);
+            session.get(SESSION_END_TIMEOUT_MSEC, TimeUnit.MILLISECONDS);
+            EasyMock.verify(eventHandler);
+            assertTrue(session.isDone());
+        } finally {
+            executor.shutdownNow();
+            clientOutput.close();
+        }
+    }
+}
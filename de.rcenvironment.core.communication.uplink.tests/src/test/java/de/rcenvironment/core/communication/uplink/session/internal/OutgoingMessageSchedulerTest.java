@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.communication.uplink.session.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import de.rcenvironment.core.communication.uplink.common.internal.MessageType;
+import de.rcenvironment.core.communication.uplink.network.internal.MessageBlock;
+import de.rcenvironment.core.communication.uplink.network.internal.UplinkProtocolConstants;
+import de.rcenvironment.core.communication.uplink.session.internal.OutgoingMessageScheduler.ScheduledMessage;
+import de.rcenvironment.core.utils.common.exception.ProtocolException;
+
+/**
+ * Unit test for {@link OutgoingMessageScheduler}.
+ * 
+ * @author agent
+ */
+public class OutgoingMessageSchedulerTest {
+
+    private static final long BULK_CHANNEL_1 = 1;
+
+    private static final long BULK_CHANNEL_2 = 2;
+
+    private static final long CONTROL_CHANNEL = UplinkProtocolConstants.DEFAULT_CHANNEL_ID;
+
+    private static final int UNLIMITED_BUDGET = Integer.MAX_VALUE;
+
+    private static final int WAIT_MSEC = 5000;
+
+    /**
+     * Tests that control messages overtake queued bulk data of other channels, but not of their own channel.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void controlMessagesUsePriorityLane() throws Exception {
+        final OutgoingMessageScheduler scheduler = new OutgoingMessageScheduler(UNLIMITED_BUDGET);
+        assertTrue(scheduler.enqueue(BULK_CHANNEL_1, createBulkMessage()));
+        assertFalse(scheduler.enqueue(BULK_CHANNEL_1, createBulkMessage()));
+        // queued behind the bulk data of its own channel
+        final MessageBlock sectionEnd = new MessageBlock(MessageType.FILE_TRANSFER_SECTION_END);
+        scheduler.enqueue(BULK_CHANNEL_1, sectionEnd);
+        // overtakes the bulk data of the other channel
+        final MessageBlock ping = new MessageBlock(MessageType.PING);
+        scheduler.enqueue(CONTROL_CHANNEL, ping);
+
+        assertEquals(ping, scheduler.pollOrEndSending().getMessageBlock());
+        assertEquals(MessageType.FILE_CONTENT, scheduler.pollOrEndSending().getMessageBlock().getType());
+        assertEquals(MessageType.FILE_CONTENT, scheduler.pollOrEndSending().getMessageBlock().getType());
+        assertFalse(scheduler.isEmpty());
+        assertEquals(sectionEnd, scheduler.pollOrEndSending().getMessageBlock());
+        assertTrue(scheduler.isEmpty());
+        assertNull(scheduler.pollOrEndSending());
+        // the sender has ended, so the next message must request a new one
+        assertTrue(scheduler.enqueue(CONTROL_CHANNEL, ping));
+    }
+
+    /**
+     * Tests that bulk data of multiple channels is sent in an interleaved fashion.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void bulkChannelsAreServedFairly() throws Exception {
+        final OutgoingMessageScheduler scheduler = new OutgoingMessageScheduler(UNLIMITED_BUDGET);
+        final int numMessages = 5;
+        for (int i = 0; i < numMessages; i++) {
+            scheduler.enqueue(BULK_CHANNEL_1, createBulkMessage());
+        }
+        for (int i = 0; i < numMessages; i++) {
+            scheduler.enqueue(BULK_CHANNEL_2, createBulkMessage());
+        }
+        for (int i = 0; i < numMessages; i++) {
+            assertEquals(BULK_CHANNEL_1, scheduler.pollOrEndSending().getChannelId());
+            assertEquals(BULK_CHANNEL_2, scheduler.pollOrEndSending().getChannelId());
+        }
+        assertNull(scheduler.pollOrEndSending());
+    }
+
+    /**
+     * Tests that enqueueing blocks while a channel's byte budget is exhausted, and that other channels are not affected by this.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void channelBudgetProvidesBackpressure() throws Exception {
+        // enough for two full blocks, but not for three
+        final OutgoingMessageScheduler scheduler =
+            new OutgoingMessageScheduler(2 * UplinkProtocolConstants.MAX_MESSAGE_BLOCK_DATA_LENGTH + 100);
+        scheduler.enqueue(BULK_CHANNEL_1, createBulkMessage());
+        scheduler.enqueue(BULK_CHANNEL_1, createBulkMessage());
+
+        final CountDownLatch thirdMessageEnqueued = new CountDownLatch(1);
+        final Thread producer = new Thread(() -> {
+            try {
+                scheduler.enqueue(BULK_CHANNEL_1, createBulkMessage());
+                thirdMessageEnqueued.countDown();
+            } catch (InterruptedException | IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        producer.start();
+        assertFalse(thirdMessageEnqueued.await(100, TimeUnit.MILLISECONDS));
+
+        // other channels are not blocked
+        scheduler.enqueue(BULK_CHANNEL_2, createBulkMessage());
+
+        final ScheduledMessage first = scheduler.pollOrEndSending();
+        assertEquals(BULK_CHANNEL_1, first.getChannelId());
+        assertTrue(thirdMessageEnqueued.await(WAIT_MSEC, TimeUnit.MILLISECONDS));
+        producer.join(WAIT_MSEC);
+    }
+
+    /**
+     * Tests that a sending failure discards all queued messages, releases blocked producers with an error, and rejects further messages.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void sendingFailureRejectsPendingAndFutureMessages() throws Exception {
+        // enough for one full block, but not for two
+        final OutgoingMessageScheduler scheduler =
+            new OutgoingMessageScheduler(UplinkProtocolConstants.MAX_MESSAGE_BLOCK_DATA_LENGTH + 100);
+        assertTrue(scheduler.enqueue(BULK_CHANNEL_1, createBulkMessage()));
+
+        final AtomicReference<IOException> producerError = new AtomicReference<>();
+        final Thread producer = new Thread(() -> {
+            try {
+                scheduler.enqueue(BULK_CHANNEL_1, createBulkMessage());
+            } catch (IOException e) {
+                producerError.set(e);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        producer.start();
+
+        final IOException cause = new IOException("Simulated write error");
+        scheduler.failSending(cause);
+        producer.join(WAIT_MSEC);
+        assertFalse(producer.isAlive());
+        assertEquals(cause, producerError.get().getCause());
+
+        assertTrue(scheduler.isEmpty());
+        assertNull(scheduler.pollOrEndSending());
+        try {
+            scheduler.enqueue(CONTROL_CHANNEL, new MessageBlock(MessageType.PING));
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertEquals(cause, e.getCause());
+        }
+    }
+
+    private MessageBlock createBulkMessage() throws ProtocolException {
+        return new MessageBlock(MessageType.FILE_CONTENT.getCode(), new byte[UplinkProtocolConstants.MAX_MESSAGE_BLOCK_DATA_LENGTH]);
+    }
+}
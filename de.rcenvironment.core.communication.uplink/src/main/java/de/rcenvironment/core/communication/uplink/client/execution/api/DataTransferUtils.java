@@ -8,16 +8,21 @@
 
 package de.rcenvironment.core.communication.uplink.client.execution.api;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.LogFactory;
 
+import de.rcenvironment.core.communication.uplink.network.internal.UplinkProtocolConstants;
+
 /**
  * A class containing utility methods for data upload and download.
  *
@@ -28,6 +33,13 @@ public final class DataTransferUtils {
 
     private static final String SLASH = "/";
 
+    // matches the size of the message blocks that the received data arrives in
+    private static final int TRANSFER_BUFFER_SIZE = UplinkProtocolConstants.MAX_MESSAGE_BLOCK_DATA_LENGTH;
+
+    private static final int MAX_POOLED_TRANSFER_BUFFERS = 8;
+
+    private static final BlockingQueue<byte[]> TRANSFER_BUFFER_POOL = new ArrayBlockingQueue<>(MAX_POOLED_TRANSFER_BUFFERS);
+
     private DataTransferUtils() {}
 
     /**
@@ -49,14 +61,28 @@ public final class DataTransferUtils {
             if (file.isDirectory()) {
                 uploadDirectory(file, uploadContext, remotePath + SLASH + file.getName());
             } else {
-                // TODO consider reworking this to direct streaming, ie without reading into a byte array first
-                byte[] fileContentBytes = Files.readAllBytes(file.toPath());
-                uploadContext.provideFile(new FileDataSource(remotePath + SLASH + file.getName(), fileContentBytes.length,
-                    new ByteArrayInputStream(fileContentBytes)));
+                uploadFile(file, uploadContext, remotePath + SLASH + file.getName());
             }
         }
     }
 
+    /**
+     * Uploads a single file via a DataUploadContext. The file's content is streamed from disk while it is being uploaded, so the memory
+     * consumption does not depend on the file's size.
+     * 
+     * @param file the file to upload
+     * @param uploadContext the upload context
+     * @param relativePath the relative remote path of this file
+     * @throws IOException on upload error.
+     */
+    public static void uploadFile(File file, DirectoryUploadContext uploadContext, String relativePath) throws IOException {
+        // the receiver is responsible for closing the stream, but make sure that the file is not left open on errors
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // note: the file size is fixed here; if the file is modified during the upload, the size validation will fail
+            uploadContext.provideFile(new FileDataSource(relativePath, fileChannel.size(), Channels.newInputStream(fileChannel)));
+        }
+    }
+
     /**
      * Provide list of directories to transfer before upload.
      * 
@@ -101,11 +127,14 @@ public final class DataTransferUtils {
 
         if (fileToWrite.getCanonicalPath().startsWith(rootDirectory.getCanonicalPath())) {
             fileToWrite.getParentFile().mkdirs();
-            final FileOutputStream fileStream = new FileOutputStream(fileToWrite);
-            try {
-                IOUtils.copy(dataSource.getStream(), fileStream);
+            // use a large buffer to write the received data in few, large chunks instead of IOUtils' default of 4 kb
+            final byte[] buffer = acquireTransferBuffer();
+            try (FileChannel fileChannel = FileChannel.open(fileToWrite.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                final OutputStream fileStream = Channels.newOutputStream(fileChannel);
+                IOUtils.copyLarge(dataSource.getStream(), fileStream, buffer);
             } finally {
-                fileStream.close(); // make sure the stream is always closed
+                releaseTransferBuffer(buffer);
             }
             if (!dataSource.receivedCompletely()) {
                 throw new IOException("Received incomplete file transfer for relative path " + relativePath);
@@ -116,6 +145,19 @@ public final class DataTransferUtils {
         }
     }
 
+    private static byte[] acquireTransferBuffer() {
+        final byte[] buffer = TRANSFER_BUFFER_POOL.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        return new byte[TRANSFER_BUFFER_SIZE];
+    }
+
+    private static void releaseTransferBuffer(byte[] buffer) {
+        // discarded if the pool is full
+        TRANSFER_BUFFER_POOL.offer(buffer);
+    }
+
     /**
      * Creates directories from the received list.
      * 
@@ -10,12 +10,10 @@ package de.rcenvironment.core.communication.uplink.network.internal;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -24,7 +22,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import de.rcenvironment.core.communication.uplink.common.internal.MessageType;
 import de.rcenvironment.core.communication.uplink.common.internal.UplinkProtocolMessageConverter;
-import de.rcenvironment.core.toolkitbridge.transitional.ConcurrencyUtils;
 import de.rcenvironment.core.utils.common.JsonUtils;
 import de.rcenvironment.core.utils.common.LogUtils;
 import de.rcenvironment.core.utils.common.StringUtils;
@@ -51,6 +48,15 @@ public abstract class CommonUplinkLowLevelProtocolWrapper {
 
     private static final int HANDSHAKE_MESSAGE_WAIT_CHECK_INTERVAL = 100;
 
+    private static final int NO_TIMEOUT = 0;
+
+    private static final int CHANNEL_ID_LENGTH = 8;
+
+    // 4 bytes of size data, 1 byte of message type
+    private static final int BLOCK_HEADER_LENGTH = 5;
+
+    private static final int FRAME_HEADER_LENGTH = CHANNEL_ID_LENGTH + BLOCK_HEADER_LENGTH;
+
     protected DataInputStream dataInputStream;
 
     protected DataOutputStream dataOutputStream;
@@ -67,6 +73,12 @@ public abstract class CommonUplinkLowLevelProtocolWrapper {
 
     private boolean outgoingStreamClosed;
 
+    // reused for all outgoing frames to write each header with a single call; synchronized on dataOutputStream
+    private final ByteBuffer outgoingFrameHeader = ByteBuffer.allocate(FRAME_HEADER_LENGTH);
+
+    // reused for all incoming frames to read each header with a single call; synchronized on dataInputStream
+    private final ByteBuffer incomingFrameHeader = ByteBuffer.allocate(FRAME_HEADER_LENGTH);
+
     public CommonUplinkLowLevelProtocolWrapper(UplinkConnectionLowLevelEventHandler eventHandler, String logIdentity) {
         this.eventHandler = eventHandler;
         this.jsonMapper = JsonUtils.getDefaultObjectMapper();
@@ -90,6 +102,20 @@ public abstract class CommonUplinkLowLevelProtocolWrapper {
      * @throws IOException on failure to send, typically because the connection was closed or has broken down in the meantime
      */
     public final void sendMessageBlock(long channelId, MessageBlock messageBlock) throws IOException {
+        sendMessageBlock(channelId, messageBlock, true);
+    }
+
+    /**
+     * Transmits the given message block to the other end of the connection, optionally without flushing the outgoing stream. This allows
+     * callers that know that more messages are about to be sent to let them share a single flush, and therefore, fewer network packets.
+     * The last message of such a sequence MUST be sent with flushing enabled.
+     * 
+     * @param channelId the id of the virtual channel to send this {@link MessageBlock} to
+     * @param messageBlock the message block block to send
+     * @param flush whether the outgoing stream should be flushed after writing the message block
+     * @throws IOException on failure to send, typically because the connection was closed or has broken down in the meantime
+     */
+    public final void sendMessageBlock(long channelId, MessageBlock messageBlock, boolean flush) throws IOException {
         final byte[] data = messageBlock.getData();
         synchronized (dataOutputStream) {
             if (outgoingStreamClosed) {
@@ -101,11 +127,15 @@ public abstract class CommonUplinkLowLevelProtocolWrapper {
                     StringUtils.format("Sending a message of type %s to channel %d, payload size %d bytes",
                         messageBlock.getType(), channelId, data.length));
             }
-            dataOutputStream.writeLong(channelId); // 8 bytes of channel id
-            dataOutputStream.writeInt(data.length); // 4 bytes of size data
-            dataOutputStream.writeByte(messageBlock.getType().getCode()); // 1 byte of message type
+            outgoingFrameHeader.clear();
+            outgoingFrameHeader.putLong(channelId); // 8 bytes of channel id
+            outgoingFrameHeader.putInt(data.length); // 4 bytes of size data
+            outgoingFrameHeader.put(messageBlock.getType().getCode()); // 1 byte of message type
+            dataOutputStream.write(outgoingFrameHeader.array(), 0, FRAME_HEADER_LENGTH);
             dataOutputStream.write(data);
-            dataOutputStream.flush();
+            if (flush) {
+                dataOutputStream.flush();
+            }
         }
     }
 
@@ -130,7 +160,15 @@ public abstract class CommonUplinkLowLevelProtocolWrapper {
     protected byte[] readExpectedBytesWithTimeout(final int expectedLength, int timeoutMsec, int recheckInterval)
         throws IOException {
         byte[] expectedBytes = new byte[expectedLength];
-        long startTime = System.currentTimeMillis();
+        waitForAvailableBytes(expectedLength, System.currentTimeMillis(), timeoutMsec, recheckInterval);
+        dataInputStream.readFully(expectedBytes);
+        return expectedBytes;
+    }
+
+    // waits until the given number of bytes can be read from the incoming stream without blocking; this is used instead of a separate
+    // reader thread to implement read timeouts, as the underlying (SSH channel) streams provide no native timeout support
+    private void waitForAvailableBytes(final int expectedLength, long startTime, int timeoutMsec, int recheckInterval)
+        throws IOException {
         while (dataInputStream.available() < expectedLength) {
             if (System.currentTimeMillis() < startTime + timeoutMsec) {
                 try {
@@ -144,8 +182,6 @@ public abstract class CommonUplinkLowLevelProtocolWrapper {
                     "Expected " + expectedLength + " bytes of data, but did not receive them within " + timeoutMsec + " msec");
             }
         }
-        dataInputStream.readFully(expectedBytes);
-        return expectedBytes;
     }
 
     protected void sendHandshakeInit() throws IOException {
@@ -218,27 +254,51 @@ public abstract class CommonUplinkLowLevelProtocolWrapper {
         }
     }
 
-    /**
-     * Blocks until the next message block could be read, or the incoming stream has been closed cleanly, or an error occurred.
-     * 
-     * @return the received message/data block if it could be read, or {@link Optional#empty()} on clean stream shutdown
-     * @throws IOException on a read error
-     * @throws ProtocolException if the received message block violates value constraints, e.g. an invalid message type
-     */
-    protected final MessageBlock readMessageBlock() throws IOException {
-        synchronized (dataInputStream) {
-            int blockSize = dataInputStream.readInt();
-            // sanity check on announced size to detect protocol errors and prevent heap exhaustion
-            if (blockSize < 0 || blockSize > UplinkProtocolConstants.MAX_MESSAGE_BLOCK_DATA_LENGTH) {
-                throw new ProtocolException(StringUtils.format(
-                    "Incoming message block announced a size of %d (valid range: 0-%d)", blockSize,
-                    UplinkProtocolConstants.MAX_MESSAGE_BLOCK_DATA_LENGTH));
-            }
-            byte type = dataInputStream.readByte();
-            // TODO timeout handling
-            byte[] data = new byte[blockSize];
+    // must be called while synchronized on dataInputStream; reads the given number of header bytes into the incoming header buffer, and
+    // returns the buffer positioned at its start
+    private ByteBuffer readIncomingHeader(int headerLength) throws IOException {
+        dataInputStream.readFully(incomingFrameHeader.array(), 0, headerLength);
+        incomingFrameHeader.clear();
+        return incomingFrameHeader;
+    }
+
+    // must be called while synchronized on dataInputStream; parses the block header (size and type) at the current position of the
+    // incoming header buffer, and reads the announced amount of message data. unless NO_TIMEOUT is passed, reading the data fails if it
+    // is not complete before the given timeout (counted from startTime)
+    private MessageBlock readMessageBlockData(long startTime, int timeoutMsec) throws IOException {
+        final int blockSize = incomingFrameHeader.getInt();
+        final byte type = incomingFrameHeader.get();
+        validateBlockSize(blockSize);
+        // note: this array is handed over to the asynchronous message processing, so it cannot be pooled or reused
+        byte[] data = new byte[blockSize];
+        if (timeoutMsec == NO_TIMEOUT) {
             dataInputStream.readFully(data);
-            return new MessageBlock(type, data);
+        } else {
+            readFullyWithTimeout(data, startTime, timeoutMsec);
+        }
+        return new MessageBlock(type, data);
+    }
+
+    // must be called while synchronized on dataInputStream; only reads the bytes that are already available, as waiting for the whole
+    // array to become available could exceed the buffer size of the underlying stream
+    private void readFullyWithTimeout(byte[] data, long startTime, int timeoutMsec) throws IOException {
+        int offset = 0;
+        while (offset < data.length) {
+            waitForAvailableBytes(1, startTime, timeoutMsec, HANDSHAKE_MESSAGE_WAIT_CHECK_INTERVAL);
+            final int count = dataInputStream.read(data, offset, Math.min(dataInputStream.available(), data.length - offset));
+            if (count < 0) {
+                throw new EOFException("Incoming stream ended after " + offset + " of " + data.length + " bytes of message data");
+            }
+            offset += count;
+        }
+    }
+
+    private void validateBlockSize(int blockSize) throws ProtocolException {
+        // sanity check on announced size to detect protocol errors and prevent heap exhaustion
+        if (blockSize < 0 || blockSize > UplinkProtocolConstants.MAX_MESSAGE_BLOCK_DATA_LENGTH) {
+            throw new ProtocolException(StringUtils.format(
+                "Incoming message block announced a size of %d (valid range: 0-%d)", blockSize,
+                UplinkProtocolConstants.MAX_MESSAGE_BLOCK_DATA_LENGTH));
         }
     }
 
@@ -252,19 +312,12 @@ public abstract class CommonUplinkLowLevelProtocolWrapper {
      * @throws ProtocolException if the received message block violates value constraints, e.g. an invalid message type
      */
     protected final MessageBlock readMessageBlockWithTimeout(int timeoutMsec) throws IOException {
-        final CompletableFuture<MessageBlock> messageFuture = new CompletableFuture<>();
-
-        ConcurrencyUtils.getAsyncTaskService().execute("Uplink: Read message block with timeout", () -> {
-            try {
-                messageFuture.complete(readMessageBlock());
-            } catch (IOException e) {
-                messageFuture.completeExceptionally(e);
-            }
-        });
-        try {
-            return messageFuture.get(timeoutMsec, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            throw new IOException("Error while waiting for an incoming message: " + e.toString());
+        final long startTime = System.currentTimeMillis();
+        synchronized (dataInputStream) {
+            // the timeout applies to the whole block, so that a peer that stops sending after the header cannot block this thread
+            waitForAvailableBytes(BLOCK_HEADER_LENGTH, startTime, timeoutMsec, HANDSHAKE_MESSAGE_WAIT_CHECK_INTERVAL);
+            readIncomingHeader(BLOCK_HEADER_LENGTH);
+            return readMessageBlockData(startTime, timeoutMsec);
         }
     }
 
@@ -317,8 +370,13 @@ public abstract class CommonUplinkLowLevelProtocolWrapper {
     }
 
     private boolean receiveNextMessage() throws IOException {
-        long channelId = readChannelId();
-        final MessageBlock message = readMessageBlock();
+        final long channelId;
+        final MessageBlock message;
+        synchronized (dataInputStream) {
+            // read the channel id and the block header with a single call
+            channelId = readIncomingHeader(FRAME_HEADER_LENGTH).getLong();
+            message = readMessageBlockData(0, NO_TIMEOUT);
+        }
         if (message.getType() == MessageType.GOODBYE) {
             log.debug("Received 'goodbye' message, stopping message listener");
             if (message.getDataLength() == 0) {
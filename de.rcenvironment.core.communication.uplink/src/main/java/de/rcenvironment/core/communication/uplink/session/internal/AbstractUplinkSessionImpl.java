@@ -12,7 +12,6 @@ import java.io.IOException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Semaphore;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,8 +34,9 @@ import de.rcenvironment.toolkit.modules.concurrency.api.ConcurrencyUtilsFactory;
  * <li>Incoming messages are supposed to be read in a blocking loop within {@link #runSession()}, and then queued into an internal
  * {@link AsyncOrderedExecutionQueue} which calls {@link #processIncomingMessageBlock(MessageBlock)}, which in turn calls
  * synchronous/blocking channel methods.
- * <li>All outgoing messages are supposed to be enqueued into an internal {@link AsyncOrderedExecutionQueue}, which dispatches them to the
- * synchronous/blocking {@link CommonUplinkLowLevelProtocolWrapper} methods.
+ * <li>All outgoing messages are supposed to be enqueued into an internal {@link OutgoingMessageScheduler}, which determines their order
+ * across channels; they are then sent from an internal {@link AsyncOrderedExecutionQueue} to the synchronous/blocking
+ * {@link CommonUplinkLowLevelProtocolWrapper} methods.
  * </ul>
  *
  * @author Robert Mischke
@@ -46,11 +46,6 @@ public abstract class AbstractUplinkSessionImpl implements UplinkSession {
     // the maximum time to wait for the namespace id's Future; not intended for actual waiting, but only to prevent minor race conditions
     private static final int VERY_SHORT_WAIT_MSEC = 50;
 
-    /**
-     * The maximum number of unsent messages to queue; especially important during file uploads.
-     */
-    private static final int OUTGOING_MESSAGE_QUEUE_SIZE = 5; // TODO arbitrary; adjust as necessary
-
     private static final boolean DEBUG_OUTPUT_ENABLED = DebugSettings.getVerboseLoggingEnabled("uplink.sessions");
 
     protected final AsyncOrderedExecutionQueue incomingMessageQueue;
@@ -65,7 +60,8 @@ public abstract class AbstractUplinkSessionImpl implements UplinkSession {
 
     private final CompletableFuture<String> assignedNamespaceIdFuture = new CompletableFuture<String>();
 
-    private final Semaphore outgoingMessageQueueLimit = new Semaphore(OUTGOING_MESSAGE_QUEUE_SIZE);
+    // determines the sending order of outgoing messages, and limits the amount of unsent data per channel
+    private final OutgoingMessageScheduler outgoingMessageScheduler = new OutgoingMessageScheduler();
 
     protected AbstractUplinkSessionImpl(ConcurrencyUtilsFactory concurrencyUtilsFactory) {
         Objects.requireNonNull(concurrencyUtilsFactory);
@@ -82,26 +78,39 @@ public abstract class AbstractUplinkSessionImpl implements UplinkSession {
 
     @Override
     public final void enqueueMessageBlockForSending(long channelId, MessageBlock messageBlock) throws IOException {
+        if (DEBUG_OUTPUT_ENABLED) {
+            log.debug(StringUtils.format("Enqueueing message of type %s for sending to channel %d, payload size %d bytes",
+                messageBlock.getType(), channelId, messageBlock.getDataLength()));
+        }
+        final boolean startSender;
         try {
-            outgoingMessageQueueLimit.acquire();
+            // blocks if too much data of the same channel is waiting to be sent; especially important during file uploads
+            startSender = outgoingMessageScheduler.enqueue(channelId, messageBlock);
         } catch (InterruptedException e1) {
             Thread.currentThread().interrupt();
             throw new IOException("Interrupted while waiting to enqueue a message of type " + messageBlock.getType());
         }
-        if (DEBUG_OUTPUT_ENABLED) {
-            log.debug(StringUtils.format("Enqueueing message of type %s for sending to channel %d, payload size %d bytes",
-                messageBlock.getType(), channelId, messageBlock.getDataLength()));
+        if (startSender) {
+            outgoingMessageQueue.enqueue(this::sendScheduledMessages);
         }
-        outgoingMessageQueue.enqueue(() -> {
+    }
+
+    private void sendScheduledMessages() {
+        OutgoingMessageScheduler.ScheduledMessage message;
+        while ((message = outgoingMessageScheduler.pollOrEndSending()) != null) {
+            final MessageBlock messageBlock = message.getMessageBlock();
             try {
-                getProtocolWrapper().sendMessageBlock(channelId, messageBlock);
+                // only flush if no other message is waiting to be sent, so that consecutive messages share a single flush
+                getProtocolWrapper().sendMessageBlock(message.getChannelId(), messageBlock, outgoingMessageScheduler.isEmpty());
             } catch (IOException e) {
-                // TODO close the session
-                log.error("Error during asynchronous sending of message with type " + messageBlock.getType());
-            } finally {
-                outgoingMessageQueueLimit.release();
+                // the message stream is broken at this point, so discard all queued messages, reject further ones, and close the session
+                outgoingMessageScheduler.failSending(e);
+                log.error(StringUtils.format("Error during asynchronous sending of message with type %s, closing session %s: %s",
+                    messageBlock.getType(), getLogDescriptor(), e.toString()));
+                close();
+                return;
             }
-        });
+        }
     }
 
     @Override
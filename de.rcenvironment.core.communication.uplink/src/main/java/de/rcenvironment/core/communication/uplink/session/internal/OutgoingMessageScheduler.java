@@ -0,0 +1,245 @@
+/*
+ * Copyright 2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.communication.uplink.session.internal;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.rcenvironment.core.communication.uplink.common.internal.MessageType;
+import de.rcenvironment.core.communication.uplink.network.internal.MessageBlock;
+import de.rcenvironment.core.communication.uplink.network.internal.UplinkProtocolConstants;
+
+/**
+ * Decides the order in which the outgoing {@link MessageBlock}s of all channels of a session are written to the shared output stream.
+ * <p>
+ * Bulk data blocks (file and documentation content) are queued per channel, and the channels are served using deficit round robin, so that
+ * a large transfer on one channel does not block the transfers on other channels. All other (control) messages are sent ahead of these
+ * queues via a priority lane, unless bulk data of the same channel is still waiting; in that case, they are queued behind it, as the
+ * message order within each channel must always be preserved.
+ * <p>
+ * To provide backpressure, the amount of data that may be queued per channel is limited; {@link #enqueue(long, MessageBlock)} blocks
+ * until enough data of the same channel has been sent.
+ * <p>
+ * If the sender fails to write a message, it calls {@link #failSending(IOException)}; all queued messages are discarded, and all pending
+ * and future {@link #enqueue(long, MessageBlock)} calls fail.
+ * <p>
+ * Threading behavior: Messages may be enqueued by any number of threads; {@link #pollOrEndSending()} and {@link #isEmpty()} are expected
+ * to be called by a single sender at a time.
+ * 
+ * @author agent
+ */
+public final class OutgoingMessageScheduler {
+
+    // the approximate size of a message block's header on the wire; counted to limit the number of empty "signal" messages, too
+    private static final int MESSAGE_OVERHEAD = 13;
+
+    private static final int MAX_MESSAGE_COST = UplinkProtocolConstants.MAX_MESSAGE_BLOCK_DATA_LENGTH + MESSAGE_OVERHEAD;
+
+    // guarantees that each channel can send at least one message per round
+    private static final int ROUND_ROBIN_QUANTUM = MAX_MESSAGE_COST;
+
+    private static final int DEFAULT_CHANNEL_BYTE_BUDGET = 4 * MAX_MESSAGE_COST;
+
+    /**
+     * A {@link MessageBlock} with its associated channel id.
+     * 
+     * @author agent
+     */
+    public static final class ScheduledMessage {
+
+        private final long channelId;
+
+        private final MessageBlock messageBlock;
+
+        private final int cost;
+
+        private ScheduledMessage(long channelId, MessageBlock messageBlock) {
+            this.channelId = channelId;
+            this.messageBlock = messageBlock;
+            this.cost = messageBlock.getDataLength() + MESSAGE_OVERHEAD;
+        }
+
+        public long getChannelId() {
+            return channelId;
+        }
+
+        public MessageBlock getMessageBlock() {
+            return messageBlock;
+        }
+    }
+
+    /**
+     * The scheduling state of a single channel; only exists while the channel has queued messages.
+     * 
+     * @author agent
+     */
+    private static final class ChannelState {
+
+        private final Deque<ScheduledMessage> bulkQueue = new ArrayDeque<>();
+
+        // includes messages in the priority lane
+        private int queuedBytes;
+
+        private int deficit;
+
+        private boolean quantumGranted;
+    }
+
+    private final int channelByteBudget;
+
+    private final Deque<ScheduledMessage> priorityLane = new ArrayDeque<>();
+
+    private final Map<Long, ChannelState> channelStates = new HashMap<>();
+
+    // the channels with queued bulk messages, in round robin order
+    private final Deque<ChannelState> activeChannels = new ArrayDeque<>();
+
+    private int queuedMessageCount;
+
+    private boolean sending;
+
+    private IOException sendingFailure;
+
+    public OutgoingMessageScheduler() {
+        this(DEFAULT_CHANNEL_BYTE_BUDGET);
+    }
+
+    /**
+     * @param channelByteBudget the maximum number of bytes to queue per channel; a single message is always accepted for an idle channel,
+     *        regardless of its size
+     */
+    public OutgoingMessageScheduler(int channelByteBudget) {
+        this.channelByteBudget = channelByteBudget;
+    }
+
+    /**
+     * Adds a message to the queue of its channel, blocking while the channel has exceeded its byte budget.
+     * 
+     * @param channelId the id of the channel to send the message to
+     * @param messageBlock the message
+     * @return true if the caller is responsible for starting a sender that calls {@link #pollOrEndSending()} until it returns null; false
+     *         if such a sender is already active
+     * @throws InterruptedException on interruption while waiting for the channel's queue to shrink
+     * @throws IOException if sending has failed before or while waiting
+     */
+    public synchronized boolean enqueue(long channelId, MessageBlock messageBlock) throws InterruptedException, IOException {
+        final ScheduledMessage message = new ScheduledMessage(channelId, messageBlock);
+        ChannelState channelState;
+        while (true) {
+            if (sendingFailure != null) {
+                throw new IOException("Cannot send a message of type " + messageBlock.getType()
+                    + " as a previous message could not be sent: " + sendingFailure.getMessage(), sendingFailure);
+            }
+            // note: must be fetched again after waiting, as the state is discarded when the channel's queue runs empty
+            channelState = channelStates.computeIfAbsent(channelId, id -> new ChannelState());
+            if (channelState.queuedBytes == 0 || channelState.queuedBytes + message.cost <= channelByteBudget) {
+                break;
+            }
+            wait();
+        }
+        channelState.queuedBytes += message.cost;
+        if (channelState.bulkQueue.isEmpty() && !isBulkDataType(messageBlock.getType())) {
+            priorityLane.addLast(message);
+        } else {
+            if (channelState.bulkQueue.isEmpty()) {
+                activeChannels.addLast(channelState);
+            }
+            channelState.bulkQueue.addLast(message);
+        }
+        queuedMessageCount++;
+        if (!sending) {
+            sending = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Fetches the next message to send. If there is none, the sender is marked as inactive, so that the next call to
+     * {@link #enqueue(long, MessageBlock)} will request a new one.
+     * 
+     * @return the next message to send, or null if the queue is empty
+     */
+    public synchronized ScheduledMessage pollOrEndSending() {
+        ScheduledMessage message = priorityLane.pollFirst();
+        if (message == null) {
+            message = pollNextBulkMessage();
+        }
+        if (message == null) {
+            sending = false;
+            return null;
+        }
+        queuedMessageCount--;
+        final ChannelState channelState = channelStates.get(message.channelId);
+        channelState.queuedBytes -= message.cost;
+        if (channelState.queuedBytes == 0) {
+            channelStates.remove(message.channelId);
+        }
+        notifyAll(); // wake up producers waiting for budget
+        return message;
+    }
+
+    /**
+     * Called by the sender after it failed to write a message. Discards all queued messages, ends sending, and makes all pending and future
+     * calls to {@link #enqueue(long, MessageBlock)} fail with an {@link IOException} referencing the given cause.
+     * 
+     * @param cause the error that occurred while sending
+     */
+    public synchronized void failSending(IOException cause) {
+        if (sendingFailure == null) {
+            sendingFailure = cause;
+        }
+        priorityLane.clear();
+        channelStates.clear();
+        activeChannels.clear();
+        queuedMessageCount = 0;
+        sending = false;
+        notifyAll(); // release producers waiting for budget
+    }
+
+    /**
+     * @return true if there are no queued messages; used by the sender to decide whether to flush the outgoing stream
+     */
+    public synchronized boolean isEmpty() {
+        return queuedMessageCount == 0;
+    }
+
+    private ScheduledMessage pollNextBulkMessage() {
+        while (!activeChannels.isEmpty()) {
+            final ChannelState channelState = activeChannels.peekFirst();
+            if (!channelState.quantumGranted) {
+                channelState.deficit += ROUND_ROBIN_QUANTUM;
+                channelState.quantumGranted = true;
+            }
+            final ScheduledMessage head = channelState.bulkQueue.peekFirst();
+            if (head.cost <= channelState.deficit) {
+                channelState.bulkQueue.pollFirst();
+                channelState.deficit -= head.cost;
+                if (channelState.bulkQueue.isEmpty()) {
+                    // idle channels do not accumulate credit
+                    channelState.deficit = 0;
+                    channelState.quantumGranted = false;
+                    activeChannels.pollFirst();
+                }
+                return head;
+            }
+            // this channel's share of the current round is used up; move on to the next one
+            channelState.quantumGranted = false;
+            activeChannels.addLast(activeChannels.pollFirst());
+        }
+        return null;
+    }
+
+    private static boolean isBulkDataType(MessageType type) {
+        return type == MessageType.FILE_CONTENT || type == MessageType.TOOL_DOCUMENTATION_CONTENT;
+    }
+}
@@ -29,6 +29,19 @@ public interface RemotableReliableRPCStreamService {
      */
     String createReliableRPCStream() throws RemoteOperationException;
 
+    /**
+     * Creates a Reliable RPC (rRPC) Stream on the local node that accepts up to the given number of requests in flight at the same time;
+     * see {@link #createReliableRPCStream()}. The latter is equivalent to a window size of 1.
+     * <p>
+     * Note that this method is not available on nodes running older versions; callers must only use it if the remote node has announced
+     * support for pipelined streams, and use {@link #createReliableRPCStream()} otherwise.
+     * 
+     * @param windowSize the maximum number of requests in flight
+     * @return the id of the generated stream
+     * @throws RemoteOperationException on general network errors, or if the window size is not supported
+     */
+    String createPipelinedReliableRPCStream(int windowSize) throws RemoteOperationException;
+
     /**
      * Closes/disposes a stream when it is no longer needed by the sending remote node.
      * 
@@ -58,6 +58,7 @@ import de.rcenvironment.core.communication.transport.spi.MessageChannelEndpointH
 import de.rcenvironment.core.communication.transport.spi.MessageChannelResponseHandler;
 import de.rcenvironment.core.communication.transport.spi.NetworkTransportProvider;
 import de.rcenvironment.core.communication.utils.MessageUtils;
+import de.rcenvironment.core.communication.utils.PayloadCodecRegistry;
 import de.rcenvironment.core.toolkitbridge.transitional.ConcurrencyUtils;
 import de.rcenvironment.core.toolkitbridge.transitional.StatsCounter;
 import de.rcenvironment.core.utils.common.StringUtils;
@@ -359,6 +360,7 @@ public class MessageChannelServiceImpl implements MessageChannelService {
         connectionHealthStates.put(channel, new MessageChannelHealthState());
         synchronized (activeOutgoingChannels) {
             activeOutgoingChannels.put(channel.getChannelId(), channel);
+            updateNegotiatedPayloadCodec(channel);
         }
         channelListeners.enqueueCallback(new AsyncCallback<MessageChannelLifecycleListener>() {
 
@@ -869,6 +871,29 @@ public class MessageChannelServiceImpl implements MessageChannelService {
         // TODO possible optimization: find related requests waiting for response and cancel them
     }
 
+    /**
+     * Updates the payload codec registered for the remote instance of the given channel. The codec is taken from any remaining active
+     * outgoing channel to the same instance, so closing one of several parallel channels does not affect the others. Must be called while
+     * holding the lock on {@link #activeOutgoingChannels}.
+     */
+    private void updateNegotiatedPayloadCodec(MessageChannel changedChannel) {
+        final InitialNodeInformation remoteNodeInformation = changedChannel.getRemoteNodeInformation();
+        if (remoteNodeInformation == null) {
+            return; // handshake not completed; nothing was registered
+        }
+        final InstanceNodeSessionId remoteNodeId = remoteNodeInformation.getInstanceNodeSessionId();
+        String codecName = null;
+        for (MessageChannel channel : activeOutgoingChannels.values()) {
+            if (channel.getRemoteNodeInformation() != null
+                && channel.getRemoteNodeInformation().getInstanceNodeSessionId().equals(remoteNodeId)
+                && channel.getNegotiatedPayloadCodec() != null) {
+                codecName = channel.getNegotiatedPayloadCodec();
+                break;
+            }
+        }
+        PayloadCodecRegistry.setNegotiatedCodec(remoteNodeId.convertToInstanceNodeId(), codecName);
+    }
+
     private void unregisterClosedOrBrokenChannel(final MessageChannel channel) {
         synchronized (activeOutgoingChannels) {
             MessageChannel removed = activeOutgoingChannels.remove(channel.getChannelId());
@@ -877,6 +902,7 @@ public class MessageChannelServiceImpl implements MessageChannelService {
                 logger.warn(StringUtils.format("Unexpected state: Expected to find same registered channel object for "
                     + "closed or broken channel %s, but found '%s' instead", channel.getChannelId(), removed));
             }
+            updateNegotiatedPayloadCodec(channel);
         }
         logger.debug("Notifying listeners of shutdown of channel " + channel.getChannelId());
         channelListeners.enqueueCallback(new AsyncCallback<MessageChannelLifecycleListener>() {
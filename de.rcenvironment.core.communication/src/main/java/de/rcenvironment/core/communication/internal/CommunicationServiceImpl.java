@@ -290,8 +290,17 @@ public class CommunicationServiceImpl implements CommunicationService, Additiona
         } catch (IdentifierException e) {
             throw new RemoteOperationException("Failed to resolve node id " + targetNodeId + " to a reachable instance: " + e.toString());
         }
-        String streamId = getRemotableService(RemotableReliableRPCStreamService.class, resolvedTargetNodeId).createReliableRPCStream();
-        return reliableRPCStreamService.createLocalSetupForRemoteStreamId(resolvedTargetNodeId, streamId);
+        final RemotableReliableRPCStreamService remoteService =
+            getRemotableService(RemotableReliableRPCStreamService.class, resolvedTargetNodeId);
+        // only use pipelined streams if the remote node has announced support for them, as failures to create one are ambiguous
+        final int windowSize = reliableRPCStreamService.determineWindowSize(resolvedTargetNodeId);
+        final String streamId;
+        if (windowSize > 1) {
+            streamId = remoteService.createPipelinedReliableRPCStream(windowSize);
+        } else {
+            streamId = remoteService.createReliableRPCStream();
+        }
+        return reliableRPCStreamService.createLocalSetupForRemoteStreamId(resolvedTargetNodeId, streamId, windowSize);
     }
 
     @Override
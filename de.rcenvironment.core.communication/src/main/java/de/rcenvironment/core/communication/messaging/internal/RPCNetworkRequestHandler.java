@@ -76,9 +76,13 @@ public class RPCNetworkRequestHandler implements NetworkRequestHandler {
             }
 
             scResult = handleInternal(serviceCallRequest);
+            if (scResult == null && serviceCallRequest.getReliableRPCStreamId() != null) {
+                // the request is waiting for a preceding request of its stream; the sender repeats it to fetch the result
+                return NetworkResponseFactory.generateResponseForRequestHeldBack(request);
+            }
             try {
                 // note: RPCs that throw a declared service exception are still considered successful on the network level
-                return NetworkResponseFactory.generateSuccessResponse(request, scResult);
+                return NetworkResponseFactory.generateSuccessResponseUsingRequestCodec(request, scResult);
             } catch (SerializationException e) {
                 throw new InternalMessagingException("Failed to serialize the result of a call to "
                     + formatGenericCallInfo(serviceCallRequest), e);
@@ -12,9 +12,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import de.rcenvironment.core.communication.common.NetworkGraphLink;
 import de.rcenvironment.core.communication.common.NetworkGraphNode;
@@ -30,13 +32,18 @@ import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
 /**
  * Internal implementation of {@link NetworkRoutingInformation}.
  * 
+ * As a new instance is created for each topology change, the shortest path tree is computed only once per change. Route and next-hop
+ * queries are answered from this immutable tree without locking, as they are performed for each routed message.
+ * 
  * @author Robert Mischke
  */
 public final class NetworkRoutingInformationImpl implements NetworkRoutingInformation {
 
-    private Map<InstanceNodeSessionId, NetworkGraphLink> routingTable;
+    // next-hop entries are added lazily; the map is concurrent so that existing entries can be read without locking
+    private final Map<InstanceNodeSessionId, NetworkGraphLink> routingTable =
+        new ConcurrentHashMap<InstanceNodeSessionId, NetworkGraphLink>();
 
-    private Map<InstanceNodeSessionId, NetworkGraphLink> incomingEdgesById;
+    private final Map<InstanceNodeSessionId, NetworkGraphLink> incomingEdgesById;
 
     private Set<NetworkGraphLink> spanningTreeLinkSet;
 
@@ -49,21 +56,29 @@ public final class NetworkRoutingInformationImpl implements NetworkRoutingInform
 
     private final Map<InstanceNodeSessionId, NetworkGraphLinkImpl> incomingEdgeMap;
 
-    private final DijkstraShortestPath<InstanceNodeSessionId, NetworkGraphLinkImpl> shortestPathAlgorithm;
-
     private final Set<InstanceNodeSessionId> reachableNodes;
 
     public NetworkRoutingInformationImpl(NetworkGraphImpl rawNetworkGraph) {
         DirectedSparseMultigraph<InstanceNodeSessionId, NetworkGraphLinkImpl> rawJungGraph = rawNetworkGraph.getJungGraph();
         this.localNodeId = rawNetworkGraph.getLocalNodeId();
         // Note: unless edge weights are used, UnweightedShortestPath would work as well - misc_ro
-        this.shortestPathAlgorithm = new DijkstraShortestPath<InstanceNodeSessionId, NetworkGraphLinkImpl>(rawJungGraph);
+        DijkstraShortestPath<InstanceNodeSessionId, NetworkGraphLinkImpl> shortestPathAlgorithm =
+            new DijkstraShortestPath<InstanceNodeSessionId, NetworkGraphLinkImpl>(rawJungGraph);
         try {
             this.incomingEdgeMap = shortestPathAlgorithm.getIncomingEdgeMap(rawNetworkGraph.getLocalNodeId());
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException(NetworkFormatter.networkGraphToGraphviz(rawNetworkGraph, false), e);
         }
         reachableNodes = Collections.unmodifiableSet(incomingEdgeMap.keySet());
+
+        StatsCounter.count("Network topology/routing", "Routing table calculations");
+        Map<InstanceNodeSessionId, NetworkGraphLink> tempIncomingEdgesById = new HashMap<InstanceNodeSessionId, NetworkGraphLink>();
+        for (NetworkGraphLinkImpl link : incomingEdgeMap.values()) {
+            if (link != null) {
+                tempIncomingEdgesById.put(link.getTargetNodeId(), link);
+            }
+        }
+        incomingEdgesById = Collections.unmodifiableMap(tempIncomingEdgesById);
     }
 
     @Override
@@ -72,39 +87,40 @@ public final class NetworkRoutingInformationImpl implements NetworkRoutingInform
     }
 
     @Override
-    public synchronized NetworkGraphLink getNextLinkTowards(InstanceNodeSessionId targetNodeId) throws NoRouteToNodeException {
+    public NetworkGraphLink getNextLinkTowards(InstanceNodeSessionId targetNodeId) throws NoRouteToNodeException {
         StatsCounter.count("Network topology/routing", "Route requests");
 
         if (targetNodeId.equals(localNodeId)) {
             throw new NoRouteToNodeException("Cannot route to Local node", localNodeId);
         }
 
-        if (routingTable == null) {
-            StatsCounter.count("Network topology/routing", "Routing table calculations");
-
-            // initialize basic structures
-            routingTable = new HashMap<InstanceNodeSessionId, NetworkGraphLink>();
-            incomingEdgesById = new HashMap<InstanceNodeSessionId, NetworkGraphLink>();
-            for (NetworkGraphLinkImpl link : incomingEdgeMap.values()) {
-                if (link != null) {
-                    incomingEdgesById.put(link.getTargetNodeId(), link);
-                }
-            }
+        // fast path: cached entry present
+        NetworkGraphLink cachedResult = routingTable.get(targetNodeId);
+        if (cachedResult != null) {
+            return cachedResult;
         }
 
         // individual routing map entries are calculated lazily, as in large networks,
         // only a few nodes will probably be contacted at once (TODO actually track/measure this) - misc_ro
-        return determineRoutingTableEntryFor(targetNodeId);
+        synchronized (this) {
+            return determineRoutingTableEntryFor(targetNodeId);
+        }
     }
 
     @Override
-    public synchronized List<? extends NetworkGraphLink> getRouteTo(InstanceNodeSessionId destination) {
+    public List<? extends NetworkGraphLink> getRouteTo(InstanceNodeSessionId destination) {
         if (destination.equals(localNodeId)) {
             throw new IllegalArgumentException("Invalid route request to local node");
         }
-        List<? extends NetworkGraphLink> path = shortestPathAlgorithm.getPath(localNodeId, destination);
+        // walk the shortest path tree backwards; equivalent to DijkstraShortestPath.getPath(), which uses the same tree
+        LinkedList<NetworkGraphLink> path = new LinkedList<NetworkGraphLink>();
+        NetworkGraphLink incomingEdge = incomingEdgesById.get(destination);
+        while (incomingEdge != null) {
+            path.addFirst(incomingEdge);
+            incomingEdge = incomingEdgesById.get(incomingEdge.getSourceNodeId());
+        }
         if (path.size() != 0) {
-            return Collections.unmodifiableList(path);
+            return Collections.unmodifiableList(new ArrayList<NetworkGraphLink>(path));
         } else {
             // empty path = target unreachable
             return null;
@@ -54,6 +54,22 @@ public final class NetworkResponseFactory {
         return new NetworkResponseImpl(contentBytes, request.getRequestId(), ProtocolConstants.ResultCode.SUCCESS);
     }
 
+    /**
+     * Creates a response using a Serializable response object, encoded with the same payload codec as the given request. As the sender of
+     * the request evidently supports that codec, no further negotiation is required.
+     * 
+     * @param request the associated request
+     * @param responseBody the {@link Serializable} to send as response payload
+     * @return the generated response
+     * @throws SerializationException on serialization failure
+     */
+    public static NetworkResponse generateSuccessResponseUsingRequestCodec(NetworkRequest request, Serializable responseBody)
+        throws SerializationException {
+        final String codecName = MessageUtils.detectPayloadCodecName(request.getContentBytes());
+        byte[] contentBytes = MessageUtils.serializeObject(responseBody, codecName);
+        return new NetworkResponseImpl(contentBytes, request.getRequestId(), ProtocolConstants.ResultCode.SUCCESS);
+    }
+
     /**
      * Creates a response (typically on the caller side) from a received result code, and raw response bytes.
      * 
@@ -115,6 +131,18 @@ public final class NetworkResponseFactory {
         return generateErrorResponse(request, ProtocolConstants.ResultCode.INSTANCE_ID_COLLISION, localNodeId, null);
     }
 
+    /**
+     * Generates a {@link NetworkResponse} indicating that a request of a Reliable RPC stream was held back at its final destination until
+     * a preceding request of the same stream has been executed.
+     * 
+     * @param request the request
+     * @return the generated response
+     */
+    public static NetworkResponse generateResponseForRequestHeldBack(NetworkRequest request) {
+        return generateErrorResponse(request, ProtocolConstants.ResultCode.REQUEST_HELD_BACK, request.accessMetaData().getFinalRecipient(),
+            null);
+    }
+
     /**
      * Generates a {@link NetworkResponse} indicating that an exception has occurred at the final destination of the request.
      * 
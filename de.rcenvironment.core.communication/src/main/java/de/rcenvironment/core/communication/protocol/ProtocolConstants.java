@@ -103,6 +103,12 @@ public final class ProtocolConstants {
             + "A typical cause for this is when entire profiles are copied, including their internal storage, "
             + "and both copies are being used at the same time"),
 
+        /**
+         * A request of a Reliable RPC stream was received before a preceding request of the same stream, and is held back until that
+         * request has been executed; the sender is expected to repeat it to fetch its result.
+         */
+        REQUEST_HELD_BACK(111, "The request is waiting for a preceding request to arrive at the destination instance"),
+
         /**
          * A placeholder result code if an invalid code was passed in for conversion via {@link #fromCode(int)}.
          */
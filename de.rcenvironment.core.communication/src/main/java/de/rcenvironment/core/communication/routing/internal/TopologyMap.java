@@ -11,7 +11,9 @@ package de.rcenvironment.core.communication.routing.internal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -58,6 +60,33 @@ public final class TopologyMap {
 
     private final InstanceNodeSessionId localNodeId;
 
+    /**
+     * The routes from the local node, computed once after each topology change. Set to null by all modifying methods, and lazily
+     * recreated on the next route or reachability query; published via a volatile field so that queries can use it without locking.
+     */
+    private volatile LocalRoutingSnapshot localRoutingSnapshot;
+
+    /**
+     * An immutable snapshot of the shortest path tree rooted at the local node.
+     * 
+     * @author agent
+     */
+    private static final class LocalRoutingSnapshot {
+
+        private final Set<InstanceNodeSessionId> knownNodeIds;
+
+        private final Map<InstanceNodeSessionId, TopologyLink> incomingLinksByNodeId;
+
+        private final Collection<TopologyNode> reachableNodes;
+
+        LocalRoutingSnapshot(Set<InstanceNodeSessionId> knownNodeIds, Map<InstanceNodeSessionId, TopologyLink> incomingLinksByNodeId,
+            Collection<TopologyNode> reachableNodes) {
+            this.knownNodeIds = knownNodeIds;
+            this.incomingLinksByNodeId = incomingLinksByNodeId;
+            this.reachableNodes = reachableNodes;
+        }
+    }
+
     /**
      * The constructor.
      * 
@@ -164,12 +193,14 @@ public final class TopologyMap {
             removeNode(lsaRoot);
         }
 
+        localRoutingSnapshot = null;
         return true;
     }
 
     /**
      * Computes the shortest path from the source node to the destination node. The Dijkstra shortest path algorithm is used to determine
-     * the shortest path.
+     * the shortest path. Routes starting at the local node are taken from a cached snapshot, which is only recomputed after the topology
+     * has changed; these queries do not acquire the lock of this map.
      * 
      * @see <a href="http://jung.sourceforge.net/doc/api/edu/uci/ics/jung/algorithms/shortestpath/DijkstraShortestPath.html">
      *      DijkstraShortestPath</a>
@@ -177,9 +208,54 @@ public final class TopologyMap {
      * @param destination The destination platform
      * @return The shortest path between source and destination.
      */
-    public synchronized NetworkRoute getShortestPath(InstanceNodeSessionId source, InstanceNodeSessionId destination) {
-        // TODO optimization: provide method that only returns the next step (if rest is irrelevant)
-        // TODO optimization: add caching!
+    public NetworkRoute getShortestPath(InstanceNodeSessionId source, InstanceNodeSessionId destination) {
+        if (!localNodeId.equals(source)) {
+            return computeShortestPath(source, destination);
+        }
+
+        long start = System.nanoTime();
+        LocalRoutingSnapshot snapshot = getLocalRoutingSnapshot();
+        if (!snapshot.knownNodeIds.contains(destination)) {
+            LOGGER.warn("Could not determine route to node " + destination + " as it is not part of the known topology");
+            return null;
+        }
+
+        // walk the shortest path tree backwards from the destination; an empty path means "unreachable"
+        LinkedList<TopologyLink> path = new LinkedList<TopologyLink>();
+        LinkedList<InstanceNodeSessionId> nodes = new LinkedList<InstanceNodeSessionId>();
+        TopologyLink incomingLink = snapshot.incomingLinksByNodeId.get(destination);
+        while (incomingLink != null) {
+            path.addFirst(incomingLink);
+            nodes.addFirst(incomingLink.getDestination());
+            incomingLink = snapshot.incomingLinksByNodeId.get(incomingLink.getSource());
+        }
+        long elapsed = System.nanoTime() - start;
+        return new NetworkRoute(source, destination, new ArrayList<TopologyLink>(path), new ArrayList<InstanceNodeSessionId>(nodes),
+            elapsed);
+    }
+
+    /**
+     * Get the ids of all reachable nodes.
+     * 
+     * @param restrictToWorkflowHostsAndSelf No description available.
+     * @return Set of platform identifiers.
+     */
+    public Set<InstanceNodeSessionId> getIdsOfReachableNodes(boolean restrictToWorkflowHostsAndSelf) {
+        Set<InstanceNodeSessionId> result = new HashSet<InstanceNodeSessionId>();
+        for (TopologyNode node : getLocalRoutingSnapshot().reachableNodes) {
+            if (restrictToWorkflowHostsAndSelf) {
+                boolean isLocalNode = localNodeId.equals(node.getNodeIdentifier());
+                if (!(isLocalNode || node.getIsWorkflowHost())) {
+                    continue;
+                }
+            }
+            // TODO remove typecast once NetworkIdentifier vs. NodeIdentifier is done
+            result.add((InstanceNodeSessionId) node.getNodeIdentifier());
+        }
+        return result;
+    }
+
+    private synchronized NetworkRoute computeShortestPath(InstanceNodeSessionId source, InstanceNodeSessionId destination) {
         long elapsed = 0;
 
         List<TopologyLink> path = new ArrayList<TopologyLink>();
@@ -202,37 +278,46 @@ public final class TopologyMap {
                 nodes.add(networkModel.getEndpoints(link).getSecond().getNodeIdentifier());
             }
             return new NetworkRoute(source, destination, path, nodes, elapsed);
-            // LOGGER.debug(StringUtils.format("Route computation: %s ms", elapsed * 10e-9));
         } else {
             LOGGER.warn("Could not determine route to node " + destination + " as it is not part of the known topology");
             return null;
         }
     }
 
-    /**
-     * Get the ids of all reachable nodes.
-     * 
-     * @param restrictToWorkflowHostsAndSelf No description available.
-     * @return Set of platform identifiers.
-     */
-    public synchronized Set<InstanceNodeSessionId> getIdsOfReachableNodes(boolean restrictToWorkflowHostsAndSelf) {
-        Set<InstanceNodeSessionId> result = new HashSet<InstanceNodeSessionId>();
-        // get the map of reachable nodes by (ab)using the Dijkstra algorithm;
-        // TODO is there a more efficient approach available in JUNG?
-        DijkstraShortestPath<TopologyNode, TopologyLink> alg =
-            new DijkstraShortestPath<TopologyNode, TopologyLink>(networkModel);
-        Map<TopologyNode, Number> distanceMap = alg.getDistanceMap(getNode(localNodeId));
-        for (TopologyNode node : distanceMap.keySet()) {
-            if (restrictToWorkflowHostsAndSelf) {
-                boolean isLocalNode = localNodeId.equals(node.getNodeIdentifier());
-                if (!(isLocalNode || node.getIsWorkflowHost())) {
-                    continue;
-                }
+    private LocalRoutingSnapshot getLocalRoutingSnapshot() {
+        LocalRoutingSnapshot snapshot = localRoutingSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (this) {
+            // double-checked; all modifications are synchronized, so the snapshot cannot become outdated while computing it
+            if (localRoutingSnapshot == null) {
+                localRoutingSnapshot = createLocalRoutingSnapshot();
             }
-            // TODO remove typecast once NetworkIdentifier vs. NodeIdentifier is done
-            result.add((InstanceNodeSessionId) node.getNodeIdentifier());
+            return localRoutingSnapshot;
         }
-        return result;
+    }
+
+    private LocalRoutingSnapshot createLocalRoutingSnapshot() {
+        TopologyNode localNode = getNode(localNodeId);
+        if (localNode == null) {
+            throw new IllegalStateException("Consistency error: The local node is not part of the known topology");
+        }
+        Set<InstanceNodeSessionId> knownNodeIds = new HashSet<InstanceNodeSessionId>();
+        for (TopologyNode node : networkModel.getVertices()) {
+            knownNodeIds.add(node.getNodeIdentifier());
+        }
+        // the incoming edge map contains all reachable nodes, with a null link for the local node
+        Map<TopologyNode, TopologyLink> incomingEdgeMap =
+            new DijkstraShortestPath<TopologyNode, TopologyLink>(networkModel).getIncomingEdgeMap(localNode);
+        Map<InstanceNodeSessionId, TopologyLink> incomingLinksByNodeId = new HashMap<InstanceNodeSessionId, TopologyLink>();
+        for (Map.Entry<TopologyNode, TopologyLink> entry : incomingEdgeMap.entrySet()) {
+            if (entry.getValue() != null) {
+                incomingLinksByNodeId.put(entry.getKey().getNodeIdentifier(), entry.getValue());
+            }
+        }
+        return new LocalRoutingSnapshot(Collections.unmodifiableSet(knownNodeIds), Collections.unmodifiableMap(incomingLinksByNodeId),
+            Collections.unmodifiableList(new ArrayList<TopologyNode>(incomingEdgeMap.keySet())));
     }
 
     /**
@@ -497,6 +582,7 @@ public final class TopologyMap {
             LOGGER.warn(StringUtils.format("Link edge %s was not added to graph -- duplicate?", networkLink));
             return false;
         }
+        localRoutingSnapshot = null;
         return true;
         // old:
         // if (sourceNode != null && destinationNode != null && !sourceNode.equals(destinationNode))
@@ -526,6 +612,7 @@ public final class TopologyMap {
      */
     public synchronized boolean removeLink(TopologyLink link) {
         if (containsLink(link)) {
+            localRoutingSnapshot = null;
             return networkModel.removeEdge(link);
         } else {
             LOGGER.warn("Edge removal requested for non-existant link: " + link);
@@ -539,6 +626,7 @@ public final class TopologyMap {
      * @param node The node
      */
     public synchronized void removeNode(TopologyNode node) {
+        localRoutingSnapshot = null;
         networkModel.removeVertex(node);
     }
 
@@ -561,6 +649,7 @@ public final class TopologyMap {
         if (existingNetworkNode == null) {
             TopologyNode node = new TopologyNode(nodeId);
             networkModel.addVertex(node);
+            localRoutingSnapshot = null;
             return node;
         }
         return existingNetworkNode;
@@ -94,6 +94,36 @@ public class ServiceCallRequest implements Serializable {
         }
     }
 
+    /**
+     * Reconstruction constructor for payload codecs that restore a request from its network form. Unlike the main constructor, this takes
+     * the plain reliable RPC stream id and sequence number, as the sender-side stream handle is never transmitted.
+     * 
+     * @param targetNodeId the target node's {@link LogicalNodeSessionId}
+     * @param callerNodeId the calling node's {@link LogicalNodeSessionId}
+     * @param serviceName the FQN of the remote service interface to call
+     * @param methodName the name of the remote method to call
+     * @param parameters the method parameters
+     * @param reliableRPCStreamId the id of the reliable RPC stream, or null if none is used
+     * @param sequenceNumber the sequence number within the reliable RPC stream; zero if none is used
+     */
+    public ServiceCallRequest(LogicalNodeSessionId targetNodeId, LogicalNodeSessionId callerNodeId, String serviceName,
+        String methodName, List<? extends Serializable> parameters, String reliableRPCStreamId, long sequenceNumber) {
+
+        Assertions.isDefined(targetNodeId, StringUtils.format(ERROR_PARAMETERS_NULL, "destination"));
+        Assertions.isDefined(callerNodeId, StringUtils.format(ERROR_PARAMETERS_NULL, "sender"));
+        Assertions.isDefined(serviceName, StringUtils.format(ERROR_PARAMETERS_NULL, "serviceName"));
+        Assertions.isDefined(methodName, StringUtils.format(ERROR_PARAMETERS_NULL, "methodName"));
+
+        this.target = targetNodeId;
+        this.caller = callerNodeId;
+        this.serviceName = serviceName;
+        this.methodName = methodName;
+        this.parameters = parameters;
+        this.senderSideReliableRPCStreamHandle = null;
+        this.reliableRPCStreamId = reliableRPCStreamId;
+        this.sequenceNumber = sequenceNumber;
+    }
+
     /**
      * @return the target node as an identifier object
      */
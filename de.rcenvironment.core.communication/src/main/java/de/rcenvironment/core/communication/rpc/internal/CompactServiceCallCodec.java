@@ -0,0 +1,477 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.communication.rpc.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.rcenvironment.core.communication.api.NodeIdentifierService;
+import de.rcenvironment.core.communication.common.IdType;
+import de.rcenvironment.core.communication.common.IdentifierException;
+import de.rcenvironment.core.communication.common.LogicalNodeSessionId;
+import de.rcenvironment.core.communication.common.NodeIdentifierContextHolder;
+import de.rcenvironment.core.communication.common.SerializationException;
+import de.rcenvironment.core.communication.common.impl.NodeIdentifierImpl;
+import de.rcenvironment.core.communication.rpc.ServiceCallRequest;
+import de.rcenvironment.core.communication.rpc.ServiceCallResult;
+import de.rcenvironment.core.communication.utils.PayloadCodec;
+
+/**
+ * A compact binary {@link PayloadCodec} for RPC payloads. {@link ServiceCallRequest}s, {@link ServiceCallResult}s, node identifiers and the
+ * most common method parameter and return value types are written using fixed type ids instead of Java class descriptors; repeated strings
+ * (for example, service names or node id strings) are written only once per payload and referenced by index afterwards. All other objects
+ * are embedded in their standard Java-serialized form.
+ * 
+ * Note that list and map types are only encoded natively if they are exactly {@link ArrayList} or {@link HashMap}, so the reconstructed
+ * objects always have the same class as the original ones.
+ * 
+ * @author agent
+ */
+public final class CompactServiceCallCodec implements PayloadCodec {
+
+    /**
+     * The codec name used during handshake negotiation.
+     */
+    public static final String CODEC_NAME = "rpc-compact-1";
+
+    private static final byte FORMAT_MARKER = (byte) 0xC1;
+
+    // registered type ids; these are part of the network protocol, so never change or reuse existing values
+    private static final byte TYPE_NULL = 0;
+
+    private static final byte TYPE_STRING = 1;
+
+    private static final byte TYPE_STRING_REFERENCE = 2;
+
+    private static final byte TYPE_BOOLEAN_TRUE = 3;
+
+    private static final byte TYPE_BOOLEAN_FALSE = 4;
+
+    private static final byte TYPE_INTEGER = 5;
+
+    private static final byte TYPE_LONG = 6;
+
+    private static final byte TYPE_DOUBLE = 7;
+
+    private static final byte TYPE_BYTE_ARRAY = 8;
+
+    private static final byte TYPE_ARRAY_LIST = 9;
+
+    private static final byte TYPE_HASH_MAP = 10;
+
+    private static final byte TYPE_NODE_IDENTIFIER = 11;
+
+    private static final byte TYPE_SERVICE_CALL_REQUEST = 20;
+
+    private static final byte TYPE_SERVICE_CALL_RESULT = 21;
+
+    private static final byte TYPE_JAVA_SERIALIZED = 127;
+
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    // buffers that grew larger than this are not kept for reuse to avoid pinning large arrays per thread
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<ReusableByteArrayOutputStream> sharedBuffers = new ThreadLocal<>();
+
+    /**
+     * A {@link ByteArrayOutputStream} that exposes its current capacity to decide whether it should be retained.
+     */
+    private static final class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
+
+        ReusableByteArrayOutputStream() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        int getCapacity() {
+            return buf.length;
+        }
+    }
+
+    /**
+     * Per-payload encoding state.
+     */
+    private static final class Encoder {
+
+        private final DataOutputStream out;
+
+        private final Map<String, Integer> stringTable = new HashMap<>();
+
+        Encoder(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(TYPE_NULL);
+                return;
+            }
+            final Class<?> valueClass = value.getClass();
+            if (valueClass == String.class) {
+                writeString((String) value);
+            } else if (valueClass == Boolean.class) {
+                if ((Boolean) value) {
+                    out.writeByte(TYPE_BOOLEAN_TRUE);
+                } else {
+                    out.writeByte(TYPE_BOOLEAN_FALSE);
+                }
+            } else if (valueClass == Integer.class) {
+                out.writeByte(TYPE_INTEGER);
+                writeVarLong(zigZag((Integer) value));
+            } else if (valueClass == Long.class) {
+                out.writeByte(TYPE_LONG);
+                writeVarLong(zigZag((Long) value));
+            } else if (valueClass == Double.class) {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (valueClass == byte[].class) {
+                final byte[] bytes = (byte[]) value;
+                out.writeByte(TYPE_BYTE_ARRAY);
+                writeVarLong(bytes.length);
+                out.write(bytes);
+            } else if (valueClass == ArrayList.class) {
+                final List<?> list = (List<?>) value;
+                out.writeByte(TYPE_ARRAY_LIST);
+                writeVarLong(list.size());
+                for (Object element : list) {
+                    writeValue(element);
+                }
+            } else if (valueClass == HashMap.class) {
+                final Map<?, ?> map = (Map<?, ?>) value;
+                out.writeByte(TYPE_HASH_MAP);
+                writeVarLong(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writeValue(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            } else if (valueClass == NodeIdentifierImpl.class) {
+                final NodeIdentifierImpl nodeId = (NodeIdentifierImpl) value;
+                out.writeByte(TYPE_NODE_IDENTIFIER);
+                out.writeByte(nodeId.getType().ordinal());
+                writeString(nodeId.getFullIdString());
+            } else if (valueClass == ServiceCallRequest.class) {
+                writeServiceCallRequest((ServiceCallRequest) value);
+            } else if (valueClass == ServiceCallResult.class) {
+                writeServiceCallResult((ServiceCallResult) value);
+            } else {
+                writeJavaSerialized(value);
+            }
+        }
+
+        private void writeServiceCallRequest(ServiceCallRequest request) throws IOException {
+            out.writeByte(TYPE_SERVICE_CALL_REQUEST);
+            writeValue(request.getTargetNodeId());
+            writeValue(request.getCallerNodeId());
+            writeString(request.getServiceName());
+            writeString(request.getMethodName());
+            final List<? extends Serializable> parameters = request.getParameterList();
+            if (parameters == null) {
+                writeVarLong(0);
+            } else {
+                // store size + 1 to distinguish null from an empty list
+                writeVarLong(parameters.size() + 1);
+                for (Serializable parameter : parameters) {
+                    writeValue(parameter);
+                }
+            }
+            writeValue(request.getReliableRPCStreamId());
+            writeVarLong(request.getSequenceNumber());
+        }
+
+        private void writeServiceCallResult(ServiceCallResult result) throws IOException {
+            out.writeByte(TYPE_SERVICE_CALL_RESULT);
+            writeValue(result.getReturnValue());
+            writeValue(result.getMethodExceptionType());
+            writeValue(result.getMethodExceptionMessage());
+            writeValue(result.getRemoteOperationExceptionMessage());
+        }
+
+        private void writeString(String value) throws IOException {
+            final Integer existingIndex = stringTable.get(value);
+            if (existingIndex != null) {
+                out.writeByte(TYPE_STRING_REFERENCE);
+                writeVarLong(existingIndex);
+                return;
+            }
+            stringTable.put(value, stringTable.size());
+            final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            out.writeByte(TYPE_STRING);
+            writeVarLong(utf8.length);
+            out.write(utf8);
+        }
+
+        private void writeJavaSerialized(Object value) throws IOException {
+            final ByteArrayOutputStream javaBuffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+            try (ObjectOutputStream oos = new ObjectOutputStream(javaBuffer)) {
+                oos.writeObject(value);
+            }
+            out.writeByte(TYPE_JAVA_SERIALIZED);
+            writeVarLong(javaBuffer.size());
+            javaBuffer.writeTo(out);
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            long remaining = value;
+            while ((remaining & ~0x7FL) != 0) {
+                out.writeByte((int) ((remaining & 0x7F) | 0x80));
+                remaining >>>= 7;
+            }
+            out.writeByte((int) remaining);
+        }
+
+        private long zigZag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    /**
+     * Per-payload decoding state.
+     */
+    private static final class Decoder {
+
+        private final DataInputStream in;
+
+        private final List<String> stringTable = new ArrayList<>();
+
+        private NodeIdentifierService nodeIdentifierService;
+
+        Decoder(DataInputStream in) {
+            this.in = in;
+        }
+
+        Object readValue() throws IOException, SerializationException {
+            final byte type = in.readByte();
+            switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+            case TYPE_STRING_REFERENCE:
+                return readStringContent(type);
+            case TYPE_BOOLEAN_TRUE:
+                return Boolean.TRUE;
+            case TYPE_BOOLEAN_FALSE:
+                return Boolean.FALSE;
+            case TYPE_INTEGER:
+                return (int) unZigZag(readVarLong());
+            case TYPE_LONG:
+                return unZigZag(readVarLong());
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_BYTE_ARRAY:
+                final byte[] bytes = new byte[readLength()];
+                in.readFully(bytes);
+                return bytes;
+            case TYPE_ARRAY_LIST:
+                final int listSize = readLength();
+                final ArrayList<Object> list = new ArrayList<>(listSize);
+                for (int i = 0; i < listSize; i++) {
+                    list.add(readValue());
+                }
+                return list;
+            case TYPE_HASH_MAP:
+                final int mapSize = readLength();
+                final HashMap<Object, Object> map = new HashMap<>();
+                for (int i = 0; i < mapSize; i++) {
+                    final Object key = readValue();
+                    map.put(key, readValue());
+                }
+                return map;
+            case TYPE_NODE_IDENTIFIER:
+                return readNodeIdentifier();
+            case TYPE_SERVICE_CALL_REQUEST:
+                return readServiceCallRequest();
+            case TYPE_SERVICE_CALL_RESULT:
+                return readServiceCallResult();
+            case TYPE_JAVA_SERIALIZED:
+                return readJavaSerialized();
+            default:
+                throw new SerializationException("Unknown type id in compact RPC payload: " + type);
+            }
+        }
+
+        private Object readNodeIdentifier() throws IOException, SerializationException {
+            final int typeOrdinal = in.readByte();
+            final IdType[] idTypes = IdType.values();
+            if (typeOrdinal < 0 || typeOrdinal >= idTypes.length) {
+                throw new SerializationException("Invalid node identifier type in compact RPC payload: " + typeOrdinal);
+            }
+            final String idString = readString();
+            if (nodeIdentifierService == null) {
+                nodeIdentifierService = NodeIdentifierContextHolder.getDeserializationServiceForCurrentThread();
+            }
+            try {
+                return nodeIdentifierService.parseSelectableTypeIdString(idString, idTypes[typeOrdinal]);
+            } catch (IdentifierException e) {
+                throw new SerializationException(e);
+            }
+        }
+
+        private ServiceCallRequest readServiceCallRequest() throws IOException, SerializationException {
+            final LogicalNodeSessionId target = readTypedValue(LogicalNodeSessionId.class);
+            final LogicalNodeSessionId caller = readTypedValue(LogicalNodeSessionId.class);
+            final String serviceName = readString();
+            final String methodName = readString();
+            final List<Serializable> parameters;
+            final int encodedParameterCount = readLength();
+            if (encodedParameterCount == 0) {
+                parameters = null;
+            } else {
+                parameters = new ArrayList<>(encodedParameterCount - 1);
+                for (int i = 0; i < encodedParameterCount - 1; i++) {
+                    parameters.add(readTypedValue(Serializable.class));
+                }
+            }
+            final String reliableRPCStreamId = readTypedValue(String.class);
+            final long sequenceNumber = readVarLong();
+            return new ServiceCallRequest(target, caller, serviceName, methodName, parameters, reliableRPCStreamId, sequenceNumber);
+        }
+
+        private ServiceCallResult readServiceCallResult() throws IOException, SerializationException {
+            final Serializable returnValue = readTypedValue(Serializable.class);
+            final String methodExceptionType = readTypedValue(String.class);
+            final String methodExceptionMessage = readTypedValue(String.class);
+            final String errorMessage = readTypedValue(String.class);
+            return new ServiceCallResult(returnValue, methodExceptionType, methodExceptionMessage, errorMessage);
+        }
+
+        private Object readJavaSerialized() throws IOException, SerializationException {
+            final byte[] javaBytes = new byte[readLength()];
+            in.readFully(javaBytes);
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(javaBytes))) {
+                return ois.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new SerializationException(e);
+            }
+        }
+
+        private <T> T readTypedValue(Class<T> expectedClass) throws IOException, SerializationException {
+            final Object value = readValue();
+            if (value != null && !expectedClass.isInstance(value)) {
+                throw new SerializationException("Expected a value of type " + expectedClass.getName()
+                    + " in compact RPC payload, but found " + value.getClass().getName());
+            }
+            return expectedClass.cast(value);
+        }
+
+        private String readString() throws IOException, SerializationException {
+            final byte type = in.readByte();
+            if (type != TYPE_STRING && type != TYPE_STRING_REFERENCE) {
+                throw new SerializationException("Expected a string in compact RPC payload, but found type id " + type);
+            }
+            return readStringContent(type);
+        }
+
+        private String readStringContent(byte type) throws IOException, SerializationException {
+            if (type == TYPE_STRING_REFERENCE) {
+                final long index = readVarLong();
+                if (index < 0 || index >= stringTable.size()) {
+                    throw new SerializationException("Invalid string reference in compact RPC payload: " + index);
+                }
+                return stringTable.get((int) index);
+            }
+            final byte[] utf8 = new byte[readLength()];
+            in.readFully(utf8);
+            final String value = new String(utf8, StandardCharsets.UTF_8);
+            stringTable.add(value);
+            return value;
+        }
+
+        private int readLength() throws IOException, SerializationException {
+            final long length = readVarLong();
+            // as each element takes at least one byte, a length can never exceed the number of remaining bytes; this also guards
+            // against huge allocations from corrupt input
+            if (length < 0 || length > in.available()) {
+                throw new SerializationException("Invalid length field in compact RPC payload: " + length);
+            }
+            return (int) length;
+        }
+
+        private long readVarLong() throws IOException, SerializationException {
+            long result = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                final byte b = in.readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new SerializationException("Malformed variable-length number in compact RPC payload");
+        }
+
+        private long unZigZag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return CODEC_NAME;
+    }
+
+    @Override
+    public byte getFormatMarker() {
+        return FORMAT_MARKER;
+    }
+
+    @Override
+    public byte[] encode(Serializable object) throws SerializationException {
+        ReusableByteArrayOutputStream buffer = sharedBuffers.get();
+        if (buffer == null) {
+            buffer = new ReusableByteArrayOutputStream();
+        } else {
+            // remove the buffer while in use, in case a nested Java serialization call re-enters this codec
+            sharedBuffers.remove();
+        }
+        buffer.reset();
+        try {
+            final DataOutputStream out = new DataOutputStream(buffer);
+            out.writeByte(FORMAT_MARKER);
+            new Encoder(out).writeValue(object);
+            out.flush();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        } finally {
+            if (buffer.getCapacity() <= MAX_RETAINED_BUFFER_SIZE) {
+                sharedBuffers.set(buffer);
+            }
+        }
+    }
+
+    @Override
+    public Serializable decode(byte[] data) throws SerializationException {
+        if (data.length < 2 || data[0] != FORMAT_MARKER) {
+            throw new SerializationException("Invalid compact RPC payload");
+        }
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 1, data.length - 1));
+        try {
+            final Object result = new Decoder(in).readValue();
+            if (in.available() != 0) {
+                throw new SerializationException("Unexpected trailing data in compact RPC payload");
+            }
+            if (result != null && !(result instanceof Serializable)) {
+                throw new SerializationException("Decoded a non-serializable object of type " + result.getClass().getName());
+            }
+            return (Serializable) result;
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        }
+    }
+}
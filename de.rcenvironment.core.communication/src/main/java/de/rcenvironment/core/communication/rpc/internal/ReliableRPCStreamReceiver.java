@@ -8,7 +8,11 @@
 
 package de.rcenvironment.core.communication.rpc.internal;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
@@ -18,36 +22,81 @@ import de.rcenvironment.core.communication.messaging.internal.InternalMessagingE
 import de.rcenvironment.core.communication.rpc.ServiceCallRequest;
 import de.rcenvironment.core.communication.rpc.ServiceCallResult;
 import de.rcenvironment.core.communication.rpc.spi.RemoteServiceCallHandlerService;
+import de.rcenvironment.core.toolkitbridge.transitional.ConcurrencyUtils;
 import de.rcenvironment.core.utils.common.StringUtils;
 import de.rcenvironment.core.utils.incubator.DebugSettings;
 
 /**
  * The receiving end of a Reliable RPC Stream. It processes incoming network requests, checking them for repetition, dispatching each
  * individual request to the appropriate local service exactly once, and caching the result in case it gets lost and needs to be re-sent.
+ * <p>
+ * Requests may arrive out of order if the sender uses a window size greater than 1; they are held back until all preceding requests have
+ * been executed, so the execution order is always the sequence number order. The cached results are released once the sender has
+ * implicitly acknowledged them; see {@link ReliableRPCStreamSender} for details.
+ * <p>
+ * A held back request does not block its handler thread. It is parked in a reorder buffer, and the sender is told to repeat it later;
+ * once its preceding request has been executed, it is dispatched from the buffer in the background, and its repetition receives the
+ * result. If the sender gives up on a preceding request, it aborts the stream, so the buffer never grows beyond the window size.
  *
  * @author Robert Mischke
  */
 public class ReliableRPCStreamReceiver {
 
+    /**
+     * The maximum window size accepted from senders.
+     */
+    public static final int MAX_WINDOW_SIZE = 64;
+
     private final String streamId;
 
     private final RemoteServiceCallHandlerService serviceCallHandlerService;
 
+    private final int windowSize;
+
     private final AtomicInteger concurrencyCounter = new AtomicInteger(0);
 
     private final boolean verboseRequestLoggingEnabled = DebugSettings.getVerboseLoggingEnabled("RemoteServiceCalls");
 
     private final Object sequentialHandlingLock = new Object();
 
-    private ServiceCallResult lastProcessedResult;
+    // synchronized on sequentialHandlingLock; the (pending or completed) results of all requests that have not been released yet
+    private final Map<Long, CompletableFuture<ServiceCallResult>> resultsBySequenceNumber = new HashMap<>();
+
+    // synchronized on sequentialHandlingLock; the reorder buffer of requests waiting for a preceding request to be executed
+    private final Map<Long, HeldBackRequest> heldBackRequests = new HashMap<>();
+
+    // synchronized on sequentialHandlingLock
+    private long nextSequenceNumberToExecute = 1;
 
-    private long lastProcessedSequenceNumber; // 0 = nothing processed yet
+    // synchronized on sequentialHandlingLock; all results up to this sequence number have been released
+    private long releasedSequenceNumber;
 
     private final Log log = LogFactory.getLog(getClass());
 
-    public ReliableRPCStreamReceiver(String streamId, RemoteServiceCallHandlerService serviceCallHandlerService) {
+    /**
+     * A request in the reorder buffer.
+     * 
+     * @author agent
+     */
+    private static final class HeldBackRequest {
+
+        private final ServiceCallRequest serviceCallRequest;
+
+        private final CompletableFuture<ServiceCallResult> resultFuture;
+
+        HeldBackRequest(ServiceCallRequest serviceCallRequest, CompletableFuture<ServiceCallResult> resultFuture) {
+            this.serviceCallRequest = serviceCallRequest;
+            this.resultFuture = resultFuture;
+        }
+    }
+
+    public ReliableRPCStreamReceiver(String streamId, RemoteServiceCallHandlerService serviceCallHandlerService, int windowSize) {
+        if (windowSize < 1 || windowSize > MAX_WINDOW_SIZE) {
+            throw new IllegalArgumentException("Invalid window size: " + windowSize);
+        }
         this.streamId = streamId;
         this.serviceCallHandlerService = Objects.requireNonNull(serviceCallHandlerService);
+        this.windowSize = windowSize;
     }
 
     public String getStreamId() {
@@ -58,7 +107,8 @@ public class ReliableRPCStreamReceiver {
      * Handles an incoming network request; see main class JavaDoc for the general process.
      * 
      * @param serviceCallRequest the incoming request
-     * @return the result to send back (which may be cached from an equivalent earlier request)
+     * @return the result to send back (which may be cached from an equivalent earlier request), or null if the request was held back
+     *         because a preceding request has not been executed yet; the sender is expected to repeat it later
      * @throws InternalMessagingException on internal, unrecoverable errors
      */
     public ServiceCallResult handle(ServiceCallRequest serviceCallRequest)
@@ -79,29 +129,51 @@ public class ReliableRPCStreamReceiver {
         }
 
         try {
-            synchronized (sequentialHandlingLock) { // for safety; with well-behaved clients, this is redundant
-                if (newSequenceNumber == lastProcessedSequenceNumber) { // can only match if last seqNo is >0, so there is a result
+            final CompletableFuture<ServiceCallResult> resultFuture;
+            final boolean isRepetition;
+            synchronized (sequentialHandlingLock) {
+                final CompletableFuture<ServiceCallResult> existingResultFuture = resultsBySequenceNumber.get(newSequenceNumber);
+                if (heldBackRequests.containsKey(newSequenceNumber)) {
+                    // the sender repeats held back requests to fetch their results; this one has not been executed yet
+                    return null;
+                } else if (existingResultFuture != null) {
                     log.debug(StringUtils.format(
                         "Received repeated request for rRPC %d of stream %s, calling %s.%s(); sending the cached result again, "
                             + "as it was probably lost in transmission",
                         newSequenceNumber, serviceCallRequest.getReliableRPCStreamId(),
                         serviceCallRequest.getServiceName(), serviceCallRequest.getMethodName()));
-                    return lastProcessedResult;
-                } else if (newSequenceNumber == lastProcessedSequenceNumber + 1) {
-                    if (verboseRequestLoggingEnabled) {
-                        log.debug(StringUtils.format("Processing sequential remote rRPC %d of stream %s, calling %s.%s()",
-                            newSequenceNumber, serviceCallRequest.getReliableRPCStreamId(),
-                            serviceCallRequest.getServiceName(), serviceCallRequest.getMethodName()));
-                    }
-                    final ServiceCallResult result = serviceCallHandlerService.dispatchToLocalService(serviceCallRequest);
-                    lastProcessedSequenceNumber = newSequenceNumber;
-                    lastProcessedResult = result;
-                    return result;
+                    resultFuture = existingResultFuture;
+                    isRepetition = true;
                 } else {
-                    throw new IllegalStateException("Unexpected state: new sequence number is " + newSequenceNumber
-                        + ", while the last processed one is " + lastProcessedSequenceNumber);
+                    // with well-behaved clients, neither of these can happen
+                    if (newSequenceNumber < nextSequenceNumberToExecute) {
+                        throw new IllegalStateException("Unexpected state: received rRPC " + newSequenceNumber
+                            + ", which has already been processed and acknowledged");
+                    }
+                    if (newSequenceNumber >= nextSequenceNumberToExecute + windowSize) {
+                        throw new IllegalStateException("Unexpected state: new sequence number is " + newSequenceNumber
+                            + ", which is outside of the window starting at " + nextSequenceNumberToExecute);
+                    }
+                    resultFuture = new CompletableFuture<>();
+                    resultsBySequenceNumber.put(newSequenceNumber, resultFuture);
+                    // the sender would not have sent this request before receiving the results of all requests before its window
+                    releaseAcknowledgedResults(newSequenceNumber - windowSize);
+                    if (newSequenceNumber != nextSequenceNumberToExecute) {
+                        if (verboseRequestLoggingEnabled) {
+                            log.debug(StringUtils.format("Holding back rRPC %d of stream %s until rRPC %d has been processed",
+                                newSequenceNumber, streamId, nextSequenceNumberToExecute));
+                        }
+                        heldBackRequests.put(newSequenceNumber, new HeldBackRequest(serviceCallRequest, resultFuture));
+                        return null;
+                    }
+                    isRepetition = false;
                 }
             }
+            if (isRepetition) {
+                // note: the result may still be pending if the original request has not been executed yet
+                return awaitResult(resultFuture);
+            }
+            return execute(serviceCallRequest, resultFuture);
         } finally {
             if (verboseRequestLoggingEnabled) {
                 concurrencyCounter.decrementAndGet();
@@ -112,4 +184,73 @@ public class ReliableRPCStreamReceiver {
 
     }
 
+    private ServiceCallResult execute(ServiceCallRequest serviceCallRequest, CompletableFuture<ServiceCallResult> resultFuture)
+        throws InternalMessagingException {
+        final long sequenceNumber = serviceCallRequest.getSequenceNumber();
+        if (verboseRequestLoggingEnabled) {
+            log.debug(StringUtils.format("Processing sequential remote rRPC %d of stream %s, calling %s.%s()",
+                sequenceNumber, serviceCallRequest.getReliableRPCStreamId(),
+                serviceCallRequest.getServiceName(), serviceCallRequest.getMethodName()));
+        }
+        final ServiceCallResult result;
+        try {
+            result = serviceCallHandlerService.dispatchToLocalService(serviceCallRequest);
+        } catch (InternalMessagingException | RuntimeException e) {
+            // do not move on, so that the request is executed again if it is repeated
+            synchronized (sequentialHandlingLock) {
+                resultsBySequenceNumber.remove(sequenceNumber);
+            }
+            resultFuture.completeExceptionally(e);
+            throw e;
+        }
+        resultFuture.complete(result);
+        final HeldBackRequest nextRequest;
+        synchronized (sequentialHandlingLock) {
+            nextSequenceNumberToExecute = sequenceNumber + 1;
+            nextRequest = heldBackRequests.remove(nextSequenceNumberToExecute);
+        }
+        if (nextRequest != null) {
+            // execute the following request in the background, so that the result of this one is sent back without delay
+            ConcurrencyUtils.getAsyncTaskService().execute("Communication Layer: Execute held back rRPC",
+                () -> executeHeldBackRequest(nextRequest));
+        }
+        return result;
+    }
+
+    private void executeHeldBackRequest(HeldBackRequest heldBackRequest) {
+        try {
+            execute(heldBackRequest.serviceCallRequest, heldBackRequest.resultFuture);
+        } catch (InternalMessagingException | RuntimeException e) {
+            // not cached, so the request is executed again when the sender repeats it
+            log.debug(StringUtils.format("Failed to execute held back rRPC %d of stream %s: %s",
+                heldBackRequest.serviceCallRequest.getSequenceNumber(), streamId, e.toString()));
+        }
+    }
+
+    // must be called while holding sequentialHandlingLock
+    private void releaseAcknowledgedResults(long acknowledgedSequenceNumber) {
+        while (releasedSequenceNumber < acknowledgedSequenceNumber) {
+            releasedSequenceNumber++;
+            resultsBySequenceNumber.remove(releasedSequenceNumber);
+        }
+    }
+
+    private ServiceCallResult awaitResult(CompletableFuture<ServiceCallResult> resultFuture) throws InternalMessagingException {
+        try {
+            return resultFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalMessagingException("Interrupted while waiting for the result of a repeated rRPC of stream " + streamId, e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof InternalMessagingException) {
+                throw (InternalMessagingException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new InternalMessagingException("Failed to process a repeated rRPC of stream " + streamId, e);
+            }
+        }
+    }
+
 }
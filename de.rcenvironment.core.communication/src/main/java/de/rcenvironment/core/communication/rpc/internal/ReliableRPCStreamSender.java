@@ -8,9 +8,9 @@
 
 package de.rcenvironment.core.communication.rpc.internal;
 
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -31,24 +31,70 @@ import de.rcenvironment.core.utils.incubator.DebugSettings;
  * The request sending end of a Reliable RPC Stream. It attempts to perform a normal RPC, but in case of network errors, the request may be
  * repeated depending on the nature of the error. This process is transparent to the initiator/caller of the Reliable RPC (or rRPC for
  * short).
+ * <p>
+ * Up to a fixed number of requests (the "window size", which is agreed on with the receiver when the stream is created) may be in flight
+ * at the same time; each one is performed by its calling thread. The receiver executes them in sequence number order, regardless of the
+ * order in which they arrive. Each request is only repeated by its own caller, so a lost request or response does not cause the other
+ * requests in flight to be sent again. A request that the receiver has held back for a preceding one is repeated after a short,
+ * increasing delay to fetch its result.
+ * <p>
+ * The window only moves on once all requests up to its start have completed; as a consequence, receiving a request with sequence number
+ * n tells the receiver that the results of all requests up to n - windowSize have arrived at the sender (a cumulative acknowledgement),
+ * so it can release them. With a window size of 1, this is equivalent to the original one-request-at-a-time protocol, which is still used
+ * for receivers that do not support larger windows.
+ * <p>
+ * Callers are admitted to the window in the order of their calls, so sequence numbers always reflect the call order, even when several
+ * callers are waiting for a free slot. If a request is abandoned without a known outcome (for example, after a non-recoverable network
+ * error, or if its caller is interrupted between retries), the receiver may never see its sequence number, and would hold back all
+ * following requests. The stream is therefore aborted in this case: all requests in flight stop retrying, and all further requests fail
+ * immediately.
  *
  * @author Robert Mischke
  */
 public class ReliableRPCStreamSender {
 
+    /**
+     * The window size to request for new streams.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 16;
+
     private static final int RETRY_WAIT_TIME_SECONDS = 5;
 
+    // the initial wait time before fetching the result of a request that the receiver has held back; doubled on each attempt
+    private static final long HELD_BACK_INITIAL_RETRY_WAIT_TIME_MSEC = 20;
+
+    private static final long NO_SEQUENCE_NUMBER = 0;
+
     private final ReliableRPCStreamHandle streamHandle;
 
     private final String streamId;
 
     private final MessageRoutingService routingService;
 
-    private final AtomicLong sequenceNumberGenerator = new AtomicLong(0);
+    private final int windowSize;
+
+    private final Object windowLock = new Object();
+
+    // synchronized on windowLock; callers are admitted to the window in the order of their tickets, i.e. in call order
+    private long lastIssuedTicket;
 
-    private final AtomicInteger concurrentRequestCounter = new AtomicInteger(0);
+    // synchronized on windowLock
+    private long lastAdmittedTicket;
 
-    private final Object singleRequestLock = new Object();
+    // synchronized on windowLock; tickets of callers that were interrupted while waiting to be admitted
+    private final SortedSet<Long> cancelledTickets = new TreeSet<>();
+
+    // synchronized on windowLock
+    private long lastAssignedSequenceNumber; // 0 = none assigned yet
+
+    // synchronized on windowLock; all requests up to this sequence number have completed
+    private long completedSequenceNumber;
+
+    // synchronized on windowLock; requests that have completed while a previous one was still in flight
+    private final SortedSet<Long> completedAheadSequenceNumbers = new TreeSet<>();
+
+    // synchronized on windowLock; set once the stream has been aborted; see class JavaDoc
+    private String abortReason;
 
     private final boolean verboseRequestLoggingEnabled = DebugSettings.getVerboseLoggingEnabled("RemoteServiceCalls");
 
@@ -56,10 +102,18 @@ public class ReliableRPCStreamSender {
 
     private final Log log = LogFactory.getLog(getClass());
 
-    public ReliableRPCStreamSender(ReliableRPCStreamHandle streamHandle, MessageRoutingService routingService) {
+    public ReliableRPCStreamSender(ReliableRPCStreamHandle streamHandle, MessageRoutingService routingService, int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Invalid window size: " + windowSize);
+        }
         this.streamHandle = streamHandle;
         this.streamId = streamHandle.getStreamId();
         this.routingService = routingService;
+        this.windowSize = windowSize;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
     }
 
     /**
@@ -71,72 +125,102 @@ public class ReliableRPCStreamSender {
      * @throws SerializationException if serializing the request body failed
      */
     public ServiceCallResult performRequest(ServiceCallRequest serviceCallRequest) throws SerializationException {
-        final int concurrencyLevel = concurrentRequestCounter.incrementAndGet();
-        if (concurrencyLevel > 1) {
-            log.debug((concurrencyLevel - 1) + " concurrent rRPC request(s) in stream " + streamId
-                + " are blocked waiting for a previous rRPC to complete");
+        final long sequenceNumber;
+        try {
+            sequenceNumber = assignNewSequenceNumber(serviceCallRequest);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ServiceCallResultFactory.representInternalErrorAtSender(serviceCallRequest,
+                "Interrupted while waiting to send a request in rRPC stream " + streamId);
+        }
+        if (sequenceNumber == NO_SEQUENCE_NUMBER) {
+            return createStreamAbortedResult(serviceCallRequest);
         }
-        // TODO acquiring the lock is not "fair", which may violate in-order assumptions; not relevant for currently calling code, though
+        boolean completed = false;
+        String abandonReason = "Unexpected error while performing rRPC " + sequenceNumber;
         try {
-            // a simple shared-lock-per-stream approach, which may nonetheless be sufficient:
-            // - the RPC call is blocking anyway, so using the calling thread for execution avoids extra thread overhead
-            // - a shared, long-held lock may seem risky, but it is always acquired last, so it should not add new deadlock potential
-            synchronized (singleRequestLock) {
-                long sequenceNumber = assignNewSequenceNumber(serviceCallRequest);
-                // serialization is done inside this method as it must include the sequence number, which is not known before
-                byte[] serializedRequest = serviceCallSerializer.getSerializedForm(serviceCallRequest);
-                // note: this is somewhat redundant with the verbose logging performed inside the serialization method
-                if (verboseRequestLoggingEnabled) {
-                    log.debug(StringUtils.format("Sending rRPC %d of stream %s for remote node %s, calling %s.%s(), "
-                        + "serialized into a network payload of %d bytes", sequenceNumber, streamId, serviceCallRequest.getTargetNodeId(),
-                        serviceCallRequest.getServiceName(), serviceCallRequest.getMethodName(), serializedRequest.length));
+            // serialization is done inside this method as it must include the sequence number, which is not known before
+            byte[] serializedRequest = serviceCallSerializer.getSerializedForm(serviceCallRequest);
+            // note: this is somewhat redundant with the verbose logging performed inside the serialization method
+            if (verboseRequestLoggingEnabled) {
+                log.debug(StringUtils.format("Sending rRPC %d of stream %s for remote node %s, calling %s.%s(), "
+                    + "serialized into a network payload of %d bytes", sequenceNumber, streamId, serviceCallRequest.getTargetNodeId(),
+                    serviceCallRequest.getServiceName(), serviceCallRequest.getMethodName(), serializedRequest.length));
+            }
+            ServiceCallResult result = null;
+            int retryCount = 0;
+            long heldBackRetryWaitTimeMsec = HELD_BACK_INITIAL_RETRY_WAIT_TIME_MSEC;
+            while (true) {
+                if (isAborted()) {
+                    // a preceding request was abandoned, so the receiver would never execute this one
+                    return createStreamAbortedResult(serviceCallRequest);
+                }
+                if (verboseRequestLoggingEnabled && retryCount != 0) {
+                    log.debug(
+                        StringUtils.format("Starting retry attempt %d for rRPC %d of stream %s for remote node %s, calling %s.%s()",
+                            retryCount, sequenceNumber, streamId, serviceCallRequest.getTargetNodeId(),
+                            serviceCallRequest.getServiceName(), serviceCallRequest.getMethodName()));
+                }
+                NetworkResponse response = attemptRemoteCall(serviceCallRequest, serializedRequest);
+                // detect certain fatal errors; if one of these happen, return the failure result to the original caller
+                if (response.getResultCode() == ResultCode.TARGET_NODE_RESTARTED
+                    || response.getResultCode() == ResultCode.INSTANCE_ID_COLLISION) {
+                    log.debug(
+                        StringUtils.format("Encountered a non-recoverable error during rRPC %d of stream %s "
+                            + "for remote node %s (%s); returning error response to original caller", sequenceNumber,
+                            streamId, serviceCallRequest.getTargetNodeId(), response.getResultCode()));
+                    abandonReason = "Non-recoverable error during rRPC " + sequenceNumber + ": " + response.getResultCode();
+                    return ServiceCallResultFactory.representNetworkErrorAsRemoteOperationException(serviceCallRequest, response);
                 }
-                ServiceCallResult result = null;
-                int retryCount = 0;
-                while (true) {
-                    if (verboseRequestLoggingEnabled && retryCount != 0) {
-                        log.debug(
-                            StringUtils.format("Starting retry attempt %d for rRPC %d of stream %s for remote node %s, calling %s.%s()",
-                                retryCount, sequenceNumber, streamId, serviceCallRequest.getTargetNodeId(),
-                                serviceCallRequest.getServiceName(), serviceCallRequest.getMethodName()));
-                    }
-                    NetworkResponse response = attemptRemoteCall(serviceCallRequest, serializedRequest);
-                    // detect certain fatal errors; if one of these happen, return the failure result to the original caller
-                    if (response.getResultCode() == ResultCode.TARGET_NODE_RESTARTED
-                        || response.getResultCode() == ResultCode.INSTANCE_ID_COLLISION) {
-                        log.debug(
-                            StringUtils.format("Encountered a non-recoverable error during rRPC %d of stream %s "
-                                + "for remote node %s (%s); returning error response to original caller", sequenceNumber,
-                                streamId, serviceCallRequest.getTargetNodeId(), response.getResultCode()));
-                        return ServiceCallResultFactory.representNetworkErrorAsRemoteOperationException(serviceCallRequest, response);
-                    }
 
-                    result = RemoteServiceCallSenderServiceImpl.deserializeSCRNetworkResponse(serviceCallRequest, response);
-                    if (result.isSuccess()) { // TODO check: is this correct in case of method-level exceptions? -- misc_ro
-                        break;
+                if (response.getResultCode() == ResultCode.REQUEST_HELD_BACK) {
+                    // the receiver has parked the request until its preceding requests have been executed; repeat it to fetch the result
+                    if (verboseRequestLoggingEnabled) {
+                        log.debug(StringUtils.format("rRPC %d of stream %s was held back by the receiver; repeating it in %d msec",
+                            sequenceNumber, streamId, heldBackRetryWaitTimeMsec));
                     }
-
-                    log.debug(
-                        StringUtils.format(
-                            "Received non-success response for rRPC %d of stream %s for remote node %s; retrying in %d seconds...",
-                            sequenceNumber, streamId, serviceCallRequest.getTargetNodeId(), RETRY_WAIT_TIME_SECONDS));
-                    retryCount++;
                     try {
-                        Thread.sleep(TimeUnit.SECONDS.toMillis(RETRY_WAIT_TIME_SECONDS));
+                        Thread.sleep(heldBackRetryWaitTimeMsec);
                     } catch (InterruptedException e) {
+                        abandonReason = "Interrupted while waiting to repeat held back rRPC " + sequenceNumber;
                         return ServiceCallResultFactory.representInternalErrorAtSender(serviceCallRequest,
-                            "Interrupted while waiting to retry rRPC " + sequenceNumber + " of stream " + streamId);
+                            "Interrupted while waiting to repeat held back rRPC " + sequenceNumber + " of stream " + streamId);
                     }
+                    heldBackRetryWaitTimeMsec = Math.min(heldBackRetryWaitTimeMsec * 2, TimeUnit.SECONDS.toMillis(RETRY_WAIT_TIME_SECONDS));
+                    continue;
                 }
-                if (verboseRequestLoggingEnabled) {
-                    log.debug(
-                        StringUtils.format("Returning final response for rRPC %d of stream %s for remote node %s", sequenceNumber, streamId,
-                            serviceCallRequest.getTargetNodeId()));
+
+                result = RemoteServiceCallSenderServiceImpl.deserializeSCRNetworkResponse(serviceCallRequest, response);
+                if (result.isSuccess()) { // TODO check: is this correct in case of method-level exceptions? -- misc_ro
+                    break;
+                }
+
+                log.debug(
+                    StringUtils.format(
+                        "Received non-success response for rRPC %d of stream %s for remote node %s; retrying in %d seconds...",
+                        sequenceNumber, streamId, serviceCallRequest.getTargetNodeId(), RETRY_WAIT_TIME_SECONDS));
+                retryCount++;
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(RETRY_WAIT_TIME_SECONDS));
+                } catch (InterruptedException e) {
+                    abandonReason = "Interrupted while waiting to retry rRPC " + sequenceNumber;
+                    return ServiceCallResultFactory.representInternalErrorAtSender(serviceCallRequest,
+                        "Interrupted while waiting to retry rRPC " + sequenceNumber + " of stream " + streamId);
                 }
-                return result;
             }
+            if (verboseRequestLoggingEnabled) {
+                log.debug(
+                    StringUtils.format("Returning final response for rRPC %d of stream %s for remote node %s", sequenceNumber, streamId,
+                        serviceCallRequest.getTargetNodeId()));
+            }
+            completed = true;
+            return result;
         } finally {
-            concurrentRequestCounter.decrementAndGet();
+            if (completed) {
+                markAsCompleted(sequenceNumber);
+            } else {
+                abort(abandonReason);
+            }
         }
     }
 
@@ -149,9 +233,85 @@ public class ReliableRPCStreamSender {
         return response;
     }
 
-    private long assignNewSequenceNumber(ServiceCallRequest serviceCallRequest) {
-        long sequenceNumber = sequenceNumberGenerator.incrementAndGet();
-        serviceCallRequest.setSequenceNumber(sequenceNumber);
-        return sequenceNumber;
+    private long assignNewSequenceNumber(ServiceCallRequest serviceCallRequest) throws InterruptedException {
+        synchronized (windowLock) {
+            final long ticket = ++lastIssuedTicket;
+            if (abortReason == null && !isAdmissible(ticket)) {
+                log.debug(StringUtils.format("All %d request slots of rRPC stream %s are in use; waiting for a previous rRPC to complete",
+                    windowSize, streamId));
+            }
+            try {
+                while (abortReason == null && !isAdmissible(ticket)) {
+                    windowLock.wait();
+                }
+            } catch (InterruptedException e) {
+                // give up this caller's place in line without blocking the ones behind it
+                cancelledTickets.add(ticket);
+                skipCancelledTickets();
+                windowLock.notifyAll();
+                throw e;
+            }
+            if (abortReason != null) {
+                return NO_SEQUENCE_NUMBER;
+            }
+            lastAdmittedTicket = ticket;
+            skipCancelledTickets();
+            // note: the sequence number must only be assigned once the request is guaranteed to be sent, as the receiver waits for it
+            final long sequenceNumber = ++lastAssignedSequenceNumber;
+            serviceCallRequest.setSequenceNumber(sequenceNumber);
+            // the next caller in line may fit into the window as well
+            windowLock.notifyAll();
+            return sequenceNumber;
+        }
+    }
+
+    // must be called while holding windowLock
+    private boolean isAdmissible(long ticket) {
+        return ticket == lastAdmittedTicket + 1 && lastAssignedSequenceNumber < completedSequenceNumber + windowSize;
+    }
+
+    // must be called while holding windowLock
+    private void skipCancelledTickets() {
+        while (cancelledTickets.remove(lastAdmittedTicket + 1)) {
+            lastAdmittedTicket++;
+        }
+    }
+
+    private void markAsCompleted(long sequenceNumber) {
+        synchronized (windowLock) {
+            if (sequenceNumber != completedSequenceNumber + 1) {
+                completedAheadSequenceNumbers.add(sequenceNumber);
+                return;
+            }
+            completedSequenceNumber = sequenceNumber;
+            while (completedAheadSequenceNumbers.remove(completedSequenceNumber + 1)) {
+                completedSequenceNumber++;
+            }
+            windowLock.notifyAll();
+        }
+    }
+
+    private void abort(String reason) {
+        synchronized (windowLock) {
+            if (abortReason == null) {
+                abortReason = reason;
+                log.warn(StringUtils.format("Aborting rRPC stream %s, as a request was abandoned without a known outcome: %s", streamId,
+                    reason));
+            }
+            windowLock.notifyAll();
+        }
+    }
+
+    private boolean isAborted() {
+        synchronized (windowLock) {
+            return abortReason != null;
+        }
+    }
+
+    private ServiceCallResult createStreamAbortedResult(ServiceCallRequest serviceCallRequest) {
+        synchronized (windowLock) {
+            return ServiceCallResultFactory.representInternalErrorAtSender(serviceCallRequest,
+                "rRPC stream " + streamId + " was aborted after a previous request failed: " + abortReason);
+        }
     }
 }
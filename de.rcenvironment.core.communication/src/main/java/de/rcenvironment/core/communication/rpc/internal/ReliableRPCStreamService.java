@@ -31,9 +31,19 @@ public interface ReliableRPCStreamService {
      * 
      * @param resolvedTargetNodeId the remote node
      * @param streamId the stream id assigned by the remote node
+     * @param windowSize the maximum number of requests in flight that was agreed on with the remote node
      * @return the {@link ReliableRPCStreamHandle} that can be used as a general {@link NetworkDestination} in methods that support it
      */
-    ReliableRPCStreamHandle createLocalSetupForRemoteStreamId(LogicalNodeSessionId resolvedTargetNodeId, String streamId);
+    ReliableRPCStreamHandle createLocalSetupForRemoteStreamId(LogicalNodeSessionId resolvedTargetNodeId, String streamId,
+        int windowSize);
+
+    /**
+     * Determines the window size for a new stream to the given node from the maximum window size announced by that node.
+     * 
+     * @param resolvedTargetNodeId the remote node
+     * @return the window size to use; 1 if the remote node has not announced support for pipelined streams
+     */
+    int determineWindowSize(LogicalNodeSessionId resolvedTargetNodeId);
 
     /**
      * Transparently performs a remote service call (RPC) in a reliable fashion; see the {@link ReliableRPCStreamSender} JavaDoc for
@@ -50,7 +60,8 @@ public interface ReliableRPCStreamService {
      * Handles an incoming network request; see the {@link ReliableRPCStreamReceiver} JavaDoc for details.
      * 
      * @param serviceCallRequest the incoming request
-     * @return the result to send back (which may be cached from an equivalent earlier request)
+     * @return the result to send back (which may be cached from an equivalent earlier request), or null if the request was held back
+     *         because a preceding request has not been executed yet
      * @throws InternalMessagingException on internal, unrecoverable errors
      */
     ServiceCallResult handleIncomingRequest(ServiceCallRequest serviceCallRequest) throws InternalMessagingException;
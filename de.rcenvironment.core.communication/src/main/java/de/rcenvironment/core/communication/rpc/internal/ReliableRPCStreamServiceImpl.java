@@ -14,6 +14,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 
@@ -23,6 +24,7 @@ import de.rcenvironment.core.communication.api.ServiceCallContext;
 import de.rcenvironment.core.communication.common.LogicalNodeSessionId;
 import de.rcenvironment.core.communication.common.SerializationException;
 import de.rcenvironment.core.communication.messaging.internal.InternalMessagingException;
+import de.rcenvironment.core.communication.nodeproperties.NodePropertiesService;
 import de.rcenvironment.core.communication.routing.MessageRoutingService;
 import de.rcenvironment.core.communication.rpc.ServiceCallRequest;
 import de.rcenvironment.core.communication.rpc.ServiceCallResult;
@@ -35,14 +37,21 @@ import de.rcenvironment.toolkit.modules.concurrency.api.threadcontext.ThreadCont
 /**
  * Default {@link ReliableRPCStreamService} implementation that also provides the remotable methods of
  * {@link RemotableReliableRPCStreamService}.
+ * <p>
+ * The maximum window size accepted by the local node is announced as a node property, so remote nodes can detect whether pipelined
+ * streams are supported before creating a stream.
  *
  * @author Robert Mischke
  */
 @Component
 public class ReliableRPCStreamServiceImpl implements RemotableReliableRPCStreamService, ReliableRPCStreamService {
 
+    private static final String NODE_PROPERTY_KEY_MAX_WINDOW_SIZE = "rRPC.maxWindowSize";
+
     private MessageRoutingService routingService;
 
+    private NodePropertiesService nodePropertiesService;
+
     private RemoteServiceCallHandlerService serviceCallHandlerService;
 
     /**
@@ -62,21 +71,28 @@ public class ReliableRPCStreamServiceImpl implements RemotableReliableRPCStreamS
 
     private final Log log = LogFactory.getLog(getClass());
 
+    /**
+     * OSGi-DS lifecycle method.
+     */
+    @Activate
+    public void activate() {
+        nodePropertiesService.addOrUpdateLocalNodeProperty(NODE_PROPERTY_KEY_MAX_WINDOW_SIZE,
+            Integer.toString(ReliableRPCStreamReceiver.MAX_WINDOW_SIZE));
+    }
+
     @Override
     @AllowRemoteAccess
     public String createReliableRPCStream() throws RemoteOperationException {
-        String streamId = Integer.toString(streamIdGenerator.incrementAndGet());
-        synchronized (streamReceivers) {
-            ReliableRPCStreamReceiver replaced =
-                streamReceivers.put(streamId, new ReliableRPCStreamReceiver(streamId, serviceCallHandlerService));
-            if (replaced != null) {
-                throw new IllegalStateException(); // consistency error; should never happen
-            }
+        return createReceiver(1);
+    }
+
+    @Override
+    @AllowRemoteAccess
+    public String createPipelinedReliableRPCStream(int windowSize) throws RemoteOperationException {
+        if (windowSize < 1 || windowSize > ReliableRPCStreamReceiver.MAX_WINDOW_SIZE) {
+            throw new RemoteOperationException("Unsupported rRPC window size: " + windowSize);
         }
-        log.debug(
-            "Created rRPC stream " + streamId + " initiated by "
-                + ThreadContextHolder.getCurrentContextAspect(ServiceCallContext.class).getCallingNode());
-        return streamId;
+        return createReceiver(windowSize);
     }
 
     @Override
@@ -92,11 +108,28 @@ public class ReliableRPCStreamServiceImpl implements RemotableReliableRPCStreamS
     }
 
     @Override
-    public ReliableRPCStreamHandle createLocalSetupForRemoteStreamId(LogicalNodeSessionId resolvedTargetNodeId, String streamId) {
+    public int determineWindowSize(LogicalNodeSessionId resolvedTargetNodeId) {
+        final String announcedValue = nodePropertiesService.getNodeProperties(resolvedTargetNodeId.convertToInstanceNodeSessionId())
+            .get(NODE_PROPERTY_KEY_MAX_WINDOW_SIZE);
+        if (announcedValue == null) {
+            // the remote node runs an older version, or its node properties have not been received yet
+            return 1;
+        }
+        try {
+            return Math.max(1, Math.min(ReliableRPCStreamSender.DEFAULT_WINDOW_SIZE, Integer.parseInt(announcedValue)));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring invalid rRPC window size announced by " + resolvedTargetNodeId + ": " + announcedValue);
+            return 1;
+        }
+    }
+
+    @Override
+    public ReliableRPCStreamHandle createLocalSetupForRemoteStreamId(LogicalNodeSessionId resolvedTargetNodeId, String streamId,
+        int windowSize) {
         final ReliableRPCStreamHandleImpl streamHandle = new ReliableRPCStreamHandleImpl(resolvedTargetNodeId, streamId);
         synchronized (streamSenders) {
             final ReliableRPCStreamSender replaced =
-                streamSenders.put(streamHandle, new ReliableRPCStreamSender(streamHandle, routingService));
+                streamSenders.put(streamHandle, new ReliableRPCStreamSender(streamHandle, routingService, windowSize));
             if (replaced != null) {
                 throw new IllegalStateException("There already was a stream sender registered for rRPC stream handle " + streamId);
             }
@@ -134,6 +167,21 @@ public class ReliableRPCStreamServiceImpl implements RemotableReliableRPCStreamS
         return streamReceiver.handle(serviceCallRequest);
     }
 
+    private String createReceiver(int windowSize) {
+        String streamId = Integer.toString(streamIdGenerator.incrementAndGet());
+        synchronized (streamReceivers) {
+            ReliableRPCStreamReceiver replaced =
+                streamReceivers.put(streamId, new ReliableRPCStreamReceiver(streamId, serviceCallHandlerService, windowSize));
+            if (replaced != null) {
+                throw new IllegalStateException(); // consistency error; should never happen
+            }
+        }
+        log.debug(
+            "Created rRPC stream " + streamId + " with a window size of " + windowSize + ", initiated by "
+                + ThreadContextHolder.getCurrentContextAspect(ServiceCallContext.class).getCallingNode());
+        return streamId;
+    }
+
     /**
      * Injects the {@link MessageRoutingService} to use for performing actual remote request attempts. Called by OSGi-DS and unit tests.
      * 
@@ -144,6 +192,16 @@ public class ReliableRPCStreamServiceImpl implements RemotableReliableRPCStreamS
         this.routingService = newInstance;
     }
 
+    /**
+     * Injects the {@link NodePropertiesService} to announce and look up supported window sizes with. Called by OSGi-DS and unit tests.
+     * 
+     * @param newInstance the service implementation
+     */
+    @Reference
+    public void bindNodePropertiesService(NodePropertiesService newInstance) {
+        this.nodePropertiesService = newInstance;
+    }
+
     /**
      * Injects the {@link RemoteServiceCallHandlerService} to use for dispatching incoming remote request attempts. Called by OSGi-DS and
      * unit tests.
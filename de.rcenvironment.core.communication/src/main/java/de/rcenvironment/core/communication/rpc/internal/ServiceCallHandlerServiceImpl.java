@@ -37,6 +37,7 @@ import de.rcenvironment.core.communication.rpc.api.CallbackService;
 import de.rcenvironment.core.communication.rpc.spi.LocalServiceLookupResult;
 import de.rcenvironment.core.communication.rpc.spi.LocalServiceResolver;
 import de.rcenvironment.core.communication.rpc.spi.RemoteServiceCallHandlerService;
+import de.rcenvironment.core.communication.utils.PayloadCodecRegistry;
 import de.rcenvironment.core.toolkitbridge.api.StaticToolkitHolder;
 import de.rcenvironment.core.utils.common.StringUtils;
 import de.rcenvironment.core.utils.common.rpc.RemotableService;
@@ -85,6 +86,10 @@ public class ServiceCallHandlerServiceImpl implements RemoteServiceCallHandlerSe
             StaticToolkitHolder.getServiceWithUnitTestFallback(StatisticsTrackerService.class);
         parameterTypesCounter =
             statisticsService.getCounterCategory("Remote service calls (received): parameter types", StatisticsFilterLevel.DEVELOPMENT);
+
+        // the RPC layer provides its own payload codec; this service is created before the network is started, so the codec is
+        // available before the first handshake
+        PayloadCodecRegistry.registerCodec(new CompactServiceCallCodec());
     }
 
     /**
@@ -11,14 +11,18 @@ package de.rcenvironment.core.communication.rpc.internal;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import de.rcenvironment.core.communication.common.InstanceNodeId;
 import de.rcenvironment.core.communication.common.SerializationException;
 import de.rcenvironment.core.communication.rpc.ServiceCallRequest;
 import de.rcenvironment.core.communication.utils.MessageUtils;
+import de.rcenvironment.core.communication.utils.PayloadCodec;
+import de.rcenvironment.core.communication.utils.PayloadCodecRegistry;
 import de.rcenvironment.core.utils.common.StringUtils;
 import de.rcenvironment.core.utils.incubator.DebugSettings;
 
 /**
- * A simple specialized wrapper around {@link MessageUtils} with added request logging.
+ * A simple specialized wrapper around {@link MessageUtils} with added request logging. If a compact {@link PayloadCodec} was negotiated
+ * with the target instance, it is used instead of standard Java serialization.
  * 
  * TODO also move deserialization here
  *
@@ -42,11 +46,14 @@ public final class ServiceCallSerializer {
      * @throws SerializationException on error
      */
     public byte[] getSerializedForm(ServiceCallRequest serviceCallRequest) throws SerializationException {
-        final byte[] serializedRequest = MessageUtils.serializeObject(serviceCallRequest);
+        final InstanceNodeId targetInstanceId =
+            serviceCallRequest.getTargetNodeId().convertToInstanceNodeSessionId().convertToInstanceNodeId();
+        final String codecName = PayloadCodecRegistry.getNegotiatedCodec(targetInstanceId);
+        final byte[] serializedRequest = MessageUtils.serializeObject(serviceCallRequest, codecName);
         if (verboseRequestLoggingEnabled) {
-            log.debug(StringUtils.format("Converted RPC for %s.%s() on %s into a network payload of %d bytes; rRPC stream: %s",
+            log.debug(StringUtils.format("Converted RPC for %s.%s() on %s into a network payload of %d bytes; rRPC stream: %s; codec: %s",
                 serviceCallRequest.getServiceName(), serviceCallRequest.getMethodName(), serviceCallRequest.getTargetNodeId(),
-                serializedRequest.length, serviceCallRequest.getReliableRPCStreamId()));
+                serializedRequest.length, serviceCallRequest.getReliableRPCStreamId(), codecName));
         }
         if (serializedRequest.length >= OUTGOING_NETWORK_PAYLOAD_SIZE_WARNING_THRESHOLD) {
             log.debug(
@@ -113,7 +113,7 @@ public final class VirtualCommunicationBundleFactory {
 
             serviceRegistry.registerManagedService(new PlatformServiceImpl(), PlatformService.class);
 
-            serviceRegistry.registerManagedService(new ReliableRPCStreamServiceImpl(), false, ReliableRPCStreamService.class);
+            serviceRegistry.registerManagedService(new ReliableRPCStreamServiceImpl(), ReliableRPCStreamService.class);
 
             serviceRegistry.registerManagedService(new LiveNetworkIdResolutionServiceImpl(), false, LiveNetworkIdResolutionService.class);
 
@@ -44,6 +44,8 @@ public abstract class AbstractMessageChannel implements MessageChannel {
 
     private boolean closedBecauseMirrorChannelClosed = false;
 
+    private volatile String negotiatedPayloadCodec;
+
     @Override
     public MessageChannelState getState() {
         return state; // volatile
@@ -94,6 +96,16 @@ public abstract class AbstractMessageChannel implements MessageChannel {
         closedBecauseMirrorChannelClosed = true;
     }
 
+    @Override
+    public String getNegotiatedPayloadCodec() {
+        return negotiatedPayloadCodec;
+    }
+
+    @Override
+    public void setNegotiatedPayloadCodec(String codecName) {
+        this.negotiatedPayloadCodec = codecName;
+    }
+
     @Override
     public String getChannelId() {
         return connectionId;
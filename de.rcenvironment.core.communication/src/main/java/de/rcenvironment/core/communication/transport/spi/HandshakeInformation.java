@@ -24,6 +24,8 @@ public class HandshakeInformation {
 
     private String channelId;
 
+    private String supportedPayloadCodecs;
+
     public String getProtocolVersionString() {
         return protocolVersionString;
     }
@@ -48,6 +50,18 @@ public class HandshakeInformation {
         this.channelId = channelId;
     }
 
+    /**
+     * @return the comma-separated list of payload codecs supported by the sender of this handshake; null if the sender does not support
+     *         codec negotiation
+     */
+    public String getSupportedPayloadCodecs() {
+        return supportedPayloadCodecs;
+    }
+
+    public void setSupportedPayloadCodecs(String supportedPayloadCodecs) {
+        this.supportedPayloadCodecs = supportedPayloadCodecs;
+    }
+
     /**
      * @param expectedProtocolVersion the expected version string
      * @return true if the contained version string is equal to the provided string; the check is
@@ -139,4 +139,13 @@ public interface MessageChannel {
      */
     void markAsClosedBecauseMirrorChannelClosed();
 
+    /**
+     * @return the name of the payload codec negotiated during the handshake of this channel, or null if standard Java serialization is used
+     */
+    String getNegotiatedPayloadCodec();
+
+    /**
+     * @param codecName the name of the payload codec negotiated during the handshake of this channel; null for standard Java serialization
+     */
+    void setNegotiatedPayloadCodec(String codecName);
 }
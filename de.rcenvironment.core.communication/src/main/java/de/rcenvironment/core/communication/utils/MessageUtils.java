@@ -27,6 +27,12 @@ import de.rcenvironment.core.toolkitbridge.transitional.StatsCounter;
  */
 public final class MessageUtils {
 
+    /**
+     * The first byte of any standard Java serialization stream (the high byte of ObjectStreamConstants.STREAM_MAGIC); used to distinguish
+     * Java-serialized payloads from those created by a {@link PayloadCodec}.
+     */
+    public static final int JAVA_SERIALIZATION_STREAM_MARKER = 0xAC;
+
     private static final int INITIAL_SERIALIZATION_BUFFER_SIZE = 512;
 
     private MessageUtils() {}
@@ -42,6 +48,41 @@ public final class MessageUtils {
         return serialize(object);
     }
 
+    /**
+     * Serializes an object for sending it as a byte array, using the given {@link PayloadCodec} if it is available. The receiving side
+     * must be known to support the codec, typically by negotiating it via {@link PayloadCodecRegistry}. Deserialization automatically
+     * detects the encoding, so no additional information about the codec needs to be transmitted.
+     * 
+     * @param object the object to serialize
+     * @param codecName the name of the codec to use; if null or unknown, standard Java serialization is used
+     * @return the byte array form of the object
+     * @throws SerializationException on serialization failure
+     */
+    public static byte[] serializeObject(Serializable object, String codecName) throws SerializationException {
+        final PayloadCodec codec = PayloadCodecRegistry.getCodecByName(codecName);
+        if (codec == null) {
+            return serialize(object);
+        }
+        StatsCounter.countClass("MessageUtils.serialize() via " + codec.getName(), object);
+        return codec.encode(object);
+    }
+
+    /**
+     * Determines the name of the {@link PayloadCodec} that was used to create the given serialized form, for example to encode a
+     * response the same way as the request it belongs to.
+     * 
+     * @param data the byte array form of a serialized object
+     * @return the codec name, or null if standard Java serialization was used
+     */
+    public static String detectPayloadCodecName(byte[] data) {
+        final PayloadCodec codec = PayloadCodecRegistry.detectCodec(data);
+        if (codec != null) {
+            return codec.getName();
+        } else {
+            return null;
+        }
+    }
+
     /**
      * Serializes an object for sending it as a byte array, but unlike
      * {@link #serializeObject(Serializable)}, this method converts any
@@ -115,6 +156,12 @@ public final class MessageUtils {
         if (data.length == 0) {
             throw new SerializationException("Empty array passed for deserialization");
         }
+        final PayloadCodec codec = PayloadCodecRegistry.detectCodec(data);
+        if (codec != null) {
+            Object object = codec.decode(data);
+            StatsCounter.countClass("MessageUtils.deserialize() via " + codec.getName(), object);
+            return object;
+        }
         ObjectInputStream ois = null;
         try {
             ois = new ObjectInputStream(new ByteArrayInputStream(data));
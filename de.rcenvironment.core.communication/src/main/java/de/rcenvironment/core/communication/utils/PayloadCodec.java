@@ -0,0 +1,54 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.communication.utils;
+
+import java.io.Serializable;
+
+import de.rcenvironment.core.communication.common.SerializationException;
+
+/**
+ * SPI for alternative network payload encodings that can be used instead of standard Java serialization. Each codec is identified by a
+ * unique name (used during handshake negotiation) and a unique format marker byte, which is always written as the first byte of its
+ * encoded form. This allows the receiving side to detect the encoding without any additional metadata; standard Java serialization streams
+ * always start with the byte 0xAC, so this value must not be used as a codec marker.
+ * 
+ * Codecs must be able to encode any {@link Serializable}, typically by embedding unknown types in their Java-serialized form.
+ * 
+ * @author agent
+ */
+public interface PayloadCodec {
+
+    /**
+     * @return the unique name of this codec, as exchanged during handshakes; must not contain commas or whitespace
+     */
+    String getName();
+
+    /**
+     * @return the unique marker byte that is written as the first byte of all payloads produced by this codec
+     */
+    byte getFormatMarker();
+
+    /**
+     * Encodes the given object into its byte array form.
+     * 
+     * @param object the object to encode; may be null
+     * @return the encoded form, which must start with {@link #getFormatMarker()}
+     * @throws SerializationException on encoding failure
+     */
+    byte[] encode(Serializable object) throws SerializationException;
+
+    /**
+     * Decodes an object from the byte array form created by {@link #encode(Serializable)}.
+     * 
+     * @param data the encoded form, including the leading format marker
+     * @return the reconstructed object
+     * @throws SerializationException on decoding failure, including malformed input
+     */
+    Serializable decode(byte[] data) throws SerializationException;
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.communication.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.logging.LogFactory;
+
+import de.rcenvironment.core.communication.common.InstanceNodeId;
+
+/**
+ * A static holder for the available {@link PayloadCodec}s, and for the codecs that were negotiated with directly connected instances
+ * during the initial handshake of their message channels. Standard Java serialization is always available as the implicit fallback and is
+ * represented by a null codec name. Codecs are registered by the subsystems that provide them, which must happen before any message
+ * channels are established; codecs registered later are only used for channels established after that.
+ * 
+ * Note that negotiated codecs are tracked per remote instance, not per message channel: the receiving instance is the one that has to
+ * decode a payload, so the codec choice is valid regardless of the route the payload takes.
+ * 
+ * @author agent
+ */
+public final class PayloadCodecRegistry {
+
+    private static final String CODEC_LIST_SEPARATOR = ",";
+
+    // in order of local preference
+    private static final List<PayloadCodec> registeredCodecs = new CopyOnWriteArrayList<>();
+
+    private static final PayloadCodec[] codecsByFormatMarker = new PayloadCodec[256];
+
+    // key: instance node id string; value: the name of the negotiated codec
+    private static final Map<String, String> negotiatedCodecsByInstance = new ConcurrentHashMap<>();
+
+    // allows disabling all non-Java codecs without a protocol change, e.g. for diagnosing interoperability issues
+    private static final boolean CODECS_DISABLED = System.getProperty("rce.network.disablePayloadCodecs") != null;
+
+    private PayloadCodecRegistry() {}
+
+    /**
+     * Registers a new {@link PayloadCodec}. Codecs registered earlier are preferred during negotiation. Registering a codec with the name
+     * of an already registered codec has no effect.
+     * 
+     * @param codec the new codec
+     */
+    public static synchronized void registerCodec(PayloadCodec codec) {
+        if (getCodecByName(codec.getName()) != null) {
+            return;
+        }
+        final int markerIndex = codec.getFormatMarker() & 0xff;
+        if (markerIndex == MessageUtils.JAVA_SERIALIZATION_STREAM_MARKER) {
+            throw new IllegalArgumentException("Codec " + codec.getName() + " uses the reserved Java serialization marker byte");
+        }
+        if (codecsByFormatMarker[markerIndex] != null) {
+            throw new IllegalArgumentException("Codec " + codec.getName() + " uses the same marker byte as the already registered codec "
+                + codecsByFormatMarker[markerIndex].getName());
+        }
+        codecsByFormatMarker[markerIndex] = codec;
+        registeredCodecs.add(codec);
+    }
+
+    /**
+     * @return the comma-separated list of the locally supported codec names, in order of preference; empty if no codecs are available
+     */
+    public static String getSupportedCodecsString() {
+        if (CODECS_DISABLED) {
+            return "";
+        }
+        List<String> names = new ArrayList<>();
+        for (PayloadCodec codec : registeredCodecs) {
+            names.add(codec.getName());
+        }
+        return String.join(CODEC_LIST_SEPARATOR, names);
+    }
+
+    /**
+     * Determines the codec to use for payloads sent to a remote instance from the list of codecs it announced. As both sides apply the
+     * same rules to their respective lists, the result is symmetric as long as all instances share the same preference order.
+     * 
+     * @param remoteCodecsString the comma-separated codec list announced by the remote side; may be null for remote instances that do not
+     *        support codec negotiation
+     * @return the name of the most-preferred local codec that is also supported by the remote side, or null to use Java serialization
+     */
+    public static String negotiateCodec(String remoteCodecsString) {
+        if (CODECS_DISABLED || remoteCodecsString == null || remoteCodecsString.isEmpty()) {
+            return null;
+        }
+        final String[] remoteCodecs = remoteCodecsString.split(CODEC_LIST_SEPARATOR);
+        for (PayloadCodec codec : registeredCodecs) {
+            for (String remoteCodec : remoteCodecs) {
+                if (codec.getName().equals(remoteCodec.trim())) {
+                    return codec.getName();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Registers the codec negotiated with a directly connected remote instance.
+     * 
+     * @param remoteInstanceId the id of the remote instance
+     * @param codecName the negotiated codec name; null to revert to Java serialization
+     */
+    public static void setNegotiatedCodec(InstanceNodeId remoteInstanceId, String codecName) {
+        if (codecName != null) {
+            negotiatedCodecsByInstance.put(remoteInstanceId.getInstanceNodeIdString(), codecName);
+            LogFactory.getLog(PayloadCodecRegistry.class).debug(
+                "Using payload codec '" + codecName + "' for messages to " + remoteInstanceId);
+        } else {
+            negotiatedCodecsByInstance.remove(remoteInstanceId.getInstanceNodeIdString());
+        }
+    }
+
+    /**
+     * @param remoteInstanceId the id of the instance that will receive and decode a payload
+     * @return the name of the codec to use, or null if Java serialization should be used
+     */
+    public static String getNegotiatedCodec(InstanceNodeId remoteInstanceId) {
+        return negotiatedCodecsByInstance.get(remoteInstanceId.getInstanceNodeIdString());
+    }
+
+    /**
+     * @param codecName the codec name; may be null
+     * @return the matching {@link PayloadCodec}, or null if the name is null or no such codec is registered
+     */
+    public static PayloadCodec getCodecByName(String codecName) {
+        if (codecName == null) {
+            return null;
+        }
+        for (PayloadCodec codec : registeredCodecs) {
+            if (codec.getName().equals(codecName)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Detects the codec that was used to create a payload by inspecting its first byte.
+     * 
+     * @param data the encoded payload
+     * @return the {@link PayloadCodec} that produced this payload, or null if it is a standard Java serialization stream (or not
+     *         recognized)
+     */
+    public static PayloadCodec detectCodec(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        return codecsByFormatMarker[data[0] & 0xff];
+    }
+}
@@ -21,6 +21,8 @@ import de.rcenvironment.core.datamanagement.commons.MetaDataSet;
 import de.rcenvironment.core.datamodel.api.TypedDatum;
 import de.rcenvironment.core.datamodel.api.TypedDatumFactory;
 import de.rcenvironment.core.datamodel.api.TypedDatumService;
+import de.rcenvironment.core.datamodel.types.api.BigTableReader;
+import de.rcenvironment.core.datamodel.types.api.BigTableTD;
 import de.rcenvironment.core.datamodel.types.api.DirectoryReferenceTD;
 import de.rcenvironment.core.datamodel.types.api.FileReferenceTD;
 import de.rcenvironment.core.utils.common.StringUtils;
@@ -151,6 +153,36 @@ public class ComponentDataManagementServiceImpl implements ComponentDataManageme
         return typedDatumFactory.createDirectoryReference(reference, dirname);
     }
 
+    @Override
+    public BigTableTD createBigTableTDFromLocalFile(ComponentContext componentContext, File tableFile) throws IOException {
+        if (!tableFile.exists()) {
+            throw new IOException("File doesn't exist: " + tableFile.getAbsolutePath());
+        }
+        final long rowCount;
+        final int columnCount;
+        // only reads the header and chunk index, which also validates the file
+        try (BigTableReader reader = new BigTableReader(tableFile, typedDatumFactory)) {
+            rowCount = reader.getRowCount();
+            columnCount = reader.getColumnCount();
+        }
+        String reference;
+        try {
+            MetaDataSet mds = new MetaDataSet();
+            ComponentDataManagementUtil.setComponentMetaData(mds, componentContext);
+            reference = dataManagementService.createReferenceFromLocalFile(tableFile, mds,
+                getStorageNetworkDestination(componentContext));
+        } catch (InterruptedException | CommunicationException e) {
+            // reduce exception types
+            throw new IOException(e);
+        }
+        return typedDatumFactory.createBigTable(reference, rowCount, columnCount);
+    }
+
+    @Override
+    public void copyBigTableTDToLocalFile(ComponentContext componentContext, BigTableTD bigTable, File targetFile) throws IOException {
+        copyReferenceToLocalFile(bigTable.getTableReference(), targetFile, getStorageNetworkDestination(componentContext));
+    }
+
     @Override
     public void copyFileReferenceTDToLocalFile(ComponentContext componentContext, FileReferenceTD fileReference, File targetFile)
         throws IOException {
@@ -11,7 +11,11 @@ package de.rcenvironment.core.component.execution.internal;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 
@@ -25,10 +29,14 @@ import org.junit.Test;
 import org.osgi.framework.BundleContext;
 
 import de.rcenvironment.core.communication.api.CommunicationService;
+import de.rcenvironment.core.communication.api.LiveNetworkIdResolutionService;
 import de.rcenvironment.core.communication.api.PlatformService;
+import de.rcenvironment.core.communication.common.IdentifierException;
 import de.rcenvironment.core.communication.common.InstanceNodeSessionId;
 import de.rcenvironment.core.communication.common.LogicalNodeId;
 import de.rcenvironment.core.communication.common.NodeIdentifierTestUtils;
+import de.rcenvironment.core.communication.nodeproperties.NodePropertiesService;
+import de.rcenvironment.core.communication.nodeproperties.NodePropertyConstants;
 import de.rcenvironment.core.component.execution.api.ComponentControllerRoutingMap;
 import de.rcenvironment.core.component.execution.api.ComponentExecutionController;
 import de.rcenvironment.core.component.execution.api.EndpointDatumSerializer;
@@ -66,11 +74,16 @@ public class EndpointDatumDispatcherImplTest {
 
     private final RemoteOperationException remoteOperationException = new RemoteOperationException("ROE");
 
+    // the mocked encoded forms of the serialized endpoint datums; cached to provide stable array identities for argument matching
+    private final Map<String, byte[]> encodedEndpointDatums = new HashMap<>();
+
     private final LogicalNodeId localNodeId = NodeIdentifierTestUtils.createTestInstanceNodeSessionIdWithDisplayName("local-target-node")
         .convertToDefaultLogicalNodeId();
 
-    private final LogicalNodeId remoteCompNodeId = NodeIdentifierTestUtils
-        .createTestInstanceNodeSessionIdWithDisplayName("remote-target-node").convertToDefaultLogicalNodeId();
+    private final InstanceNodeSessionId remoteCompNodeSessionId =
+        NodeIdentifierTestUtils.createTestInstanceNodeSessionIdWithDisplayName("remote-target-node");
+
+    private final LogicalNodeId remoteCompNodeId = remoteCompNodeSessionId.convertToDefaultLogicalNodeId();
 
     private final LogicalNodeId remoteWfCtrlNodeId = NodeIdentifierTestUtils.createTestInstanceNodeSessionIdWithDisplayName("wf-ctrl-node")
         .convertToDefaultLogicalNodeId();
@@ -104,9 +117,11 @@ public class EndpointDatumDispatcherImplTest {
      * @throws InterruptedException on unexpected error
      * @throws RemoteOperationException on unexpected error
      * @throws ExecutionControllerException on unexpected error
+     * @throws IdentifierException on unexpected error
      */
     @Test(timeout = TEST_TIMEOUT)
-    public void testDispatchEndpointDatum() throws InterruptedException, RemoteOperationException, ExecutionControllerException {
+    public void testDispatchEndpointDatum() throws InterruptedException, RemoteOperationException, ExecutionControllerException,
+        IdentifierException {
 
         final ComponentControllerRoutingMap routingMap = new ComponentControllerRoutingMap(); // the new routing map introduced in RCE 9
 
@@ -174,25 +189,39 @@ public class EndpointDatumDispatcherImplTest {
 
         EasyMock.replay(endpointDatumSerializerMock);
 
-        ComponentExecutionController componentExecutionControllerMock = EasyMock.createStrictMock(ComponentExecutionController.class);
+        // note: not a strict mock, as datums for different target components are dispatched in parallel, and failure callbacks are made
+        // by the sending task; so only the order of datums for the same target component is defined
+        final CountDownLatch failureCallbacksLatch = new CountDownLatch(2);
+        final CountDownLatch endpointDatumsReceivedLatch = new CountDownLatch(4);
+        ComponentExecutionController componentExecutionControllerMock = EasyMock.createMock(ComponentExecutionController.class);
         componentExecutionControllerMock.onEndpointDatumReceived(endpointDatumToProcessMock1);
+        EasyMock.expectLastCall().andAnswer(createCountDownAnswer(endpointDatumsReceivedLatch));
         componentExecutionControllerMock.onSendingEndointDatumFailed(endpointDatumToForwardFailingMock3, remoteOperationException);
+        EasyMock.expectLastCall().andAnswer(createCountDownAnswer(failureCallbacksLatch));
         componentExecutionControllerMock.onEndpointDatumReceived(endpointDatumToProcessMock2);
+        EasyMock.expectLastCall().andAnswer(createCountDownAnswer(endpointDatumsReceivedLatch));
         componentExecutionControllerMock.onEndpointDatumReceived(endpointDatumToProcessMock1);
+        EasyMock.expectLastCall().andAnswer(createCountDownAnswer(endpointDatumsReceivedLatch));
         Capture<EndpointDatum> finalEndpointDatumSentCapture = new Capture<>();
         componentExecutionControllerMock.onEndpointDatumReceived(EasyMock.capture(finalEndpointDatumSentCapture));
+        EasyMock.expectLastCall().andAnswer(createCountDownAnswer(endpointDatumsReceivedLatch));
         EasyMock.replay(componentExecutionControllerMock);
 
         RemotableComponentExecutionControllerService remotableCompExeCtrlServiceMock =
-            createRemotableExecutionControllerService(serializedEndpointDatumToForwardFailing4);
+            createRemotableExecutionControllerService(serializedEndpointDatumToForwardFailing4, failureCallbacksLatch);
         // code disabled as long as retrying is disabled
-        RemotableEndpointDatumDispatcher endpointDatumDispatcherMock = EasyMock.createStrictMock(RemotableEndpointDatumDispatcher.class);
+        // note: not a strict mock, as datums for different target components may be forwarded in any order
+        final CountDownLatch endpointDatumsForwardedLatch = new CountDownLatch(3);
+        RemotableEndpointDatumDispatcher endpointDatumDispatcherMock = EasyMock.createMock(RemotableEndpointDatumDispatcher.class);
         endpointDatumDispatcherMock.dispatchEndpointDatum(serializedEndpointDatumToForward1);
+        EasyMock.expectLastCall().andAnswer(createCountDownAnswer(endpointDatumsForwardedLatch));
         // for (int i = 0; i < 5; i++) {
         endpointDatumDispatcherMock.dispatchEndpointDatum(serializedEndpointDatumToForwardFailing3);
         EasyMock.expectLastCall().andThrow(remoteOperationException);
         // }
         endpointDatumDispatcherMock.dispatchEndpointDatum(serializedEndpointDatumToForward2);
+        // this datum is dispatched twice below; an unexpected call would fail the sending task of its destination
+        EasyMock.expectLastCall().andAnswer(createCountDownAnswer(endpointDatumsForwardedLatch)).times(2);
         // endpointDatumDispatcherMock.dispatchEndpointDatum(serializedEndpointDatumToForwardFailing1);
         // EasyMock.expectLastCall().andThrow(remoteOperationException);
         // endpointDatumDispatcherMock.dispatchEndpointDatum(serializedEndpointDatumToForwardFailing1);
@@ -207,6 +236,8 @@ public class EndpointDatumDispatcherImplTest {
         EasyMock.replay(endpointDatumDispatcherMock);
 
         EndpointDatumDispatcherImpl endpointDatumDispatcher = new EndpointDatumDispatcherImpl();
+        // the destination does not announce any capabilities, so the string-based format is expected
+        bindNodeCapabilityServices(endpointDatumDispatcher);
         endpointDatumDispatcher.activate(bundleContextMock);
         endpointDatumDispatcher.bindEndpointDatumSerializer(endpointDatumSerializerMock);
         endpointDatumDispatcher.bindPlatformService(createPlatformServiceMock());
@@ -214,6 +245,8 @@ public class EndpointDatumDispatcherImplTest {
             createCommunicationServiceMock(remotableCompExeCtrlServiceMock, endpointDatumDispatcherMock));
         endpointDatumDispatcher.bindLocalExecutionControllerUtilsService(
             createLocalExecutionControllerUtilsServiceMock(componentExecutionControllerMock));
+        // note: no workflow id is set in the test code above, so register the routing map for workflow id "null"
+        endpointDatumDispatcher.registerComponentControllerForwardingMap(null, routingMap);
 
         endpointDatumDispatcher.dispatchEndpointDatum(serializedEndpointDatumToProcess1);
         endpointDatumDispatcher.dispatchEndpointDatum(serializedEndpointDatumToForward1);
@@ -227,15 +260,11 @@ public class EndpointDatumDispatcherImplTest {
         endpointDatumDispatcher.dispatchEndpointDatum(serializedEndpointDatumToForward2);
         // endpointDatumDispatcher.dispatchEndpointDatum(serializedEndpointDatumToForwardFailing2);
 
-        // note: no workflow id is set in the test code above, so register the routing map for workflow id "null"
-        endpointDatumDispatcher.registerComponentControllerForwardingMap(null, routingMap);
-
-        final int sleepInterval = 50;
-        while (!finalEndpointDatumSentCapture.hasCaptured()) {
-            Thread.sleep(sleepInterval);
-        }
+        endpointDatumsReceivedLatch.await();
 
         finalEndpointDatumSentCapture.getValue().equals(endpointDatumToProcessMock3);
+        failureCallbacksLatch.await();
+        endpointDatumsForwardedLatch.await();
 
         EasyMock.verify(componentExecutionControllerMock);
         EasyMock.verify(endpointDatumDispatcherMock);
@@ -248,6 +277,262 @@ public class EndpointDatumDispatcherImplTest {
             .andReturn(serializedEndpointDatum).anyTimes();
         EasyMock.expect(endpointDatumSerializerMock.deserializeEndpointDatum(serializedEndpointDatum))
             .andReturn(endpointDatum).anyTimes();
+        EasyMock.expect(endpointDatumSerializerMock.encodeEndpointDatum(endpointDatum))
+            .andReturn(getEncoded(serializedEndpointDatum)).anyTimes();
+        EasyMock.expect(endpointDatumSerializerMock.decodeEndpointDatum(getEncoded(serializedEndpointDatum)))
+            .andReturn(endpointDatum).anyTimes();
+    }
+
+    private byte[] getEncoded(String serializedEndpointDatum) {
+        return encodedEndpointDatums.computeIfAbsent(serializedEndpointDatum, key -> key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private IAnswer<Object> createCountDownAnswer(final CountDownLatch latch) {
+        return new IAnswer<Object>() {
+
+            @Override
+            public Object answer() {
+                latch.countDown();
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Tests that the binary format is used if the destination announced support for it, and that a datum is not sent again in the
+     * string-based format after sending it in the binary format failed, as it may have been received anyway.
+     * 
+     * @throws InterruptedException on unexpected error
+     * @throws RemoteOperationException on unexpected error
+     * @throws ExecutionControllerException on unexpected error
+     * @throws IdentifierException on unexpected error
+     */
+    @Test(timeout = TEST_TIMEOUT)
+    public void testForwardingDoesNotResendAfterBinaryFormatFailure() throws InterruptedException, RemoteOperationException,
+        ExecutionControllerException, IdentifierException {
+
+        final ComponentControllerRoutingMap routingMap = new ComponentControllerRoutingMap();
+        routingMap.setNetworkDestinationForComponentController(REMOTE_INP_EXE_ID_1, remoteCompNodeId);
+
+        final String serializedEndpointDatumToForwardFailing = "serial-ED-to-forward-failing";
+        final String serializedEndpointDatumToForward = "serial-ED-to-forward";
+        EndpointDatum endpointDatumToForwardFailingMock = EndpointDatumMockFactory.createEndpointDatumMock(
+            REMOTE_INP_EXE_ID_1, remoteCompNodeId, LOCAL_INP_EXE_ID_1, localNodeId);
+        EndpointDatum endpointDatumToForwardMock = EndpointDatumMockFactory.createEndpointDatumMock(
+            REMOTE_INP_EXE_ID_1, remoteCompNodeId, LOCAL_INP_EXE_ID_2, localNodeId);
+
+        EndpointDatumSerializer endpointDatumSerializerMock = EasyMock.createNiceMock(EndpointDatumSerializer.class);
+        setupMockSerializationAndDeserialization(endpointDatumSerializerMock, endpointDatumToForwardFailingMock,
+            serializedEndpointDatumToForwardFailing);
+        setupMockSerializationAndDeserialization(endpointDatumSerializerMock, endpointDatumToForwardMock,
+            serializedEndpointDatumToForward);
+        EasyMock.replay(endpointDatumSerializerMock);
+
+        final CountDownLatch failureCallbackLatch = new CountDownLatch(1);
+        ComponentExecutionController componentExecutionControllerMock = EasyMock.createStrictMock(ComponentExecutionController.class);
+        componentExecutionControllerMock.onSendingEndointDatumFailed(endpointDatumToForwardFailingMock, remoteOperationException);
+        EasyMock.expectLastCall().andAnswer(createCountDownAnswer(failureCallbackLatch));
+        EasyMock.replay(componentExecutionControllerMock);
+
+        final CountDownLatch lastDatumSentLatch = new CountDownLatch(1);
+        RemotableEndpointDatumDispatcher endpointDatumDispatcherMock = EasyMock.createStrictMock(RemotableEndpointDatumDispatcher.class);
+        endpointDatumDispatcherMock.dispatchEncodedEndpointDatum(getEncoded(serializedEndpointDatumToForwardFailing));
+        EasyMock.expectLastCall().andThrow(remoteOperationException);
+        endpointDatumDispatcherMock.dispatchEncodedEndpointDatum(getEncoded(serializedEndpointDatumToForward));
+        EasyMock.expectLastCall().andAnswer(createCountDownAnswer(lastDatumSentLatch));
+        EasyMock.replay(endpointDatumDispatcherMock);
+
+        EndpointDatumDispatcherImpl endpointDatumDispatcher = new EndpointDatumDispatcherImpl();
+        // disable batching, as the second datum may otherwise be queued while the first one is being sent
+        endpointDatumDispatcher.maxBatchSize = 1;
+        bindNodeCapabilityServices(endpointDatumDispatcher, EndpointDatumDispatcherImpl.NODE_PROPERTY_KEY_BINARY_FORMAT);
+        endpointDatumDispatcher.activate(bundleContextMock);
+        endpointDatumDispatcher.bindEndpointDatumSerializer(endpointDatumSerializerMock);
+        endpointDatumDispatcher.bindPlatformService(createPlatformServiceMock());
+        endpointDatumDispatcher.bindCommunicationService(createCommunicationServiceMock(null, endpointDatumDispatcherMock));
+        endpointDatumDispatcher.bindLocalExecutionControllerUtilsService(
+            createLocalExecutionControllerUtilsServiceMock(componentExecutionControllerMock));
+        // note: no workflow id is set in the test code above, so register the routing map for workflow id "null"
+        endpointDatumDispatcher.registerComponentControllerForwardingMap(null, routingMap);
+
+        endpointDatumDispatcher.dispatchEndpointDatum(endpointDatumToForwardFailingMock);
+        endpointDatumDispatcher.dispatchEndpointDatum(endpointDatumToForwardMock);
+
+        lastDatumSentLatch.await();
+        failureCallbackLatch.await();
+        EasyMock.verify(endpointDatumDispatcherMock);
+        EasyMock.verify(componentExecutionControllerMock);
+    }
+
+    /**
+     * Tests that datums that are queued for the same destination while a previous datum is being sent are forwarded as a single batch,
+     * preserving their order.
+     * 
+     * @throws InterruptedException on unexpected error
+     * @throws RemoteOperationException on unexpected error
+     * @throws ExecutionControllerException on unexpected error
+     * @throws IdentifierException on unexpected error
+     */
+    @Test(timeout = TEST_TIMEOUT)
+    public void testForwardingSendsQueuedDatumsAsBatch() throws InterruptedException, RemoteOperationException,
+        ExecutionControllerException, IdentifierException {
+        testForwardingOfQueuedDatums(false);
+    }
+
+    /**
+     * Tests that the datums of a failed batch are reported as failed, and are not sent again individually, as the batch may have been
+     * received anyway.
+     * 
+     * @throws InterruptedException on unexpected error
+     * @throws RemoteOperationException on unexpected error
+     * @throws ExecutionControllerException on unexpected error
+     * @throws IdentifierException on unexpected error
+     */
+    @Test(timeout = TEST_TIMEOUT)
+    public void testForwardingDoesNotResendFailedBatch() throws InterruptedException, RemoteOperationException,
+        ExecutionControllerException, IdentifierException {
+        testForwardingOfQueuedDatums(true);
+    }
+
+    private void testForwardingOfQueuedDatums(boolean batchFails) throws InterruptedException, RemoteOperationException,
+        ExecutionControllerException, IdentifierException {
+
+        // note: the local datum used below must have the same target execution id, as it is dispatched by a different queue otherwise
+        final ComponentControllerRoutingMap routingMap = new ComponentControllerRoutingMap();
+        routingMap.setNetworkDestinationForComponentController(LOCAL_INP_EXE_ID_1, remoteCompNodeId);
+
+        final int numDatumsToForward = 4;
+        final EndpointDatum[] endpointDatumsToForward = new EndpointDatum[numDatumsToForward];
+        final String[] serializedEndpointDatumsToForward = new String[numDatumsToForward];
+        EndpointDatumSerializer endpointDatumSerializerMock = EasyMock.createNiceMock(EndpointDatumSerializer.class);
+        for (int i = 0; i < numDatumsToForward; i++) {
+            endpointDatumsToForward[i] = EndpointDatumMockFactory.createEndpointDatumMock(
+                LOCAL_INP_EXE_ID_1, remoteCompNodeId, LOCAL_INP_EXE_ID_2, localNodeId);
+            serializedEndpointDatumsToForward[i] = "serial-ED-to-forward-" + i;
+            setupMockSerializationAndDeserialization(endpointDatumSerializerMock, endpointDatumsToForward[i],
+                serializedEndpointDatumsToForward[i]);
+        }
+        EasyMock.replay(endpointDatumSerializerMock);
+
+        // a local datum, used to detect that all preceding datums have been queued for sending
+        final EndpointDatum endpointDatumToProcess = EndpointDatumMockFactory.createEndpointDatumMock(
+            LOCAL_INP_EXE_ID_1, localNodeId, LOCAL_INP_EXE_ID_2, localNodeId);
+        final CountDownLatch localDatumProcessedLatch = new CountDownLatch(1);
+        final CountDownLatch batchSentLatch = new CountDownLatch(1);
+        final CountDownLatch failureCallbacksLatch = new CountDownLatch(numDatumsToForward - 1);
+        ComponentExecutionController componentExecutionControllerMock = EasyMock.createStrictMock(ComponentExecutionController.class);
+        componentExecutionControllerMock.onEndpointDatumReceived(endpointDatumToProcess);
+        EasyMock.expectLastCall().andAnswer(createCountDownAnswer(localDatumProcessedLatch));
+        if (batchFails) {
+            for (int i = 1; i < numDatumsToForward; i++) {
+                componentExecutionControllerMock.onSendingEndointDatumFailed(endpointDatumsToForward[i], remoteOperationException);
+                EasyMock.expectLastCall().andAnswer(createCountDownAnswer(failureCallbacksLatch));
+            }
+        }
+        EasyMock.replay(componentExecutionControllerMock);
+
+        final CountDownLatch firstDatumSendingLatch = new CountDownLatch(1);
+        final CountDownLatch firstDatumSentLatch = new CountDownLatch(1);
+        RemotableEndpointDatumDispatcher endpointDatumDispatcherMock = EasyMock.createStrictMock(RemotableEndpointDatumDispatcher.class);
+        endpointDatumDispatcherMock.dispatchEncodedEndpointDatum(getEncoded(serializedEndpointDatumsToForward[0]));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+
+            @Override
+            public Object answer() throws InterruptedException {
+                // block sending until the remaining datums have been queued
+                firstDatumSendingLatch.countDown();
+                firstDatumSentLatch.await();
+                return null;
+            }
+        });
+        endpointDatumDispatcherMock.dispatchEncodedEndpointDatums(Arrays.asList(getEncoded(serializedEndpointDatumsToForward[1]),
+            getEncoded(serializedEndpointDatumsToForward[2]), getEncoded(serializedEndpointDatumsToForward[3])));
+        if (batchFails) {
+            EasyMock.expectLastCall().andThrow(remoteOperationException);
+        } else {
+            EasyMock.expectLastCall().andAnswer(createCountDownAnswer(batchSentLatch));
+        }
+        EasyMock.replay(endpointDatumDispatcherMock);
+
+        EndpointDatumDispatcherImpl endpointDatumDispatcher = new EndpointDatumDispatcherImpl();
+        bindNodeCapabilityServices(endpointDatumDispatcher, EndpointDatumDispatcherImpl.NODE_PROPERTY_KEY_BINARY_FORMAT,
+            EndpointDatumDispatcherImpl.NODE_PROPERTY_KEY_BATCHES);
+        endpointDatumDispatcher.activate(bundleContextMock);
+        endpointDatumDispatcher.bindEndpointDatumSerializer(endpointDatumSerializerMock);
+        endpointDatumDispatcher.bindPlatformService(createPlatformServiceMock());
+        endpointDatumDispatcher.bindCommunicationService(createCommunicationServiceMock(null, endpointDatumDispatcherMock));
+        endpointDatumDispatcher.bindLocalExecutionControllerUtilsService(
+            createLocalExecutionControllerUtilsServiceMock(componentExecutionControllerMock));
+        // note: no workflow id is set in the test code above, so register the routing map for workflow id "null"
+        endpointDatumDispatcher.registerComponentControllerForwardingMap(null, routingMap);
+
+        endpointDatumDispatcher.dispatchEndpointDatum(endpointDatumsToForward[0]);
+        firstDatumSendingLatch.await();
+        for (int i = 1; i < numDatumsToForward; i++) {
+            endpointDatumDispatcher.dispatchEndpointDatum(endpointDatumsToForward[i]);
+        }
+        endpointDatumDispatcher.dispatchEndpointDatum(endpointDatumToProcess);
+        localDatumProcessedLatch.await();
+        firstDatumSentLatch.countDown();
+
+        if (batchFails) {
+            failureCallbacksLatch.await();
+        } else {
+            batchSentLatch.await();
+        }
+        EasyMock.verify(endpointDatumDispatcherMock);
+        EasyMock.verify(componentExecutionControllerMock);
+    }
+
+    /**
+     * Tests that datums for different target components are dispatched independently, i.e. that a component controller blocking on a
+     * received datum does not block the dispatch of datums for other components.
+     * 
+     * @throws InterruptedException on unexpected error
+     * @throws ExecutionControllerException on unexpected error
+     * @throws IdentifierException on unexpected error
+     */
+    @Test(timeout = TEST_TIMEOUT)
+    public void testDatumsForDifferentTargetsAreDispatchedInParallel() throws InterruptedException, ExecutionControllerException,
+        IdentifierException {
+        // note: these execution ids are known to be mapped to different dispatch queues
+        final EndpointDatum blockingEndpointDatum = EndpointDatumMockFactory.createEndpointDatumMock(
+            LOCAL_INP_EXE_ID_1, localNodeId, LOCAL_INP_EXE_ID_3, localNodeId);
+        final EndpointDatum otherEndpointDatum = EndpointDatumMockFactory.createEndpointDatumMock(
+            LOCAL_INP_EXE_ID_2, localNodeId, LOCAL_INP_EXE_ID_3, localNodeId);
+
+        final CountDownLatch otherDatumReceivedLatch = new CountDownLatch(1);
+        final CountDownLatch blockingDatumReceivedLatch = new CountDownLatch(1);
+        ComponentExecutionController componentExecutionControllerMock = EasyMock.createMock(ComponentExecutionController.class);
+        // a thread-safe mock would not accept the call for the other datum while the answer for the blocking datum is waiting for it
+        EasyMock.makeThreadSafe(componentExecutionControllerMock, false);
+        componentExecutionControllerMock.onEndpointDatumReceived(blockingEndpointDatum);
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+
+            @Override
+            public Object answer() throws InterruptedException {
+                // only returns if the other datum is dispatched while this one is being processed
+                otherDatumReceivedLatch.await();
+                blockingDatumReceivedLatch.countDown();
+                return null;
+            }
+        });
+        componentExecutionControllerMock.onEndpointDatumReceived(otherEndpointDatum);
+        EasyMock.expectLastCall().andAnswer(createCountDownAnswer(otherDatumReceivedLatch));
+        EasyMock.replay(componentExecutionControllerMock);
+
+        EndpointDatumDispatcherImpl endpointDatumDispatcher = new EndpointDatumDispatcherImpl();
+        bindNodeCapabilityServices(endpointDatumDispatcher);
+        endpointDatumDispatcher.activate(bundleContextMock);
+        endpointDatumDispatcher.bindPlatformService(createPlatformServiceMock());
+        endpointDatumDispatcher.bindLocalExecutionControllerUtilsService(
+            createLocalExecutionControllerUtilsServiceMock(componentExecutionControllerMock));
+
+        endpointDatumDispatcher.dispatchEndpointDatum(blockingEndpointDatum);
+        endpointDatumDispatcher.dispatchEndpointDatum(otherEndpointDatum);
+
+        blockingDatumReceivedLatch.await();
+        EasyMock.verify(componentExecutionControllerMock);
     }
 
     /**
@@ -374,6 +659,24 @@ public class EndpointDatumDispatcherImplTest {
         return communicationServiceMock;
     }
 
+    // binds the services used to detect the capabilities of the remote node, which announces the given node properties
+    private void bindNodeCapabilityServices(EndpointDatumDispatcherImpl endpointDatumDispatcher, String... announcedPropertyKeys)
+        throws IdentifierException {
+        final Map<String, String> remoteNodeProperties = new HashMap<>();
+        for (String key : announcedPropertyKeys) {
+            remoteNodeProperties.put(key, NodePropertyConstants.VALUE_TRUE);
+        }
+        NodePropertiesService nodePropertiesServiceMock = EasyMock.createNiceMock(NodePropertiesService.class);
+        EasyMock.expect(nodePropertiesServiceMock.getNodeProperties(remoteCompNodeSessionId)).andReturn(remoteNodeProperties).anyTimes();
+        EasyMock.replay(nodePropertiesServiceMock);
+        LiveNetworkIdResolutionService idResolutionServiceMock = EasyMock.createNiceMock(LiveNetworkIdResolutionService.class);
+        EasyMock.expect(idResolutionServiceMock.resolveToLogicalNodeSessionId(remoteCompNodeId))
+            .andReturn(remoteCompNodeSessionId.convertToDefaultLogicalNodeSessionId()).anyTimes();
+        EasyMock.replay(idResolutionServiceMock);
+        endpointDatumDispatcher.bindNodePropertiesService(nodePropertiesServiceMock);
+        endpointDatumDispatcher.bindLiveNetworkIdResolutionService(idResolutionServiceMock);
+    }
+
     private PlatformService createPlatformServiceMock() {
         PlatformService platformServiceMock = EasyMock.createNiceMock(PlatformService.class);
         EasyMock.expect(platformServiceMock.matchesLocalInstance(localNodeId)).andReturn(true).anyTimes();
@@ -382,11 +685,13 @@ public class EndpointDatumDispatcherImplTest {
     }
 
     private RemotableComponentExecutionControllerService createRemotableExecutionControllerService(
-        String serializedEndpointDatumToForwardFailingMock) throws ExecutionControllerException, RemoteOperationException {
+        String serializedEndpointDatumToForwardFailingMock, CountDownLatch callbackLatch)
+        throws ExecutionControllerException, RemoteOperationException {
         RemotableComponentExecutionControllerService remotableCompExeCtrlServiceMock = EasyMock.createStrictMock(
             RemotableComponentExecutionControllerService.class);
         remotableCompExeCtrlServiceMock.onSendingEndointDatumFailed(REMOTE_INP_EXE_ID_2,
             serializedEndpointDatumToForwardFailingMock, remoteOperationException);
+        EasyMock.expectLastCall().andAnswer(createCountDownAnswer(callbackLatch));
         EasyMock.replay(remotableCompExeCtrlServiceMock);
         return remotableCompExeCtrlServiceMock;
     }
@@ -19,10 +19,14 @@ import de.rcenvironment.core.communication.common.LogicalNodeId;
 import de.rcenvironment.core.communication.common.NodeIdentifierTestUtils;
 import de.rcenvironment.core.component.execution.internal.InternalTDImpl.InternalTDType;
 import de.rcenvironment.core.component.model.endpoint.api.EndpointDatum;
+import de.rcenvironment.core.component.model.endpoint.api.EndpointDatumRecipientFactory;
+import de.rcenvironment.core.component.model.endpoint.impl.EndpointDatumImpl;
 import de.rcenvironment.core.datamodel.api.DataType;
 import de.rcenvironment.core.datamodel.api.TypedDatum;
+import de.rcenvironment.core.datamodel.api.TypedDatumFactory;
 import de.rcenvironment.core.datamodel.api.TypedDatumSerializer;
 import de.rcenvironment.core.datamodel.api.TypedDatumService;
+import de.rcenvironment.core.datamodel.testutils.TypedDatumServiceDefaultStub;
 import de.rcenvironment.core.utils.common.StringUtils;
 
 /**
@@ -232,4 +236,76 @@ public class EndpointDatumSerializerImplTest {
         assertEquals(typedDatumMock, deserializedEndpointDatum.getValue());
     }
 
+    /**
+     * Tests that {@link EndpointDatum}s with the various value types survive a round trip through the binary format.
+     */
+    @Test
+    public void testBinaryRoundTrip() {
+        EndpointDatumSerializerImpl endpointDatumSerializer = new EndpointDatumSerializerImpl();
+        endpointDatumSerializer.bindTypedDatumService(new TypedDatumServiceDefaultStub());
+        TypedDatumFactory factory = new TypedDatumServiceDefaultStub().getFactory();
+
+        TypedDatum[] values = new TypedDatum[] { factory.createFloat(Math.PI), factory.createInteger(Long.MIN_VALUE),
+            factory.createBoolean(true), factory.createShortText("text: with separators"), factory.createVector(new double[] { 1.0, 2.0 }),
+            new InternalTDImpl(InternalTDType.WorkflowFinish, "6b5d89c8-3a12-48aa-9440-c078646e7172") };
+        for (TypedDatum value : values) {
+            EndpointDatum endpointDatum = createEndpointDatum(value, Long.valueOf(1));
+            EndpointDatum decodedEndpointDatum =
+                endpointDatumSerializer.decodeEndpointDatum(endpointDatumSerializer.encodeEndpointDatum(endpointDatum));
+            assertEndpointDatumFieldsEqual(endpointDatum, decodedEndpointDatum);
+            if (value.getDataType() == DataType.Internal) {
+                assertEquals(InternalTDType.WorkflowFinish, ((InternalTDImpl) decodedEndpointDatum.getValue()).getType());
+                assertEquals("6b5d89c8-3a12-48aa-9440-c078646e7172", ((InternalTDImpl) decodedEndpointDatum.getValue()).getIdentifier());
+            } else {
+                assertEquals(value, decodedEndpointDatum.getValue());
+            }
+        }
+
+        EndpointDatum endpointDatumWithoutDmId = createEndpointDatum(factory.createInteger(3), null);
+        EndpointDatum decodedEndpointDatum =
+            endpointDatumSerializer.decodeEndpointDatum(endpointDatumSerializer.encodeEndpointDatum(endpointDatumWithoutDmId));
+        assertEndpointDatumFieldsEqual(endpointDatumWithoutDmId, decodedEndpointDatum);
+        assertNull(decodedEndpointDatum.getDataManagementId());
+    }
+
+    /**
+     * Tests that data with an unknown format version is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBinaryFormatVersionCheck() {
+        EndpointDatumSerializerImpl endpointDatumSerializer = new EndpointDatumSerializerImpl();
+        endpointDatumSerializer.bindTypedDatumService(new TypedDatumServiceDefaultStub());
+        byte[] encoded = endpointDatumSerializer.encodeEndpointDatum(
+            createEndpointDatum(new TypedDatumServiceDefaultStub().getFactory().createBoolean(false), null));
+        encoded[0]++;
+        endpointDatumSerializer.decodeEndpointDatum(encoded);
+    }
+
+    private EndpointDatum createEndpointDatum(TypedDatum value, Long dmId) {
+        EndpointDatumImpl endpointDatum = new EndpointDatumImpl();
+        endpointDatum.setValue(value);
+        endpointDatum.setEndpointDatumRecipient(EndpointDatumRecipientFactory.createEndpointDatumRecipient("input-name", "comp-exe-id-2",
+            "comp name 2", targetCompNodeLogicalNodeId));
+        endpointDatum.setOutputsComponentExecutionIdentifier("comp-exe-id-5");
+        endpointDatum.setOutputsNodeId(sourceCompNodeLogicalNodeId);
+        endpointDatum.setWorkflowExecutionIdentifier("wf-exe-id-2");
+        // located on the same node as the target component, so that the id table contains a shared entry
+        endpointDatum.setWorkflowNodeId(targetCompNodeLogicalNodeId);
+        endpointDatum.setDataManagementId(dmId);
+        return endpointDatum;
+    }
+
+    private void assertEndpointDatumFieldsEqual(EndpointDatum expected, EndpointDatum actual) {
+        assertEquals(expected.getInputName(), actual.getInputName());
+        assertEquals(expected.getDataManagementId(), actual.getDataManagementId());
+        assertEquals(expected.getInputsComponentExecutionIdentifier(), actual.getInputsComponentExecutionIdentifier());
+        assertEquals(expected.getInputsComponentInstanceName(), actual.getInputsComponentInstanceName());
+        assertEquals(expected.getDestinationNodeId(), actual.getDestinationNodeId());
+        assertEquals(expected.getWorkflowExecutionIdentifier(), actual.getWorkflowExecutionIdentifier());
+        assertEquals(expected.getOutputsComponentExecutionIdentifier(), actual.getOutputsComponentExecutionIdentifier());
+        assertEquals(expected.getOutputsNodeId(), actual.getOutputsNodeId());
+        assertEquals(expected.getWorkflowControllerLocation(), actual.getWorkflowControllerLocation());
+        assertEquals(expected.getValue().getDataType(), actual.getValue().getDataType());
+    }
+
 }
@@ -16,6 +16,9 @@ import de.rcenvironment.core.communication.common.NetworkDestination;
 import de.rcenvironment.core.communication.common.ResolvableNodeId;
 import de.rcenvironment.core.component.execution.api.ComponentContext;
 import de.rcenvironment.core.datamodel.api.TypedDatum;
+import de.rcenvironment.core.datamodel.types.api.BigTableReader;
+import de.rcenvironment.core.datamodel.types.api.BigTableTD;
+import de.rcenvironment.core.datamodel.types.api.BigTableWriter;
 import de.rcenvironment.core.datamodel.types.api.DirectoryReferenceTD;
 import de.rcenvironment.core.datamodel.types.api.FileReferenceTD;
 
@@ -139,6 +142,27 @@ public interface ComponentDataManagementService {
     DirectoryReferenceTD createDirectoryReferenceTDFromLocalCompressedFile(ComponentContext componentContext, File dir,
         String dirname) throws IOException;
 
+    /**
+     * Creates a {@link BigTableTD} object from a local file written by a {@link BigTableWriter} by creating a new data management
+     * reference.
+     * 
+     * @param componentContext {@link ComponentContext} of the calling component
+     * @param tableFile the table file
+     * @return {@link BigTableTD}
+     * @throws IOException if the given file doesn't exist, is not a valid table file, or on data management error
+     */
+    BigTableTD createBigTableTDFromLocalFile(ComponentContext componentContext, File tableFile) throws IOException;
+
+    /**
+     * Retrieves the content of the given {@link BigTableTD} from the data management; use a {@link BigTableReader} to access it.
+     * 
+     * @param componentContext {@link ComponentContext} of the calling component
+     * @param bigTable {@link BigTableTD}
+     * @param targetFile local target file
+     * @throws IOException on a local I/O or data management error
+     */
+    void copyBigTableTDToLocalFile(ComponentContext componentContext, BigTableTD bigTable, File targetFile) throws IOException;
+
     /**
      * Retrieves a file from the data management referred by the given {@link FileReferenceTD}.
      * 
@@ -44,4 +44,11 @@ public interface EndpointDatumDispatchService {
      * @param workflowExecutionId the id of the workflow being disposed
      */
     void unregisterComponentControllerForwardingMap(String workflowExecutionId);
+
+    /**
+     * Notifies this service that a local component controller has been disposed, so any cached reference to it can be released.
+     * 
+     * @param executionId the execution id of the disposed component
+     */
+    void onComponentExecutionControllerDisposed(String executionId);
 }
@@ -32,4 +32,22 @@ public interface EndpointDatumSerializer {
      * @return deserialized {@link EndpointDatum} object
      */
     EndpointDatum deserializeEndpointDatum(String serializedEndpoint);
+
+    /**
+     * Serializes an {@link EndpointDatum} into the compact binary format used for sending it to other nodes. Prefer this over
+     * {@link #serializeEndpointDatum(EndpointDatum)} unless a string representation is required.
+     * 
+     * @param endpoint {@link EndpointDatum} to serialize
+     * @return the encoded {@link EndpointDatum}
+     */
+    byte[] encodeEndpointDatum(EndpointDatum endpoint);
+
+    /**
+     * Deserializes an {@link EndpointDatum} that was encoded with {@link #encodeEndpointDatum(EndpointDatum)}.
+     * 
+     * @param encodedEndpoint the encoded {@link EndpointDatum}
+     * @return deserialized {@link EndpointDatum} object
+     * @throws IllegalArgumentException if the data is malformed or uses an unsupported format version
+     */
+    EndpointDatum decodeEndpointDatum(byte[] encodedEndpoint);
 }
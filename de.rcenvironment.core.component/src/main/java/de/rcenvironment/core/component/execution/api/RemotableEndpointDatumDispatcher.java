@@ -8,6 +8,8 @@
 
 package de.rcenvironment.core.component.execution.api;
 
+import java.util.List;
+
 import de.rcenvironment.core.component.model.endpoint.api.EndpointDatum;
 import de.rcenvironment.core.utils.common.rpc.RemotableService;
 import de.rcenvironment.core.utils.common.rpc.RemoteOperationException;
@@ -28,4 +30,25 @@ public interface RemotableEndpointDatumDispatcher {
      * @throws RemoteOperationException if called from remote and remote method call failed
      */
     void dispatchEndpointDatum(String serializedEndpointDatum) throws RemoteOperationException;
+
+    /**
+     * Dispatches {@link EndpointDatum}s asynchronously but ordered. Equivalent to {@link #dispatchEndpointDatum(String)}, but uses the
+     * more compact binary encoding; see {@link EndpointDatumSerializer#encodeEndpointDatum(EndpointDatum)}.
+     * <p>
+     * Note that this method must not be named like the string variant, as overloaded methods with the same parameter count are not
+     * allowed in remote service interfaces.
+     * 
+     * @param encodedEndpointDatum encoded {@link EndpointDatum} to dispatch
+     * @throws RemoteOperationException if called from remote and remote method call failed
+     */
+    void dispatchEncodedEndpointDatum(byte[] encodedEndpointDatum) throws RemoteOperationException;
+
+    /**
+     * Dispatches a batch of {@link EndpointDatum}s asynchronously but ordered. Equivalent to calling
+     * {@link #dispatchEncodedEndpointDatum(byte[])} for each element of the list in order, but requires only a single remote call.
+     * 
+     * @param encodedEndpointDatums the encoded {@link EndpointDatum}s to dispatch, in the order of dispatch
+     * @throws RemoteOperationException if called from remote and remote method call failed
+     */
+    void dispatchEncodedEndpointDatums(List<byte[]> encodedEndpointDatums) throws RemoteOperationException;
 }
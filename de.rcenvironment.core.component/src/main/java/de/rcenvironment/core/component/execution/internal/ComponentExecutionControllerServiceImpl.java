@@ -45,6 +45,7 @@ import de.rcenvironment.core.component.execution.api.ComponentExecutionControlle
 import de.rcenvironment.core.component.execution.api.ComponentExecutionException;
 import de.rcenvironment.core.component.execution.api.ComponentExecutionInformation;
 import de.rcenvironment.core.component.execution.api.ComponentState;
+import de.rcenvironment.core.component.execution.api.EndpointDatumDispatchService;
 import de.rcenvironment.core.component.execution.api.EndpointDatumSerializer;
 import de.rcenvironment.core.component.execution.api.ExecutionConstants;
 import de.rcenvironment.core.component.execution.api.ExecutionContext;
@@ -94,6 +95,8 @@ public class ComponentExecutionControllerServiceImpl
 
     private EndpointDatumSerializer endpointDatumSerializer;
 
+    private EndpointDatumDispatchService endpointDatumDispatchService;
+
     private Map<String, ServiceRegistration<?>> componentServiceRegistrations = Collections.synchronizedMap(
         new HashMap<String, ServiceRegistration<?>>());
 
@@ -296,6 +299,7 @@ public class ComponentExecutionControllerServiceImpl
             componentExecutionInformations.remove(executionId);
         }
         unregisterExecutionController(executionId);
+        endpointDatumDispatchService.onComponentExecutionControllerDisposed(executionId);
     }
 
     @Override
@@ -343,6 +347,11 @@ public class ComponentExecutionControllerServiceImpl
         this.endpointDatumSerializer = newService;
     }
 
+    @Reference
+    protected void bindEndpointDatumDispatchService(EndpointDatumDispatchService newService) {
+        this.endpointDatumDispatchService = newService;
+    }
+
     @Reference
     protected void bindComponentExecutionAuthorizationService(ComponentExecutionAuthorizationService newService) {
         this.componentExecutionAuthorizationService = newService;
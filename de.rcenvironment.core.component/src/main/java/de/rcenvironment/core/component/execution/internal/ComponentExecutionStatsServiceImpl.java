@@ -77,7 +77,7 @@ public class ComponentExecutionStatsServiceImpl implements ComponentExecutionSta
     @Override
     public void addStatsAtComponentRunTermination(ComponentExecutionContext compExeCtx) {
         if (compExeStartTimestamps.containsKey(compExeCtx.getExecutionIdentifier())) {
-            StatsCounter.registerValue(CAT_COMP_EXEC_DURATION, compExeCtx.getComponentDescription().getName(),
+            StatsCounter.registerValueWithDistribution(CAT_COMP_EXEC_DURATION, compExeCtx.getComponentDescription().getName(),
                 Math.abs((System.currentTimeMillis()
                     - compExeStartTimestamps.get(compExeCtx.getExecutionIdentifier())) / THOUSAND));
             compExeStartTimestamps.remove(compExeCtx.getExecutionIdentifier());
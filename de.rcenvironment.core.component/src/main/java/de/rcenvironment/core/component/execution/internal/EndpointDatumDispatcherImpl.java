@@ -9,9 +9,17 @@
 package de.rcenvironment.core.component.execution.internal;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.collections4.map.LRUMap;
 import org.apache.commons.logging.Log;
@@ -22,8 +30,15 @@ import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 
 import de.rcenvironment.core.communication.api.CommunicationService;
+import de.rcenvironment.core.communication.api.LiveNetworkIdResolutionService;
 import de.rcenvironment.core.communication.api.PlatformService;
+import de.rcenvironment.core.communication.api.ReliableRPCStreamHandle;
+import de.rcenvironment.core.communication.common.IdentifierException;
+import de.rcenvironment.core.communication.common.InstanceNodeSessionId;
 import de.rcenvironment.core.communication.common.NetworkDestination;
+import de.rcenvironment.core.communication.common.ResolvableNodeId;
+import de.rcenvironment.core.communication.nodeproperties.NodePropertiesService;
+import de.rcenvironment.core.communication.nodeproperties.NodePropertyConstants;
 import de.rcenvironment.core.component.execution.api.ComponentControllerRoutingMap;
 import de.rcenvironment.core.component.execution.api.ComponentExecutionController;
 import de.rcenvironment.core.component.execution.api.EndpointDatumDispatchService;
@@ -55,13 +70,41 @@ public class EndpointDatumDispatcherImpl implements EndpointDatumDispatchService
 
     private static final int CACHE_SIZE = 20;
 
-    private AsyncOrderedExecutionQueue executionQueue = ConcurrencyUtils.getFactory().createAsyncOrderedExecutionQueue(
-        AsyncCallbackExceptionPolicy.LOG_AND_PROCEED);
+    // the number of queues to distribute incoming datums over; datums for the same target component are always dispatched by the
+    // same queue, so their order is preserved
+    private static final int DISPATCH_QUEUE_COUNT = 16;
 
-    private Map<String, WeakReference<ComponentExecutionController>> compExeCtrls = new LRUMap<>(CACHE_SIZE);
+    private static final int DEFAULT_MAX_BATCH_SIZE = 50;
+
+    private static final String SEND_QUEUE_TASK_CATEGORY = "Endpoint datum dispatch: send queued datums to remote node";
+
+    // announced by nodes that accept endpoint datums in the binary format; nodes running older versions do not announce it;
+    // package-visible for unit tests
+    static final String NODE_PROPERTY_KEY_BINARY_FORMAT = "endpointDatums.binaryFormat";
+
+    // announced by nodes that accept batches of endpoint datums in the binary format; package-visible for unit tests
+    static final String NODE_PROPERTY_KEY_BATCHES = "endpointDatums.batches";
+
+    private final AsyncOrderedExecutionQueue[] dispatchQueues = new AsyncOrderedExecutionQueue[DISPATCH_QUEUE_COUNT];
+
+    // entries are removed on component disposal; the weak references only guard against entries that were added concurrently to it
+    private final Map<String, WeakReference<ComponentExecutionController>> compExeCtrls = new ConcurrentHashMap<>();
 
     private Map<String, ComponentControllerRoutingMap> componentControllerForwardingMaps = Collections.synchronizedMap(new HashMap<>());
 
+    // service proxies per destination; synchronized on itself
+    private final Map<NetworkDestination, RemotableEndpointDatumDispatcher> destinationDispatchers = new LRUMap<>(CACHE_SIZE);
+
+    // the queues of datums waiting to be sent, for all destinations with pending datums; synchronized on itself
+    private final Map<NetworkDestination, DestinationSendQueue> destinationSendQueues = new HashMap<>();
+
+    // the announced capabilities of recently used remote node sessions; only positive results are cached, as the properties of a node
+    // may not have been received yet when it is first checked; synchronized on itself
+    private final Map<InstanceNodeSessionId, Set<String>> confirmedCapabilities = new LRUMap<>(CACHE_SIZE);
+
+    // non-final and package-visible for unit tests
+    int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
     private BundleContext bundleContext;
 
     private CommunicationService communicationService;
@@ -70,17 +113,74 @@ public class EndpointDatumDispatcherImpl implements EndpointDatumDispatchService
 
     private PlatformService platformService;
 
+    private NodePropertiesService nodePropertiesService;
+
+    private LiveNetworkIdResolutionService idResolutionService;
+
     private EndpointDatumSerializer endpointDatumSerializer;
 
+    /**
+     * The datums waiting to be sent to a single {@link NetworkDestination}. All datums that are queued while a remote call is in progress
+     * are sent as a batch by the next call, which reduces the number of remote calls for long sequences of small datums (e.g. in loops)
+     * without adding latency in low-load situations. A queue is only kept while there are datums to send; its sending task ends (and the
+     * queue is discarded) once there are no more pending datums. All fields are synchronized on {@link #destinationSendQueues}.
+     * 
+     * @author agent
+     */
+    private final class DestinationSendQueue implements Runnable {
+
+        private final NetworkDestination networkDestination;
+
+        private final Deque<EndpointDatum> pendingDatums = new ArrayDeque<>();
+
+        DestinationSendQueue(NetworkDestination networkDestination) {
+            this.networkDestination = networkDestination;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final List<EndpointDatum> batch;
+                synchronized (destinationSendQueues) {
+                    if (pendingDatums.isEmpty()) {
+                        destinationSendQueues.remove(networkDestination);
+                        return;
+                    }
+                    batch = new ArrayList<>(Math.min(pendingDatums.size(), maxBatchSize));
+                    while (!pendingDatums.isEmpty() && batch.size() < maxBatchSize) {
+                        batch.add(pendingDatums.removeFirst());
+                    }
+                }
+                try {
+                    sendEndpointDatums(networkDestination, batch);
+                } catch (RuntimeException e) {
+                    // do not stop sending, as any following datums for this destination would never be sent then
+                    LOG.error("Unexpected error while sending endpoint datums to " + networkDestination, e);
+                }
+            }
+        }
+    }
+
+    public EndpointDatumDispatcherImpl() {
+        for (int i = 0; i < DISPATCH_QUEUE_COUNT; i++) {
+            dispatchQueues[i] =
+                ConcurrencyUtils.getFactory().createAsyncOrderedExecutionQueue(AsyncCallbackExceptionPolicy.LOG_AND_PROCEED);
+        }
+    }
+
     @Activate
     protected void activate(BundleContext context) {
         bundleContext = context;
+        final Map<String, String> capabilities = new HashMap<>();
+        capabilities.put(NODE_PROPERTY_KEY_BINARY_FORMAT, NodePropertyConstants.VALUE_TRUE);
+        capabilities.put(NODE_PROPERTY_KEY_BATCHES, NodePropertyConstants.VALUE_TRUE);
+        nodePropertiesService.addOrUpdateLocalNodeProperties(capabilities);
     }
 
     @Override
     public void dispatchEndpointDatum(final EndpointDatum endpointDatum) {
         final String executionId = endpointDatum.getInputsComponentExecutionIdentifier();
-        executionQueue.enqueue(new Runnable() {
+        dispatchQueues[Math.floorMod(Objects.hashCode(executionId), DISPATCH_QUEUE_COUNT)].enqueue(new Runnable() {
 
             @Override
             public void run() {
@@ -101,6 +201,32 @@ public class EndpointDatumDispatcherImpl implements EndpointDatumDispatchService
         dispatchEndpointDatum(endpointDatumSerializer.deserializeEndpointDatum(serializedEndpointDatum));
     }
 
+    @Override
+    @AllowRemoteAccess
+    public void dispatchEncodedEndpointDatum(byte[] encodedEndpointDatum) {
+        dispatchEndpointDatum(endpointDatumSerializer.decodeEndpointDatum(encodedEndpointDatum));
+    }
+
+    @Override
+    @AllowRemoteAccess
+    public void dispatchEncodedEndpointDatums(List<byte[]> encodedEndpointDatums) {
+        // decode all datums first so that a decoding failure does not leave the batch partially dispatched
+        final List<EndpointDatum> endpointDatums = new ArrayList<>(encodedEndpointDatums.size());
+        for (byte[] encodedEndpointDatum : encodedEndpointDatums) {
+            endpointDatums.add(endpointDatumSerializer.decodeEndpointDatum(encodedEndpointDatum));
+        }
+        for (EndpointDatum endpointDatum : endpointDatums) {
+            dispatchEndpointDatum(endpointDatum);
+        }
+    }
+
+    @Override
+    public void onComponentExecutionControllerDisposed(String executionId) {
+        compExeCtrls.remove(executionId);
+        // also clean up any entries of already garbage-collected controllers that were missed for some reason
+        compExeCtrls.values().removeIf(reference -> reference.get() == null);
+    }
+
     @Override
     public void registerComponentControllerForwardingMap(String workflowExecutionId, ComponentControllerRoutingMap destinationMap) {
         componentControllerForwardingMaps.put(workflowExecutionId, destinationMap);
@@ -140,11 +266,8 @@ public class EndpointDatumDispatcherImpl implements EndpointDatumDispatchService
                 }
             }
 
-            // fetching the service proxy on each call, assuming that it will be cached centrally if necessary
-            final RemotableEndpointDatumDispatcher dispatcher =
-                communicationService.getRemotableService(RemotableEndpointDatumDispatcher.class, networkDestination);
-
-            dispatcher.dispatchEndpointDatum(endpointDatumSerializer.serializeEndpointDatum(endpointDatum));
+            // the actual sending is done asynchronously, but in order for each destination; any failures are reported from there
+            enqueueForSending(networkDestination, endpointDatum);
             // ComponentExecutionUtils.logCallbackSuccessAfterFailure(LOG, StringUtils.format("Sending endpoint datum %s",
             // endpointDatum), failureCount);
             // break;
@@ -162,6 +285,105 @@ public class EndpointDatumDispatcherImpl implements EndpointDatumDispatchService
 
     }
 
+    private void enqueueForSending(NetworkDestination networkDestination, EndpointDatum endpointDatum) {
+        synchronized (destinationSendQueues) {
+            DestinationSendQueue sendQueue = destinationSendQueues.get(networkDestination);
+            if (sendQueue != null) {
+                // the queue's sending task is still active, and will pick up this datum
+                sendQueue.pendingDatums.addLast(endpointDatum);
+                return;
+            }
+            sendQueue = new DestinationSendQueue(networkDestination);
+            sendQueue.pendingDatums.addLast(endpointDatum);
+            destinationSendQueues.put(networkDestination, sendQueue);
+            ConcurrencyUtils.getAsyncTaskService().execute(SEND_QUEUE_TASK_CATEGORY, sendQueue);
+        }
+    }
+
+    private void sendEndpointDatums(NetworkDestination networkDestination, List<EndpointDatum> endpointDatums) {
+        final RemotableEndpointDatumDispatcher dispatcher = getDestinationDispatcher(networkDestination);
+        final boolean binaryFormatSupported = isCapabilityAnnounced(networkDestination, NODE_PROPERTY_KEY_BINARY_FORMAT);
+        if (endpointDatums.size() == 1 || !binaryFormatSupported || !isCapabilityAnnounced(networkDestination, NODE_PROPERTY_KEY_BATCHES)) {
+            for (EndpointDatum endpointDatum : endpointDatums) {
+                sendEndpointDatum(dispatcher, endpointDatum, binaryFormatSupported);
+            }
+            return;
+        }
+
+        final List<byte[]> encodedEndpointDatums = new ArrayList<>(endpointDatums.size());
+        for (EndpointDatum endpointDatum : endpointDatums) {
+            encodedEndpointDatums.add(endpointDatumSerializer.encodeEndpointDatum(endpointDatum));
+        }
+        try {
+            dispatcher.dispatchEncodedEndpointDatums(encodedEndpointDatums);
+        } catch (RemoteOperationException e) {
+            // as the batch may have been received anyway, its datums are not sent again; report each of them as failed instead, as
+            // with the failure of a single datum
+            for (EndpointDatum endpointDatum : endpointDatums) {
+                callbackComponentExecutionController(endpointDatum, e);
+            }
+        }
+    }
+
+    /**
+     * Sends a single datum; on failure, the component controller is notified. Note that there is no fallback to the string-based format
+     * if sending in the binary format fails, as the datum may have been received anyway; it would be dispatched twice then.
+     */
+    private void sendEndpointDatum(RemotableEndpointDatumDispatcher dispatcher, EndpointDatum endpointDatum,
+        boolean binaryFormatSupported) {
+        try {
+            if (binaryFormatSupported) {
+                dispatcher.dispatchEncodedEndpointDatum(endpointDatumSerializer.encodeEndpointDatum(endpointDatum));
+            } else {
+                dispatcher.dispatchEndpointDatum(endpointDatumSerializer.serializeEndpointDatum(endpointDatum));
+            }
+        } catch (RemoteOperationException e) {
+            callbackComponentExecutionController(endpointDatum, e);
+        }
+    }
+
+    /**
+     * @return true if the node session behind the given destination has announced the given capability via its node properties; if the
+     *         destination cannot be resolved to a reachable node, false is returned, and the caller should use the legacy behavior
+     */
+    private boolean isCapabilityAnnounced(NetworkDestination networkDestination, String propertyKey) {
+        final InstanceNodeSessionId nodeSessionId;
+        try {
+            if (networkDestination instanceof ReliableRPCStreamHandle) {
+                nodeSessionId = ((ReliableRPCStreamHandle) networkDestination).getDestinationNodeId().convertToInstanceNodeSessionId();
+            } else {
+                nodeSessionId = idResolutionService.resolveToLogicalNodeSessionId((ResolvableNodeId) networkDestination)
+                    .convertToInstanceNodeSessionId();
+            }
+        } catch (IdentifierException e) {
+            return false;
+        }
+        synchronized (confirmedCapabilities) {
+            final Set<String> capabilities = confirmedCapabilities.get(nodeSessionId);
+            if (capabilities != null && capabilities.contains(propertyKey)) {
+                return true;
+            }
+        }
+        if (!NodePropertyConstants.VALUE_TRUE.equals(nodePropertiesService.getNodeProperties(nodeSessionId).get(propertyKey))) {
+            return false;
+        }
+        synchronized (confirmedCapabilities) {
+            confirmedCapabilities.computeIfAbsent(nodeSessionId, key -> new HashSet<>()).add(propertyKey);
+        }
+        return true;
+    }
+
+    private RemotableEndpointDatumDispatcher getDestinationDispatcher(NetworkDestination networkDestination) {
+        synchronized (destinationDispatchers) {
+            RemotableEndpointDatumDispatcher dispatcher = destinationDispatchers.get(networkDestination);
+            if (dispatcher == null) {
+                dispatcher = communicationService.getRemotableService(RemotableEndpointDatumDispatcher.class, networkDestination);
+                destinationDispatchers.put(networkDestination, dispatcher);
+            }
+            return dispatcher;
+        }
+    }
+
     protected void callbackComponentExecutionController(EndpointDatum endpointDatum, RemoteOperationException e) {
         if (platformService.matchesLocalInstance(endpointDatum.getOutputsNodeId())) {
             callbackComponentExecutionControllerLocally(endpointDatum, e);
@@ -210,15 +432,15 @@ public class EndpointDatumDispatcherImpl implements EndpointDatumDispatchService
     }
 
     private ComponentExecutionController getComponentExecutionController(String executionId) throws ExecutionControllerException {
+        final WeakReference<ComponentExecutionController> reference = compExeCtrls.get(executionId);
         ComponentExecutionController compExeCtrl = null;
-        synchronized (compExeCtrls) {
-            if (compExeCtrls.containsKey(executionId)) {
-                compExeCtrl = compExeCtrls.get(executionId).get();
-            }
-            if (compExeCtrl == null) {
-                compExeCtrl = exeCtrlUtilsService.getExecutionController(ComponentExecutionController.class, executionId, bundleContext);
-                compExeCtrls.put(executionId, new WeakReference<ComponentExecutionController>(compExeCtrl));
-            }
+        if (reference != null) {
+            compExeCtrl = reference.get();
+        }
+        if (compExeCtrl == null) {
+            // note: concurrent lookups for the same id are possible, but harmless
+            compExeCtrl = exeCtrlUtilsService.getExecutionController(ComponentExecutionController.class, executionId, bundleContext);
+            compExeCtrls.put(executionId, new WeakReference<ComponentExecutionController>(compExeCtrl));
         }
         return compExeCtrl;
     }
@@ -238,6 +460,16 @@ public class EndpointDatumDispatcherImpl implements EndpointDatumDispatchService
         platformService = newService;
     }
 
+    @Reference
+    protected void bindNodePropertiesService(NodePropertiesService newService) {
+        nodePropertiesService = newService;
+    }
+
+    @Reference
+    protected void bindLiveNetworkIdResolutionService(LiveNetworkIdResolutionService newService) {
+        idResolutionService = newService;
+    }
+
     @Reference
     protected void bindEndpointDatumSerializer(EndpointDatumSerializer newService) {
         endpointDatumSerializer = newService;
@@ -8,6 +8,19 @@
 
 package de.rcenvironment.core.component.execution.internal;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.collections4.map.LRUMap;
+
+import de.rcenvironment.core.communication.common.LogicalNodeId;
 import de.rcenvironment.core.communication.common.NodeIdentifierUtils;
 import de.rcenvironment.core.component.execution.api.EndpointDatumSerializer;
 import de.rcenvironment.core.component.model.endpoint.api.EndpointDatum;
@@ -18,18 +31,50 @@ import de.rcenvironment.core.datamodel.api.DataType;
 import de.rcenvironment.core.datamodel.api.TypedDatum;
 import de.rcenvironment.core.datamodel.api.TypedDatumSerializer;
 import de.rcenvironment.core.datamodel.api.TypedDatumService;
+import de.rcenvironment.core.datamodel.types.api.BooleanTD;
+import de.rcenvironment.core.datamodel.types.api.FloatTD;
+import de.rcenvironment.core.datamodel.types.api.IntegerTD;
 import de.rcenvironment.core.utils.common.StringUtils;
 
 /**
  * Implementation of {@link EndpointDatumSerializer}.
+ * <p>
+ * The binary format starts with a version byte, followed by a table of the distinct node and execution ids of the datum; the id fields
+ * refer to entries of this table, as they frequently repeat (e.g. if the workflow controller is located on one of the component nodes).
+ * The value is written after a type tag, using the plain primitive representation for numeric and boolean values, and the string
+ * representation for all other types.
  * 
  * @author Doreen Seider
  * @author Robert Mischke (8.0.0 id adaptations)
  */
 public class EndpointDatumSerializerImpl implements EndpointDatumSerializer {
 
+    private static final byte BINARY_FORMAT_VERSION = 1;
+
+    private static final byte VALUE_TAG_INTERNAL = 0;
+
+    private static final byte VALUE_TAG_FLOAT = 1;
+
+    private static final byte VALUE_TAG_INTEGER = 2;
+
+    private static final byte VALUE_TAG_BOOLEAN = 3;
+
+    private static final byte VALUE_TAG_SERIALIZED = 4;
+
+    // inputs/outputs execution ids, destination/outputs/workflow controller node ids, and the workflow execution id
+    private static final int MAX_ID_TABLE_SIZE = 6;
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private static final int NODE_ID_CACHE_SIZE = 100;
+
+    // parsing node id strings is comparatively expensive, and there are usually only few distinct ones per workflow
+    private final Map<String, LogicalNodeId> parsedNodeIdCache = new LRUMap<>(NODE_ID_CACHE_SIZE);
+
     private TypedDatumSerializer typedDatumSerializer;
 
+    private TypedDatumService typedDatumService;
+
     @Override
     public String serializeEndpointDatum(EndpointDatum endpoint) {
         String[] parts = new String[10];
@@ -85,7 +130,176 @@ public class EndpointDatumSerializerImpl implements EndpointDatumSerializer {
         return endpoint;
     }
 
-    protected void bindTypedDatumService(TypedDatumService typedDatumService) {
-        typedDatumSerializer = typedDatumService.getSerializer();
+    @Override
+    public byte[] encodeEndpointDatum(EndpointDatum endpoint) {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try (DataOutputStream output = new DataOutputStream(buffer)) {
+            output.writeByte(BINARY_FORMAT_VERSION);
+
+            final List<String> idTable = new ArrayList<>(MAX_ID_TABLE_SIZE);
+            final int inputsCompExeIdIndex = addToIdTable(idTable, endpoint.getInputsComponentExecutionIdentifier());
+            final int destinationNodeIdIndex = addToIdTable(idTable, endpoint.getDestinationNodeId().getLogicalNodeIdString());
+            final int outputsCompExeIdIndex = addToIdTable(idTable, endpoint.getOutputsComponentExecutionIdentifier());
+            final int outputsNodeIdIndex = addToIdTable(idTable, endpoint.getOutputsNodeId().getLogicalNodeIdString());
+            final int workflowExeIdIndex = addToIdTable(idTable, endpoint.getWorkflowExecutionIdentifier());
+            final int workflowNodeIdIndex = addToIdTable(idTable, endpoint.getWorkflowControllerLocation().getLogicalNodeIdString());
+            output.writeByte(idTable.size());
+            for (String id : idTable) {
+                output.writeUTF(id);
+            }
+
+            output.writeUTF(endpoint.getInputName());
+            output.writeUTF(endpoint.getInputsComponentInstanceName());
+            output.writeByte(inputsCompExeIdIndex);
+            output.writeByte(destinationNodeIdIndex);
+            output.writeByte(outputsCompExeIdIndex);
+            output.writeByte(outputsNodeIdIndex);
+            output.writeByte(workflowExeIdIndex);
+            output.writeByte(workflowNodeIdIndex);
+
+            final Long dataManagementId = endpoint.getDataManagementId();
+            output.writeBoolean(dataManagementId != null);
+            if (dataManagementId != null) {
+                output.writeLong(dataManagementId);
+            }
+
+            writeValue(output, endpoint.getValue());
+        } catch (IOException e) {
+            // not expected for in-memory streams
+            throw new IllegalStateException("Failed to encode endpoint datum", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    @Override
+    public EndpointDatum decodeEndpointDatum(byte[] encodedEndpoint) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(encodedEndpoint))) {
+            final byte version = input.readByte();
+            if (version != BINARY_FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported endpoint datum format version: " + version);
+            }
+
+            final String[] idTable = new String[input.readUnsignedByte()];
+            for (int i = 0; i < idTable.length; i++) {
+                idTable[i] = input.readUTF();
+            }
+
+            final String inputName = input.readUTF();
+            final String inputsCompInstanceName = input.readUTF();
+            final String inputsCompExeId = readFromIdTable(input, idTable);
+            final LogicalNodeId destinationNodeId = getParsedNodeId(readFromIdTable(input, idTable));
+
+            EndpointDatumImpl endpoint = new EndpointDatumImpl();
+            endpoint.setEndpointDatumRecipient(EndpointDatumRecipientFactory.createEndpointDatumRecipient(inputName, inputsCompExeId,
+                inputsCompInstanceName, destinationNodeId));
+            endpoint.setOutputsComponentExecutionIdentifier(readFromIdTable(input, idTable));
+            endpoint.setOutputsNodeId(getParsedNodeId(readFromIdTable(input, idTable)));
+            endpoint.setWorkflowExecutionIdentifier(readFromIdTable(input, idTable));
+            endpoint.setWorkflowNodeId(getParsedNodeId(readFromIdTable(input, idTable)));
+            if (input.readBoolean()) {
+                endpoint.setDataManagementId(input.readLong());
+            }
+            endpoint.setValue(readValue(input));
+            return endpoint;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed endpoint datum data", e);
+        }
+    }
+
+    private int addToIdTable(List<String> idTable, String id) {
+        final int existingIndex = idTable.indexOf(id);
+        if (existingIndex >= 0) {
+            return existingIndex;
+        }
+        idTable.add(id);
+        return idTable.size() - 1;
+    }
+
+    private String readFromIdTable(DataInputStream input, String[] idTable) throws IOException {
+        final int index = input.readUnsignedByte();
+        if (index >= idTable.length) {
+            throw new IOException("Invalid id table index: " + index);
+        }
+        return idTable[index];
+    }
+
+    private LogicalNodeId getParsedNodeId(String nodeIdString) {
+        synchronized (parsedNodeIdCache) {
+            LogicalNodeId nodeId = parsedNodeIdCache.get(nodeIdString);
+            if (nodeId == null) {
+                nodeId = NodeIdentifierUtils.parseArbitraryIdStringToLogicalNodeIdWithExceptionWrapping(nodeIdString);
+                parsedNodeIdCache.put(nodeIdString, nodeId);
+            }
+            return nodeId;
+        }
+    }
+
+    private void writeValue(DataOutputStream output, TypedDatum value) throws IOException {
+        switch (value.getDataType()) {
+        case Internal:
+            output.writeByte(VALUE_TAG_INTERNAL);
+            writeLongString(output, ((InternalTDImpl) value).serialize());
+            break;
+        case Float:
+            output.writeByte(VALUE_TAG_FLOAT);
+            output.writeDouble(((FloatTD) value).getFloatValue());
+            break;
+        case Integer:
+            output.writeByte(VALUE_TAG_INTEGER);
+            output.writeLong(((IntegerTD) value).getIntValue());
+            break;
+        case Boolean:
+            output.writeByte(VALUE_TAG_BOOLEAN);
+            output.writeBoolean(((BooleanTD) value).getBooleanValue());
+            break;
+        default:
+            output.writeByte(VALUE_TAG_SERIALIZED);
+            writeLongString(output, typedDatumSerializer.serialize(value));
+            break;
+        }
+    }
+
+    private TypedDatum readValue(DataInputStream input) throws IOException {
+        final byte tag = input.readByte();
+        switch (tag) {
+        case VALUE_TAG_INTERNAL:
+            final InternalTDImpl internalTD = InternalTDImpl.fromString(readLongString(input));
+            if (internalTD == null) {
+                throw new IOException("Invalid internal value");
+            }
+            return internalTD;
+        case VALUE_TAG_FLOAT:
+            return typedDatumService.getFactory().createFloat(input.readDouble());
+        case VALUE_TAG_INTEGER:
+            return typedDatumService.getFactory().createInteger(input.readLong());
+        case VALUE_TAG_BOOLEAN:
+            return typedDatumService.getFactory().createBoolean(input.readBoolean());
+        case VALUE_TAG_SERIALIZED:
+            return typedDatumSerializer.deserialize(readLongString(input));
+        default:
+            throw new IOException("Invalid value type tag: " + tag);
+        }
+    }
+
+    // unlike writeUTF(), not limited to 64k bytes, which may be exceeded by serialized values (e.g. small tables)
+    private void writeLongString(DataOutputStream output, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private String readLongString(DataInputStream input) throws IOException {
+        final int length = input.readInt();
+        if (length < 0 || length > input.available()) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    protected void bindTypedDatumService(TypedDatumService newService) {
+        typedDatumService = newService;
+        typedDatumSerializer = newService.getSerializer();
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamanagement.backend.data.efs.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CompressionCodecSelector} and the {@link CompressionCodecs} it selects from.
+ * 
+ * @author agent
+ */
+public class CompressionCodecSelectorTest {
+
+    private static final int RANDOM_SEED = 42;
+
+    /**
+     * Verifies that data starting with the signature of a compressed format is stored uncompressed, regardless of its size.
+     */
+    @Test
+    public void compressedFormatsAreStoredUncompressed() {
+        final byte[] sample = createCompressibleData(CompressionCodecSelector.SAMPLE_SIZE);
+        sample[0] = 0x1f; // gzip signature
+        sample[1] = (byte) 0x8b;
+        assertEquals(CompressionCodecs.NONE, CompressionCodecSelector.select(sample, sample.length, false));
+        assertEquals(CompressionCodecs.NONE, CompressionCodecSelector.select(sample, 100, true));
+    }
+
+    /**
+     * Verifies that small files are compressed with gzip, and large files depending on their compressibility.
+     */
+    @Test
+    public void codecDependsOnSizeAndCompressibility() {
+        final byte[] compressible = createCompressibleData(CompressionCodecSelector.SAMPLE_SIZE);
+        assertEquals(CompressionCodecs.GZIP, CompressionCodecSelector.select(compressible, 1000, true));
+        assertEquals(CompressionCodecs.LZ4, CompressionCodecSelector.select(compressible, compressible.length, false));
+
+        final byte[] random = createRandomData(CompressionCodecSelector.SAMPLE_SIZE);
+        assertEquals(CompressionCodecs.NONE, CompressionCodecSelector.select(random, random.length, false));
+
+        assertEquals(CompressionCodecs.GZIP, CompressionCodecSelector.select(new byte[0], 0, true));
+    }
+
+    /**
+     * Verifies that all codecs reproduce the original data, and have unique file suffixes.
+     * 
+     * @throws IOException on unexpected errors
+     */
+    @Test
+    public void codecRoundTrips() throws IOException {
+        final byte[] data = createCompressibleData(3 * CompressionCodecSelector.SAMPLE_SIZE);
+        final Set<String> suffixes = new HashSet<>();
+        for (CompressionCodec codec : CompressionCodecs.getAll()) {
+            assertTrue(suffixes.add(codec.getFileSuffix()));
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (OutputStream compressingStream = codec.createCompressingStream(buffer)) {
+                compressingStream.write(data);
+            }
+            try (InputStream decompressingStream = codec.createDecompressingStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+                assertArrayEquals(data, readFully(decompressingStream));
+            }
+        }
+    }
+
+    private byte[] readFully(InputStream stream) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8 * 1024];
+        int n;
+        while ((n = stream.read(buffer)) != -1) {
+            result.write(buffer, 0, n);
+        }
+        return result.toByteArray();
+    }
+
+    private byte[] createCompressibleData(int length) {
+        final byte[] pattern = "some moderately repetitive text data; ".getBytes(StandardCharsets.UTF_8);
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = pattern[i % pattern.length];
+        }
+        return data;
+    }
+
+    private byte[] createRandomData(int length) {
+        final byte[] data = new byte[length];
+        new Random(RANDOM_SEED).nextBytes(data);
+        return data;
+    }
+}
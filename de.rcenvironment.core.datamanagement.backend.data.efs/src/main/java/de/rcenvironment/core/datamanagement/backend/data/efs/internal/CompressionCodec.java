@@ -0,0 +1,42 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamanagement.backend.data.efs.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A storage format of the {@link EFSDataBackend}. The codec of a stored file is identified by its file name suffix, so reading never
+ * requires external information about how the file was written; in particular, the compression format recorded in binary references is
+ * not affected by the codec choice. See {@link CompressionCodecs} for the available implementations.
+ * 
+ * @author agent
+ */
+interface CompressionCodec {
+
+    /**
+     * @return the suffix to append to the storage file name; must be unique among all codecs, and empty for uncompressed storage
+     */
+    String getFileSuffix();
+
+    /**
+     * @param target the stream to write the compressed data to
+     * @return a stream that compresses all data written to it into the given stream
+     * @throws IOException on stream setup errors
+     */
+    OutputStream createCompressingStream(OutputStream target) throws IOException;
+
+    /**
+     * @param source the stream to read the compressed data from
+     * @return a stream providing the decompressed data
+     * @throws IOException on stream setup errors
+     */
+    InputStream createDecompressingStream(InputStream source) throws IOException;
+}
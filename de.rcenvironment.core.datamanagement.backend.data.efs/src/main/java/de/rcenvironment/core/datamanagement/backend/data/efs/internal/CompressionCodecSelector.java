@@ -0,0 +1,110 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamanagement.backend.data.efs.internal;
+
+import java.util.zip.Deflater;
+
+/**
+ * Chooses the {@link CompressionCodec} for a file to store based on a sample of its beginning:
+ * <ul>
+ * <li>files starting with the signature of a compressed (or typically compressed) format are stored uncompressed;</li>
+ * <li>files that are entirely contained in the sample are stored with {@link CompressionCodecs#GZIP}, as the CPU cost is negligible;</li>
+ * <li>larger files are stored uncompressed if compressing the sample does not save a relevant amount of space, and with
+ * {@link CompressionCodecs#LZ4} otherwise.</li>
+ * </ul>
+ * 
+ * @author agent
+ */
+final class CompressionCodecSelector {
+
+    /**
+     * The number of bytes that should be provided as a sample, if available.
+     */
+    static final int SAMPLE_SIZE = 64 * 1024;
+
+    // the minimum relative size reduction of the sample to consider a file compressible
+    private static final double MIN_SAMPLE_SPACE_SAVING = 0.1;
+
+    // file signatures of formats that are compressed (zip, gzip, bzip2, xz, zstd, lz4, 7z, png, jpeg) or typically contain
+    // compressed data (HDF5)
+    private static final byte[][] COMPRESSED_FORMAT_SIGNATURES = {
+        { 'P', 'K', 3, 4 },
+        { 0x1f, (byte) 0x8b },
+        { 'B', 'Z', 'h' },
+        { (byte) 0xfd, '7', 'z', 'X', 'Z', 0 },
+        { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd },
+        { 0x04, 0x22, 0x4d, 0x18 },
+        { '7', 'z', (byte) 0xbc, (byte) 0xaf, 0x27, 0x1c },
+        { (byte) 0x89, 'P', 'N', 'G' },
+        { (byte) 0xff, (byte) 0xd8, (byte) 0xff },
+        { (byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n' }
+    };
+
+    private CompressionCodecSelector() {}
+
+    /**
+     * @param sample the buffer containing the sample
+     * @param sampleLength the number of valid bytes in the sample buffer
+     * @param isCompleteFile true if the sample contains the complete file
+     * @return the codec to use
+     */
+    static CompressionCodec select(byte[] sample, int sampleLength, boolean isCompleteFile) {
+        if (hasCompressedFormatSignature(sample, sampleLength)) {
+            return CompressionCodecs.NONE;
+        }
+        if (isCompleteFile) {
+            return CompressionCodecs.GZIP;
+        }
+        if (getCompressedSampleSize(sample, sampleLength) > sampleLength * (1.0 - MIN_SAMPLE_SPACE_SAVING)) {
+            return CompressionCodecs.NONE;
+        }
+        return CompressionCodecs.LZ4;
+    }
+
+    private static boolean hasCompressedFormatSignature(byte[] sample, int sampleLength) {
+        for (byte[] signature : COMPRESSED_FORMAT_SIGNATURES) {
+            if (startsWith(sample, sampleLength, signature)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(byte[] sample, int sampleLength, byte[] prefix) {
+        if (sampleLength < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (sample[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int getCompressedSampleSize(byte[] sample, int sampleLength) {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(sample, 0, sampleLength);
+            deflater.finish();
+            final byte[] output = new byte[sampleLength];
+            int compressedSize = 0;
+            while (!deflater.finished()) {
+                compressedSize += deflater.deflate(output);
+                if (compressedSize >= sampleLength) {
+                    // no need to continue; the sample is not compressible
+                    break;
+                }
+            }
+            return compressedSize;
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamanagement.backend.data.efs.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorOutputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream.BlockSize;
+
+/**
+ * The {@link CompressionCodec} implementations supported by the {@link EFSDataBackend}. To add a codec, implement it here and
+ * register it in {@link #getAll()}.
+ * 
+ * @author agent
+ */
+final class CompressionCodecs {
+
+    /**
+     * Uncompressed storage; used for data that is already compressed or not compressible.
+     */
+    static final CompressionCodec NONE = new CompressionCodec() {
+
+        @Override
+        public String getFileSuffix() {
+            return "";
+        }
+
+        @Override
+        public OutputStream createCompressingStream(OutputStream target) {
+            return target;
+        }
+
+        @Override
+        public InputStream createDecompressingStream(InputStream source) {
+            return source;
+        }
+    };
+
+    /**
+     * The gzip format; the best compression ratio of all codecs, but CPU-bound well below disk speed on large files. Also the format of
+     * all compressed files written by previous versions.
+     */
+    static final CompressionCodec GZIP = new CompressionCodec() {
+
+        @Override
+        public String getFileSuffix() {
+            return ".gz";
+        }
+
+        @Override
+        public OutputStream createCompressingStream(OutputStream target) throws IOException {
+            return new GzipCompressorOutputStream(target);
+        }
+
+        @Override
+        public InputStream createDecompressingStream(InputStream source) throws IOException {
+            return new GzipCompressorInputStream(source);
+        }
+    };
+
+    /**
+     * The LZ4 frame format, using the pure Java implementation of Commons Compress tuned for speed; trades compression ratio for
+     * throughput on large files.
+     */
+    static final CompressionCodec LZ4 = new CompressionCodec() {
+
+        @Override
+        public String getFileSuffix() {
+            return ".lz4";
+        }
+
+        @Override
+        public OutputStream createCompressingStream(OutputStream target) throws IOException {
+            return new FramedLZ4CompressorOutputStream(target, new FramedLZ4CompressorOutputStream.Parameters(BlockSize.M4,
+                BlockLZ4CompressorOutputStream.createParameterBuilder().tunedForSpeed().build()));
+        }
+
+        @Override
+        public InputStream createDecompressingStream(InputStream source) throws IOException {
+            return new FramedLZ4CompressorInputStream(source);
+        }
+    };
+
+    // note: the order defines the order in which storage files are probed on reading
+    private static final List<CompressionCodec> ALL_CODECS = Collections.unmodifiableList(Arrays.asList(NONE, GZIP, LZ4));
+
+    private CompressionCodecs() {}
+
+    /**
+     * @return all supported codecs
+     */
+    static List<CompressionCodec> getAll() {
+        return ALL_CODECS;
+    }
+}
@@ -20,8 +20,6 @@ import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.eclipse.core.filesystem.EFS;
@@ -50,8 +48,6 @@ public class EFSDataBackend implements DataBackend {
 
     private static final String SLASH = "/";
 
-    private static final String ZIP_FILE_SUFFIX = ".gz";
-
     private static final String STORAGE_SUBDIRECTORY = "data";
 
     private static final String FAILED_TO_WRITE_FILE_FOR_URI = "Failed to write file for URI ";
@@ -129,14 +125,12 @@ public class EFSDataBackend implements DataBackend {
         }
 
         try {
-            File fileToDelete = new File(getFileStorageRoot().getAbsolutePath() + new File(uri.getRawPath()).getPath());
-            if (!fileToDelete.exists()) {
-                fileToDelete = new File(getFileStorageRoot().getAbsolutePath() + new File(uri.getRawPath()).getPath() + ZIP_FILE_SUFFIX);
-            }
-            if (!fileToDelete.exists()) {
+            final CompressionCodec codec = findStorageCodec(uri);
+            if (codec == null) {
                 log.debug("Given URI representing a file to delete could not be resolved to an existing path in the file store: "
-                    + fileToDelete.getAbsolutePath());
+                    + getStorageFile(uri, CompressionCodecs.NONE).getAbsolutePath());
             } else {
+                File fileToDelete = getStorageFile(uri, codec);
                 IFileStore fileStore = encapsulatedEFSService.getStore(fileToDelete.toURI());
                 fileStore.delete(EFS.NONE, null);
                 deleted = true;
@@ -174,19 +168,19 @@ public class EFSDataBackend implements DataBackend {
         }
 
         try {
-            boolean isZipped = false;
-            File fileToGet = new File(getFileStorageRoot().getAbsolutePath() + new File(uri.getRawPath()).getPath());
-            if (!fileToGet.exists()) {
-                fileToGet = new File(getFileStorageRoot().getAbsolutePath() + new File(uri.getRawPath()).getPath() + ZIP_FILE_SUFFIX);
-                isZipped = true;
+            CompressionCodec codec = findStorageCodec(uri);
+            if (codec == null) {
+                // keep the previous behavior of failing on opening a non-existing (gzip) file
+                codec = CompressionCodecs.GZIP;
             }
-            fileStore = encapsulatedEFSService.getStore(fileToGet.toURI());
+            fileStore = encapsulatedEFSService.getStore(getStorageFile(uri, codec).toURI());
 
             InputStream storageInputStream;
             // get buffered storage file stream
-            if (isZipped && decompress) {
+            if (decompress) {
                 storageInputStream =
-                    new BufferedInputStream(new GzipCompressorInputStream(fileStore.openInputStream(EFS.NONE, null)), STREAM_BUFFER_SIZE);
+                    new BufferedInputStream(codec.createDecompressingStream(fileStore.openInputStream(EFS.NONE, null)),
+                        STREAM_BUFFER_SIZE);
             } else {
                 storageInputStream = new BufferedInputStream(fileStore.openInputStream(EFS.NONE, null), STREAM_BUFFER_SIZE);
             }
@@ -229,15 +223,19 @@ public class EFSDataBackend implements DataBackend {
 
             OutputStream storageOutputStream = null;
             IFileStore fileStore = null;
+            // read the beginning of the file to choose the compression codec from
+            final byte[] sample = new byte[CompressionCodecSelector.SAMPLE_SIZE];
+            int sampleLength = 0;
             try {
-                File fileToSave;
-                IFileStore parent = null;
+                final CompressionCodec codec;
                 if (useGZipCompression && !alreadyCompressed) {
-                    fileToSave = new File(getFileStorageRoot().getAbsolutePath() + new File(uri.getRawPath()).getPath() + ZIP_FILE_SUFFIX);
+                    sampleLength = readSample(inputStream, sample);
+                    codec = CompressionCodecSelector.select(sample, sampleLength, sampleLength < sample.length);
                 } else {
-                    fileToSave = new File(getFileStorageRoot().getAbsolutePath() + new File(uri.getRawPath()).getPath());
-
+                    codec = CompressionCodecs.NONE;
                 }
+                File fileToSave = getStorageFile(uri, codec);
+                IFileStore parent = null;
                 fileStore = encapsulatedEFSService.getStore(fileToSave.toURI());
                 parent = fileStore.getParent();
                 if (parent != null && isParentValid(parent.getName())) {
@@ -246,13 +244,9 @@ public class EFSDataBackend implements DataBackend {
 
 
                 // get buffered storage file stream for writing
-                if (useGZipCompression && !alreadyCompressed) {
-                    storageOutputStream =
-                        new BufferedOutputStream(new GzipCompressorOutputStream(fileStore.openOutputStream(EFS.NONE, null)),
-                            STREAM_BUFFER_SIZE);
-                } else {
-                    storageOutputStream = new BufferedOutputStream(fileStore.openOutputStream(EFS.NONE, null), STREAM_BUFFER_SIZE);
-                }
+                storageOutputStream =
+                    new BufferedOutputStream(codec.createCompressingStream(fileStore.openOutputStream(EFS.NONE, null)),
+                        STREAM_BUFFER_SIZE);
             } catch (CoreException e) {
                 // TODO review: RTEs should only be thrown when unavoidable; change method API to
                 // declare explicit exceptions - misc_ro
@@ -267,6 +261,8 @@ public class EFSDataBackend implements DataBackend {
                 final int minusOne = -1;
                 final int bufferSize = 256 * 1024;
                 byte[] buffer = new byte[bufferSize];
+                storageOutputStream.write(sample, 0, sampleLength);
+                writtenBytes += sampleLength;
                 int n = 0;
                 while (minusOne != (n = inputStream.read(buffer))) {
                     storageOutputStream.write(buffer, 0, n);
@@ -305,6 +301,74 @@ public class EFSDataBackend implements DataBackend {
         return writtenBytes;
     }
 
+    @Override
+    public boolean exists(URI uri) {
+        if (!isURIValid(uri)) {
+            throw new IllegalArgumentException("Given URI representing a stored file is not valid: " + uri);
+        }
+        return findStorageCodec(uri) != null;
+    }
+
+    @Override
+    // synchronized to make the check for an existing target and the actual move atomic
+    public synchronized boolean move(URI source, URI target) {
+        if (!isURIValid(source) || !isURIValid(target)) {
+            throw new IllegalArgumentException("Given URIs representing the source and target of a move are not valid: " + source + ", "
+                + target);
+        }
+        if (findStorageCodec(target) != null) {
+            return false;
+        }
+        final CompressionCodec codec = findStorageCodec(source);
+        if (codec == null) {
+            throw new RuntimeException("File with given URI could not be found: " + source);
+        }
+        try {
+            // note: as the codec is part of the file name, the moved file keeps its storage format
+            IFileStore sourceStore = encapsulatedEFSService.getStore(getStorageFile(source, codec).toURI());
+            IFileStore targetStore = encapsulatedEFSService.getStore(getStorageFile(target, codec).toURI());
+            sourceStore.move(targetStore, EFS.NONE, null);
+        } catch (CoreException e) {
+            // not wrapping the CoreException for the same reason as in delete()
+            throw new RuntimeException("File with given URI could not be moved: " + source + " (Message: " + e.getMessage() + ")",
+                e.getCause());
+        }
+        return true;
+    }
+
+    /**
+     * Fills the given buffer from the given stream until it is full or the end of the stream is reached.
+     * 
+     * @return the number of bytes read; less than the buffer size if the end of the stream was reached
+     */
+    private int readSample(InputStream inputStream, byte[] sample) throws IOException {
+        int length = 0;
+        while (length < sample.length) {
+            final int n = inputStream.read(sample, length, sample.length - length);
+            if (n <= 0) {
+                break;
+            }
+            length += n;
+        }
+        return length;
+    }
+
+    /**
+     * @return the codec the file for the given URI is stored with, or null if there is no such file
+     */
+    private CompressionCodec findStorageCodec(URI uri) {
+        for (CompressionCodec codec : CompressionCodecs.getAll()) {
+            if (getStorageFile(uri, codec).exists()) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    private File getStorageFile(URI uri, CompressionCodec codec) {
+        return new File(getFileStorageRoot().getAbsolutePath() + new File(uri.getRawPath()).getPath() + codec.getFileSuffix());
+    }
+
     /**
      * Checks if the given name resembles a valid URI for the parent directory of a persisted file.
      * 
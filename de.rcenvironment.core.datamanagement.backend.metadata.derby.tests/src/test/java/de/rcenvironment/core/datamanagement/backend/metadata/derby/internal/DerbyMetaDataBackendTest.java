@@ -11,6 +11,7 @@ package de.rcenvironment.core.datamanagement.backend.metadata.derby.internal;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -78,6 +79,8 @@ public class DerbyMetaDataBackendTest {
 
     private static final int MILLISECONDS_1000 = 1000;
 
+    private static final int MILLISECONDS_100 = 100;
+
     // "safety net" test timeout to avoid blocking continuous integration test runs
     private static final int COMPLEX_SCENARIO_TEST_TIMEOUT = 300000;
 
@@ -256,6 +259,31 @@ public class DerbyMetaDataBackendTest {
 
     }
 
+    /**
+     * Tests that journaled writes are visible to subsequent reads, and that repeated history data item updates are coalesced.
+     */
+    @Test
+    public void testJournaledWritesAreVisibleAfterComponentRunFinished() {
+        Long wfRunId =
+            derbyMetaDataBackend.addWorkflowRun(STRING_TEST_RUN, DataManagementIdMapping.createDummyNodeIdStringForTesting(),
+                DataManagementIdMapping.createDummyNodeIdStringForTesting(),
+                System.currentTimeMillis());
+        Long ciid = derbyMetaDataBackend.addComponentInstances(wfRunId, createComponentInstances(1)).values().iterator().next();
+        Long crunId = derbyMetaDataBackend.addComponentRun(ciid, DataManagementIdMapping.createDummyNodeIdStringForTesting(), 1,
+            System.currentTimeMillis());
+        derbyMetaDataBackend.setOrUpdateHistoryDataItem(crunId, "first");
+        derbyMetaDataBackend.setOrUpdateHistoryDataItem(crunId, "second");
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("testkey", "testvalue");
+        derbyMetaDataBackend.addComponentRunProperties(crunId, properties);
+        derbyMetaDataBackend.setComponentRunFinished(crunId, System.currentTimeMillis() + MILLISECONDS_1000,
+            FinalComponentRunState.FINISHED);
+
+        ComponentRun run = derbyMetaDataBackend.getComponentRuns(ciid).iterator().next();
+        assertEquals("second", run.getHistoryDataItem());
+        assertEquals(properties, derbyMetaDataBackend.getComponentRunProperties(crunId));
+    }
+
     /** Test. */
     @Test(timeout = COMPLEX_SCENARIO_TEST_TIMEOUT)
     public void testAddDeleteData() {
@@ -308,6 +336,50 @@ public class DerbyMetaDataBackendTest {
             succcessCount);
     }
 
+    /**
+     * Tests that data references can only share binary data that is still referenced, that the {@link BinaryReference} datasets are
+     * removed with the last data reference using them, and that shared data is only deleted once it is unreferenced.
+     * 
+     * @throws InterruptedException on interruption
+     */
+    @Test
+    public void testSharedBinaryReferences() throws InterruptedException {
+        final Long wfRunId = addTestWorkflowRun();
+        final Long ciId = derbyMetaDataBackend.addComponentInstances(wfRunId, createComponentInstances(1)).values().iterator().next();
+        final String sharedKey = UUID.randomUUID().toString();
+        final DataReference firstReference = createDataReference(sharedKey);
+        assertNotNull(derbyMetaDataBackend.addDataReferenceToComponentInstance(ciId, firstReference));
+        assertNotNull(derbyMetaDataBackend.addDataReferenceToComponentInstance(ciId, createDataReference(sharedKey), true));
+        assertNull(derbyMetaDataBackend.addDataReferenceToComponentInstance(ciId, createDataReference(UUID.randomUUID().toString()), true));
+        assertFalse(derbyMetaDataBackend.deleteBinaryDataIfUnreferenced(sharedKey, () -> {
+            throw new AssertionError("Data in use must not be deleted");
+        }));
+
+        derbyMetaDataBackend.setWorkflowRunFinished(wfRunId, System.currentTimeMillis(), FinalWorkflowState.FINISHED);
+        assertTrue(derbyMetaDataBackend.deleteWorkflowRunFiles(wfRunId));
+        // the deletion is performed asynchronously
+        final long deadline = System.currentTimeMillis() + COMPLEX_SCENARIO_TEST_TIMEOUT;
+        while (derbyMetaDataBackend.getDataReference(firstReference.getDataReferenceKey()) != null) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(MILLISECONDS_100);
+        }
+        final Long otherCiId =
+            derbyMetaDataBackend.addComponentInstances(addTestWorkflowRun(), createComponentInstances(1)).values().iterator().next();
+        assertNull(derbyMetaDataBackend.addDataReferenceToComponentInstance(otherCiId, createDataReference(sharedKey), true));
+        assertTrue(derbyMetaDataBackend.deleteBinaryDataIfUnreferenced(sharedKey, () -> { }));
+    }
+
+    private Long addTestWorkflowRun() {
+        return derbyMetaDataBackend.addWorkflowRun(STRING_TEST_RUN, DataManagementIdMapping.createDummyNodeIdStringForTesting(),
+            DataManagementIdMapping.createDummyNodeIdStringForTesting(), System.currentTimeMillis());
+    }
+
+    private DataReference createDataReference(String binaryReferenceKey) {
+        Set<BinaryReference> brefs = new HashSet<BinaryReference>();
+        brefs.add(new BinaryReference(binaryReferenceKey, CompressionFormat.GZIP, "1"));
+        return new DataReference(UUID.randomUUID().toString(), NodeIdentifierTestUtils.createTestDefaultLogicalNodeId(), brefs);
+    }
+
     private void performAddDeleteWorkflowWithDataCycle(int numComponents, int numRunsPerComponent, long waitBeforeDeleteMsec) {
         Long wfRunId =
             derbyMetaDataBackend.addWorkflowRun(STRING_TEST_RUN, DataManagementIdMapping.createDummyNodeIdStringForTesting(),
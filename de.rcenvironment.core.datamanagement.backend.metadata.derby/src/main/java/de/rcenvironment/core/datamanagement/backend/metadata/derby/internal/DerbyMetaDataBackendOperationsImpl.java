@@ -173,6 +173,8 @@ public class DerbyMetaDataBackendOperationsImpl {
 
     private static final String IN = " IN ";
 
+    private static final String NOT_EXISTS = " NOT EXISTS ";
+
     /**
      * Adds a dataset to the workflow run table.
      * 
@@ -263,8 +265,9 @@ public class DerbyMetaDataBackendOperationsImpl {
                 stmt.setLong(1, relatedId);
                 stmt.setString(2, key);
                 stmt.setString(3, properties.get(key));
-                stmt.execute();
+                stmt.addBatch();
             }
+            stmt.executeBatch();
         }
     }
 
@@ -403,6 +406,32 @@ public class DerbyMetaDataBackendOperationsImpl {
         return endpointDataId;
     }
 
+    /**
+     * Adds multiple datasets to the endpoint data table using a single batch statement. Unlike
+     * {@link #addEndpointDatum(Long, Long, Long, Integer, Connection, boolean)}, the ids of the generated datasets are not returned.
+     * 
+     * @param endpointData the endpoint data to add
+     * @param connection the connection to the meta data database
+     * @param isRetry true if retrying
+     * @throws SQLException thrown on database SQL errors
+     */
+    void addEndpointData(Collection<MetaDataWriteJournal.EndpointDatumEntry> endpointData, Connection connection, boolean isRetry)
+        throws SQLException {
+        String endpointSql = INSERT_INTO + DB_PREFIX + TABLE_ENDPOINT_DATA + "("
+            + COMPONENT_RUN_ID + COMMA + TYPED_DATUM_ID + COMMA + ENDPOINT_INSTANCE_ID + COMMA + COUNTER + ")"
+            + VALUES + PLACEHOLDER_FOUR_VALUES;
+        try (PreparedStatement stmt = connection.prepareStatement(endpointSql)) {
+            for (MetaDataWriteJournal.EndpointDatumEntry entry : endpointData) {
+                stmt.setLong(1, entry.getComponentRunId());
+                stmt.setLong(2, entry.getTypedDatumId());
+                stmt.setLong(3, entry.getEndpointInstanceId());
+                stmt.setInt(4, entry.getCount());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     /**
      * Adds a dataset to the typed datum table.
      * 
@@ -602,6 +631,32 @@ public class DerbyMetaDataBackendOperationsImpl {
         return keys;
     }
 
+    /**
+     * Checks whether any {@link BinaryReference} dataset with the given key exists. As data with identical content is stored under the
+     * same key, the stored data must only be deleted if this is not the case.
+     * 
+     * @param binaryReferenceKey the binary reference key
+     * @param connection the connection to the meta data database
+     * @param isRetry true if retrying
+     * @return true if the key is still in use
+     * @throws SQLException thrown on database SQL errors
+     */
+    public boolean isBinaryReferenceKeyInUse(String binaryReferenceKey, Connection connection, boolean isRetry) throws SQLException {
+        String sql = SELECT + BINARY_REFERENCE_ID + FROM + DB_PREFIX + TABLE_BINARY_REFERENCE
+            + WHERE + BINARY_REFERENCE_KEY + EQUAL + QMARK;
+        boolean inUse = false;
+        try (PreparedStatement stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setMaxRows(1);
+            stmt.setString(1, binaryReferenceKey);
+            ResultSet rs = stmt.executeQuery();
+            if (rs != null) {
+                inUse = rs.next();
+                rs.close();
+            }
+        }
+        return inUse;
+    }
+
     /**
      * Adds a id based relation between a {@link DataReference} and a {@link WorkflowRun} dataset to the corresponding relation table.
      * 
@@ -855,8 +910,13 @@ public class DerbyMetaDataBackendOperationsImpl {
             DELETE_FROM + DB_PREFIX + REL_COMPONENTINSTANCE_DATAREFERENCE + WHERE + DATA_REFERENCE_ID + EQUAL + QMARK;
         String sqlRelWorkflowRunDataRef =
             DELETE_FROM + DB_PREFIX + REL_WORKFLOWRUN_DATAREFERENCE + WHERE + DATA_REFERENCE_ID + EQUAL + QMARK;
+        // as binary reference keys may be shared between data references, only delete binary references that are not related anymore;
+        // the correlated subquery is resolved via the primary key index of the relation table, which starts with the binary reference id
         String sqlBinaryRef =
-            DELETE_FROM + DB_PREFIX + TABLE_BINARY_REFERENCE + WHERE + BINARY_REFERENCE_KEY + EQUAL + QMARK;
+            DELETE_FROM + DB_PREFIX + TABLE_BINARY_REFERENCE + WHERE + BINARY_REFERENCE_KEY + EQUAL + QMARK
+                + AND + NOT_EXISTS + "(" + SELECT + BINARY_REFERENCE_ID + FROM + DB_PREFIX + REL_DATAREFERENCE_BINARYREFERENCE
+                + WHERE + DB_PREFIX + REL_DATAREFERENCE_BINARYREFERENCE + DOT + BINARY_REFERENCE_ID + EQUAL
+                + DB_PREFIX + TABLE_BINARY_REFERENCE + DOT + BINARY_REFERENCE_ID + ")";
         String sqlDataRef = DELETE_FROM + DB_PREFIX + TABLE_DATA_REFERENCE + WHERE + DATA_REFERENCE_ID + EQUAL + QMARK;
 
         try (PreparedStatement stmtRelBinaryDataRef =
@@ -1168,6 +1228,29 @@ public class DerbyMetaDataBackendOperationsImpl {
         }
     }
 
+    /**
+     * Batch variant of {@link #setTimelineIntervalFinished(Long, long, Connection, boolean)}.
+     * 
+     * @param endtimes the end times to set, mapped by timeline interval id
+     * @param connection the connection to the meta data database
+     * @param isRetry true if retrying
+     * @throws SQLException thrown on database SQL errors
+     */
+    public void setTimelineIntervalsFinished(Map<Long, Long> endtimes, Connection connection, boolean isRetry)
+        throws SQLException {
+        String sql = UPDATE + DB_PREFIX + TABLE_TIMELINE_INTERVAL + SET
+            + ENDTIME + EQUAL + QMARK
+            + WHERE + TIMELINE_INTERVAL_ID + EQUAL + QMARK;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (Map.Entry<Long, Long> entry : endtimes.entrySet()) {
+                stmt.setTimestamp(1, new Timestamp(entry.getValue()));
+                stmt.setLong(2, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     /**
      * Adds a collection of {@link EndpointInstance} datasets to the database and sets the relation to {@link ComponentInstance} data set
      * with the given id.
@@ -1726,6 +1809,28 @@ public class DerbyMetaDataBackendOperationsImpl {
         }
     }
 
+    /**
+     * Batch variant of {@link #setOrUpdateHistoryDataItem(Long, String, Connection, boolean)}.
+     * 
+     * @param historyDataItems the history data items to set, mapped by component run id
+     * @param connection the connection to the meta data database
+     * @param isRetry true if retrying
+     * @throws SQLException thrown on database SQL errors
+     */
+    public void setOrUpdateHistoryDataItems(Map<Long, String> historyDataItems, Connection connection, boolean isRetry)
+        throws SQLException {
+        String sql = UPDATE + DB_PREFIX + TABLE_COMPONENT_RUN + SET + HISTORY_DATA_ITEM + EQUAL + QMARK
+            + WHERE + COMPONENT_RUN_ID + EQUAL + QMARK;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (Map.Entry<Long, String> entry : historyDataItems.entrySet()) {
+                stmt.setString(1, entry.getValue());
+                stmt.setLong(2, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     /**
      * Updates the {@link FinalWorkflowState} of the {@link WorkflowRun} dataset to the status corrupted if the current dataset has no
      * {@link FinalWorkflowState}.
@@ -30,6 +30,9 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.dbcp.datasources.SharedPoolDataSource;
 import org.apache.commons.logging.Log;
@@ -103,6 +106,12 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
 
     private static final String METADATA_DB_NAME = "metadata";
 
+    // the maximum time that a journaled write may be delayed before being written to the database
+    private static final int WRITE_JOURNAL_FLUSH_DELAY_MSEC = 200;
+
+    // the number of pending journaled writes that causes the writing thread to flush them synchronously
+    private static final int WRITE_JOURNAL_MAX_PENDING_WRITES = 500;
+
     private final CountDownLatch initializationLatch = new CountDownLatch(1);
 
     private final DerbyMetaDataBackendOperationsImpl metaDataBackendOperations = new DerbyMetaDataBackendOperationsImpl();
@@ -122,6 +131,26 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
     private final AsyncOrderedExecutionQueue executionQueue = ConcurrencyUtils.getFactory().createAsyncOrderedExecutionQueue(
         AsyncCallbackExceptionPolicy.LOG_AND_PROCEED);
 
+    /**
+     * Collects writes that do not return a value (input data, properties, history data items, timeline interval end times), so that
+     * high-frequency writes from many component runs are committed in batches instead of one transaction per call. The journal is
+     * flushed after {@link #WRITE_JOURNAL_FLUSH_DELAY_MSEC}, when {@link #WRITE_JOURNAL_MAX_PENDING_WRITES} is reached, and before every
+     * operation that reads, finalizes or deletes data that may be affected by journaled writes.
+     */
+    private final MetaDataWriteJournal writeJournal = new MetaDataWriteJournal();
+
+    // serializes flushes, so that a completed flush guarantees that all previously journaled writes have been processed
+    private final Object writeJournalFlushLock = new Object();
+
+    private final AtomicBoolean writeJournalFlushScheduled = new AtomicBoolean();
+
+    /**
+     * As binary data with identical content is stored under the same binary reference key, the data of a key may only be deleted after
+     * its last {@link BinaryReference} dataset was removed. The read lock is held while adding binary references, and the write lock
+     * while checking for remaining references and deleting the data, so that no reference can be added in between.
+     */
+    private final ReadWriteLock binaryReferenceLock = new ReentrantReadWriteLock();
+
     private TypedDatumSerializer typedDatumSerializer;
 
     private boolean startedSuccessfully = false;
@@ -164,6 +193,9 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
         } catch (InterruptedException e) {
             throw new RuntimeException(INITIALIZATION_TIMEOUT_ERROR_MESSAGE, e);
         }
+        if (startedSuccessfully) {
+            flushWriteJournal();
+        }
         shutDown();
     }
 
@@ -259,7 +291,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
                     try {
                         result = protectedCall(connection, false);
                         // note: the logged (usually anonymous) class name is not very helpful, but at least allows separation
-                        StatsCounter.registerValue("Metadata Backend: successful database call duration (msec)",
+                        StatsCounter.registerValueWithDistribution("Metadata Backend: successful database call duration (msec)",
                             getClass().getName(),
                             System.currentTimeMillis() - startTimeForAttempt);
                         break;
@@ -336,15 +368,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
     }
 
     private void addProperties(final String propertiesTableName, final Long relatedId, final Map<String, String> properties) {
-        final SafeExecution<Void> execution = new SafeExecution<Void>() {
-
-            @Override
-            protected Void protectedCall(final Connection connection, final boolean isRetry) throws SQLException {
-                metaDataBackendOperations.addProperties(propertiesTableName, relatedId, properties, connection, isRetry);
-                return null;
-            }
-        };
-        execution.call();
+        onWriteJournaled(writeJournal.addProperties(propertiesTableName, relatedId, properties));
     }
 
     @Override
@@ -383,15 +407,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
     @Override
     @AllowRemoteAccess
     public void setOrUpdateHistoryDataItem(final Long componentRunId, final String historyDataItem) {
-        final SafeExecution<Void> execution = new SafeExecution<Void>() {
-
-            @Override
-            protected Void protectedCall(final Connection connection, final boolean isRetry) throws SQLException {
-                metaDataBackendOperations.setOrUpdateHistoryDataItem(componentRunId, historyDataItem, connection, isRetry);
-                return null;
-            }
-        };
-        execution.call();
+        onWriteJournaled(writeJournal.setOrUpdateHistoryDataItem(componentRunId, historyDataItem));
     }
 
     @Override
@@ -409,6 +425,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
 
     @Override
     public void setWorkflowRunFinished(final Long workflowRunId, final Long endtime, final FinalWorkflowState finalState) {
+        flushWriteJournal();
         final SafeExecution<Void> execution = new SafeExecution<Void>() {
 
             @Override
@@ -424,6 +441,8 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
     @Override
     @AllowRemoteAccess
     public void setComponentRunFinished(final Long componentRunId, final Long endtime, final FinalComponentRunState finalState) {
+        // ensure that all data of this run has been written when it is marked as finished
+        flushWriteJournal();
         final SafeExecution<Void> execution = new SafeExecution<Void>() {
 
             @Override
@@ -452,6 +471,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
     @Override
     @AllowRemoteAccess
     public Set<WorkflowRunDescription> getWorkflowRunDescriptions() {
+        flushWriteJournal();
         final SafeExecution<Set<WorkflowRunDescription>> execution = new SafeExecution<Set<WorkflowRunDescription>>() {
 
             @Override
@@ -467,6 +487,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
     @Override
     @AllowRemoteAccess
     public WorkflowRun getWorkflowRun(final Long workflowRunId) {
+        flushWriteJournal();
         final SafeExecution<WorkflowRun> execution = new SafeExecution<WorkflowRun>() {
 
             @Override
@@ -480,6 +501,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
 
     @Override
     public Collection<ComponentRun> getComponentRuns(final Long componentInstanceId) {
+        flushWriteJournal();
         final SafeExecution<Collection<ComponentRun>> execution = new SafeExecution<Collection<ComponentRun>>() {
 
             @Override
@@ -508,16 +530,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
     @AllowRemoteAccess
     public void addInputDatum(final Long componentRunId, final Long typedDatumId, final Long endpointInstanceId,
         final Integer count) {
-        final SafeExecution<Void> execution = new SafeExecution<Void>() {
-
-            @Override
-            protected Void protectedCall(final Connection connection, final boolean isRetry) throws SQLException {
-                metaDataBackendOperations.addEndpointDatum(componentRunId, typedDatumId, endpointInstanceId, count, connection,
-                    isRetry);
-                return null;
-            }
-        };
-        execution.call();
+        onWriteJournaled(writeJournal.addEndpointDatum(componentRunId, typedDatumId, endpointInstanceId, count));
     }
 
     @Override
@@ -559,20 +572,13 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
 
     @Override
     public void setTimelineIntervalFinished(final Long timelineIntervalId, final long endtime) {
-        final SafeExecution<Void> execution = new SafeExecution<Void>() {
-
-            @Override
-            protected Void protectedCall(final Connection connection, final boolean isRetry) throws SQLException {
-                metaDataBackendOperations.setTimelineIntervalFinished(timelineIntervalId, endtime, connection, isRetry);
-                return null;
-            }
-        };
-        execution.call();
+        onWriteJournaled(writeJournal.setTimelineIntervalFinished(timelineIntervalId, endtime));
     }
 
     @Override
     @AllowRemoteAccess
     public WorkflowRunTimline getWorkflowTimeline(final Long workflowRunId) {
+        flushWriteJournal();
         final SafeExecution<WorkflowRunTimline> execution = new SafeExecution<WorkflowRunTimline>() {
 
             @Override
@@ -590,6 +596,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
     }
 
     private Map<String, String> getProperties(final String tableName, final Long relatedId) {
+        flushWriteJournal();
         final SafeExecution<Map<String, String>> execution = new SafeExecution<Map<String, String>>() {
 
             @Override
@@ -604,6 +611,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
     @Override
     @AllowRemoteAccess
     public Boolean deleteWorkflowRunFiles(final Long workflowRunId) {
+        flushWriteJournal();
         final SafeExecution<Boolean> execution = new SafeExecution<Boolean>() {
 
             @Override
@@ -634,6 +642,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
     @Override
     @AllowRemoteAccess
     public Boolean deleteWorkflowRun(final Long workflowRunId) {
+        flushWriteJournal();
         final SafeExecution<Boolean> execution = new SafeExecution<Boolean>() {
 
             @Override
@@ -674,13 +683,6 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
             }
         };
         final Map<Long, Set<String>> dataKeys = execution.call();
-        if (dataKeys != null) {
-            try {
-                deleteFiles(dataKeys.values());
-            } catch (RemoteOperationException e) {
-                throw new RuntimeException("Failed to delete files. ", e);
-            }
-        }
         final SafeExecution<Boolean> execution2 = new SafeExecution<Boolean>() {
 
             @Override
@@ -691,6 +693,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
             }
         };
         if (execution2.call()) {
+            deleteUnreferencedFiles(dataKeys.values());
             final SafeExecution<Void> execution3 = new SafeExecution<Void>() {
 
                 @Override
@@ -720,13 +723,6 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
             }
         };
         final Map<Long, Set<String>> dataKeys = execution.call();
-        if (dataKeys != null) {
-            try {
-                deleteFiles(dataKeys.values());
-            } catch (RemoteOperationException e) {
-                throw new RuntimeException("Failed to delete files. ", e);
-            }
-        }
         final SafeExecution<Boolean> execution2 = new SafeExecution<Boolean>() {
 
             @Override
@@ -735,6 +731,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
             }
         };
         if (execution2.call()) {
+            deleteUnreferencedFiles(dataKeys.values());
             final SafeExecution<Void> execution3 = new SafeExecution<Void>() {
 
                 @Override
@@ -750,20 +747,86 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
         }
     }
 
-    private void deleteFiles(Collection<Set<String>> binaryKeys) throws RemoteOperationException {
+    /**
+     * Deletes the stored data of all given binary reference keys that are not used by any remaining {@link BinaryReference} dataset. Must
+     * be called after the {@link BinaryReference} datasets of the deleted data references have been removed.
+     */
+    private void deleteUnreferencedFiles(Collection<Set<String>> binaryKeys) {
+        final Set<String> uniqueKeys = new HashSet<>();
         for (final Set<String> keySet : binaryKeys) {
-            for (final String key : keySet) {
+            uniqueKeys.addAll(keySet);
+        }
+        for (final String key : uniqueKeys) {
+            try {
+                // the data service only deletes the data if it is unused; see deleteBinaryDataIfUnreferenced()
                 dataService.deleteReference(key);
+            } catch (RemoteOperationException e) {
+                throw new RuntimeException("Failed to delete files. ", e);
+            }
+        }
+    }
+
+    @Override
+    public boolean deleteBinaryDataIfUnreferenced(final String binaryReferenceKey, Runnable deletion) {
+        final SafeExecution<Boolean> execution = new SafeExecution<Boolean>() {
+
+            @Override
+            protected Boolean protectedCall(final Connection connection, final boolean isRetry) throws SQLException {
+                connection.setReadOnly(true);
+                return metaDataBackendOperations.isBinaryReferenceKeyInUse(binaryReferenceKey, connection, isRetry);
+            }
+        };
+        binaryReferenceLock.writeLock().lock();
+        try {
+            if (execution.call()) {
+                return false;
+            }
+            deletion.run();
+            return true;
+        } finally {
+            binaryReferenceLock.writeLock().unlock();
+        }
+    }
+
+    private <T> T callHoldingBinaryReferenceReadLock(SafeExecution<T> execution) {
+        binaryReferenceLock.readLock().lock();
+        try {
+            return execution.call();
+        } finally {
+            binaryReferenceLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether the binary reference keys of the given {@link DataReference} are already used by other {@link BinaryReference}
+     * datasets. Must be called within the transaction that adds the {@link DataReference} while holding the read lock, so that the stored
+     * data cannot be deleted before the new {@link BinaryReference} datasets are committed.
+     */
+    private boolean areBinaryReferenceKeysInUse(DataReference dataReference, Connection connection, boolean isRetry)
+        throws SQLException {
+        for (BinaryReference binaryReference : dataReference.getBinaryReferences()) {
+            if (!metaDataBackendOperations.isBinaryReferenceKeyInUse(binaryReference.getBinaryReferenceKey(), connection, isRetry)) {
+                return false;
             }
         }
+        return true;
     }
 
     @Override
     public Long addDataReferenceToComponentRun(final Long componentRunId, final DataReference dataReference) {
+        return addDataReferenceToComponentRun(componentRunId, dataReference, false);
+    }
+
+    @Override
+    public Long addDataReferenceToComponentRun(final Long componentRunId, final DataReference dataReference,
+        final boolean onlyIfBinaryDataExists) {
         final SafeExecution<Long> execution = new SafeExecution<Long>() {
 
             @Override
             protected Long protectedCall(final Connection connection, final boolean isRetry) throws SQLException {
+                if (onlyIfBinaryDataExists && !areBinaryReferenceKeysInUse(dataReference, connection, isRetry)) {
+                    return null;
+                }
                 Long dataReferenceId = metaDataBackendOperations.addDataReference(dataReference, connection, isRetry);
                 metaDataBackendOperations.addDataReferenceComponentRunRelation(dataReferenceId, componentRunId, connection,
                     isRetry);
@@ -771,15 +834,24 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
             }
 
         };
-        return execution.call();
+        return callHoldingBinaryReferenceReadLock(execution);
     }
 
     @Override
     public Long addDataReferenceToComponentInstance(final Long componentInstanceId, final DataReference dataReference) {
+        return addDataReferenceToComponentInstance(componentInstanceId, dataReference, false);
+    }
+
+    @Override
+    public Long addDataReferenceToComponentInstance(final Long componentInstanceId, final DataReference dataReference,
+        final boolean onlyIfBinaryDataExists) {
         final SafeExecution<Long> execution = new SafeExecution<Long>() {
 
             @Override
             protected Long protectedCall(final Connection connection, final boolean isRetry) throws SQLException {
+                if (onlyIfBinaryDataExists && !areBinaryReferenceKeysInUse(dataReference, connection, isRetry)) {
+                    return null;
+                }
                 Long dataReferenceId = metaDataBackendOperations.addDataReference(dataReference, connection, isRetry);
                 metaDataBackendOperations.addDataReferenceComponentInstanceRelation(dataReferenceId, componentInstanceId,
                     connection,
@@ -787,21 +859,30 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
                 return dataReferenceId;
             }
         };
-        return execution.call();
+        return callHoldingBinaryReferenceReadLock(execution);
     }
 
     @Override
     public Long addDataReferenceToWorkflowRun(final Long workflowRunId, final DataReference dataReference) {
+        return addDataReferenceToWorkflowRun(workflowRunId, dataReference, false);
+    }
+
+    @Override
+    public Long addDataReferenceToWorkflowRun(final Long workflowRunId, final DataReference dataReference,
+        final boolean onlyIfBinaryDataExists) {
         final SafeExecution<Long> execution = new SafeExecution<Long>() {
 
             @Override
             protected Long protectedCall(final Connection connection, final boolean isRetry) throws SQLException {
+                if (onlyIfBinaryDataExists && !areBinaryReferenceKeysInUse(dataReference, connection, isRetry)) {
+                    return null;
+                }
                 Long dataReferenceId = metaDataBackendOperations.addDataReference(dataReference, connection, isRetry);
                 metaDataBackendOperations.addDataReferenceWorkflowRunRelation(dataReferenceId, workflowRunId, connection, isRetry);
                 return dataReferenceId;
             }
         };
-        return execution.call();
+        return callHoldingBinaryReferenceReadLock(execution);
     }
 
     @Override
@@ -816,7 +897,7 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
                 return null;
             }
         };
-        execution.call();
+        callHoldingBinaryReferenceReadLock(execution);
     }
 
     @Override
@@ -884,6 +965,54 @@ public class DerbyMetaDataBackendServiceImpl implements MetaDataBackendService {
         addTimelineInterval(workflowRunId, intervalType, starttime, null);
     }
 
+    private void onWriteJournaled(int pendingWrites) {
+        if (pendingWrites >= WRITE_JOURNAL_MAX_PENDING_WRITES) {
+            // apply backpressure to the writing thread instead of letting the journal grow
+            flushWriteJournal();
+        } else if (writeJournalFlushScheduled.compareAndSet(false, true)) {
+            ConcurrencyUtils.getAsyncTaskService().scheduleAfterDelay("Metadata Backend: flush write journal", () -> {
+                writeJournalFlushScheduled.set(false);
+                flushWriteJournal();
+            }, WRITE_JOURNAL_FLUSH_DELAY_MSEC);
+        }
+    }
+
+    private void flushWriteJournal() {
+        synchronized (writeJournalFlushLock) {
+            final MetaDataWriteJournal.Batch batch = writeJournal.drain();
+            if (batch == null) {
+                return;
+            }
+            try {
+                writeJournalBatch(batch);
+            } catch (RuntimeException e) {
+                // the journaled writes have already been acknowledged to their callers, so they cannot be rejected anymore; write
+                // them one by one so that a single invalid entry does not cause the loss of the whole batch
+                LOGGER.warn(StringUtils.format("Failed to write a batch of %d journaled meta data writes; writing them individually",
+                    batch.size()), e);
+                for (MetaDataWriteJournal.Batch singleEntry : batch.splitIntoSingleEntries()) {
+                    try {
+                        writeJournalBatch(singleEntry);
+                    } catch (RuntimeException e2) {
+                        LOGGER.error("Failed to write journaled meta data; the data will be missing from the database", e2);
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeJournalBatch(final MetaDataWriteJournal.Batch batch) {
+        final SafeExecution<Void> execution = new SafeExecution<Void>() {
+
+            @Override
+            protected Void protectedCall(final Connection connection, final boolean isRetry) throws SQLException {
+                batch.writeTo(metaDataBackendOperations, connection, isRetry);
+                return null;
+            }
+        };
+        execution.call();
+    }
+
     private void cleanUpDeletion(Connection connection, boolean isRetry) throws SQLException {
 
         Map<Long, Integer> wfsToBeDeleted = metaDataBackendOperations.getWorkflowRunsToBeDeleted(connection, isRetry);
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamanagement.backend.metadata.derby.internal;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Collects meta data writes that do not return a value to the caller (input data, properties, history data items and timeline interval
+ * end times), so that they can be written to the database in batches instead of using one transaction per write. As only the latest
+ * value is relevant, history data items and timeline interval end times are coalesced per related id.
+ * 
+ * This class only holds the pending writes; deciding when to flush them is left to the caller.
+ * 
+ * @author agent
+ */
+class MetaDataWriteJournal {
+
+    /**
+     * A journaled input datum; see {@link DerbyMetaDataBackendOperationsImpl#addEndpointDatum}.
+     */
+    static final class EndpointDatumEntry {
+
+        private final Long componentRunId;
+
+        private final Long typedDatumId;
+
+        private final Long endpointInstanceId;
+
+        private final Integer count;
+
+        EndpointDatumEntry(Long componentRunId, Long typedDatumId, Long endpointInstanceId, Integer count) {
+            this.componentRunId = componentRunId;
+            this.typedDatumId = typedDatumId;
+            this.endpointInstanceId = endpointInstanceId;
+            this.count = count;
+        }
+
+        Long getComponentRunId() {
+            return componentRunId;
+        }
+
+        Long getTypedDatumId() {
+            return typedDatumId;
+        }
+
+        Long getEndpointInstanceId() {
+            return endpointInstanceId;
+        }
+
+        Integer getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * A journaled set of properties; see {@link DerbyMetaDataBackendOperationsImpl#addProperties}.
+     */
+    private static final class PropertiesEntry {
+
+        private final String tableName;
+
+        private final Long relatedId;
+
+        private final Map<String, String> properties;
+
+        PropertiesEntry(String tableName, Long relatedId, Map<String, String> properties) {
+            this.tableName = tableName;
+            this.relatedId = relatedId;
+            this.properties = properties;
+        }
+    }
+
+    /**
+     * An immutable snapshot of journaled writes, intended to be written within a single database transaction.
+     */
+    static final class Batch {
+
+        private final List<EndpointDatumEntry> endpointData;
+
+        private final List<PropertiesEntry> properties;
+
+        private final Map<Long, String> historyDataItems;
+
+        private final Map<Long, Long> timelineIntervalEndtimes;
+
+        private Batch(List<EndpointDatumEntry> endpointData, List<PropertiesEntry> properties, Map<Long, String> historyDataItems,
+            Map<Long, Long> timelineIntervalEndtimes) {
+            this.endpointData = endpointData;
+            this.properties = properties;
+            this.historyDataItems = historyDataItems;
+            this.timelineIntervalEndtimes = timelineIntervalEndtimes;
+        }
+
+        int size() {
+            return endpointData.size() + properties.size() + historyDataItems.size() + timelineIntervalEndtimes.size();
+        }
+
+        /**
+         * Writes all contained entries using the given connection. As the batch is not modified, this method can be safely called again
+         * on retry.
+         * 
+         * @param operations the operations implementation to use
+         * @param connection the connection to the meta data database
+         * @param isRetry true if retrying
+         * @throws SQLException thrown on database SQL errors
+         */
+        void writeTo(DerbyMetaDataBackendOperationsImpl operations, Connection connection, boolean isRetry) throws SQLException {
+            if (!endpointData.isEmpty()) {
+                operations.addEndpointData(endpointData, connection, isRetry);
+            }
+            for (PropertiesEntry entry : properties) {
+                operations.addProperties(entry.tableName, entry.relatedId, entry.properties, connection, isRetry);
+            }
+            if (!historyDataItems.isEmpty()) {
+                operations.setOrUpdateHistoryDataItems(historyDataItems, connection, isRetry);
+            }
+            if (!timelineIntervalEndtimes.isEmpty()) {
+                operations.setTimelineIntervalsFinished(timelineIntervalEndtimes, connection, isRetry);
+            }
+        }
+
+        /**
+         * Splits this batch into batches containing a single entry each. Intended for writing the entries one by one after the batch as
+         * a whole has failed, so that a single invalid entry does not cause the loss of all others.
+         * 
+         * @return the list of single-entry batches
+         */
+        List<Batch> splitIntoSingleEntries() {
+            final List<Batch> result = new ArrayList<>(size());
+            for (EndpointDatumEntry entry : endpointData) {
+                result.add(new Batch(Collections.singletonList(entry), Collections.emptyList(), Collections.emptyMap(),
+                    Collections.emptyMap()));
+            }
+            for (PropertiesEntry entry : properties) {
+                result.add(new Batch(Collections.emptyList(), Collections.singletonList(entry), Collections.emptyMap(),
+                    Collections.emptyMap()));
+            }
+            for (Entry<Long, String> entry : historyDataItems.entrySet()) {
+                result.add(new Batch(Collections.emptyList(), Collections.emptyList(),
+                    Collections.singletonMap(entry.getKey(), entry.getValue()), Collections.emptyMap()));
+            }
+            for (Entry<Long, Long> entry : timelineIntervalEndtimes.entrySet()) {
+                result.add(new Batch(Collections.emptyList(), Collections.emptyList(), Collections.emptyMap(),
+                    Collections.singletonMap(entry.getKey(), entry.getValue())));
+            }
+            return result;
+        }
+    }
+
+    private List<EndpointDatumEntry> endpointData = new ArrayList<>();
+
+    private List<PropertiesEntry> properties = new ArrayList<>();
+
+    private Map<Long, String> historyDataItems = new LinkedHashMap<>();
+
+    private Map<Long, Long> timelineIntervalEndtimes = new LinkedHashMap<>();
+
+    /**
+     * @return the number of pending entries after adding this one
+     */
+    synchronized int addEndpointDatum(Long componentRunId, Long typedDatumId, Long endpointInstanceId, Integer count) {
+        endpointData.add(new EndpointDatumEntry(componentRunId, typedDatumId, endpointInstanceId, count));
+        return size();
+    }
+
+    /**
+     * @return the number of pending entries after adding this one
+     */
+    synchronized int addProperties(String tableName, Long relatedId, Map<String, String> newProperties) {
+        // copy the map, as the caller may reuse it
+        properties.add(new PropertiesEntry(tableName, relatedId, new HashMap<>(newProperties)));
+        return size();
+    }
+
+    /**
+     * @return the number of pending entries after adding this one
+     */
+    synchronized int setOrUpdateHistoryDataItem(Long componentRunId, String historyDataItem) {
+        historyDataItems.put(componentRunId, historyDataItem);
+        return size();
+    }
+
+    /**
+     * @return the number of pending entries after adding this one
+     */
+    synchronized int setTimelineIntervalFinished(Long timelineIntervalId, long endtime) {
+        timelineIntervalEndtimes.put(timelineIntervalId, endtime);
+        return size();
+    }
+
+    /**
+     * Removes all pending entries from this journal.
+     * 
+     * @return a {@link Batch} containing the removed entries, or null if there were none
+     */
+    synchronized Batch drain() {
+        if (size() == 0) {
+            return null;
+        }
+        final Batch batch = new Batch(endpointData, properties, historyDataItems, timelineIntervalEndtimes);
+        endpointData = new ArrayList<>();
+        properties = new ArrayList<>();
+        historyDataItems = new LinkedHashMap<>();
+        timelineIntervalEndtimes = new LinkedHashMap<>();
+        return batch;
+    }
+
+    private int size() {
+        return endpointData.size() + properties.size() + historyDataItems.size() + timelineIntervalEndtimes.size();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamanagement.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ContentAddressing}.
+ * 
+ * @author agent
+ */
+public class ContentAddressingTest {
+
+    private static final byte[] CONTENT = "some test content".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Verifies that keys are valid UUIDs that only depend on the content and the "already compressed" flag.
+     */
+    @Test
+    public void keysDependOnContentAndCompressionFlag() {
+        final String key = calculateKey(CONTENT, false);
+        assertEquals(key, UUID.fromString(key).toString());
+        assertEquals(key, calculateKey(CONTENT, false));
+        assertNotEquals(key, calculateKey(CONTENT, true));
+        assertNotEquals(key, calculateKey("other test content".getBytes(StandardCharsets.UTF_8), false));
+    }
+
+    /**
+     * Verifies that keys calculated from a file match the keys calculated while streaming the same data.
+     * 
+     * @throws IOException on unexpected errors
+     */
+    @Test
+    public void fileKeyMatchesStreamKey() throws IOException {
+        final File file = File.createTempFile("contentAddressingTest", ".tmp");
+        try {
+            Files.write(file.toPath(), CONTENT);
+            assertEquals(calculateKey(CONTENT, true), ContentAddressing.calculateBinaryReferenceKey(file, true));
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    private String calculateKey(byte[] content, boolean alreadyCompressed) {
+        final MessageDigest digest = ContentAddressing.createDigest();
+        digest.update(content);
+        return ContentAddressing.deriveBinaryReferenceKey(digest, alreadyCompressed);
+    }
+}
@@ -9,18 +9,34 @@
 package de.rcenvironment.core.datamanagement.internal;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
+import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.BeforeClass;
-
+import org.junit.Test;
+
+import de.rcenvironment.core.communication.api.PlatformService;
+import de.rcenvironment.core.communication.common.NodeIdentifierTestUtils;
+import de.rcenvironment.core.communication.common.ResolvableNodeId;
+import de.rcenvironment.core.datamanagement.DataReferenceService;
+import de.rcenvironment.core.datamanagement.FileDataService;
+import de.rcenvironment.core.datamanagement.commons.BinaryReference;
+import de.rcenvironment.core.datamanagement.commons.DataReference;
+import de.rcenvironment.core.datamodel.api.CompressionFormat;
+import de.rcenvironment.core.utils.common.FileCompressionFormat;
+import de.rcenvironment.core.utils.common.FileCompressionService;
 import de.rcenvironment.core.utils.common.TempFileService;
 import de.rcenvironment.core.utils.common.TempFileServiceAccess;
 
@@ -32,6 +48,8 @@ import de.rcenvironment.core.utils.common.TempFileServiceAccess;
  */
 public class DataManagementServiceImplTest {
 
+    private static final String REFERENCE_KEY = "reference";
+
     private TempFileService tempFileService = TempFileServiceAccess.getInstance();
 
     private List<File> tempFiles = new ArrayList<>();
@@ -56,6 +74,49 @@ public class DataManagementServiceImplTest {
         }
     }
 
+    /**
+     * Verifies that a directory stored on another node is expanded while it is being downloaded into the local cache, and that the cached
+     * archive is complete, so that subsequent requests can be served from it.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void remoteDirectoryIsExpandedWhileBeingCached() throws Exception {
+        final File sourceRootDir = tempFileService.createManagedTempDir();
+        tempFiles.add(sourceRootDir);
+        final File sourceDir = createDirAndBunchOfFiles(sourceRootDir, 3);
+        FileUtils.writeStringToFile(new File(sourceDir, "file"), "content", StandardCharsets.UTF_8);
+        final File archive = new File(sourceRootDir, "archive.tar.gz");
+        assertTrue(FileCompressionService.compressDirectoryToFile(sourceDir, archive, FileCompressionFormat.TAR_GZ, true));
+        final byte[] archiveContent = FileUtils.readFileToByteArray(archive);
+
+        final HashSet<BinaryReference> binaryReferences = new HashSet<>();
+        binaryReferences.add(new BinaryReference("binary", CompressionFormat.GZIP, "1"));
+        final DataReference dataRef = new DataReference(REFERENCE_KEY,
+            NodeIdentifierTestUtils.createTestLogicalNodeSessionIdWithDisplayName("storage", true).convertToLogicalNodeId(),
+            binaryReferences);
+        final DataReferenceService dataReferenceService = EasyMock.createMock(DataReferenceService.class);
+        EasyMock.expect(dataReferenceService.getReference(REFERENCE_KEY)).andReturn(dataRef).anyTimes();
+        final PlatformService platformService = EasyMock.createMock(PlatformService.class);
+        EasyMock.expect(platformService.matchesLocalInstance(EasyMock.anyObject(ResolvableNodeId.class))).andReturn(false).anyTimes();
+        final FileDataService fileDataService = EasyMock.createMock(FileDataService.class);
+        // the data must only be downloaded once
+        EasyMock.expect(fileDataService.getStreamFromDataReference(dataRef)).andReturn(new ByteArrayInputStream(archiveContent)).once();
+        EasyMock.replay(dataReferenceService, platformService, fileDataService);
+
+        final DataManagementServiceImpl dataManagementService = new DataManagementServiceImpl();
+        dataManagementService.bindDataReferenceService(dataReferenceService);
+        dataManagementService.bindPlatformService(platformService);
+        dataManagementService.bindFileDataService(fileDataService);
+        for (int i = 0; i < 2; i++) {
+            final File targetRootDir = tempFileService.createManagedTempDir();
+            tempFiles.add(targetRootDir);
+            dataManagementService.copyReferenceToLocalDirectory(REFERENCE_KEY, targetRootDir, null);
+            compareDirectories(sourceDir, new File(targetRootDir, sourceDir.getName()));
+        }
+        EasyMock.verify(fileDataService);
+    }
+
     private void compareDirectories(File rootDir, File targetRootDir) throws IOException {
         assertEquals(rootDir.getName(), targetRootDir.getName());
 
@@ -73,7 +134,7 @@ public class DataManagementServiceImplTest {
             assertEquals(rootDirFile.getName(), targetRootDirFile.getName());
             assertEquals(rootDirFile.isDirectory(), targetRootDirFile.isDirectory());
             if (!rootDirFile.isDirectory()) {
-                FileUtils.contentEquals(rootDirFile, targetRootDirFile);
+                assertTrue(FileUtils.contentEquals(rootDirFile, targetRootDirFile));
             } else {
                 compareDirectories(rootDirFile, targetRootDirFile);
             }
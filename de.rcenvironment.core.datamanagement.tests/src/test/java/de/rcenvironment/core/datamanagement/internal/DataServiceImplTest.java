@@ -166,5 +166,15 @@ public class DataServiceImplTest {
             return null;
         }
 
+        @Override
+        public boolean exists(URI loc) {
+            return false;
+        }
+
+        @Override
+        public boolean move(URI source, URI target) {
+            return false;
+        }
+
     }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamanagement.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.rcenvironment.core.utils.common.FileCompressionFormat;
+import de.rcenvironment.core.utils.common.FileCompressionService;
+import de.rcenvironment.core.utils.common.TempFileService;
+import de.rcenvironment.core.utils.common.TempFileServiceAccess;
+
+/**
+ * Tests for {@link DirectoryArchiveStream}.
+ * 
+ * @author agent
+ */
+public class DirectoryArchiveStreamTest {
+
+    private static final int RANDOM_SEED = 42;
+
+    // enough incompressible data to exceed the buffer between the compressing and the reading thread several times
+    private static final int LARGE_FILE_SIZE = 4 * DirectoryArchiveStream.MAX_BUFFERED_BLOCKS * DirectoryArchiveStream.BLOCK_SIZE;
+
+    private static final int SMALL_FILE_COUNT = 20;
+
+    private static final int PARTIAL_READ_SIZE = 1000;
+
+    private TempFileService tempFileService;
+
+    private File testDir;
+
+    private File sourceDir;
+
+    private byte[] largeFileContent;
+
+    /**
+     * Common setup.
+     * 
+     * @throws IOException on unexpected errors
+     */
+    @Before
+    public void setUp() throws IOException {
+        TempFileServiceAccess.setupUnitTestEnvironment();
+        tempFileService = TempFileServiceAccess.getInstance();
+        testDir = tempFileService.createManagedTempDir();
+        sourceDir = new File(testDir, "source");
+        largeFileContent = new byte[LARGE_FILE_SIZE];
+        new Random(RANDOM_SEED).nextBytes(largeFileContent);
+        FileUtils.writeByteArrayToFile(new File(sourceDir, "large.dat"), largeFileContent);
+        for (int i = 0; i < SMALL_FILE_COUNT; i++) {
+            FileUtils.writeStringToFile(new File(sourceDir, "sub/file" + i + ".txt"), "content " + i, "UTF-8");
+        }
+    }
+
+    /**
+     * Common cleanup.
+     * 
+     * @throws IOException on unexpected errors
+     */
+    @After
+    public void tearDown() throws IOException {
+        tempFileService.disposeManagedTempDirOrFile(testDir);
+    }
+
+    /**
+     * Verifies that the streamed archive can be expanded to the original directory content.
+     * 
+     * @throws IOException on unexpected errors
+     */
+    @Test
+    public void archiveCanBeExpanded() throws IOException {
+        final File targetDir = new File(testDir, "target");
+        try (InputStream archiveStream = DirectoryArchiveStream.start(sourceDir, FileCompressionFormat.TAR_GZ)) {
+            assertTrue(FileCompressionService.expandCompressedDirectoryFromInputStream(archiveStream, targetDir,
+                FileCompressionFormat.TAR_GZ));
+        }
+        final File expandedDir = new File(targetDir, sourceDir.getName());
+        assertArrayEquals(largeFileContent, FileUtils.readFileToByteArray(new File(expandedDir, "large.dat")));
+        for (int i = 0; i < SMALL_FILE_COUNT; i++) {
+            assertEquals("content " + i, FileUtils.readFileToString(new File(expandedDir, "sub/file" + i + ".txt"), "UTF-8"));
+        }
+    }
+
+    /**
+     * Verifies that a failed compression is reported as an error instead of the end of the stream.
+     * 
+     * @throws IOException on unexpected errors
+     */
+    @Test
+    public void compressionFailureIsReported() throws IOException {
+        try (InputStream archiveStream = DirectoryArchiveStream.start(new File(testDir, "missing"), FileCompressionFormat.TAR_GZ)) {
+            IOUtils.toByteArray(archiveStream);
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Failed to compress directory"));
+        }
+    }
+
+    /**
+     * Verifies that closing the stream before its end is reached does not block, and that the stream cannot be read afterwards.
+     * 
+     * @throws IOException on unexpected errors
+     */
+    @Test
+    public void streamCanBeClosedEarly() throws IOException {
+        final InputStream archiveStream = DirectoryArchiveStream.start(sourceDir, FileCompressionFormat.TAR_GZ);
+        assertTrue(archiveStream.read(new byte[PARTIAL_READ_SIZE]) > 0);
+        archiveStream.close();
+        try {
+            archiveStream.read();
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertEquals("Stream closed", e.getMessage());
+        }
+    }
+}
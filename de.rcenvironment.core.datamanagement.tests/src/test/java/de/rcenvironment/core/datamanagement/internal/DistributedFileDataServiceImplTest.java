@@ -8,6 +8,7 @@
 
 package de.rcenvironment.core.datamanagement.internal;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -19,7 +20,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.net.URI;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
 
@@ -82,6 +86,8 @@ public class DistributedFileDataServiceImplTest {
     // should be <UPLOAD_CHUNK_SIZE for proper testing of single step upload
     private static final int SMALL_UPLOAD_TEST_SIZE = 1024;
 
+    private static final int UPLOAD_BUFFER_SIZE = 8192;
+
     private static String xmlBackendProvider = "snoopy";
 
     private static String fileBackendProvider = "linus";
@@ -107,6 +113,12 @@ public class DistributedFileDataServiceImplTest {
     // for mock remote testing
     private volatile DataReference lastMockRemoteDataReference;
 
+    private volatile long lastMockRemoteUploadSize;
+
+    private volatile byte[] lastMockRemoteUploadChecksum;
+
+    private volatile boolean mockRemoteSupportsParallelUpload = true;
+
     private InputStream is;
 
     private MetaDataSet mds;
@@ -156,13 +168,10 @@ public class DistributedFileDataServiceImplTest {
         notReachableReference =
             new DataReference(notReachableReferenceID.toString(), unreachableLogicalNodeId, birefs);
 
-        is = new InputStream() {
-
-            @Override
-            public int read() throws IOException {
-                return read;
-            }
-        };
+        // finite, as the mock remote service consumes all uploaded streams completely
+        byte[] testData = new byte[SMALL_UPLOAD_TEST_SIZE];
+        Arrays.fill(testData, (byte) read);
+        is = new ByteArrayInputStream(testData);
         mds = new MetaDataSet();
 
         fileDataService = new FileDataServiceImpl();
@@ -238,11 +247,13 @@ public class DistributedFileDataServiceImplTest {
     public void testDistributedNewReferenceFromStream() throws Exception {
         assertFalse(localLogicalNodeSessionId.equals(mockRemoteLogicalNodeSessionId));
         assertFalse(localDefaultLogicalNodeId.equals(mockRemoteLogicalNodeId));
-        InputStream testStream = new ByteArrayInputStream(new byte[UPLOAD_TEST_SIZE]);
+        byte[] testData = createTestData(UPLOAD_TEST_SIZE);
+        InputStream testStream = new ByteArrayInputStream(testData);
         DataReference remoteRef = fileDataService.newReferenceFromStream(testStream, mds, mockRemoteLogicalNodeSessionId);
         assertNotNull(remoteRef);
         assertEquals(lastMockRemoteDataReference, remoteRef);
         assertEquals(mockRemoteLogicalNodeId, remoteRef.getStorageNodeId());
+        assertUploadReceived(testData);
     }
 
     /**
@@ -254,11 +265,13 @@ public class DistributedFileDataServiceImplTest {
     public void testDistributedNewReferenceFromStreamSmallUpload() throws Exception {
         assertFalse(localLogicalNodeSessionId.equals(mockRemoteLogicalNodeSessionId));
         assertFalse(localDefaultLogicalNodeId.equals(mockRemoteLogicalNodeId));
-        InputStream testStream = new ByteArrayInputStream(new byte[SMALL_UPLOAD_TEST_SIZE]);
+        byte[] testData = createTestData(SMALL_UPLOAD_TEST_SIZE);
+        InputStream testStream = new ByteArrayInputStream(testData);
         DataReference remoteRef = fileDataService.newReferenceFromStream(testStream, mds, mockRemoteLogicalNodeSessionId);
         assertNotNull(remoteRef);
         assertEquals(lastMockRemoteDataReference, remoteRef);
         assertEquals(mockRemoteLogicalNodeId, remoteRef.getStorageNodeId());
+        assertUploadReceived(testData);
     }
 
     /**
@@ -270,11 +283,40 @@ public class DistributedFileDataServiceImplTest {
     public void testDistributedNewReferenceFromStreamNoFullBuffer() throws Exception {
         assertFalse(localLogicalNodeSessionId.equals(mockRemoteLogicalNodeSessionId));
         assertFalse(localDefaultLogicalNodeId.equals(mockRemoteLogicalNodeId));
-        InputStream testStream = new MockInputStream(new byte[SMALL_UPLOAD_TEST_SIZE]);
+        byte[] testData = createTestData(SMALL_UPLOAD_TEST_SIZE);
+        InputStream testStream = new MockInputStream(testData);
         DataReference remoteRef = fileDataService.newReferenceFromStream(testStream, mds, mockRemoteLogicalNodeSessionId);
         assertNotNull(remoteRef);
         assertEquals(lastMockRemoteDataReference, remoteRef);
         assertEquals(mockRemoteLogicalNodeId, remoteRef.getStorageNodeId());
+        assertUploadReceived(testData);
+    }
+
+    /**
+     * Test for uploads to nodes that do not support parallel uploads yet.
+     * 
+     * @throws Exception on uncaught errors
+     */
+    @Test
+    public void testDistributedNewReferenceFromStreamSequentialFallback() throws Exception {
+        mockRemoteSupportsParallelUpload = false;
+        byte[] testData = createTestData(UPLOAD_TEST_SIZE);
+        InputStream testStream = new ByteArrayInputStream(testData);
+        DataReference remoteRef = fileDataService.newReferenceFromStream(testStream, mds, mockRemoteLogicalNodeSessionId);
+        assertNotNull(remoteRef);
+        assertEquals(lastMockRemoteDataReference, remoteRef);
+        assertUploadReceived(testData);
+    }
+
+    private byte[] createTestData(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private void assertUploadReceived(byte[] expectedData) {
+        assertEquals(expectedData.length, lastMockRemoteUploadSize);
+        assertArrayEquals(ContentAddressing.createDigest().digest(expectedData), lastMockRemoteUploadChecksum);
     }
 
     /**
@@ -343,6 +385,11 @@ public class DistributedFileDataServiceImplTest {
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public void writeToUploadAt(String id, Long offset, byte[] data) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
         @Override
         public void finishUpload(String id, MetaDataSet metaDataSet) throws IOException {
             throw new UnsupportedOperationException();
@@ -366,11 +413,35 @@ public class DistributedFileDataServiceImplTest {
             Set<BinaryReference> birefs = new HashSet<BinaryReference>();
             birefs.add(new BinaryReference(UUID.randomUUID().toString(), CompressionFormat.GZIP, REVISION));
 
+            // consume the whole stream to record the length and checksum of the data that has actually arrived
+            try {
+                MessageDigest digest = ContentAddressing.createDigest();
+                byte[] buffer = new byte[UPLOAD_BUFFER_SIZE];
+                long size = 0;
+                int count;
+                while ((count = inputStream.read(buffer)) != -1) {
+                    digest.update(buffer, 0, count);
+                    size += count;
+                }
+                lastMockRemoteUploadSize = size;
+                lastMockRemoteUploadChecksum = digest.digest();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
             lastMockRemoteDataReference =
                 new DataReference(referenceID.toString(), mockRemoteLogicalNodeSessionId.convertToLogicalNodeId(), birefs);
             return lastMockRemoteDataReference;
         }
 
+        @Override
+        public void writeToUploadAt(String id, Long offset, byte[] data) throws IOException, RemoteOperationException {
+            if (!mockRemoteSupportsParallelUpload) {
+                // simulate the RPC failure caused by calling an unknown method on a node running an older version
+                throw new RemoteOperationException("Unknown method");
+            }
+            super.writeToUploadAt(id, offset, data);
+        }
+
         @Override
         public InputStream getStreamFromDataReference(DataReference dataReference, Boolean calledFromRemote, Boolean decompress)
             throws AuthorizationException {
@@ -413,6 +484,11 @@ public class DistributedFileDataServiceImplTest {
             throw new UndeclaredThrowableException(null);
         }
 
+        @Override
+        public void writeToUploadAt(String id, Long offset, byte[] data) throws IOException {
+            throw new UndeclaredThrowableException(null);
+        }
+
         @Override
         public void finishUpload(String id, MetaDataSet metaDataSet) throws IOException {
             throw new UndeclaredThrowableException(null);
@@ -451,6 +527,12 @@ public class DistributedFileDataServiceImplTest {
             throw new UndeclaredThrowableException(null);
         }
 
+        @Override
+        public void finishUpload(String id, MetaDataSet metaDataSet, Boolean alreadyCompressed, Long totalLength, byte[] sha256Checksum)
+            throws IOException, RemoteOperationException {
+            throw new UndeclaredThrowableException(null);
+        }
+
         @Override
         public DataReference uploadInSingleStep(byte[] data, MetaDataSet metaDataSet, Boolean alreadyCompressed) throws IOException,
             RemoteOperationException {
@@ -174,6 +174,16 @@ public class FileDataServiceImplTest {
             return null;
         }
 
+        @Override
+        public boolean exists(URI loc) {
+            return false;
+        }
+
+        @Override
+        public boolean move(URI source, URI target) {
+            return false;
+        }
+
     }
 
 }
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamanagement.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.rcenvironment.core.communication.common.NodeIdentifierTestUtils;
+import de.rcenvironment.core.datamanagement.commons.BinaryReference;
+import de.rcenvironment.core.datamanagement.commons.DataReference;
+import de.rcenvironment.core.datamodel.api.CompressionFormat;
+import de.rcenvironment.core.utils.common.TempFileService;
+import de.rcenvironment.core.utils.common.TempFileServiceAccess;
+
+/**
+ * Tests for {@link LocalDataReferenceCache}.
+ * 
+ * @author agent
+ */
+public class LocalDataReferenceCacheTest {
+
+    private static final int ENTRY_SIZE = 1000;
+
+    private static final int CONCURRENT_REQUESTS = 8;
+
+    private static final int TEST_TIMEOUT_SEC = 10;
+
+    private final Map<String, AtomicInteger> fetchCounts = new ConcurrentHashMap<>();
+
+    private TempFileService tempFileService;
+
+    private File testDir;
+
+    private File cacheDir;
+
+    /**
+     * Common setup.
+     * 
+     * @throws IOException on unexpected errors
+     */
+    @Before
+    public void setUp() throws IOException {
+        TempFileServiceAccess.setupUnitTestEnvironment();
+        tempFileService = TempFileServiceAccess.getInstance();
+        testDir = tempFileService.createManagedTempDir();
+        cacheDir = new File(testDir, "cache");
+        cacheDir.mkdir();
+    }
+
+    /**
+     * Common cleanup.
+     * 
+     * @throws IOException on unexpected errors
+     */
+    @After
+    public void tearDown() throws IOException {
+        tempFileService.disposeManagedTempDirOrFile(testDir);
+    }
+
+    /**
+     * Verifies that repeated requests are served from the cache, and that target files are overwritten.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void repeatedRequestsAreServedFromCache() throws Exception {
+        final LocalDataReferenceCache cache = new LocalDataReferenceCache(cacheDir, 10 * ENTRY_SIZE, false);
+        final File target = new File(testDir, "sub/target");
+        cache.copyToLocalFile("a", target, createFetcher("a"));
+        FileUtils.writeStringToFile(target, "modified by the receiver", StandardCharsets.UTF_8);
+        cache.copyToLocalFile("a", target, createFetcher("a"));
+        assertEquals(createContent("a"), FileUtils.readFileToString(target, StandardCharsets.UTF_8));
+        assertEquals(1, fetchCounts.get("a").get());
+        assertEquals(ENTRY_SIZE, cache.getCurrentSize());
+    }
+
+    /**
+     * Verifies that concurrent requests for the same data result in a single fetch.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void concurrentRequestsAreDeduplicated() throws Exception {
+        final LocalDataReferenceCache cache = new LocalDataReferenceCache(cacheDir, 10 * ENTRY_SIZE, false);
+        final CountDownLatch fetchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFetch = new CountDownLatch(1);
+        final LocalDataReferenceCache.Fetcher blockingFetcher = file -> {
+            fetchStarted.countDown();
+            try {
+                releaseFetch.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            createFetcher("a").fetchTo(file);
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                final File target = new File(testDir, "target" + i);
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    cache.copyToLocalFile("a", target, blockingFetcher);
+                    return null;
+                }));
+            }
+            assertTrue(fetchStarted.await(TEST_TIMEOUT_SEC, TimeUnit.SECONDS));
+            releaseFetch.countDown();
+            for (Future<Void> future : futures) {
+                future.get(TEST_TIMEOUT_SEC, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, fetchCounts.get("a").get());
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            assertEquals(createContent("a"), FileUtils.readFileToString(new File(testDir, "target" + i), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Verifies that the least recently used entries are evicted when the size limit is exceeded, and that entries larger than the limit
+     * are delivered, but not cached.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() throws Exception {
+        final LocalDataReferenceCache cache = new LocalDataReferenceCache(cacheDir, 2 * ENTRY_SIZE, false);
+        final File target = new File(testDir, "target");
+        cache.copyToLocalFile("a", target, createFetcher("a"));
+        cache.copyToLocalFile("b", target, createFetcher("b"));
+        // make "b" the least recently used entry, so it is evicted when adding "c"
+        cache.copyToLocalFile("a", target, createFetcher("a"));
+        cache.copyToLocalFile("c", target, createFetcher("c"));
+        cache.copyToLocalFile("a", target, createFetcher("a"));
+        cache.copyToLocalFile("b", target, createFetcher("b"));
+        assertEquals(1, fetchCounts.get("a").get());
+        assertEquals(2, fetchCounts.get("b").get());
+        assertEquals(2 * ENTRY_SIZE, cache.getCurrentSize());
+        assertEquals(2, cacheDir.list().length);
+
+        final LocalDataReferenceCache tinyCache = new LocalDataReferenceCache(cacheDir, ENTRY_SIZE - 1, false);
+        tinyCache.copyToLocalFile("d", target, createFetcher("d"));
+        tinyCache.copyToLocalFile("d", target, createFetcher("d"));
+        assertEquals(createContent("d"), FileUtils.readFileToString(target, StandardCharsets.UTF_8));
+        assertEquals(2, fetchCounts.get("d").get());
+        assertEquals(0, tinyCache.getCurrentSize());
+        assertEquals(2, cacheDir.list().length);
+    }
+
+    /**
+     * Verifies that failed fetches are reported to the caller and not cached.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void failedFetchesAreNotCached() throws Exception {
+        final LocalDataReferenceCache cache = new LocalDataReferenceCache(cacheDir, 10 * ENTRY_SIZE, false);
+        final File target = new File(testDir, "target");
+        try {
+            cache.copyToLocalFile("a", target, file -> {
+                throw new IOException("Simulated failure");
+            });
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertEquals("Simulated failure", e.getMessage());
+        }
+        assertEquals(0, cacheDir.list().length);
+        cache.copyToLocalFile("a", target, createFetcher("a"));
+        assertEquals(1, fetchCounts.get("a").get());
+    }
+
+    /**
+     * Verifies that a failed fetch is only reported to the request that performed it, while concurrent requests for the same data retry
+     * the fetch.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void concurrentRequestsRetryFailedFetch() throws Exception {
+        final LocalDataReferenceCache cache = new LocalDataReferenceCache(cacheDir, 10 * ENTRY_SIZE, false);
+        final CountDownLatch fetchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFetch = new CountDownLatch(1);
+        final AtomicInteger fetchAttempts = new AtomicInteger();
+        final LocalDataReferenceCache.Fetcher failingOnceFetcher = file -> {
+            if (fetchAttempts.incrementAndGet() > 1) {
+                createFetcher("a").fetchTo(file);
+                return;
+            }
+            fetchStarted.countDown();
+            try {
+                releaseFetch.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            throw new IOException("Simulated failure");
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        int failures = 0;
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                final File target = new File(testDir, "target" + i);
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    cache.copyToLocalFile("a", target, failingOnceFetcher);
+                    return null;
+                }));
+            }
+            assertTrue(fetchStarted.await(TEST_TIMEOUT_SEC, TimeUnit.SECONDS));
+            releaseFetch.countDown();
+            for (Future<Void> future : futures) {
+                try {
+                    future.get(TEST_TIMEOUT_SEC, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    assertEquals("Simulated failure", e.getCause().getMessage());
+                    failures++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, failures);
+        assertEquals(2, fetchAttempts.get());
+        assertEquals(1, fetchCounts.get("a").get());
+    }
+
+    /**
+     * Verifies that cache keys distinguish binary references, revisions, and the decompression flag.
+     */
+    @Test
+    public void cacheKeysIncludeBinaryRevisions() {
+        final String refKey = "ref";
+        final DataReference rev1 = createDataReference(refKey, "1");
+        assertEquals(LocalDataReferenceCache.createKey(rev1, true),
+            LocalDataReferenceCache.createKey(createDataReference(refKey, "1"), true));
+        assertNotEquals(LocalDataReferenceCache.createKey(rev1, true), LocalDataReferenceCache.createKey(rev1, false));
+        assertNotEquals(LocalDataReferenceCache.createKey(rev1, true),
+            LocalDataReferenceCache.createKey(createDataReference(refKey, "2"), true));
+    }
+
+    private DataReference createDataReference(String key, String revision) {
+        final Set<BinaryReference> binaryReferences = new HashSet<>();
+        binaryReferences.add(new BinaryReference("binary", CompressionFormat.GZIP, revision));
+        return new DataReference(key,
+            NodeIdentifierTestUtils.createTestLogicalNodeSessionIdWithDisplayName("storage", true).convertToLogicalNodeId(),
+            binaryReferences);
+    }
+
+    private LocalDataReferenceCache.Fetcher createFetcher(final String id) {
+        return file -> {
+            fetchCounts.computeIfAbsent(id, key -> new AtomicInteger()).incrementAndGet();
+            FileUtils.writeStringToFile(file, createContent(id), StandardCharsets.UTF_8);
+        };
+    }
+
+    private String createContent(String id) {
+        final StringBuilder builder = new StringBuilder();
+        while (builder.length() < ENTRY_SIZE) {
+            builder.append(id);
+        }
+        return builder.toString();
+    }
+}
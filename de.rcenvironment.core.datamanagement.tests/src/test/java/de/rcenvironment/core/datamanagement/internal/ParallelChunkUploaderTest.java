@@ -0,0 +1,203 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamanagement.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.rcenvironment.core.communication.common.LogicalNodeId;
+import de.rcenvironment.core.communication.common.NodeIdentifierTestUtils;
+import de.rcenvironment.core.datamanagement.commons.DataReference;
+import de.rcenvironment.core.datamanagement.commons.MetaDataSet;
+import de.rcenvironment.core.utils.common.TempFileServiceAccess;
+import de.rcenvironment.core.utils.common.rpc.RemoteOperationException;
+
+/**
+ * Tests for {@link ParallelChunkUploader} together with the offset-addressed upload methods of {@link RemotableFileDataServiceImpl}.
+ * 
+ * @author agent
+ */
+public class ParallelChunkUploaderTest {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private static final int NUM_CHUNKS = 10;
+
+    private static final int LAST_CHUNK_SIZE = 1000;
+
+    private static final int RANDOM_SEED = 42;
+
+    private static final int MAX_WRITE_DELAY_MSEC = 20;
+
+    private static final long POLLING_INTERVAL_MSEC = 10;
+
+    private static final LogicalNodeId STORAGE_NODE_ID =
+        NodeIdentifierTestUtils.createTestLogicalNodeSessionIdWithDisplayName("storage", true).convertToLogicalNodeId();
+
+    private final Random random = new Random(RANDOM_SEED);
+
+    /**
+     * A {@link RemotableFileDataServiceImpl} that delays chunk writes by random times to provoke out-of-order writes, can simulate
+     * transient RPC failures, and captures the data passed to the data management instead of storing it.
+     * 
+     * @author agent
+     */
+    private final class TestReceiverService extends RemotableFileDataServiceImpl {
+
+        private final Map<Long, AtomicInteger> attemptsPerOffset = new ConcurrentHashMap<>();
+
+        private volatile int failingAttemptsPerChunk;
+
+        private volatile long corruptedOffset = -1;
+
+        private volatile byte[] storedData;
+
+        @Override
+        public void writeToUploadAt(String id, Long offset, byte[] data) throws IOException, RemoteOperationException {
+            final int attempt = attemptsPerOffset.computeIfAbsent(offset, key -> new AtomicInteger()).incrementAndGet();
+            try {
+                Thread.sleep(new Random(offset).nextInt(MAX_WRITE_DELAY_MSEC));
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            // the first chunk is excluded, as a failure there is interpreted as missing support for this upload mode
+            if (offset > 0 && attempt <= failingAttemptsPerChunk) {
+                throw new RemoteOperationException("Simulated transient failure");
+            }
+            if (offset == corruptedOffset) {
+                final byte[] corrupted = Arrays.copyOf(data, data.length);
+                corrupted[0]++;
+                data = corrupted;
+            }
+            super.writeToUploadAt(id, offset, data);
+        }
+
+        @Override
+        public DataReference newReferenceFromStream(InputStream inputStream, MetaDataSet metaDataSet, Boolean alreadyCompressed) {
+            try {
+                final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                final byte[] temp = new byte[CHUNK_SIZE];
+                int n;
+                while ((n = inputStream.read(temp)) != -1) {
+                    buffer.write(temp, 0, n);
+                }
+                storedData = buffer.toByteArray();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return new DataReference(UUID.randomUUID().toString(), STORAGE_NODE_ID, new HashSet<>());
+        }
+    }
+
+    /**
+     * Common setup.
+     */
+    @Before
+    public void setUp() {
+        TempFileServiceAccess.setupUnitTestEnvironment();
+    }
+
+    /**
+     * Verifies that chunks written out of order are reassembled correctly.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void chunksAreReassembled() throws Exception {
+        final TestReceiverService receiver = new TestReceiverService();
+        final byte[] data = createTestData();
+        assertNotNull(upload(receiver, data));
+        assertArrayEquals(data, receiver.storedData);
+    }
+
+    /**
+     * Verifies that chunks failing on the RPC level are retried, and that the upload fails once a chunk has failed too often.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void failedChunksAreRetried() throws Exception {
+        final TestReceiverService receiver = new TestReceiverService();
+        receiver.failingAttemptsPerChunk = ParallelChunkUploader.MAX_CHUNK_UPLOAD_ATTEMPTS - 1;
+        final byte[] data = createTestData();
+        assertNotNull(upload(receiver, data));
+        assertArrayEquals(data, receiver.storedData);
+        assertEquals(ParallelChunkUploader.MAX_CHUNK_UPLOAD_ATTEMPTS, receiver.attemptsPerOffset.get((long) CHUNK_SIZE).get());
+
+        final TestReceiverService failingReceiver = new TestReceiverService();
+        failingReceiver.failingAttemptsPerChunk = ParallelChunkUploader.MAX_CHUNK_UPLOAD_ATTEMPTS;
+        try {
+            upload(failingReceiver, data);
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof RemoteOperationException);
+        }
+    }
+
+    /**
+     * Verifies that data corrupted on the way is detected by the checksum verification.
+     * 
+     * @throws Exception on unexpected errors
+     */
+    @Test
+    public void corruptedDataIsRejected() throws Exception {
+        final TestReceiverService receiver = new TestReceiverService();
+        receiver.corruptedOffset = 3 * CHUNK_SIZE;
+        try {
+            upload(receiver, createTestData());
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Checksum mismatch"));
+        }
+        assertNull(receiver.storedData);
+    }
+
+    private DataReference upload(TestReceiverService receiver, byte[] data) throws Exception {
+        final String uploadId = receiver.initializeUpload();
+        final ParallelChunkUploader uploader = new ParallelChunkUploader(receiver, uploadId);
+        uploader.setRetryDelay(0);
+        assertTrue(uploader.uploadFirstChunk(Arrays.copyOfRange(data, 0, CHUNK_SIZE)));
+        for (int offset = CHUNK_SIZE; offset < data.length; offset += CHUNK_SIZE) {
+            uploader.uploadChunk(Arrays.copyOfRange(data, offset, Math.min(offset + CHUNK_SIZE, data.length)));
+        }
+        uploader.awaitCompletion();
+        receiver.finishUpload(uploadId, new MetaDataSet(), false, uploader.getTotalLength(), uploader.getChecksum());
+        while (true) {
+            final DataReference reference = receiver.pollUploadForDataReference(uploadId);
+            if (reference != null) {
+                return reference;
+            }
+            Thread.sleep(POLLING_INTERVAL_MSEC);
+        }
+    }
+
+    private byte[] createTestData() {
+        final byte[] data = new byte[(NUM_CHUNKS - 1) * CHUNK_SIZE + LAST_CHUNK_SIZE];
+        random.nextBytes(data);
+        return data;
+    }
+}
@@ -8,6 +8,7 @@
 
 package de.rcenvironment.core.datamanagement;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -90,7 +91,28 @@ public interface FileDataService {
         CommunicationException;
 
     /**
-     * Deletes a whole local or remote {@link DataReference} with all {@link Revision}s.
+     * Creates a new {@link DataReference} from the content of the given local file, like
+     * {@link #newReferenceFromStream(InputStream, MetaDataSet, NetworkDestination, boolean)}. If the reference is created on the local
+     * platform and data with the same content is already stored, a new reference to the existing data is created instead of storing the
+     * file again.
+     * 
+     * @param file the file to store
+     * @param metaDataSet MetaDataSet that shall be saved.
+     * @param platform {@link NetworkDestination} of the platform to store the reference. If <code>null</code> the new reference will be
+     *        created on the local platform.
+     * @param alreadyCompressed if the file is already compressed (if set, no compression will be applied)
+     * @return DataReference for the given file and MetaData.
+     * @throws AuthorizationException If the user or the extension has no create permission.
+     * @throws IOException on read or upload failure
+     * @throws InterruptedException on thread interruption
+     * @throws CommunicationException in case of communication error
+     */
+    DataReference newReferenceFromFile(File file, MetaDataSet metaDataSet, NetworkDestination platform, boolean alreadyCompressed)
+        throws AuthorizationException, IOException, InterruptedException, CommunicationException;
+
+    /**
+     * Deletes the stored data of a whole local or remote {@link DataReference} with all {@link Revision}s, if no other data reference
+     * shares it; see {@link #deleteReference(String)}.
      * 
      * @param dataReference DataReference that shall be deleted.
      * @throws CommunicationException on communication error
@@ -98,7 +120,8 @@ public interface FileDataService {
     void deleteReference(DataReference dataReference) throws CommunicationException;
 
     /**
-     * Deletes a whole local {@link DataReference} with all {@link Revision}s.
+     * Deletes the locally stored data of a binary reference. As data with identical content is shared between references, the data is
+     * only deleted if no data reference uses the key anymore.
      * 
      * @param binaryReferenceKey Key of the binary reference that shall be deleted.
      * @throws RemoteOperationException standard remote operation exception
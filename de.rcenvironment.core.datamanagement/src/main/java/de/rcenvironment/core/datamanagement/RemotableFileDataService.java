@@ -98,6 +98,21 @@ public interface RemotableFileDataService {
      */
     long appendToUpload(String id, byte[] data) throws IOException, RemoteOperationException;
 
+    /**
+     * Writes a chunk of data to a virtual file identified by an upload id at the given offset. Unlike
+     * {@link #appendToUpload(String, byte[])}, chunks may be written concurrently and in any order, and writing the same chunk again (for
+     * example, after a failed RPC call) is harmless. Uploads using this method must be completed with
+     * {@link #finishUpload(String, MetaDataSet, Boolean, Long, byte[])}.
+     * 
+     * @param id the assigned upload id
+     * @param offset the position of the chunk's first byte within the uploaded data
+     * @param data the chunk data
+     * 
+     * @throws IOException on I/O errors on the receiver's side
+     * @throws RemoteOperationException standard remote operation exception
+     */
+    void writeToUploadAt(String id, Long offset, byte[] data) throws IOException, RemoteOperationException;
+
     /**
      * Signals that all data has been written via {@link #appendToUpload(String, byte[])} and initiates the asynchronous conversion into a
      * {@link DataReference} with the given {@link MetaDataSet} attached. This conversion is performed asynchronously to avoid RPC timeouts
@@ -126,6 +141,23 @@ public interface RemotableFileDataService {
     void finishUpload(String id, MetaDataSet metaDataSet, Boolean alreadyCompressed)
         throws IOException, RemoteOperationException;
 
+    /**
+     * Signals that all data has been written via {@link #writeToUploadAt(String, Long, byte[])} and initiates the asynchronous conversion
+     * into a {@link DataReference}, like {@link #finishUpload(String, MetaDataSet, Boolean)}. Before the conversion, the received data is
+     * verified against the given length and SHA-256 checksum; on a mismatch, {@link #pollUploadForDataReference(String)} throws an
+     * {@link IOException}.
+     * 
+     * @param id the assigned upload id
+     * @param metaDataSet the data management metadata to append to the {@link DataReference}
+     * @param alreadyCompressed if the file is already compressed (if set, no compression will be applied)
+     * @param totalLength the total number of bytes uploaded
+     * @param sha256Checksum the SHA-256 checksum of the uploaded data
+     * @throws IOException on I/O errors on the receiver's side, or if the received data has the wrong length
+     * @throws RemoteOperationException standard remote operation exception
+     */
+    void finishUpload(String id, MetaDataSet metaDataSet, Boolean alreadyCompressed, Long totalLength, byte[] sha256Checksum)
+        throws IOException, RemoteOperationException;
+
     /**
      * Attempt to fetch the generated {@link DataReference} for a given upload id. If the reference is not available yet, null is returned.
      * 
@@ -167,7 +199,8 @@ public interface RemotableFileDataService {
         RemoteOperationException;
 
     /**
-     * Deletes a whole local {@link DataReference} with all {@link Revision}s.
+     * Deletes the locally stored data of a binary reference. As data with identical content is shared between references, the data is
+     * only deleted if no data reference uses the key anymore.
      * 
      * @param binaryReferenceKey Key of the binary reference that shall be deleted.
      * @throws RemoteOperationException standard remote operation exception
@@ -83,5 +83,24 @@ public interface DataBackend {
      * @return object at location.
      */
     Object get(URI location, boolean decompress);
-    
+
+    /**
+     * Checks whether an object is stored at the given location.
+     * 
+     * @param location the location to check
+     * @return <code>true</code> if an object exists at the given location
+     */
+    boolean exists(URI location);
+
+    /**
+     * Moves the object at the source location to the target location, unless an object already exists at the target location; in that
+     * case, nothing is changed. Implementations must perform the check and the move atomically with regard to other calls of this
+     * method.
+     * 
+     * @param source the location of the object to move
+     * @param target the new location of the object
+     * @return <code>true</code> if the object was moved, <code>false</code> if the target location was already occupied
+     */
+    boolean move(URI source, URI target);
+
 }
@@ -45,6 +45,18 @@ public interface MetaDataBackendService extends RemotableMetaDataService {
      */
     Long addDataReferenceToComponentRun(Long componentRunId, DataReference dataReference);
 
+    /**
+     * Adds a {@link DataReference} to the {@link ComponentRun} with the given identifier.
+     * 
+     * @param componentRunId The identifier of the {@link ComponentRun}.
+     * @param dataReference The {@link DataReference} to add.
+     * @param onlyIfBinaryDataExists if true, the {@link DataReference} is only added if its binary reference keys are already used by
+     *        other references; this check and the insertion are performed in a single transaction, so that the shared data cannot be
+     *        deleted in between
+     * @return The identifier of the generated dataReference, or null if the data does not exist and onlyIfBinaryDataExists was set
+     */
+    Long addDataReferenceToComponentRun(Long componentRunId, DataReference dataReference, boolean onlyIfBinaryDataExists);
+
     /**
      * Adds a {@link DataReference} to the {@link ComponentInstance} with the given identifier.
      * 
@@ -54,6 +66,18 @@ public interface MetaDataBackendService extends RemotableMetaDataService {
      */
     Long addDataReferenceToComponentInstance(Long componentInstanceId, DataReference dataReference);
 
+    /**
+     * Adds a {@link DataReference} to the {@link ComponentInstance} with the given identifier.
+     * 
+     * @param componentInstanceId The identifier of the {@link ComponentInstance}.
+     * @param dataReference The {@link DataReference} to add.
+     * @param onlyIfBinaryDataExists if true, the {@link DataReference} is only added if its binary reference keys are already used by
+     *        other references; this check and the insertion are performed in a single transaction, so that the shared data cannot be
+     *        deleted in between
+     * @return The identifier of the generated dataReference, or null if the data does not exist and onlyIfBinaryDataExists was set
+     */
+    Long addDataReferenceToComponentInstance(Long componentInstanceId, DataReference dataReference, boolean onlyIfBinaryDataExists);
+
     /**
      * Adds a {@link DataReference} to the {@link ComponentRun} with the given identifier.
      * 
@@ -63,6 +87,18 @@ public interface MetaDataBackendService extends RemotableMetaDataService {
      */
     Long addDataReferenceToWorkflowRun(Long workflowRunId, DataReference dataReference);
 
+    /**
+     * Adds a {@link DataReference} to the {@link WorkflowRun} with the given identifier.
+     * 
+     * @param workflowRunId The identifier of the {@link WorkflowRun}.
+     * @param dataReference The {@link DataReference} to add.
+     * @param onlyIfBinaryDataExists if true, the {@link DataReference} is only added if its binary reference keys are already used by
+     *        other references; this check and the insertion are performed in a single transaction, so that the shared data cannot be
+     *        deleted in between
+     * @return The identifier of the generated dataReference, or null if the data does not exist and onlyIfBinaryDataExists was set
+     */
+    Long addDataReferenceToWorkflowRun(Long workflowRunId, DataReference dataReference, boolean onlyIfBinaryDataExists);
+
     /**
      * Gets the {@link DataReference} for the given uuid from the meta data backend.
      * 
@@ -78,6 +114,16 @@ public interface MetaDataBackendService extends RemotableMetaDataService {
      * @param binaryReference The {@link BinaryReference} to add.
      */
     void addBinaryReference(Long dataReferenceId, BinaryReference binaryReference);
+
+    /**
+     * Deletes the stored data of the given binary reference key, unless it is still used by any {@link BinaryReference} dataset. As data
+     * with identical content is shared between references, no reference to the key can be added while checking and deleting.
+     * 
+     * @param binaryReferenceKey the binary reference key
+     * @param deletion the action that deletes the stored data; only called if the key is not in use
+     * @return true if the data was deleted
+     */
+    boolean deleteBinaryDataIfUnreferenced(String binaryReferenceKey, Runnable deletion);
     
     /**
      * Checks if the meta data backend service was started successfully.
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamanagement.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+
+/**
+ * Derives binary reference keys from the content of the stored data, so that identical data is only stored once per storage node.
+ * 
+ * To remain compatible with all code that treats binary reference keys as {@link UUID}s (including the database schema and the storage
+ * locations of data backends), the keys are formatted as UUIDs built from the first 122 bits of the SHA-256 hash of the data. The
+ * "already compressed" flag is part of the hashed data, as it affects the way the data is stored.
+ * 
+ * @author agent
+ */
+final class ContentAddressing {
+
+    /**
+     * If this system property is set, new data is stored under random keys again, as in previous versions.
+     */
+    static final String DEACTIVATION_PROPERTY = "rce.dataManagement.deactivateContentAddressedStorage";
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final int FILE_READ_BUFFER_SIZE = 256 * 1024;
+
+    private static final long VERSION_MASK = 0xffffffffffff0fffL;
+
+    private static final long VERSION_8_BITS = 0x0000000000008000L; // "custom" UUID version as defined by RFC 9562
+
+    private static final long VARIANT_MASK = 0x3fffffffffffffffL;
+
+    private static final long VARIANT_BITS = 0x8000000000000000L;
+
+    private ContentAddressing() {}
+
+    /**
+     * @return true unless content-addressed storage was disabled via {@link #DEACTIVATION_PROPERTY}
+     */
+    static boolean isEnabled() {
+        return !System.getProperties().containsKey(DEACTIVATION_PROPERTY);
+    }
+
+    /**
+     * @return a new {@link MessageDigest} instance to feed the data to store into
+     */
+    static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param digest a digest created by {@link #createDigest()} that the complete data has been fed into; it is reset by this call
+     * @param alreadyCompressed the "already compressed" flag the data was or will be stored with
+     * @return the binary reference key for the data
+     */
+    static String deriveBinaryReferenceKey(MessageDigest digest, boolean alreadyCompressed) {
+        digest.update((byte) (alreadyCompressed ? 1 : 0));
+        final ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        final long mostSigBits = hash.getLong() & VERSION_MASK | VERSION_8_BITS;
+        final long leastSigBits = hash.getLong() & VARIANT_MASK | VARIANT_BITS;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+    /**
+     * Calculates the binary reference key for the content of a local file.
+     * 
+     * @param file the file
+     * @param alreadyCompressed the "already compressed" flag the data will be stored with
+     * @return the binary reference key for the file's content
+     * @throws IOException on read errors
+     */
+    static String calculateBinaryReferenceKey(File file, boolean alreadyCompressed) throws IOException {
+        final MessageDigest digest = createDigest();
+        final byte[] buffer = new byte[FILE_READ_BUFFER_SIZE];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int n;
+            while ((n = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return deriveBinaryReferenceKey(digest, alreadyCompressed);
+    }
+}
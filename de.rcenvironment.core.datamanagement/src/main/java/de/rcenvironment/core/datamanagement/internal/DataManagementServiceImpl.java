@@ -8,19 +8,28 @@
 
 package de.rcenvironment.core.datamanagement.internal;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import de.rcenvironment.core.authorization.AuthorizationException;
+import de.rcenvironment.core.communication.api.PlatformService;
 import de.rcenvironment.core.communication.common.CommunicationException;
 import de.rcenvironment.core.communication.common.NetworkDestination;
 import de.rcenvironment.core.datamanagement.DataManagementService;
@@ -47,8 +56,6 @@ public class DataManagementServiceImpl implements DataManagementService {
         "Filename/path '%s' contains characters that are not valid for all operating systems; "
             + "it might lead to problems when accessing the file on another operating system";
 
-    private static final String ARCHIVE_TAR_GZ = "archive.tar.gz";
-
     private static final int BUFFER = 1024;
 
     private static final String REFERENCE_NOT_FOUND_MESSAGE = "No such data entry (id='%s').";
@@ -57,24 +64,49 @@ public class DataManagementServiceImpl implements DataManagementService {
 
     private static final Log LOGGER = LogFactory.getLog(DataManagementServiceImpl.class);
 
+    // the maximum size of the local cache for data stored on other nodes; set to 0 to disable the cache
+    private static final String LOCAL_CACHE_SIZE_PROPERTY = "rce.dataManagement.localCacheSizeMB";
+
+    private static final String LOCAL_CACHE_HARD_LINKS_PROPERTY = "rce.dataManagement.localCacheUseHardLinks";
+
+    private static final long DEFAULT_LOCAL_CACHE_SIZE_MB = 1024;
+
+    private static final long BYTES_PER_MB = 1024 * 1024;
+
     private FileDataService fileDataService;
 
     private DataReferenceService dataReferenceService;
 
+    private PlatformService platformService;
+
+    private LocalDataReferenceCache localCache; // lazily initialized; guarded by "this"
+
+    private boolean localCacheInitialized; // guarded by "this"
+
     @Override
     public String createReferenceFromLocalFile(File file, MetaDataSet additionalMetaData,
         NetworkDestination nodeId) throws IOException, AuthorizationException, InterruptedException, CommunicationException {
         if (!CrossPlatformFilenameUtils.isFilenameValid(file.getName())) {
             LOGGER.warn(StringUtils.format(STRING_FILENAME_NOT_VALID, file.getName()));
         }
-        return createReferenceFromStream(new FileInputStream(file), additionalMetaData, nodeId, false);
+        return createReferenceFromFile(file, additionalMetaData, nodeId, false);
     }
 
     @Override
     public String createReferenceFromLocalFile(File file, MetaDataSet additionalMetaData,
         NetworkDestination nodeId, boolean alreadyCompressed) throws IOException, AuthorizationException, InterruptedException,
         CommunicationException {
-        return createReferenceFromStream(new FileInputStream(file), additionalMetaData, nodeId, alreadyCompressed);
+        return createReferenceFromFile(file, additionalMetaData, nodeId, alreadyCompressed);
+    }
+
+    private String createReferenceFromFile(File file, MetaDataSet additionalMetaData, NetworkDestination nodeId,
+        boolean alreadyCompressed) throws IOException, AuthorizationException, InterruptedException, CommunicationException {
+        if (additionalMetaData == null) {
+            additionalMetaData = new MetaDataSet();
+        }
+        // note: unlike streams, files allow the upload to be skipped if their content is already stored on the target node
+        DataReference dataRef = fileDataService.newReferenceFromFile(file, additionalMetaData, nodeId, alreadyCompressed);
+        return dataRef.getDataReferenceKey().toString();
     }
 
     private String createReferenceFromStream(InputStream inputStream, MetaDataSet additionalMetaData,
@@ -96,24 +128,11 @@ public class DataManagementServiceImpl implements DataManagementService {
     @Override
     public String createReferenceFromLocalDirectory(final File dir, final MetaDataSet additionalMetaData, final NetworkDestination nodeId)
         throws IOException, AuthorizationException, InterruptedException, CommunicationException {
-
-        final File archive = TempFileServiceAccess.getInstance().createTempFileWithFixedFilename(ARCHIVE_TAR_GZ);
-
-        try {
-            if (!FileCompressionService.compressDirectoryToFile(dir, archive,
-                FileCompressionFormat.TAR_GZ, true)) {
-
-                // Case: Was not able to compress & archive the directory:
-                LOGGER.error("Was not able to create a reference from a local directory due to an issue with the compression.");
-                throw new IOException("Was not able to create a reference from a local directory due to an issue with the compression.");
-            }
-
-            try (FileInputStream fileInputStream = new FileInputStream(archive)) {
-                return createReferenceFromStream(fileInputStream, additionalMetaData, nodeId, false);
-            }
-        } finally {
-            TempFileServiceAccess.getInstance().disposeManagedTempDirOrFile(archive);
-        }
+        // the archive is uploaded while it is being created, so no temporary archive file is needed; if the compression fails, reading
+        // the stream fails as well, which aborts the upload. Already stored content is still reused, as stored streams are deduplicated
+        // by their digest as well
+        return createReferenceFromStream(DirectoryArchiveStream.start(dir, FileCompressionFormat.TAR_GZ), additionalMetaData, nodeId,
+            false);
     }
 
     @Override
@@ -143,6 +162,18 @@ public class DataManagementServiceImpl implements DataManagementService {
     public void copyReferenceToLocalFile(String reference, File targetFile, NetworkDestination nodeId, boolean decompress)
         throws IOException,
         CommunicationException {
+        final DataReference dataRef = resolveReference(reference, nodeId);
+        final LocalDataReferenceCache cache = getLocalCache();
+        if (cache != null && !platformService.matchesLocalInstance(dataRef.getStorageNodeId())) {
+            // data references are immutable, so data fetched from other nodes can be reused for subsequent requests
+            cache.copyToLocalFile(LocalDataReferenceCache.createKey(dataRef, decompress), targetFile,
+                file -> downloadToLocalFile(dataRef, file));
+        } else {
+            downloadToLocalFile(dataRef, targetFile);
+        }
+    }
+
+    private DataReference resolveReference(String reference, NetworkDestination nodeId) throws IOException, CommunicationException {
         DataReference dataRef;
         if (nodeId == null) {
             // TODO can this still be reached? null nodeIds should not be in use anymore -- misc_ro
@@ -153,6 +184,10 @@ public class DataManagementServiceImpl implements DataManagementService {
         if (dataRef == null) {
             throw new FileNotFoundException(StringUtils.format(REFERENCE_NOT_FOUND_MESSAGE, reference));
         }
+        return dataRef;
+    }
+
+    private void downloadToLocalFile(DataReference dataRef, File targetFile) throws IOException, CommunicationException {
         InputStream dataMgmtStream = fileDataService.getStreamFromDataReference(dataRef);
         try {
             FileUtils.copyInputStreamToFile(dataMgmtStream, targetFile);
@@ -160,7 +195,31 @@ public class DataManagementServiceImpl implements DataManagementService {
             // FIXME: replace with try-with-resources statement after release 7.0.0
             IOUtils.closeQuietly(dataMgmtStream);
         }
+    }
 
+    private synchronized LocalDataReferenceCache getLocalCache() throws IOException {
+        if (!localCacheInitialized) {
+            long maxSizeMB = DEFAULT_LOCAL_CACHE_SIZE_MB;
+            String sizeArg = System.getProperty(LOCAL_CACHE_SIZE_PROPERTY);
+            if (sizeArg != null) {
+                try {
+                    maxSizeMB = Long.parseLong(sizeArg);
+                } catch (NumberFormatException e) {
+                    LOGGER.error("Failed to parse " + LOCAL_CACHE_SIZE_PROPERTY + " setting; using default", e);
+                }
+            }
+            if (maxSizeMB > 0) {
+                final File cacheDir = TempFileServiceAccess.getInstance().createManagedTempDir("data-reference-cache");
+                final boolean useHardLinks = System.getProperties().containsKey(LOCAL_CACHE_HARD_LINKS_PROPERTY);
+                localCache = new LocalDataReferenceCache(cacheDir, maxSizeMB * BYTES_PER_MB, useHardLinks);
+                LOGGER.debug(StringUtils.format("Caching data from other nodes in %s (up to %d MB; hard links: %s)", cacheDir, maxSizeMB,
+                    useHardLinks));
+            } else {
+                LOGGER.debug("Local cache for data from other nodes is disabled");
+            }
+            localCacheInitialized = true;
+        }
+        return localCache;
     }
 
     @Override
@@ -190,20 +249,51 @@ public class DataManagementServiceImpl implements DataManagementService {
     public void copyReferenceToLocalDirectory(final String reference, final File targetDir, final NetworkDestination node)
         throws IOException,
         CommunicationException {
+        final DataReference dataRef = resolveReference(reference, node);
+        final LocalDataReferenceCache cache = getLocalCache();
+        if (cache != null && !platformService.matchesLocalInstance(dataRef.getStorageNodeId())) {
+            // on a cache miss, the archive is expanded while it is being downloaded into the cache; on a cache hit, the cached archive is
+            // expanded in place instead of copying it to a temporary file first; uses the same cache key as copyReferenceToLocalFile(), as
+            // the archive is fetched the same way
+            final AtomicBoolean expandedWhileFetching = new AtomicBoolean();
+            cache.readCachedFile(LocalDataReferenceCache.createKey(dataRef, true), file -> {
+                downloadAndExpandDirectoryArchive(dataRef, file, targetDir);
+                expandedWhileFetching.set(true);
+            }, archive -> {
+                if (!expandedWhileFetching.get()) {
+                    try (InputStream archiveStream = new BufferedInputStream(new FileInputStream(archive))) {
+                        expandDirectoryArchive(archiveStream, targetDir);
+                    }
+                }
+            });
+        } else {
+            // expand the archive while it is being downloaded; for remote data, the download stream fetches ahead asynchronously
+            InputStream dataMgmtStream = fileDataService.getStreamFromDataReference(dataRef);
+            try {
+                expandDirectoryArchive(dataMgmtStream, targetDir);
+            } finally {
+                IOUtils.closeQuietly(dataMgmtStream);
+            }
+        }
+    }
 
-        final File archive = TempFileServiceAccess.getInstance().createTempFileWithFixedFilename(ARCHIVE_TAR_GZ);
-
-        try {
-            copyReferenceToLocalFile(reference, archive, node);
-            if (!FileCompressionService.expandCompressedDirectoryFromFile(archive, targetDir,
-                FileCompressionFormat.TAR_GZ)) {
+    private void downloadAndExpandDirectoryArchive(DataReference dataRef, File cacheFile, File targetDir)
+        throws IOException, CommunicationException {
+        try (InputStream dataMgmtStream = fileDataService.getStreamFromDataReference(dataRef);
+            OutputStream cacheFileStream = new BufferedOutputStream(new FileOutputStream(cacheFile))) {
+            final InputStream teeStream = new TeeInputStream(dataMgmtStream, cacheFileStream);
+            // the expander closes its input stream, but the cached copy must still be completed afterwards
+            expandDirectoryArchive(new CloseShieldInputStream(teeStream), targetDir);
+            // the expander may stop reading before the end of the data, for example before trailing padding
+            IOUtils.copy(teeStream, NullOutputStream.NULL_OUTPUT_STREAM);
+        }
+    }
 
-                // Case: Expanding of archive was not possible.
-                LOGGER.error("Was not able to copy reference to local directory due to an uncompression issue.");
-                throw new CommunicationException("Was not able to copy reference to local directory due to an uncompression issue.");
-            }
-        } finally {
-            TempFileServiceAccess.getInstance().disposeManagedTempDirOrFile(archive);
+    private void expandDirectoryArchive(InputStream archiveStream, File targetDir) throws CommunicationException {
+        if (!FileCompressionService.expandCompressedDirectoryFromInputStream(archiveStream, targetDir, FileCompressionFormat.TAR_GZ)) {
+            // Case: Expanding of archive was not possible.
+            LOGGER.error("Was not able to copy reference to local directory due to an uncompression issue.");
+            throw new CommunicationException("Was not able to copy reference to local directory due to an uncompression issue.");
         }
     }
 
@@ -248,4 +338,13 @@ public class DataManagementServiceImpl implements DataManagementService {
         this.dataReferenceService = newValue;
     }
 
+    /**
+     * OSGi-DS setter.
+     * 
+     * @param newValue The platformService to set.
+     */
+    protected void bindPlatformService(PlatformService newValue) {
+        this.platformService = newValue;
+    }
+
 }
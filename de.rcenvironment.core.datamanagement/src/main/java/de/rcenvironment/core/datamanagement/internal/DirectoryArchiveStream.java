@@ -0,0 +1,246 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamanagement.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.rcenvironment.core.toolkitbridge.transitional.ConcurrencyUtils;
+import de.rcenvironment.core.utils.common.FileCompressionFormat;
+import de.rcenvironment.core.utils.common.FileCompressionService;
+
+/**
+ * An {@link InputStream} providing the compressed archive of a directory while it is being created. The compression runs on a separate
+ * thread and is connected to the reading thread by a bounded buffer, so reading the source files, compressing, and consuming the archive
+ * (typically, uploading it) overlap, and no temporary archive file is needed.
+ * 
+ * If the compression fails, reading from this stream fails with an {@link IOException} instead of reaching the end of the stream, so
+ * incomplete archives are never mistaken for complete ones. Closing this stream before the end is reached cancels the compression.
+ * 
+ * @author agent
+ */
+final class DirectoryArchiveStream extends InputStream {
+
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    // the maximum number of blocks buffered between the compressing and the reading thread
+    static final int MAX_BUFFERED_BLOCKS = 16;
+
+    private static final long BLOCK_OFFER_TIMEOUT_MSEC = 1000;
+
+    // a marker block that is compared by identity
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final File sourceDirectory;
+
+    private final FileCompressionFormat format;
+
+    private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(MAX_BUFFERED_BLOCKS);
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    // written by the compressing thread before queueing the end-of-stream marker, so the queue makes it visible to the reading thread
+    private volatile boolean compressionFailed;
+
+    private volatile boolean closed;
+
+    private Future<?> compressionTask;
+
+    private byte[] currentBlock;
+
+    private int currentBlockPosition;
+
+    private boolean endOfStreamReached;
+
+    /**
+     * Writes the compressed data to the block queue, waiting for the reading thread if the queue is full.
+     * 
+     * @author agent
+     */
+    private final class BlockOutputStream extends OutputStream {
+
+        private byte[] buffer = new byte[BLOCK_SIZE];
+
+        private int bufferPosition;
+
+        private boolean outputClosed;
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer[bufferPosition++] = (byte) b;
+            if (bufferPosition == BLOCK_SIZE) {
+                flushBlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            while (length > 0) {
+                final int count = Math.min(length, BLOCK_SIZE - bufferPosition);
+                System.arraycopy(data, offset, buffer, bufferPosition, count);
+                bufferPosition += count;
+                offset += count;
+                length -= count;
+                if (bufferPosition == BLOCK_SIZE) {
+                    flushBlock();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            // may be called more than once, as the archive stream closes its underlying stream as well
+            if (!outputClosed) {
+                outputClosed = true;
+                if (bufferPosition > 0) {
+                    flushBlock();
+                }
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            final byte[] block;
+            if (bufferPosition == BLOCK_SIZE) {
+                // hand over the full buffer without copying it
+                block = buffer;
+                buffer = new byte[BLOCK_SIZE];
+            } else {
+                block = new byte[bufferPosition];
+                System.arraycopy(buffer, 0, block, 0, bufferPosition);
+            }
+            bufferPosition = 0;
+            putBlock(block);
+        }
+    }
+
+    private DirectoryArchiveStream(File sourceDirectory, FileCompressionFormat format) {
+        this.sourceDirectory = sourceDirectory;
+        this.format = format;
+    }
+
+    /**
+     * Starts the asynchronous compression of the given directory.
+     * 
+     * @param sourceDirectory the directory to compress; its name is used as the root element of the archive
+     * @param format the compression format to use
+     * @return the stream to read the archive from; must be closed by the caller
+     */
+    static DirectoryArchiveStream start(File sourceDirectory, FileCompressionFormat format) {
+        final DirectoryArchiveStream stream = new DirectoryArchiveStream(sourceDirectory, format);
+        stream.compressionTask =
+            ConcurrencyUtils.getAsyncTaskService().submit("Data Management: Compress directory for streaming upload", stream::compress);
+        return stream;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureBlockAvailable()) {
+            return -1;
+        }
+        return currentBlock[currentBlockPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] data, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureBlockAvailable()) {
+            return -1;
+        }
+        final int count = Math.min(length, currentBlock.length - currentBlockPosition);
+        System.arraycopy(currentBlock, currentBlockPosition, data, offset, count);
+        currentBlockPosition += count;
+        return count;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // no effect if the compression has already finished
+        compressionTask.cancel(true);
+        blocks.clear();
+    }
+
+    private void compress() {
+        final BlockOutputStream outputStream = new BlockOutputStream();
+        boolean success = false;
+        try {
+            success = FileCompressionService.compressDirectoryToOutputStream(sourceDirectory, outputStream, format, true);
+            if (success) {
+                // usually a no-op, as the archive stream closes the output stream, but not guaranteed to
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            success = false;
+            if (!closed) {
+                log.error("Failed to compress directory " + sourceDirectory, e);
+            }
+        } finally {
+            compressionFailed = !success;
+            try {
+                putBlock(END_OF_STREAM);
+            } catch (IOException e) {
+                // only happens if the reader has closed the stream, so there is no one left to notify
+                log.debug("Compression of " + sourceDirectory + " ended after the archive stream was closed");
+            }
+        }
+    }
+
+    private void putBlock(byte[] block) throws IOException {
+        try {
+            // time out regularly to detect if the reader has closed the stream, as it will not take any more blocks then
+            while (!closed) {
+                if (blocks.offer(block, BLOCK_OFFER_TIMEOUT_MSEC, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the archive stream to be read");
+        }
+        throw new IOException("The archive stream was closed by the reader");
+    }
+
+    private boolean ensureBlockAvailable() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (!endOfStreamReached && (currentBlock == null || currentBlockPosition == currentBlock.length)) {
+            try {
+                currentBlock = blocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for compressed data");
+            }
+            currentBlockPosition = 0;
+            endOfStreamReached = currentBlock == END_OF_STREAM;
+        }
+        if (endOfStreamReached) {
+            if (compressionFailed) {
+                throw new IOException("Failed to compress directory " + sourceDirectory + "; see the log for details");
+            }
+            return false;
+        }
+        return true;
+    }
+}
@@ -9,9 +9,10 @@
 package de.rcenvironment.core.datamanagement.internal;
 
 import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
 import java.util.Arrays;
 import java.util.UUID;
 import java.util.concurrent.Exchanger;
@@ -63,6 +64,8 @@ public class FileDataServiceImpl implements FileDataService {
 
     private static final String DRCE_DEACTIVATE_SINGLE_STEP_UPDATE = "rce.upload.deactivateSingleStepUpdate";
 
+    private static final String DRCE_DEACTIVATE_PARALLEL_UPLOAD = "rce.upload.deactivateParallelUpload";
+
     private PlatformService platformService;
 
     private final Log log = LogFactory.getLog(getClass());
@@ -295,6 +298,42 @@ public class FileDataServiceImpl implements FileDataService {
         }
     }
 
+    @Override
+    public DataReference newReferenceFromFile(File file, MetaDataSet metaDataSet, NetworkDestination platform, boolean alreadyCompressed)
+        throws AuthorizationException, IOException, InterruptedException, CommunicationException {
+
+        if (platform == null) {
+            platform = platformService.getLocalInstanceNodeSessionId();
+        }
+
+        // only share existing data locally: a remote node must not be able to obtain a reference to data by knowing its key only
+        if (ContentAddressing.isEnabled() && RemotableFileDataServiceImpl.hasRelatedEntity(metaDataSet)
+            && platform instanceof ResolvableNodeId && platformService.matchesLocalInstance((ResolvableNodeId) platform)) {
+            final DataReference reference = newReferenceFromExistingLocalContent(file, metaDataSet, alreadyCompressed);
+            if (reference != null) {
+                log.debug(StringUtils.format("Skipped storing %s as its content is already stored", file.getName()));
+                return reference;
+            }
+        }
+
+        try (InputStream inputStream = new FileInputStream(file)) {
+            return newReferenceFromStream(inputStream, metaDataSet, platform, alreadyCompressed);
+        }
+    }
+
+    private DataReference newReferenceFromExistingLocalContent(File file, MetaDataSet metaDataSet, boolean alreadyCompressed)
+        throws IOException {
+        // hashing the file is cheaper than compressing and storing it again, so check whether its content is already stored first
+        final String binaryReferenceKey = ContentAddressing.calculateBinaryReferenceKey(file, alreadyCompressed);
+        final DataBackend dataBackend = BackendSupport.getDataBackend();
+        if (!dataBackend.exists(dataBackend.suggestLocation(UUID.fromString(binaryReferenceKey)))) {
+            return null;
+        }
+        // the meta data backend only adds the reference if other references still hold the data, so it cannot be deleted concurrently
+        return RemotableFileDataServiceImpl.registerNewDataReference(UUID.randomUUID().toString(), binaryReferenceKey, metaDataSet,
+            platformService.getLocalDefaultLogicalNodeId(), true);
+    }
+
     private DataReference performRemoteUpload(InputStream inputStream, MetaDataSet metaDataSet,
         final NetworkDestination remoteNodeId, boolean alreadyCompressed) throws InterruptedException, IOException, CommunicationException {
         final RemotableFileDataService remoteDataService =
@@ -317,6 +356,15 @@ public class FileDataServiceImpl implements FileDataService {
                 }
                 log.debug("Received remote upload id " + uploadId);
 
+                if (!System.getProperties().containsKey(DRCE_DEACTIVATE_PARALLEL_UPLOAD)) {
+                    final ParallelChunkUploader parallelUploader = new ParallelChunkUploader(remoteDataService, uploadId);
+                    if (parallelUploader.uploadFirstChunk(readBuffer.getContentSizeBuffer())) {
+                        return performParallelUpload(inputStream, metaDataSet, alreadyCompressed, remoteDataService, uploadId,
+                            parallelUploader);
+                    }
+                    // otherwise, the first chunk was not uploaded; continue with the sequential upload below
+                }
+
                 // create and start async uploader
                 AsyncBufferUploader asyncUploader = new AsyncBufferUploader(uploadChunkSize) {
 
@@ -363,16 +411,7 @@ public class FileDataServiceImpl implements FileDataService {
                 remoteDataService.finishUpload(uploadId, metaDataSet, alreadyCompressed);
                 log.debug(StringUtils.format("Finished uploading %d bytes for upload id %s; polling for remote data reference", totalRead2,
                     uploadId));
-
-                // poll until successful or the thread is interrupted
-                while (true) {
-                    Thread.sleep(REMOTE_REFERENCE_POLLING_INTERVAL_MSEC);
-                    DataReference reference = remoteDataService.pollUploadForDataReference(uploadId);
-                    if (reference != null) {
-                        log.debug("Received remote data reference for upload id " + uploadId);
-                        return reference;
-                    }
-                }
+                return pollForRemoteDataReference(remoteDataService, uploadId);
             }
 
         } catch (IOException e) {
@@ -383,6 +422,44 @@ public class FileDataServiceImpl implements FileDataService {
         }
     }
 
+    private DataReference performParallelUpload(InputStream inputStream, MetaDataSet metaDataSet, boolean alreadyCompressed,
+        RemotableFileDataService remoteDataService, String uploadId, ParallelChunkUploader parallelUploader)
+        throws IOException, InterruptedException, RemoteOperationException {
+        try {
+            boolean endOfStream = false;
+            while (!endOfStream) {
+                // each chunk needs its own buffer, as it is only released once the chunk has been sent
+                ChunkBuffer chunkBuffer = new ChunkBuffer(uploadChunkSize);
+                endOfStream = !chunkBuffer.fillFromStream(inputStream);
+                if (chunkBuffer.getContentSize() > 0) {
+                    parallelUploader.uploadChunk(chunkBuffer.getContentSizeBuffer());
+                }
+            }
+            parallelUploader.awaitCompletion();
+        } catch (IOException | InterruptedException e) {
+            parallelUploader.cancel();
+            throw e;
+        }
+        remoteDataService.finishUpload(uploadId, metaDataSet, alreadyCompressed, parallelUploader.getTotalLength(),
+            parallelUploader.getChecksum());
+        log.debug(StringUtils.format("Finished parallel upload of %d bytes for upload id %s; polling for remote data reference",
+            parallelUploader.getTotalLength(), uploadId));
+        return pollForRemoteDataReference(remoteDataService, uploadId);
+    }
+
+    private DataReference pollForRemoteDataReference(RemotableFileDataService remoteDataService, String uploadId)
+        throws InterruptedException, IOException, RemoteOperationException {
+        // poll until successful or the thread is interrupted
+        while (true) {
+            Thread.sleep(REMOTE_REFERENCE_POLLING_INTERVAL_MSEC);
+            DataReference reference = remoteDataService.pollUploadForDataReference(uploadId);
+            if (reference != null) {
+                log.debug("Received remote data reference for upload id " + uploadId);
+                return reference;
+            }
+        }
+    }
+
     @Override
     public void deleteReference(DataReference dataReference) throws CommunicationException {
 
@@ -402,12 +479,7 @@ public class FileDataServiceImpl implements FileDataService {
 
     @Override
     public void deleteReference(String binaryReferenceKey) throws RemoteOperationException {
-        DataBackend dataService =
-            BackendSupport.getDataBackend();
-        URI location =
-            dataService.suggestLocation(
-                UUID.fromString(binaryReferenceKey));
-        dataService.delete(location);
+        RemotableFileDataServiceImpl.deleteBinaryDataIfUnreferenced(binaryReferenceKey);
     }
 
 }
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamanagement.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.rcenvironment.core.communication.common.CommunicationException;
+import de.rcenvironment.core.datamanagement.commons.BinaryReference;
+import de.rcenvironment.core.datamanagement.commons.DataReference;
+import de.rcenvironment.core.toolkitbridge.transitional.StatsCounter;
+import de.rcenvironment.core.utils.common.StringUtils;
+
+/**
+ * A disk-backed, size-bounded cache of the content of data references stored on other nodes. As data references are immutable, a cached
+ * copy never becomes outdated, so repeated fetches of the same reference (for example, in loop iterations, or by several components on
+ * the same node) can be served locally. Least recently used entries are evicted once the total size exceeds the configured maximum;
+ * entries that are currently being copied are never deleted.
+ * 
+ * Concurrent requests for the same entry are de-duplicated: only the first one fetches the data, while the others wait for it to complete.
+ * If that fetch fails, the waiting requests fetch the data themselves, so each of them either succeeds or receives its own error.
+ * 
+ * @author agent
+ */
+final class LocalDataReferenceCache {
+
+    /**
+     * Fetches the data for a cache entry from its original location.
+     * 
+     * @author agent
+     */
+    interface Fetcher {
+
+        /**
+         * @param targetFile the file to write the data to
+         * @throws IOException on I/O errors
+         * @throws CommunicationException on failure to fetch the data from the remote node
+         */
+        void fetchTo(File targetFile) throws IOException, CommunicationException;
+    }
+
+    /**
+     * Reads a cached file in place.
+     * 
+     * @author agent
+     */
+    interface CachedFileReader {
+
+        /**
+         * @param cachedFile the cached file; must not be modified, and is only guaranteed to exist until this method returns
+         * @throws IOException on I/O errors
+         * @throws CommunicationException to pass on communication errors from the caller's context
+         */
+        void read(File cachedFile) throws IOException, CommunicationException;
+    }
+
+    private static final String STATS_CATEGORY = "Data Management: Local cache of remote data references";
+
+    /**
+     * A cached file; all fields are guarded by the {@link #entries} lock.
+     * 
+     * @author agent
+     */
+    private static final class Entry {
+
+        private final File file;
+
+        private final long size;
+
+        private int usageCount;
+
+        // true if the entry is not (or no longer) part of the cache, so its file should be deleted once it is not in use anymore
+        private boolean detached;
+
+        Entry(File file, long size) {
+            this.file = file;
+            this.size = size;
+        }
+    }
+
+    private final File cacheDir;
+
+    private final long maxSizeBytes;
+
+    private final boolean useHardLinks;
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    // access-ordered, so iteration starts with the least recently used entry; also used as the lock for all cache state
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // released when the fetch has ended, whether successfully or not
+    private final Map<String, CountDownLatch> pendingFetches = new HashMap<>();
+
+    private long currentSizeBytes = 0;
+
+    /**
+     * @param cacheDir the directory to store the cached files in; should be empty and not be used for anything else
+     * @param maxSizeBytes the maximum total size of all cached files
+     * @param useHardLinks if true, files are delivered as hard links to the cached files where possible, instead of being copied; only
+     *        safe if the receivers never modify the delivered files in place, as this would modify the cached data as well
+     */
+    LocalDataReferenceCache(File cacheDir, long maxSizeBytes, boolean useHardLinks) {
+        this.cacheDir = cacheDir;
+        this.maxSizeBytes = maxSizeBytes;
+        this.useHardLinks = useHardLinks;
+    }
+
+    /**
+     * Creates the cache key for a {@link DataReference}, consisting of its key and the keys and revisions of its binary references.
+     * 
+     * @param dataReference the data reference
+     * @param decompress whether the data is fetched in decompressed form
+     * @return the cache key
+     */
+    static String createKey(DataReference dataReference, boolean decompress) {
+        final List<String> binaryReferenceIds = new ArrayList<>();
+        for (BinaryReference binaryReference : dataReference.getBinaryReferences()) {
+            binaryReferenceIds.add(binaryReference.getBinaryReferenceKey() + "@" + binaryReference.getRevision());
+        }
+        Collections.sort(binaryReferenceIds);
+        return StringUtils.format("%s%s:%s", dataReference.getDataReferenceKey(), binaryReferenceIds, decompress);
+    }
+
+    /**
+     * Writes the data for the given key to a local file, fetching it with the given {@link Fetcher} if it is not cached yet.
+     * 
+     * @param key the cache key; see {@link #createKey(DataReference, boolean)}
+     * @param targetFile the file to write to; overwritten if it already exists
+     * @param fetcher the {@link Fetcher} to fetch the data on a cache miss
+     * @throws IOException on I/O errors
+     * @throws CommunicationException on failure to fetch the data from the remote node
+     */
+    void copyToLocalFile(String key, File targetFile, Fetcher fetcher) throws IOException, CommunicationException {
+        readCachedFile(key, fetcher, cachedFile -> deliver(cachedFile, targetFile));
+    }
+
+    /**
+     * Passes the cached file for the given key to a {@link CachedFileReader}, fetching it with the given {@link Fetcher} if it is not
+     * cached yet. Unlike {@link #copyToLocalFile(String, File, Fetcher)}, this avoids copying the data if the caller only needs to read it
+     * once, for example to expand an archive.
+     * 
+     * @param key the cache key; see {@link #createKey(DataReference, boolean)}
+     * @param fetcher the {@link Fetcher} to fetch the data on a cache miss
+     * @param reader the {@link CachedFileReader} to pass the cached file to; the file is protected from eviction while it is being read
+     * @throws IOException on I/O errors
+     * @throws CommunicationException on failure to fetch the data from the remote node
+     */
+    void readCachedFile(String key, Fetcher fetcher, CachedFileReader reader) throws IOException, CommunicationException {
+        final Entry entry = acquire(key, fetcher);
+        try {
+            reader.read(entry.file);
+        } finally {
+            release(entry);
+        }
+    }
+
+    /**
+     * @return the total size of all cached files
+     */
+    long getCurrentSize() {
+        synchronized (entries) {
+            return currentSizeBytes;
+        }
+    }
+
+    private Entry acquire(String key, Fetcher fetcher) throws IOException, CommunicationException {
+        while (true) {
+            final CountDownLatch pendingFetch;
+            synchronized (entries) {
+                final Entry entry = entries.get(key);
+                if (entry != null) {
+                    entry.usageCount++;
+                    StatsCounter.count(STATS_CATEGORY, "Hits");
+                    return entry;
+                }
+                pendingFetch = pendingFetches.get(key);
+                if (pendingFetch == null) {
+                    pendingFetches.put(key, new CountDownLatch(1));
+                }
+            }
+            if (pendingFetch == null) {
+                StatsCounter.count(STATS_CATEGORY, "Misses");
+                return fetchAndRegister(key, fetcher);
+            }
+            // wait for the concurrent fetch, then check again; this also covers entries that were too large to be cached, and failed
+            // fetches, which are then retried by one of the waiting callers
+            StatsCounter.count(STATS_CATEGORY, "Waited for concurrent fetch");
+            awaitPendingFetch(pendingFetch);
+        }
+    }
+
+    private Entry fetchAndRegister(String key, Fetcher fetcher) throws IOException, CommunicationException {
+        Entry entry = null;
+        try {
+            final File file = Files.createTempFile(cacheDir.toPath(), "entry-", ".dat").toFile();
+            try {
+                fetcher.fetchTo(file);
+            } catch (IOException | CommunicationException | RuntimeException e) {
+                Files.deleteIfExists(file.toPath());
+                throw e;
+            }
+            entry = new Entry(file, file.length());
+        } finally {
+            final CountDownLatch pendingFetch;
+            synchronized (entries) {
+                pendingFetch = pendingFetches.remove(key);
+                if (entry != null) {
+                    entry.usageCount++;
+                    if (entry.size <= maxSizeBytes) {
+                        entries.put(key, entry);
+                        currentSizeBytes += entry.size;
+                        evictIfNecessary();
+                    } else {
+                        entry.detached = true;
+                    }
+                }
+            }
+            pendingFetch.countDown();
+        }
+        return entry;
+    }
+
+    private void awaitPendingFetch(CountDownLatch pendingFetch) throws IOException {
+        try {
+            pendingFetch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a concurrent fetch of the same data");
+        }
+    }
+
+    private void release(Entry entry) {
+        synchronized (entries) {
+            entry.usageCount--;
+            if (entry.usageCount == 0) {
+                if (entry.detached) {
+                    deleteFile(entry.file);
+                } else {
+                    // entries that were in use during the last eviction may be evictable now
+                    evictIfNecessary();
+                }
+            }
+        }
+    }
+
+    // must be called with the entries lock held
+    private void evictIfNecessary() {
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (currentSizeBytes > maxSizeBytes && iterator.hasNext()) {
+            final Entry candidate = iterator.next();
+            if (candidate.usageCount == 0) {
+                iterator.remove();
+                currentSizeBytes -= candidate.size;
+                deleteFile(candidate.file);
+                StatsCounter.count(STATS_CATEGORY, "Evictions");
+            }
+        }
+    }
+
+    private void deliver(File cachedFile, File targetFile) throws IOException {
+        if (useHardLinks) {
+            try {
+                Files.deleteIfExists(targetFile.toPath());
+                Files.createDirectories(targetFile.getAbsoluteFile().getParentFile().toPath());
+                Files.createLink(targetFile.toPath(), cachedFile.toPath());
+                return;
+            } catch (IOException | UnsupportedOperationException e) {
+                // for example, if the target is on a different file system
+                log.debug(StringUtils.format("Failed to create a hard link from %s to %s; copying the file instead: %s", targetFile,
+                    cachedFile, e.toString()));
+            }
+        }
+        FileUtils.copyFile(cachedFile, targetFile);
+    }
+
+    private void deleteFile(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            log.warn("Failed to delete cached file " + file + ": " + e.toString());
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamanagement.internal;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.rcenvironment.core.datamanagement.RemotableFileDataService;
+import de.rcenvironment.core.toolkitbridge.transitional.ConcurrencyUtils;
+import de.rcenvironment.core.utils.common.StringUtils;
+import de.rcenvironment.core.utils.common.rpc.RemoteOperationException;
+
+/**
+ * Uploads data to a remote node via {@link RemotableFileDataService#writeToUploadAt(String, Long, byte[])}, keeping several chunks in
+ * flight so that the transfer rate is not limited by the round-trip time of a single chunk.
+ * 
+ * As each chunk carries its offset, the receiving node can write chunks in any order, and a chunk that failed on the RPC level is simply
+ * sent again. A SHA-256 checksum of the complete data is calculated on the way for end-to-end verification by the receiver.
+ * 
+ * This class is not thread safe; all methods are expected to be called by the thread reading the data to upload.
+ * 
+ * @author agent
+ */
+final class ParallelChunkUploader {
+
+    static final int MAX_CHUNKS_IN_FLIGHT = 4;
+
+    static final int MAX_CHUNK_UPLOAD_ATTEMPTS = 3;
+
+    private static final long CHUNK_RETRY_BASE_DELAY_MSEC = 1000;
+
+    private static final long CHUNK_UPLOAD_TIME_WARNING_THRESHOLD_MSEC = 25000;
+
+    private final RemotableFileDataService remoteDataService;
+
+    private final String uploadId;
+
+    private final MessageDigest digest = ContentAddressing.createDigest();
+
+    private final Deque<Future<Void>> chunksInFlight = new ArrayDeque<>();
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    private long nextChunkOffset = 0;
+
+    private long retryDelayMsec = CHUNK_RETRY_BASE_DELAY_MSEC;
+
+    ParallelChunkUploader(RemotableFileDataService remoteDataService, String uploadId) {
+        this.remoteDataService = remoteDataService;
+        this.uploadId = uploadId;
+    }
+
+    /**
+     * Uploads the first chunk synchronously to check whether the receiving node supports offset-addressed uploads.
+     * 
+     * @param data the first chunk of data
+     * @return true if the chunk was uploaded; false if the receiving node does not support this upload mode, in which case the caller
+     *         should fall back to {@link RemotableFileDataService#appendToUpload(String, byte[])}, starting with the same chunk
+     * @throws IOException on I/O errors on the receiver's side
+     */
+    boolean uploadFirstChunk(byte[] data) throws IOException {
+        try {
+            remoteDataService.writeToUploadAt(uploadId, 0L, data);
+        } catch (RemoteOperationException e) {
+            log.debug("Failed to upload the first chunk with an offset; assuming that the receiving node does not support it: "
+                + e.getMessage());
+            return false;
+        }
+        digest.update(data);
+        nextChunkOffset = data.length;
+        return true;
+    }
+
+    /**
+     * Starts the asynchronous upload of the next chunk. If the maximum number of chunks is already in flight, this method waits for the
+     * oldest one to complete first.
+     * 
+     * @param data the chunk data; must not be modified by the caller afterwards
+     * @throws IOException if a previous chunk could not be uploaded
+     * @throws InterruptedException on interruption while waiting
+     */
+    void uploadChunk(final byte[] data) throws IOException, InterruptedException {
+        while (chunksInFlight.size() >= MAX_CHUNKS_IN_FLIGHT) {
+            awaitChunk(chunksInFlight.pollFirst());
+        }
+        digest.update(data);
+        final long offset = nextChunkOffset;
+        chunksInFlight.addLast(ConcurrencyUtils.getAsyncTaskService().submit("Parallel upload: Send chunk", () -> {
+            sendChunkWithRetries(offset, data);
+            return null;
+        }));
+        nextChunkOffset += data.length;
+    }
+
+    /**
+     * Waits until all chunks have been uploaded.
+     * 
+     * @throws IOException if a chunk could not be uploaded
+     * @throws InterruptedException on interruption while waiting
+     */
+    void awaitCompletion() throws IOException, InterruptedException {
+        while (!chunksInFlight.isEmpty()) {
+            awaitChunk(chunksInFlight.pollFirst());
+        }
+    }
+
+    /**
+     * Cancels all chunks in flight, typically after an error; no more chunks should be uploaded after this.
+     */
+    void cancel() {
+        for (Future<Void> chunk : chunksInFlight) {
+            chunk.cancel(true);
+        }
+        chunksInFlight.clear();
+    }
+
+    /**
+     * @return the total number of bytes passed to this uploader so far
+     */
+    long getTotalLength() {
+        return nextChunkOffset;
+    }
+
+    /**
+     * @return the SHA-256 checksum of all data passed to this uploader; may only be called once, after the last chunk
+     */
+    byte[] getChecksum() {
+        return digest.digest();
+    }
+
+    // for unit tests
+    void setRetryDelay(long delayMsec) {
+        this.retryDelayMsec = delayMsec;
+    }
+
+    private void sendChunkWithRetries(long offset, byte[] data) throws IOException, RemoteOperationException, InterruptedException {
+        int attempt = 1;
+        while (true) {
+            final long startTime = System.currentTimeMillis();
+            try {
+                remoteDataService.writeToUploadAt(uploadId, offset, data);
+                final long duration = System.currentTimeMillis() - startTime;
+                if (duration > CHUNK_UPLOAD_TIME_WARNING_THRESHOLD_MSEC) {
+                    log.warn(StringUtils.format("Uploading a data block of %d bytes took %d msec", data.length, duration));
+                }
+                return;
+            } catch (RemoteOperationException e) {
+                // as writing a chunk is idempotent, it is safe to send it again even if the failed attempt has actually been applied
+                if (attempt >= MAX_CHUNK_UPLOAD_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug(StringUtils.format("Attempt %d to upload %d bytes at offset %d for upload id %s failed; retrying: %s", attempt,
+                    data.length, offset, uploadId, e.getMessage()));
+                Thread.sleep(retryDelayMsec * attempt);
+                attempt++;
+            }
+        }
+    }
+
+    private void awaitChunk(Future<Void> chunk) throws IOException, InterruptedException {
+        try {
+            chunk.get();
+        } catch (ExecutionException e) {
+            cancel();
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else {
+                // includes RemoteOperationExceptions after the last retry
+                throw new IOException("Failed to upload a chunk of data for upload id " + uploadId + ": " + cause.toString(), cause);
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            throw e;
+        }
+    }
+}
@@ -9,14 +9,16 @@
 package de.rcenvironment.core.datamanagement.internal;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -31,6 +33,7 @@ import org.osgi.framework.BundleContext;
 
 import de.rcenvironment.core.authorization.AuthorizationException;
 import de.rcenvironment.core.communication.api.PlatformService;
+import de.rcenvironment.core.communication.common.LogicalNodeId;
 import de.rcenvironment.core.datamanagement.RemotableFileDataService;
 import de.rcenvironment.core.datamanagement.backend.DataBackend;
 import de.rcenvironment.core.datamanagement.backend.MetaDataBackendService;
@@ -42,6 +45,7 @@ import de.rcenvironment.core.datamanagement.commons.MetaDataKeys;
 import de.rcenvironment.core.datamanagement.commons.MetaDataSet;
 import de.rcenvironment.core.datamodel.api.CompressionFormat;
 import de.rcenvironment.core.toolkitbridge.transitional.ConcurrencyUtils;
+import de.rcenvironment.core.utils.common.StringUtils;
 import de.rcenvironment.core.utils.common.TempFileServiceAccess;
 import de.rcenvironment.core.utils.common.rpc.RemoteOperationException;
 import de.rcenvironment.core.utils.common.security.AllowRemoteAccess;
@@ -78,7 +82,8 @@ public class RemotableFileDataServiceImpl implements RemotableFileDataService {
 
         private File tempFile;
 
-        private OutputStream outputStream;
+        // note: positional writes to a FileChannel are thread safe, so concurrent writeDataAt() calls need no further synchronization
+        private FileChannel channel;
 
         private long totalBytesWritten = 0;
 
@@ -88,24 +93,34 @@ public class RemotableFileDataServiceImpl implements RemotableFileDataService {
 
         UploadHolder() throws IOException {
             this.tempFile = TempFileServiceAccess.getInstance().createTempFileFromPattern("upload.*.tmp");
-            this.outputStream = new BufferedOutputStream(new FileOutputStream(tempFile), UPLOAD_TEMP_FILE_STREAM_BUFFER_SIZE);
+            this.channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE);
         }
 
         /**
          * @return the total number of bytes written so far
          */
-        public long appendData(byte[] data) throws IOException {
-            outputStream.write(data);
+        public synchronized long appendData(byte[] data) throws IOException {
+            writeFully(data, totalBytesWritten);
             totalBytesWritten += data.length;
             return totalBytesWritten;
         }
 
-        public File finishAndGetFile() throws IOException {
-            outputStream.close();
-            outputStream = null;
+        public void writeDataAt(long offset, byte[] data) throws IOException {
+            if (offset < 0) {
+                throw new IOException("Invalid upload offset: " + offset);
+            }
+            writeFully(data, offset);
+        }
+
+        public synchronized File finishAndGetFile() throws IOException {
+            channel.close();
             return tempFile;
         }
 
+        public long getCurrentFileSize() throws IOException {
+            return channel.size();
+        }
+
         public synchronized void setDataReference(DataReference dataReference) throws IOException {
             this.dataReference = dataReference;
             // dispose temp file
@@ -124,6 +139,13 @@ public class RemotableFileDataServiceImpl implements RemotableFileDataService {
         public synchronized IOException getAsyncException() {
             return asyncException;
         }
+
+        private void writeFully(byte[] data, long offset) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+        }
     }
 
     public RemotableFileDataServiceImpl() {
@@ -142,13 +164,19 @@ public class RemotableFileDataServiceImpl implements RemotableFileDataService {
     @Override
     @AllowRemoteAccess
     public void deleteReference(String binaryReferenceKey) throws AuthorizationException {
+        deleteBinaryDataIfUnreferenced(binaryReferenceKey);
+    }
 
-        DataBackend dataService =
-            BackendSupport.getDataBackend();
-        URI location =
-            dataService.suggestLocation(
-                UUID.fromString(binaryReferenceKey));
-        dataService.delete(location);
+    /**
+     * Deletes the locally stored data of the given binary reference key, unless a data reference still uses it. The check and the
+     * deletion are performed by the meta data backend, so that no new reference to the same data can be added in between.
+     */
+    static void deleteBinaryDataIfUnreferenced(String binaryReferenceKey) {
+        final DataBackend dataBackend = BackendSupport.getDataBackend();
+        final URI location = dataBackend.suggestLocation(UUID.fromString(binaryReferenceKey));
+        if (!BackendSupport.getMetaDataBackend().deleteBinaryDataIfUnreferenced(binaryReferenceKey, () -> dataBackend.delete(location))) {
+            LOGGER.debug("Not deleting the data of binary reference key " + binaryReferenceKey + " as it is still in use");
+        }
     }
 
     @Override
@@ -198,40 +226,83 @@ public class RemotableFileDataServiceImpl implements RemotableFileDataService {
     // FIXME review: why can this method never throw an IOException? - misc_ro
     public DataReference newReferenceFromStream(InputStream inputStream, MetaDataSet metaDataSet, Boolean alreadyCompressed) {
 
-        UUID uuid = UUID.randomUUID();
-
-        // store input stream
         DataBackend dataBackend = BackendSupport.getDataBackend();
-        URI location = dataBackend.suggestLocation(uuid);
-        dataBackend.put(location, inputStream, alreadyCompressed);
 
+        // references that are not related to any database entry are never garbage collected, so they must not share their data
+        if (!ContentAddressing.isEnabled() || !hasRelatedEntity(metaDataSet)) {
+            UUID uuid = UUID.randomUUID();
+            URI location = dataBackend.suggestLocation(uuid);
+            dataBackend.put(location, inputStream, alreadyCompressed);
+            return registerNewDataReference(uuid.toString(), uuid.toString(), metaDataSet);
+        }
+
+        // the content-derived key is only known after reading all data, so store it at a temporary location first
+        final URI stagingLocation = dataBackend.suggestLocation(UUID.randomUUID());
+        final MessageDigest digest = ContentAddressing.createDigest();
+        dataBackend.put(stagingLocation, new DigestInputStream(inputStream, digest), alreadyCompressed);
+        final String binaryReferenceKey = ContentAddressing.deriveBinaryReferenceKey(digest, alreadyCompressed);
+
+        // only move the data to its final location after registering the new reference; this way, a concurrent deletion of the last
+        // previous reference to the same data cannot remove the data for the new reference. note that the data reference key itself is
+        // still unique, even if the data is shared with other references
+        final DataReference dataReference = registerNewDataReference(UUID.randomUUID().toString(), binaryReferenceKey, metaDataSet);
+        if (!dataBackend.move(stagingLocation, dataBackend.suggestLocation(UUID.fromString(binaryReferenceKey)))) {
+            // the same data is already stored
+            dataBackend.delete(stagingLocation);
+        }
+        return dataReference;
+    }
+
+    static boolean hasRelatedEntity(MetaDataSet metaDataSet) {
+        return metaDataSet.getValue(new MetaData(MetaDataKeys.COMPONENT_RUN_ID, true, true)) != null
+            || metaDataSet.getValue(new MetaData(MetaDataKeys.WORKFLOW_RUN_ID, true, true)) != null
+            || metaDataSet.getValue(new MetaData(MetaDataKeys.COMPONENT_INSTANCE_ID, true, true)) != null;
+    }
+
+    private DataReference registerNewDataReference(String dataReferenceKey, String binaryReferenceKey, MetaDataSet metaDataSet) {
+        return registerNewDataReference(dataReferenceKey, binaryReferenceKey, metaDataSet, platformService.getLocalDefaultLogicalNodeId(),
+            false);
+    }
+
+    /**
+     * Registers a new {@link DataReference} for data in the local data store.
+     * 
+     * @param onlyIfBinaryDataExists if true, the reference is only registered if other references already share the given binary
+     *        reference key; checked in the same transaction as the insertion
+     * @return the new {@link DataReference}, or null if onlyIfBinaryDataExists was set and the data does not exist
+     */
+    static DataReference registerNewDataReference(String dataReferenceKey, String binaryReferenceKey, MetaDataSet metaDataSet,
+        LogicalNodeId storageNodeId, boolean onlyIfBinaryDataExists) {
         // add a data reference with only one binary reference with the current only standard format and a default revision number.
         // TODO replace on new blob store implementation
-        BinaryReference binaryReference = new BinaryReference(uuid.toString(), CompressionFormat.GZIP, "1");
+        BinaryReference binaryReference = new BinaryReference(binaryReferenceKey, CompressionFormat.GZIP, "1");
         Set<BinaryReference> binaryReferences = new HashSet<BinaryReference>();
         binaryReferences.add(binaryReference);
         // create a new data reference
-        DataReference dataReference = new DataReference(uuid.toString(),
-            platformService.getLocalDefaultLogicalNodeId(), binaryReferences);
+        DataReference dataReference = new DataReference(dataReferenceKey, storageNodeId, binaryReferences);
 
         // get the meta data backend and add the newly created data reference
         MetaDataBackendService metaDataBackend = BackendSupport.getMetaDataBackend();
+        Long dataReferenceId = null;
         if (metaDataSet.getValue(new MetaData(MetaDataKeys.COMPONENT_RUN_ID, true, true)) != null) {
-            metaDataBackend.addDataReferenceToComponentRun(
+            dataReferenceId = metaDataBackend.addDataReferenceToComponentRun(
                 Long.valueOf(metaDataSet.getValue(new MetaData(MetaDataKeys.COMPONENT_RUN_ID, true, true))),
-                dataReference);
+                dataReference, onlyIfBinaryDataExists);
         } else if (metaDataSet.getValue(new MetaData(MetaDataKeys.WORKFLOW_RUN_ID, true, true)) != null) {
-            metaDataBackend.addDataReferenceToWorkflowRun(
+            dataReferenceId = metaDataBackend.addDataReferenceToWorkflowRun(
                 Long.valueOf(metaDataSet.getValue(new MetaData(MetaDataKeys.WORKFLOW_RUN_ID, true, true))),
-                dataReference);
+                dataReference, onlyIfBinaryDataExists);
         } else if (metaDataSet.getValue(new MetaData(MetaDataKeys.COMPONENT_INSTANCE_ID, true, true)) != null) {
-            metaDataBackend.addDataReferenceToComponentInstance(
+            dataReferenceId = metaDataBackend.addDataReferenceToComponentInstance(
                 Long.valueOf(metaDataSet.getValue(new MetaData(MetaDataKeys.COMPONENT_INSTANCE_ID, true, true))),
-                dataReference);
+                dataReference, onlyIfBinaryDataExists);
         } else {
             LOGGER
                 .warn("Data reference could not be added because not component run id, workflow run id or component instance id was given");
         }
+        if (onlyIfBinaryDataExists && dataReferenceId == null) {
+            return null;
+        }
         return dataReference;
     }
 
@@ -254,6 +325,12 @@ public class RemotableFileDataServiceImpl implements RemotableFileDataService {
         return upload.appendData(data);
     }
 
+    @Override
+    @AllowRemoteAccess
+    public void writeToUploadAt(String id, Long offset, byte[] data) throws IOException, RemoteOperationException {
+        safeGetUploadById(id).writeDataAt(offset, data);
+    }
+
     @Override
     @AllowRemoteAccess
     public void finishUpload(String id, final MetaDataSet metaDataSet) throws IOException {
@@ -264,6 +341,27 @@ public class RemotableFileDataServiceImpl implements RemotableFileDataService {
     @AllowRemoteAccess
     public void finishUpload(String id, final MetaDataSet metaDataSet, final Boolean alreadyCompressed)
         throws IOException {
+        finishUploadInternal(id, metaDataSet, alreadyCompressed, null);
+    }
+
+    @Override
+    @AllowRemoteAccess
+    public void finishUpload(String id, MetaDataSet metaDataSet, Boolean alreadyCompressed, Long totalLength, byte[] sha256Checksum)
+        throws IOException {
+        final UploadHolder upload = safeGetUploadById(id);
+        // only a cheap check here; the checksum is verified asynchronously as it requires reading the whole file
+        final long receivedLength = upload.getCurrentFileSize();
+        if (receivedLength != totalLength) {
+            uploads.remove(id);
+            TempFileServiceAccess.getInstance().disposeManagedTempDirOrFile(upload.finishAndGetFile());
+            throw new IOException(StringUtils.format("Upload length mismatch: expected %d bytes, but received %d", totalLength,
+                receivedLength));
+        }
+        finishUploadInternal(id, metaDataSet, alreadyCompressed, sha256Checksum);
+    }
+
+    private void finishUploadInternal(String id, final MetaDataSet metaDataSet, final Boolean alreadyCompressed,
+        final byte[] expectedChecksum) throws IOException {
         final UploadHolder upload = safeGetUploadById(id);
 
         final File tempFile = upload.finishAndGetFile();
@@ -278,6 +376,9 @@ public class RemotableFileDataServiceImpl implements RemotableFileDataService {
             // upload file; alternatively, data stores could directly support incremental
             // uploading - misc_ro
             try {
+                if (expectedChecksum != null) {
+                    verifyChecksum(tempFile, expectedChecksum);
+                }
                 InputStream fis = new BufferedInputStream(new FileInputStream(tempFile), UPLOAD_TEMP_FILE_STREAM_BUFFER_SIZE);
                 try {
                     DataReference reference;
@@ -297,6 +398,21 @@ public class RemotableFileDataServiceImpl implements RemotableFileDataService {
         });
     }
 
+    private void verifyChecksum(File file, byte[] expectedChecksum) throws IOException {
+        final MessageDigest digest = ContentAddressing.createDigest();
+        final byte[] buffer = new byte[UPLOAD_TEMP_FILE_STREAM_BUFFER_SIZE];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int n;
+            while ((n = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        if (!MessageDigest.isEqual(expectedChecksum, digest.digest())) {
+            TempFileServiceAccess.getInstance().disposeManagedTempDirOrFile(file);
+            throw new IOException("Checksum mismatch: the received data differs from the uploaded data");
+        }
+    }
+
     @Override
     @AllowRemoteAccess
     public DataReference pollUploadForDataReference(String id) throws IOException {
@@ -54,6 +54,9 @@ public class FileDataServiceDefaultStub implements RemotableFileDataService {
         return 0;
     }
 
+    @Override
+    public void writeToUploadAt(String id, Long offset, byte[] data) throws IOException {}
+
     @Override
     public void finishUpload(String id, MetaDataSet metaDataSet) throws IOException {}
 
@@ -84,6 +87,10 @@ public class FileDataServiceDefaultStub implements RemotableFileDataService {
         
     }
 
+    @Override
+    public void finishUpload(String id, MetaDataSet metaDataSet, Boolean alreadyCompressed, Long totalLength, byte[] sha256Checksum)
+        throws IOException {}
+
     @Override
     public DataReference uploadInSingleStep(byte[] data, MetaDataSet metaDataSet, Boolean alreadyCompressed) throws IOException,
         RemoteOperationException {
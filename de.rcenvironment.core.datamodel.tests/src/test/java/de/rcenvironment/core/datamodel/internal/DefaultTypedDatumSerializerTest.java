@@ -21,6 +21,7 @@ import org.junit.runners.JUnit4;
 
 import de.rcenvironment.core.datamodel.api.DataType;
 import de.rcenvironment.core.datamodel.api.TypedDatum;
+import de.rcenvironment.core.datamodel.types.api.BigTableTD;
 import de.rcenvironment.core.datamodel.types.api.BooleanTD;
 import de.rcenvironment.core.datamodel.types.api.DateTimeTD;
 import de.rcenvironment.core.datamodel.types.api.DirectoryReferenceTD;
@@ -349,6 +350,9 @@ public class DefaultTypedDatumSerializerTest {
             { vectorEntries, vectorEntries2, vectorEntries3 };
         MatrixTD matrix = factory.createMatrix(matrixEntries);
         assertEquals(matrix, serializer.deserialize(serializer.serialize(matrix)));
+        // the value field before the dimensions is read via the tree model
+        assertEquals(factory.createMatrix(new double[][] { { 1.0, 2.0 }, { 3.0, 4.0 } }),
+            serializer.deserialize("{\"t\":\"" + DataType.Matrix.getShortName() + "\",\"v\":[[1.0,2.0],[3.0,4.0]],\"r\":2,\"c\":2}"));
 
         // Deserialization of SmallTableTD
         SmallTableTD smallTable = factory.createSmallTable(matrix.toArray());
@@ -368,8 +372,18 @@ public class DefaultTypedDatumSerializerTest {
 
         TypedDatum[][] tableEntries =
             { { boolFalse, integer, floatData }, { dateTime, shortText, integer }, { floatData, floatData, floatData } };
-        String oldSmalltableSerialization = getOldSerializationExpectedSmallTableString(tableEntries);
+        String oldSmalltableSerialization = getExpectedSmallTableString(tableEntries);
         assertEquals(smallTable, serializer.deserialize(oldSmalltableSerialization));
+        // cells embedded as JSON strings, as written by RCE 7.1 to 10.0
+        assertEquals(smallTable, serializer.deserialize(getEmbeddedStringsSmallTableString(tableEntries)));
+        // the value field before the dimensions is read via the tree model
+        SmallTableTD singleCellTable = factory.createSmallTable(1, 1);
+        singleCellTable.setTypedDatumForCell(boolFalse, 0, 0);
+        assertEquals(singleCellTable, serializer.deserialize(StringUtils.format("{\"t\":\"%s\",\"v\":[[%s]],\"r\":1,\"c\":1}",
+            DataType.SmallTable.getShortName(), serializer.serialize(boolFalse))));
+        // a different field order must be accepted, too
+        assertEquals(factory.createFloat(1.0), serializer.deserialize(StringUtils.format("{\"v\":1.0,\"t\":\"%s\"}",
+            DataType.Float.getShortName())));
 
         // Deserialization of EmptyTD
         EmptyTD empty = factory.createEmpty();
@@ -393,6 +407,14 @@ public class DefaultTypedDatumSerializerTest {
         assertEquals(fileReference.getFileSizeInBytes(), deserializedFileReference.getFileSizeInBytes());
         assertEquals(fileReference.getLastModified(), deserializedFileReference.getLastModified());
 
+        // Deserialization of BigTableTD
+        final long bigTableRows = 1000000L;
+        BigTableTD bigTable = factory.createBigTable("table reference", bigTableRows, 3);
+        BigTableTD deserializedBigTable = (BigTableTD) serializer.deserialize(serializer.serialize(bigTable));
+        assertEquals(bigTable.getTableReference(), deserializedBigTable.getTableReference());
+        assertEquals(bigTable.getRowCount(), deserializedBigTable.getRowCount());
+        assertEquals(bigTable.getColumnCount(), deserializedBigTable.getColumnCount());
+
         // Deserialization of DirectoryReferenceTD
         DirectoryReferenceTD dirRef = factory.createDirectoryReference("reference", "dirname");
         dirRef.setDirectorySize(SIZE_1024);
@@ -451,7 +473,7 @@ public class DefaultTypedDatumSerializerTest {
         return StringUtils.format(JSON_STRING_DIMENSION_ARRAY, DataType.Matrix.getShortName(), rows, cols, value);
     }
 
-    private String getExpectedSmallTableString(TypedDatum[][] tableEntries) {
+    private String getEmbeddedStringsSmallTableString(TypedDatum[][] tableEntries) {
         String value = "";
         int rows = tableEntries.length;
         int cols = 0;
@@ -474,7 +496,7 @@ public class DefaultTypedDatumSerializerTest {
         return StringUtils.format(JSON_STRING_DIMENSION_ARRAY, DataType.SmallTable.getShortName(), rows, cols, value);
     }
 
-    private String getOldSerializationExpectedSmallTableString(TypedDatum[][] tableEntries) {
+    private String getExpectedSmallTableString(TypedDatum[][] tableEntries) {
         String value = "";
         int rows = tableEntries.length;
         int cols = 0;
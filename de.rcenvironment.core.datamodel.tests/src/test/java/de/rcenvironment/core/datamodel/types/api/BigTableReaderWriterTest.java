@@ -0,0 +1,178 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamodel.types.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.rcenvironment.core.datamodel.api.TypedDatum;
+import de.rcenvironment.core.datamodel.api.TypedDatumFactory;
+import de.rcenvironment.core.datamodel.internal.DefaultTypedDatumFactory;
+import de.rcenvironment.core.utils.common.TempFileService;
+import de.rcenvironment.core.utils.common.TempFileServiceAccess;
+
+/**
+ * Test cases for {@link BigTableWriter} and {@link BigTableReader}.
+ * 
+ * @author agent
+ */
+public class BigTableReaderWriterTest {
+
+    // deliberately not a multiple of the chunk size, so that the last chunk is incomplete
+    private static final int ROW_COUNT = 1000;
+
+    private static final int CHUNK_ROW_COUNT = 64;
+
+    private static final int COLUMN_COUNT = 3;
+
+    private final TypedDatumFactory factory = new DefaultTypedDatumFactory();
+
+    private TempFileService tempFileService;
+
+    private File tableFile;
+
+    /**
+     * Common setup.
+     * 
+     * @throws IOException on setup errors
+     */
+    @Before
+    public void setUp() throws IOException {
+        TempFileServiceAccess.setupUnitTestEnvironment();
+        tempFileService = TempFileServiceAccess.getInstance();
+        tableFile = tempFileService.createTempFileFromPattern("table-*.bin");
+    }
+
+    /**
+     * Common teardown.
+     * 
+     * @throws IOException on teardown errors
+     */
+    @After
+    public void tearDown() throws IOException {
+        tempFileService.disposeManagedTempDirOrFile(tableFile);
+    }
+
+    /**
+     * Tests that rows and columns are read back as they were written.
+     * 
+     * @throws IOException on unexpected errors
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        try (BigTableWriter writer = new BigTableWriter(tableFile, COLUMN_COUNT, CHUNK_ROW_COUNT)) {
+            for (int i = 0; i < ROW_COUNT; i++) {
+                writer.appendRow(createRow(i));
+            }
+            assertEquals(ROW_COUNT, writer.getRowCount());
+        }
+
+        try (BigTableReader reader = new BigTableReader(tableFile, factory)) {
+            assertEquals(ROW_COUNT, reader.getRowCount());
+            assertEquals(COLUMN_COUNT, reader.getColumnCount());
+
+            final Iterator<TypedDatum[]> rows = reader.rowIterator();
+            for (int i = 0; i < ROW_COUNT; i++) {
+                final TypedDatum[] expectedRow = createRow(i);
+                final TypedDatum[] row = rows.next();
+                assertEquals(COLUMN_COUNT, row.length);
+                for (int j = 0; j < COLUMN_COUNT; j++) {
+                    assertCellEquals(expectedRow[j], row[j]);
+                }
+            }
+            assertFalse(rows.hasNext());
+
+            final Iterator<TypedDatum> column = reader.columnIterator(2);
+            for (int i = 0; i < ROW_COUNT; i++) {
+                assertCellEquals(createRow(i)[2], column.next());
+            }
+            assertFalse(column.hasNext());
+        }
+    }
+
+    /**
+     * Tests that an empty table can be written and read.
+     * 
+     * @throws IOException on unexpected errors
+     */
+    @Test
+    public void testEmptyTable() throws IOException {
+        new BigTableWriter(tableFile, 1).close();
+        try (BigTableReader reader = new BigTableReader(tableFile, factory)) {
+            assertEquals(0, reader.getRowCount());
+            assertFalse(reader.rowIterator().hasNext());
+            assertFalse(reader.columnIterator(0).hasNext());
+        }
+    }
+
+    /**
+     * Tests that cell types that are not allowed in tables are rejected.
+     * 
+     * @throws IOException on unexpected errors
+     */
+    @Test
+    public void testInvalidCellType() throws IOException {
+        try (BigTableWriter writer = new BigTableWriter(tableFile, 1)) {
+            writer.appendRow(factory.createVector(1));
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Data type 'Vector' is not allowed in big tables.", e.getMessage());
+        }
+    }
+
+    /**
+     * Tests that a row with an invalid cell is rejected as a whole, so that the table stays consistent.
+     * 
+     * @throws IOException on unexpected errors
+     */
+    @Test
+    public void testInvalidRowIsNotWrittenPartially() throws IOException {
+        try (BigTableWriter writer = new BigTableWriter(tableFile, COLUMN_COUNT, CHUNK_ROW_COUNT)) {
+            try {
+                writer.appendRow(factory.createInteger(1), factory.createFloat(1), factory.createVector(1));
+                fail("Exception expected");
+            } catch (IllegalArgumentException e) {
+                assertEquals(0, writer.getRowCount());
+            }
+            writer.appendRow(createRow(0));
+        }
+        try (BigTableReader reader = new BigTableReader(tableFile, factory)) {
+            assertEquals(1, reader.getRowCount());
+            final TypedDatum[] row = reader.rowIterator().next();
+            for (int j = 0; j < COLUMN_COUNT; j++) {
+                assertCellEquals(createRow(0)[j], row[j]);
+            }
+        }
+    }
+
+    // note: not all cell types implement equals()
+    private void assertCellEquals(TypedDatum expected, TypedDatum actual) {
+        assertEquals(expected.getDataType(), actual.getDataType());
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    private TypedDatum[] createRow(int index) {
+        final TypedDatum textCell;
+        if (index % 2 == 0) {
+            textCell = factory.createShortText("row " + index);
+        } else {
+            textCell = factory.createEmpty();
+        }
+        return new TypedDatum[] { factory.createInteger(index), factory.createFloat(index / 2.0), textCell };
+    }
+}
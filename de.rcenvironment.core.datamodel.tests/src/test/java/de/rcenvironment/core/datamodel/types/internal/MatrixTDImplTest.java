@@ -0,0 +1,100 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamodel.types.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import de.rcenvironment.core.datamodel.types.api.FloatTD;
+import de.rcenvironment.core.datamodel.types.api.MatrixTD;
+import de.rcenvironment.core.datamodel.types.api.VectorTD;
+
+/**
+ * Test cases for {@link MatrixTDImpl} and {@link VectorTDImpl}, focusing on the shared primitive storage of views.
+ * 
+ * @author agent
+ */
+public class MatrixTDImplTest {
+
+    private static final double DELTA = 0.0;
+
+    private static final double[][] TEST_VALUES = { { 1.0, 2.0, 3.0 }, { 4.0, 5.0, 6.0 } };
+
+    /**
+     * Tests the bulk accessors and their consistency with the element-wise ones.
+     */
+    @Test
+    public void testBulkAccess() {
+        MatrixTD matrix = MatrixTDImpl.fromRows(TEST_VALUES);
+        assertEquals(2, matrix.getRowDimension());
+        assertEquals(3, matrix.getColumnDimension());
+        assertArrayEquals(TEST_VALUES[1], matrix.getRow(1), DELTA);
+        assertEquals(6.0, matrix.getFloatTDOfElement(1, 2).getFloatValue(), DELTA);
+        double[][] copy = matrix.toDoubleArray();
+        assertArrayEquals(TEST_VALUES[0], copy[0], DELTA);
+        assertArrayEquals(TEST_VALUES[1], copy[1], DELTA);
+
+        // modifying the returned arrays must not affect the matrix
+        copy[0][0] = 0.0;
+        assertEquals(1.0, matrix.getFloatTDOfElement(0, 0).getFloatValue(), DELTA);
+
+        // the FloatTD[][] constructor must yield an equal matrix
+        MatrixTD fromFloatTDs = new MatrixTDImpl(matrix.toArray());
+        assertEquals(matrix, fromFloatTDs);
+        assertEquals(matrix.hashCode(), fromFloatTDs.hashCode());
+    }
+
+    /**
+     * Tests that row, column and sub-matrix views return the correct values, and behave like independent copies on modification.
+     */
+    @Test
+    public void testViewsAreCopiedOnWrite() {
+        MatrixTD matrix = MatrixTDImpl.fromRows(TEST_VALUES);
+        VectorTD column = matrix.getColumnVector(1);
+        assertArrayEquals(new double[] { 2.0, 5.0 }, column.toDoubleArray(), DELTA);
+        VectorTD row = matrix.getRowVector(1);
+        assertArrayEquals(TEST_VALUES[1], row.toDoubleArray(), DELTA);
+        MatrixTD subMatrix = matrix.getSubMatrix(0, 1, 2, 3);
+        assertArrayEquals(new double[] { 5.0, 6.0 }, subMatrix.getRow(1), DELTA);
+
+        // writing to a view must not affect the original matrix or other views
+        column.setFloatTDForElement(new FloatTDImpl(-1.0), 1);
+        assertEquals(-1.0, column.getFloatTDOfElement(1).getFloatValue(), DELTA);
+        assertEquals(5.0, matrix.getFloatTDOfElement(1, 1).getFloatValue(), DELTA);
+        assertEquals(5.0, row.getFloatTDOfElement(1).getFloatValue(), DELTA);
+
+        // writing to the original matrix must not affect existing views
+        matrix.setFloatTDForElement(new FloatTDImpl(-2.0), 1, 2);
+        assertEquals(-2.0, matrix.getFloatTDOfElement(1, 2).getFloatValue(), DELTA);
+        assertEquals(6.0, row.getFloatTDOfElement(2).getFloatValue(), DELTA);
+        assertEquals(6.0, subMatrix.getFloatTDOfElement(1, 1).getFloatValue(), DELTA);
+
+        // a view of a view
+        VectorTD subColumn = subMatrix.getColumnVector(0);
+        assertArrayEquals(new double[] { 2.0, 5.0 }, subColumn.toDoubleArray(), DELTA);
+        assertEquals(new VectorTDImpl(new double[] { 2.0, 5.0 }), subColumn);
+    }
+
+    /**
+     * Tests sub-vectors of vectors.
+     */
+    @Test
+    public void testSubVectors() {
+        VectorTD vector = new VectorTDImpl(new double[] { 1.0, 2.0, 3.0, 4.0 });
+        VectorTD subVector = vector.getSubVector(1, 3);
+        assertArrayEquals(new double[] { 2.0, 3.0 }, subVector.toDoubleArray(), DELTA);
+        assertArrayEquals(new double[] { 1.0, 2.0 }, vector.getSubVector(2).toDoubleArray(), DELTA);
+
+        subVector.setFloatTDForElement(new FloatTDImpl(0.0), 0);
+        assertEquals(2.0, vector.getFloatTDOfElement(1).getFloatValue(), DELTA);
+        assertEquals("1.0, 2.0, 3.0, 4.0", vector.toString());
+    }
+}
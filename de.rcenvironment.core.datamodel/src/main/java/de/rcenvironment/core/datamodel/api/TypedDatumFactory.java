@@ -8,6 +8,7 @@
 
 package de.rcenvironment.core.datamodel.api;
 
+import de.rcenvironment.core.datamodel.types.api.BigTableTD;
 import de.rcenvironment.core.datamodel.types.api.BooleanTD;
 import de.rcenvironment.core.datamodel.types.api.DateTimeTD;
 import de.rcenvironment.core.datamodel.types.api.DirectoryReferenceTD;
@@ -67,6 +68,12 @@ public interface TypedDatumFactory {
      */
     VectorTD createVector(FloatTD[] values);
 
+    /**
+     * @param values Given vector entries; the array is copied
+     * @return a {@link VectorTD} instance
+     */
+    VectorTD createVector(double[] values);
+
     /**
      * @param column of the matrix
      * @param row of the matrix
@@ -79,6 +86,12 @@ public interface TypedDatumFactory {
      * @return a {@link MatrixTD} instance
      */
     MatrixTD createMatrix(FloatTD[][] values);
+
+    /**
+     * @param values predefined values for the matrix, indexed by row first; the arrays are copied
+     * @return a {@link MatrixTD} instance
+     */
+    MatrixTD createMatrix(double[][] values);
     
     /**
      * @param rows row dimension
@@ -112,6 +125,14 @@ public interface TypedDatumFactory {
      * @return an {@link DirectoryReferenceTD} instance
      */
     DirectoryReferenceTD createDirectoryReference(String reference, String dirName);
+
+    /**
+     * @param reference data management reference to the table content (see {@link BigTableTD})
+     * @param rowCount the number of rows
+     * @param columnCount the number of columns
+     * @return a {@link BigTableTD} instance
+     */
+    BigTableTD createBigTable(String reference, long rowCount, int columnCount);
     
     /**
      * @return an empty value.
@@ -85,11 +85,8 @@ public class DefaultTypedDatumConverter implements TypedDatumConverter {
             return castOrConvert(vector, targetType);
         case Vector:
             VectorTD vectorDatum = (VectorTD) input;
-            FloatTD[][] matrixEntries = new FloatTD[vectorDatum.getRowDimension()][1];
-            for (int i = 0; i < vectorDatum.getRowDimension(); i++) {
-                matrixEntries[i][0] = vectorDatum.getFloatTDOfElement(i);
-            }
-            return castOrConvert(new MatrixTDImpl(matrixEntries), targetType);
+            // a column vector has the same row-major layout as the vector itself
+            return castOrConvert(new MatrixTDImpl(vectorDatum.getRowDimension(), 1, vectorDatum.toDoubleArray()), targetType);
         case Matrix:
             MatrixTD matrixDatum = (MatrixTD) input;
             return castOrConvert(new SmallTableTDImpl(matrixDatum.toArray()), targetType);
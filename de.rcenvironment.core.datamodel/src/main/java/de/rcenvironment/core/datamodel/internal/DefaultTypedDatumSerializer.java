@@ -9,22 +9,30 @@
 package de.rcenvironment.core.datamodel.internal;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.TextNode;
 
 import de.rcenvironment.core.datamodel.api.DataType;
 import de.rcenvironment.core.datamodel.api.TypedDatum;
 import de.rcenvironment.core.datamodel.api.TypedDatumSerializer;
+import de.rcenvironment.core.datamodel.types.api.BigTableTD;
 import de.rcenvironment.core.datamodel.types.api.BooleanTD;
 import de.rcenvironment.core.datamodel.types.api.DateTimeTD;
 import de.rcenvironment.core.datamodel.types.api.DirectoryReferenceTD;
@@ -36,12 +44,18 @@ import de.rcenvironment.core.datamodel.types.api.NotAValueTD;
 import de.rcenvironment.core.datamodel.types.api.ShortTextTD;
 import de.rcenvironment.core.datamodel.types.api.SmallTableTD;
 import de.rcenvironment.core.datamodel.types.api.VectorTD;
+import de.rcenvironment.core.datamodel.types.internal.MatrixTDImpl;
+import de.rcenvironment.core.datamodel.types.internal.VectorTDImpl;
 import de.rcenvironment.core.utils.common.JsonUtils;
 import de.rcenvironment.core.utils.common.StringUtils;
 
 /**
  * Default {@link TypedDatumSerializer} implementation.
  * 
+ * Serialization and deserialization are performed in a single pass using Jackson's streaming API, without building intermediate JSON
+ * trees. The cells of small tables are written as nested JSON objects; the previous format of embedding each cell as a JSON string (used
+ * since 7.1) can still be read. Documents that do not start with the type field are read using the (slower) tree model.
+ * 
  * @author Jan Flink
  * @author Doreen Seider
  */
@@ -65,6 +79,8 @@ public class DefaultTypedDatumSerializer implements TypedDatumSerializer {
 
     private static final String LAST_MODIFIED_STRING = "lastModified";
 
+    private static final String TABLE_REFERENCE_STRING = "tableReference";
+
     private static final String TYPE_STRING = "t";
 
     private static final String VALUE_STRING = "v";
@@ -79,6 +95,21 @@ public class DefaultTypedDatumSerializer implements TypedDatumSerializer {
 
     private static final ObjectMapper MAPPER = JsonUtils.getDefaultObjectMapper();
 
+    // thread-safe; shares the mapper's parser configuration
+    private static final JsonFactory JSON_FACTORY = MAPPER.getFactory();
+
+    private static final int INITIAL_VECTOR_CAPACITY = 16;
+
+    /**
+     * Signals that a JSON object does not start with the type field, so the streaming parser can not process it.
+     * 
+     * @author agent
+     */
+    private static final class NonCanonicalFieldOrderException extends Exception {
+
+        private static final long serialVersionUID = 3094315276312744160L;
+    }
+
     @Override
     public TypedDatum deserialize(String input) {
         TypedDatum returnDatum = null;
@@ -88,10 +119,18 @@ public class DefaultTypedDatumSerializer implements TypedDatumSerializer {
         }
 
         try {
-            JsonNode rootNode = MAPPER.readTree(input);
-            DataType dataType = DataType.byShortName(rootNode.get(TYPE_STRING).textValue());
-            JsonNode valueNode = rootNode.get(VALUE_STRING);
-            returnDatum = getTypedDatumFromNode(dataType, rootNode, valueNode);
+            try (JsonParser parser = JSON_FACTORY.createParser(input)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException(StringUtils.format(UNABLE_TO_DESERIALIZE_STRING, input));
+                }
+                return readTypedDatum(parser);
+            } catch (NonCanonicalFieldOrderException e) {
+                // not produced by this serializer; fall back to the tree model, which does not depend on the field order
+                JsonNode rootNode = MAPPER.readTree(input);
+                DataType dataType = DataType.byShortName(rootNode.get(TYPE_STRING).textValue());
+                JsonNode valueNode = rootNode.get(VALUE_STRING);
+                returnDatum = getTypedDatumFromNode(dataType, rootNode, valueNode);
+            }
         } catch (JsonParseException e) {
             LOGGER.error(StringUtils.format(UNABLE_TO_DESERIALIZE_STRING, input), e);
             throw new IllegalArgumentException(StringUtils.format(UNABLE_TO_DESERIALIZE_STRING, input));
@@ -106,6 +145,234 @@ public class DefaultTypedDatumSerializer implements TypedDatumSerializer {
         return returnDatum;
     }
 
+    /**
+     * Reads a {@link TypedDatum} from a JSON object.
+     * 
+     * @param parser the parser, positioned at the START_OBJECT token; on return, it is positioned at the matching END_OBJECT token
+     */
+    private TypedDatum readTypedDatum(JsonParser parser) throws IOException, NonCanonicalFieldOrderException {
+        if (parser.nextToken() != JsonToken.FIELD_NAME || !TYPE_STRING.equals(parser.getCurrentName())) {
+            throw new NonCanonicalFieldOrderException();
+        }
+        parser.nextToken();
+        final DataType dataType = DataType.byShortName(parser.getText());
+        final DefaultTypedDatumFactory factory = new DefaultTypedDatumFactory();
+
+        TypedDatum simpleValue = null;
+        long rows = -1;
+        int columns = -1;
+        double[] matrixEntries = null;
+        List<TypedDatum[]> tableRows = null;
+        String tableReference = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if (ROW_STRING.equals(fieldName)) {
+                rows = parser.getValueAsLong();
+            } else if (COLUMN_STRING.equals(fieldName)) {
+                columns = parser.getValueAsInt();
+            } else if (VALUE_STRING.equals(fieldName)) {
+                switch (dataType) {
+                case Matrix:
+                    if (rows < 0 || columns < 0) {
+                        // the dimensions are needed to decode the values directly into the final array
+                        throw new NonCanonicalFieldOrderException();
+                    }
+                    matrixEntries = readMatrixEntries(parser, (int) rows, columns);
+                    break;
+                case SmallTable:
+                    if (rows < 0 || columns < 0) {
+                        // as for matrices, the dimensions must be known before the cells are read
+                        throw new NonCanonicalFieldOrderException();
+                    }
+                    tableRows = new ArrayList<>();
+                    expectToken(parser, JsonToken.START_ARRAY);
+                    while (parser.nextToken() == JsonToken.START_ARRAY) {
+                        tableRows.add(readTableRow(parser));
+                    }
+                    break;
+                case BigTable:
+                    tableReference = readObjectFields(parser, TABLE_REFERENCE_STRING)[0];
+                    break;
+                default:
+                    simpleValue = readSimpleValue(parser, dataType, factory);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        switch (dataType) {
+        case Matrix:
+            if (matrixEntries == null) {
+                throw new IllegalArgumentException(StringUtils.format(UNABLE_TO_DESERIALIZE_STRING, dataType.getDisplayName()));
+            }
+            // the matrix takes ownership of the array, so the values are not copied again
+            return new MatrixTDImpl((int) rows, columns, matrixEntries);
+        case SmallTable:
+            if (tableRows == null) {
+                throw new IllegalArgumentException(StringUtils.format(UNABLE_TO_DESERIALIZE_STRING, dataType.getDisplayName()));
+            }
+            SmallTableTD smallTable = factory.createSmallTable((int) rows, columns);
+            for (int i = 0; i < tableRows.size(); i++) {
+                TypedDatum[] row = tableRows.get(i);
+                for (int j = 0; j < row.length; j++) {
+                    smallTable.setTypedDatumForCell(row[j], i, j);
+                }
+            }
+            return smallTable;
+        case BigTable:
+            return factory.createBigTable(tableReference, rows, columns);
+        case Empty:
+            return factory.createEmpty();
+        default:
+            if (simpleValue == null) {
+                throw new IllegalArgumentException(StringUtils.format(UNABLE_TO_DESERIALIZE_STRING, dataType.getDisplayName()));
+            }
+            return simpleValue;
+        }
+    }
+
+    private TypedDatum readSimpleValue(JsonParser parser, DataType dataType, DefaultTypedDatumFactory factory) throws IOException {
+        switch (dataType) {
+        case Boolean:
+            return factory.createBoolean(parser.getValueAsBoolean());
+        case ShortText:
+            return factory.createShortText(parser.getValueAsString());
+        case Integer:
+            return factory.createInteger(parser.getValueAsLong());
+        case Float:
+            return factory.createFloat(parser.getValueAsDouble());
+        case DateTime:
+            return factory.createDateTime(parser.getValueAsLong());
+        case Vector:
+            expectToken(parser, JsonToken.START_ARRAY);
+            // the vector takes ownership of the array, so the values are not copied again
+            return new VectorTDImpl(readDoubleArray(parser));
+        case NotAValue:
+            // backward-compatibility to RCE version < 8.0.0 if value is read from data management
+            if (parser.getCurrentToken().isScalarValue()) {
+                String id = parser.getValueAsString();
+                final String failureCaseSuffix = "_flr";
+                if (id.endsWith(failureCaseSuffix)) {
+                    return factory.createNotAValue(id, NotAValueTD.Cause.Failure);
+                } else {
+                    return factory.createNotAValue(id, NotAValueTD.Cause.InvalidInputs);
+                }
+            }
+            String[] notAValueFields = readObjectFields(parser, ID_STRING, TYPE_STRING);
+            return factory.createNotAValue(notAValueFields[0], NotAValueTD.Cause.valueOf(notAValueFields[1]));
+        case FileReference:
+            String[] fileFields =
+                readObjectFields(parser, FILE_REFERENCE_STRING, FILE_NAME_STRING, FILE_SIZE_STRING, LAST_MODIFIED_STRING);
+            FileReferenceTD fileReference = factory.createFileReference(fileFields[0], fileFields[1]);
+            fileReference.setFileSize(Long.parseLong(fileFields[2]));
+            if (fileFields[3] != null) {
+                fileReference.setLastModified(new Date(Long.parseLong(fileFields[3])));
+            }
+            return fileReference;
+        case DirectoryReference:
+            String[] directoryFields = readObjectFields(parser, DIRECTORY_REFERENCE_STRING, DIRECTORY_NAME_STRING, DIRECTORY_SIZE_STRING);
+            DirectoryReferenceTD directoryReference = factory.createDirectoryReference(directoryFields[0], directoryFields[1]);
+            directoryReference.setDirectorySize(Long.parseLong(directoryFields[2]));
+            return directoryReference;
+        case StructuredData:
+        default:
+            throw new IllegalArgumentException(StringUtils.format(UNABLE_TO_DESERIALIZE_STRING, dataType.getDisplayName()));
+        }
+    }
+
+    /**
+     * Reads the numbers of a JSON array; the parser must be positioned at the START_ARRAY token.
+     */
+    private double[] readDoubleArray(JsonParser parser) throws IOException {
+        double[] values = new double[INITIAL_VECTOR_CAPACITY];
+        int count = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = parser.getValueAsDouble();
+        }
+        if (count == values.length) {
+            return values;
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Reads the rows of a matrix into a single row-major array; the parser must be positioned at the START_ARRAY token of the outer
+     * array. Missing values are left at zero.
+     */
+    private double[] readMatrixEntries(JsonParser parser, int rows, int columns) throws IOException {
+        expectToken(parser, JsonToken.START_ARRAY);
+        final double[] entries = new double[rows * columns];
+        int rowIndex = 0;
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            int index = rowIndex * columns;
+            final int rowEnd = index + columns;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (rowIndex >= rows || index == rowEnd) {
+                    throw new JsonParseException(parser, "Matrix values exceed the declared dimensions " + rows + "x" + columns);
+                }
+                entries[index++] = parser.getValueAsDouble();
+            }
+            rowIndex++;
+        }
+        return entries;
+    }
+
+    /**
+     * Reads a JSON array of table cells; the parser must be positioned at the START_ARRAY token.
+     */
+    private TypedDatum[] readTableRow(JsonParser parser) throws IOException, NonCanonicalFieldOrderException {
+        List<TypedDatum> cells = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.VALUE_STRING) {
+                // cells embedded as JSON strings, as written by RCE 7.1 to 10.0
+                cells.add(deserialize(parser.getText()));
+            } else {
+                expectToken(parser, JsonToken.START_OBJECT);
+                cells.add(readTypedDatum(parser));
+            }
+        }
+        return cells.toArray(new TypedDatum[cells.size()]);
+    }
+
+    /**
+     * Reads the given fields of a flat JSON object as strings, ignoring all other fields; the parser must be positioned at the
+     * START_OBJECT token. Missing fields and JSON null values are returned as null.
+     */
+    private String[] readObjectFields(JsonParser parser, String... fieldNames) throws IOException {
+        expectToken(parser, JsonToken.START_OBJECT);
+        final String[] values = new String[fieldNames.length];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            int index = -1;
+            for (int i = 0; i < fieldNames.length; i++) {
+                if (fieldNames[i].equals(fieldName)) {
+                    index = i;
+                }
+            }
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            if (index >= 0) {
+                values[index] = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return values;
+    }
+
+    private void expectToken(JsonParser parser, JsonToken expected) throws JsonParseException {
+        if (parser.getCurrentToken() != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + ", but found " + parser.getCurrentToken());
+        }
+    }
+
     private TypedDatum getTypedDatumFromNode(DataType dataType, JsonNode rootNode, JsonNode valueNode)
         throws JsonProcessingException, IOException {
         TypedDatum returnDatum;
@@ -127,24 +394,29 @@ public class DefaultTypedDatumSerializer implements TypedDatumSerializer {
             returnDatum = factory.createDateTime(valueNode.asLong());
             break;
         case Vector:
-            VectorTD vector = factory.createVector(valueNode.size());
-            for (int i = 0; i < valueNode.size(); i++) {
-                vector.setFloatTDForElement(factory.createFloat(valueNode.get(i).asDouble()), i);
+            double[] vectorEntries = new double[valueNode.size()];
+            for (int i = 0; i < vectorEntries.length; i++) {
+                vectorEntries[i] = valueNode.get(i).asDouble();
             }
-            returnDatum = vector;
+            // the vector takes ownership of the array, so the values are not copied again
+            returnDatum = new VectorTDImpl(vectorEntries);
             break;
         case Matrix:
             ArrayNode matrixArray = (ArrayNode) valueNode;
-            MatrixTD matrix = factory.createMatrix(rootNode.get(ROW_STRING).asInt(), rootNode.get(COLUMN_STRING).asInt());
+            final int rows = rootNode.get(ROW_STRING).asInt();
+            final int columns = rootNode.get(COLUMN_STRING).asInt();
+            // decode directly into the row-major array that the matrix takes ownership of
+            double[] matrixValues = new double[rows * columns];
             for (int i = 0; i < matrixArray.size(); i++) {
                 ArrayNode matrixRowArray = (ArrayNode) matrixArray.get(i);
+                if (i >= rows || matrixRowArray.size() > columns) {
+                    throw new IllegalArgumentException("Matrix values exceed the declared dimensions " + rows + "x" + columns);
+                }
                 for (int j = 0; j < matrixRowArray.size(); j++) {
-                    FloatTD value = factory.createFloat(matrixRowArray.get(j).asDouble());
-                    matrix.setFloatTDForElement(value,
-                        i, j);
+                    matrixValues[i * columns + j] = matrixRowArray.get(j).asDouble();
                 }
             }
-            returnDatum = matrix;
+            returnDatum = new MatrixTDImpl(rows, columns, matrixValues);
             break;
         case SmallTable:
             SmallTableTD smallTable =
@@ -203,8 +475,11 @@ public class DefaultTypedDatumSerializer implements TypedDatumSerializer {
             directoryReference.setDirectorySize(valueNode.get(DIRECTORY_SIZE_STRING).asLong());
             returnDatum = directoryReference;
             break;
-        case StructuredData:
         case BigTable:
+            returnDatum = factory.createBigTable(valueNode.get(TABLE_REFERENCE_STRING).textValue(),
+                rootNode.get(ROW_STRING).asLong(), rootNode.get(COLUMN_STRING).asInt());
+            break;
+        case StructuredData:
         default:
             throw new IllegalArgumentException(StringUtils.format(UNABLE_TO_DESERIALIZE_STRING, rootNode.toString()));
         }
@@ -213,105 +488,122 @@ public class DefaultTypedDatumSerializer implements TypedDatumSerializer {
 
     @Override
     public String serialize(TypedDatum input) {
-        ObjectMapper mapper = new ObjectMapper();
-        ObjectNode rootNode = mapper.createObjectNode();
         if (input == null || input.getDataType() == null) {
             throw new NullPointerException();
         }
-        rootNode.put(TYPE_STRING, input.getDataType().getShortName());
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            writeTypedDatum(generator, input);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(StringUtils.format(UNABLE_TO_SERIALIZE_STRING, input.getDataType().getDisplayName()), e);
+        }
+        return writer.toString();
+    }
+
+    private void writeTypedDatum(JsonGenerator generator, TypedDatum input) throws IOException {
+        if (input == null || input.getDataType() == null) {
+            throw new NullPointerException();
+        }
+        generator.writeStartObject();
+        generator.writeStringField(TYPE_STRING, input.getDataType().getShortName());
         switch (input.getDataType()) {
         case Boolean:
-            rootNode.put(VALUE_STRING, ((BooleanTD) input).getBooleanValue());
+            generator.writeBooleanField(VALUE_STRING, ((BooleanTD) input).getBooleanValue());
             break;
         case ShortText:
-            rootNode.put(VALUE_STRING, ((ShortTextTD) input).getShortTextValue());
+            generator.writeStringField(VALUE_STRING, ((ShortTextTD) input).getShortTextValue());
             break;
         case Integer:
             IntegerTD integer = (IntegerTD) input;
-            rootNode.put(VALUE_STRING, integer.getIntValue());
+            generator.writeNumberField(VALUE_STRING, integer.getIntValue());
             break;
         case Float:
             FloatTD floatData = (FloatTD) input;
-            rootNode.put(VALUE_STRING, floatData.getFloatValue());
+            generator.writeNumberField(VALUE_STRING, floatData.getFloatValue());
             break;
         case DateTime:
             DateTimeTD dateTime = (DateTimeTD) input;
-            rootNode.put(VALUE_STRING, dateTime.getDateTimeInMilliseconds());
+            generator.writeNumberField(VALUE_STRING, dateTime.getDateTimeInMilliseconds());
             break;
         case Vector:
             VectorTD vector = (VectorTD) input;
-            ArrayNode vectorArray = mapper.createArrayNode();
-            for (int i = 0; i < vector.getRowDimension(); i++) {
-                vectorArray.add(vector.getFloatTDOfElement(i).getFloatValue());
+            generator.writeArrayFieldStart(VALUE_STRING);
+            for (double value : vector.toDoubleArray()) {
+                generator.writeNumber(value);
             }
-            rootNode.set(VALUE_STRING, vectorArray);
+            generator.writeEndArray();
             break;
         case Matrix:
             MatrixTD matrix = (MatrixTD) input;
-            rootNode.put(ROW_STRING, matrix.getRowDimension());
-            rootNode.put(COLUMN_STRING, matrix.getColumnDimension());
-            ArrayNode matrixArray = mapper.createArrayNode();
+            generator.writeNumberField(ROW_STRING, matrix.getRowDimension());
+            generator.writeNumberField(COLUMN_STRING, matrix.getColumnDimension());
+            generator.writeArrayFieldStart(VALUE_STRING);
             for (int i = 0; i < matrix.getRowDimension(); i++) {
-                ArrayNode matrixRowArray = mapper.createArrayNode();
-                for (int j = 0; j < matrix.getColumnDimension(); j++) {
-                    matrixRowArray.add(matrix.getFloatTDOfElement(i, j).getFloatValue());
+                generator.writeStartArray();
+                for (double value : matrix.getRow(i)) {
+                    generator.writeNumber(value);
                 }
-                matrixArray.add(matrixRowArray);
+                generator.writeEndArray();
             }
-            rootNode.set(VALUE_STRING, matrixArray);
+            generator.writeEndArray();
             break;
         case SmallTable:
             SmallTableTD smallTable = (SmallTableTD) input;
-            rootNode.put(ROW_STRING, smallTable.getRowCount());
-            rootNode.put(COLUMN_STRING, smallTable.getColumnCount());
-            ArrayNode smallTableArray = mapper.createArrayNode();
+            generator.writeNumberField(ROW_STRING, smallTable.getRowCount());
+            generator.writeNumberField(COLUMN_STRING, smallTable.getColumnCount());
+            generator.writeArrayFieldStart(VALUE_STRING);
             for (int i = 0; i < smallTable.getRowCount(); i++) {
-                ArrayNode smallTableRowArray = mapper.createArrayNode();
+                generator.writeStartArray();
                 for (int j = 0; j < smallTable.getColumnCount(); j++) {
-                    smallTableRowArray.addPOJO(serialize(smallTable.getTypedDatumOfCell(i, j)));
+                    // written inline; readable by all versions, as the string-embedded cells were only introduced in 7.1
+                    writeTypedDatum(generator, smallTable.getTypedDatumOfCell(i, j));
                 }
-                smallTableArray.add(smallTableRowArray);
+                generator.writeEndArray();
             }
-            rootNode.set(VALUE_STRING, smallTableArray);
+            generator.writeEndArray();
             break;
         case FileReference:
-            ObjectNode fileObjectNode = mapper.createObjectNode();
             FileReferenceTD fileReference = (FileReferenceTD) input;
-            fileObjectNode.put(FILE_REFERENCE_STRING, fileReference.getFileReference());
-            fileObjectNode.put(FILE_NAME_STRING, fileReference.getFileName());
-            fileObjectNode.put(FILE_SIZE_STRING, fileReference.getFileSizeInBytes());
+            generator.writeObjectFieldStart(VALUE_STRING);
+            generator.writeStringField(FILE_REFERENCE_STRING, fileReference.getFileReference());
+            generator.writeStringField(FILE_NAME_STRING, fileReference.getFileName());
+            generator.writeNumberField(FILE_SIZE_STRING, fileReference.getFileSizeInBytes());
             if (fileReference.getLastModified() != null) {
-                fileObjectNode.put(LAST_MODIFIED_STRING, fileReference.getLastModified().getTime());
+                generator.writeNumberField(LAST_MODIFIED_STRING, fileReference.getLastModified().getTime());
             }
-            rootNode.set(VALUE_STRING, fileObjectNode);
+            generator.writeEndObject();
             break;
         case DirectoryReference:
-            ObjectNode dirObjectNode = mapper.createObjectNode();
             DirectoryReferenceTD directoryReference = (DirectoryReferenceTD) input;
-            dirObjectNode.put(DIRECTORY_REFERENCE_STRING, directoryReference.getDirectoryReference());
-            dirObjectNode.put(DIRECTORY_NAME_STRING, directoryReference.getDirectoryName());
-            dirObjectNode.put(DIRECTORY_SIZE_STRING, directoryReference.getDirectorySizeInBytes());
-            rootNode.set(VALUE_STRING, dirObjectNode);
+            generator.writeObjectFieldStart(VALUE_STRING);
+            generator.writeStringField(DIRECTORY_REFERENCE_STRING, directoryReference.getDirectoryReference());
+            generator.writeStringField(DIRECTORY_NAME_STRING, directoryReference.getDirectoryName());
+            generator.writeNumberField(DIRECTORY_SIZE_STRING, directoryReference.getDirectorySizeInBytes());
+            generator.writeEndObject();
             break;
         case NotAValue:
-            ObjectNode notAValueObjectNode = mapper.createObjectNode();
             NotAValueTD notAValue = (NotAValueTD) input;
-            notAValueObjectNode.put(ID_STRING, notAValue.getIdentifier());
-            notAValueObjectNode.put(TYPE_STRING, notAValue.getCause().name());
-            rootNode.set(VALUE_STRING, notAValueObjectNode);
+            generator.writeObjectFieldStart(VALUE_STRING);
+            generator.writeStringField(ID_STRING, notAValue.getIdentifier());
+            generator.writeStringField(TYPE_STRING, notAValue.getCause().name());
+            generator.writeEndObject();
             break;
         case Empty:
             break;
         case BigTable:
+            // only the reference is serialized; the table content is stored in the data management
+            BigTableTD bigTable = (BigTableTD) input;
+            generator.writeNumberField(ROW_STRING, bigTable.getRowCount());
+            generator.writeNumberField(COLUMN_STRING, bigTable.getColumnCount());
+            generator.writeObjectFieldStart(VALUE_STRING);
+            generator.writeStringField(TABLE_REFERENCE_STRING, bigTable.getTableReference());
+            generator.writeEndObject();
+            break;
         case StructuredData:
         default:
             throw new IllegalArgumentException(StringUtils.format(UNABLE_TO_SERIALIZE_STRING, input.getDataType().getDisplayName()));
         }
-        try {
-            return mapper.writeValueAsString(rootNode);
-        } catch (IOException e) {
-            throw new IllegalArgumentException(StringUtils.format(UNABLE_TO_SERIALIZE_STRING, input.getDataType().getDisplayName()), e);
-        }
+        generator.writeEndObject();
     }
 
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamodel.types.api;
+
+/**
+ * Constants and shared definitions of the file format used by {@link BigTableWriter} and {@link BigTableReader}.
+ * 
+ * The table is stored in chunks of rows; within each chunk, the cells are stored column by column, so that a single column can be read
+ * without touching the others. The file layout is:
+ * <ul>
+ * <li>header: magic number (int), format version (byte), column count (int)</li>
+ * <li>the chunks, each consisting of one segment per column; each segment contains the encoded cells of that column</li>
+ * <li>chunk index: for each chunk, its file offset (long), its row count (int), and the byte length of each column segment (int)</li>
+ * <li>trailer: offset of the chunk index (long), chunk count (int), total row count (long), magic number (int)</li>
+ * </ul>
+ * 
+ * Each cell is encoded as a one-byte type tag, followed by the value: nothing for empty cells, one byte for booleans, eight bytes for
+ * integers, floats and date/time values, and the length-prefixed UTF-8 bytes for short texts.
+ * 
+ * @author agent
+ */
+final class BigTableFormat {
+
+    static final int MAGIC_NUMBER = 0x52434254; // "RCBT"
+
+    static final byte FORMAT_VERSION = 1;
+
+    static final int HEADER_LENGTH = 4 + 1 + 4;
+
+    static final int TRAILER_LENGTH = 8 + 4 + 8 + 4;
+
+    static final byte TAG_EMPTY = 0;
+
+    static final byte TAG_BOOLEAN = 1;
+
+    static final byte TAG_INTEGER = 2;
+
+    static final byte TAG_FLOAT = 3;
+
+    static final byte TAG_DATE_TIME = 4;
+
+    static final byte TAG_SHORT_TEXT = 5;
+
+    /**
+     * The chunk index entry of a single chunk.
+     * 
+     * @author agent
+     */
+    static final class ChunkInfo {
+
+        final long offset;
+
+        final int rowCount;
+
+        final int[] segmentLengths;
+
+        ChunkInfo(long offset, int rowCount, int[] segmentLengths) {
+            this.offset = offset;
+            this.rowCount = rowCount;
+            this.segmentLengths = segmentLengths;
+        }
+
+        int getTotalLength() {
+            int total = 0;
+            for (int length : segmentLengths) {
+                total += length;
+            }
+            return total;
+        }
+
+        long getSegmentOffset(int columnIndex) {
+            long segmentOffset = offset;
+            for (int i = 0; i < columnIndex; i++) {
+                segmentOffset += segmentLengths[i];
+            }
+            return segmentOffset;
+        }
+    }
+
+    private BigTableFormat() {}
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamodel.types.api;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import de.rcenvironment.core.datamodel.api.TypedDatum;
+import de.rcenvironment.core.datamodel.api.TypedDatumFactory;
+import de.rcenvironment.core.datamodel.types.api.BigTableFormat.ChunkInfo;
+import de.rcenvironment.core.utils.common.StringUtils;
+
+/**
+ * Provides streaming access to a local file written by {@link BigTableWriter}, typically after downloading the content of a
+ * {@link BigTableTD} from the data management.
+ * 
+ * Rows and columns are read chunk by chunk into an off-heap buffer, and cells are only decoded when they are requested. Iterating over a
+ * single column only reads that column's segments from disk. Each iterator uses its own buffer, so multiple iterators can be used
+ * concurrently; their {@link Iterator#next()} methods throw an {@link UncheckedIOException} on read errors.
+ * 
+ * @author agent
+ */
+public final class BigTableReader implements Closeable {
+
+    private final FileChannel channel;
+
+    private final int columnCount;
+
+    private final long rowCount;
+
+    private final ChunkInfo[] chunks;
+
+    private final TypedDatumFactory factory;
+
+    /**
+     * @param file the file to read
+     * @param factory the factory to create the cell {@link TypedDatum}s with
+     * @throws IOException if the file cannot be opened, or is not a valid big table file
+     */
+    public BigTableReader(File file, TypedDatumFactory factory) throws IOException {
+        this.factory = factory;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            final ByteBuffer header = readFully(0, BigTableFormat.HEADER_LENGTH);
+            if (header.getInt() != BigTableFormat.MAGIC_NUMBER) {
+                throw new IOException("Not a big table file: " + file.getAbsolutePath());
+            }
+            final byte version = header.get();
+            if (version != BigTableFormat.FORMAT_VERSION) {
+                throw new IOException(StringUtils.format("Unsupported big table format version %d in %s", version, file.getAbsolutePath()));
+            }
+            this.columnCount = header.getInt();
+
+            final ByteBuffer trailer = readFully(channel.size() - BigTableFormat.TRAILER_LENGTH, BigTableFormat.TRAILER_LENGTH);
+            final long indexOffset = trailer.getLong();
+            final int chunkCount = trailer.getInt();
+            this.rowCount = trailer.getLong();
+            if (trailer.getInt() != BigTableFormat.MAGIC_NUMBER) {
+                throw new IOException("Incomplete big table file: " + file.getAbsolutePath());
+            }
+
+            final ByteBuffer index = readFully(indexOffset, chunkCount * (8 + 4 + 4 * columnCount));
+            this.chunks = new ChunkInfo[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                final long offset = index.getLong();
+                final int chunkRowCount = index.getInt();
+                final int[] segmentLengths = new int[columnCount];
+                for (int j = 0; j < columnCount; j++) {
+                    segmentLengths[j] = index.getInt();
+                }
+                chunks[i] = new ChunkInfo(offset, chunkRowCount, segmentLengths);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * @return an iterator over all rows of the table; the returned arrays are not reused, so they can be retained by the caller
+     */
+    public Iterator<TypedDatum[]> rowIterator() {
+        int maxChunkLength = 0;
+        for (ChunkInfo chunk : chunks) {
+            maxChunkLength = Math.max(maxChunkLength, chunk.getTotalLength());
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(maxChunkLength);
+        return new Iterator<TypedDatum[]>() {
+
+            private int chunkIndex = -1;
+
+            private int remainingRowsInChunk;
+
+            // the read position of each column segment within the buffer
+            private final int[] segmentPositions = new int[columnCount];
+
+            @Override
+            public boolean hasNext() {
+                return remainingRowsInChunk > 0 || chunkIndex + 1 < chunks.length;
+            }
+
+            @Override
+            public TypedDatum[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (remainingRowsInChunk == 0) {
+                    final ChunkInfo chunk = chunks[++chunkIndex];
+                    loadSegment(buffer, chunk.offset, chunk.getTotalLength());
+                    int position = 0;
+                    for (int i = 0; i < columnCount; i++) {
+                        segmentPositions[i] = position;
+                        position += chunk.segmentLengths[i];
+                    }
+                    remainingRowsInChunk = chunk.rowCount;
+                }
+                final TypedDatum[] row = new TypedDatum[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    buffer.position(segmentPositions[i]);
+                    row[i] = readCell(buffer);
+                    segmentPositions[i] = buffer.position();
+                }
+                remainingRowsInChunk--;
+                return row;
+            }
+        };
+    }
+
+    /**
+     * @param columnIndex the zero-based index of the column
+     * @return an iterator over all cells of the given column, in row order
+     */
+    public Iterator<TypedDatum> columnIterator(final int columnIndex) {
+        if (columnIndex < 0 || columnIndex >= columnCount) {
+            throw new IllegalArgumentException("index out of range: " + columnIndex);
+        }
+        int maxSegmentLength = 0;
+        for (ChunkInfo chunk : chunks) {
+            maxSegmentLength = Math.max(maxSegmentLength, chunk.segmentLengths[columnIndex]);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(maxSegmentLength);
+        return new Iterator<TypedDatum>() {
+
+            private int chunkIndex = -1;
+
+            private int remainingRowsInChunk;
+
+            @Override
+            public boolean hasNext() {
+                return remainingRowsInChunk > 0 || chunkIndex + 1 < chunks.length;
+            }
+
+            @Override
+            public TypedDatum next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (remainingRowsInChunk == 0) {
+                    final ChunkInfo chunk = chunks[++chunkIndex];
+                    loadSegment(buffer, chunk.getSegmentOffset(columnIndex), chunk.segmentLengths[columnIndex]);
+                    remainingRowsInChunk = chunk.rowCount;
+                }
+                remainingRowsInChunk--;
+                return readCell(buffer);
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void loadSegment(ByteBuffer buffer, long offset, int length) {
+        buffer.clear();
+        buffer.limit(length);
+        try {
+            fill(buffer, offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.flip();
+    }
+
+    private ByteBuffer readFully(long offset, int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        fill(buffer, offset);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void fill(ByteBuffer buffer, long offset) throws IOException {
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of big table file");
+            }
+            position += read;
+        }
+    }
+
+    private TypedDatum readCell(ByteBuffer buffer) {
+        final byte tag = buffer.get();
+        switch (tag) {
+        case BigTableFormat.TAG_EMPTY:
+            return factory.createEmpty();
+        case BigTableFormat.TAG_BOOLEAN:
+            return factory.createBoolean(buffer.get() != 0);
+        case BigTableFormat.TAG_INTEGER:
+            return factory.createInteger(buffer.getLong());
+        case BigTableFormat.TAG_FLOAT:
+            return factory.createFloat(buffer.getDouble());
+        case BigTableFormat.TAG_DATE_TIME:
+            return factory.createDateTime(buffer.getLong());
+        case BigTableFormat.TAG_SHORT_TEXT:
+            final byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return factory.createShortText(new String(bytes, StandardCharsets.UTF_8));
+        default:
+            throw new UncheckedIOException(new IOException("Invalid cell type tag in big table file: " + tag));
+        }
+    }
+
+}
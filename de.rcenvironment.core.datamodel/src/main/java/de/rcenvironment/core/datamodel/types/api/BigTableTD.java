@@ -8,15 +8,35 @@
 
 package de.rcenvironment.core.datamodel.types.api;
 
+import de.rcenvironment.core.datamodel.api.DataType;
 import de.rcenvironment.core.datamodel.api.TypedDatum;
 
 /**
  * A table of arbitrary size that is partially loaded into RAM on access. Each cell has its
- * individual data type. Valid cell data types are defined by the {@link #isAllowedAsCellType()}
- * method.
+ * individual data type. Valid cell data types are defined by {@link DataType#isValidCellType()},
+ * plus {@link DataType#Empty}.
+ * 
+ * Like {@link FileReferenceTD}, the datum itself only holds a data management reference and some
+ * metadata; the table content is stored in the data management as a file in the format written by
+ * {@link BigTableWriter}. Use {@link BigTableReader} to stream the rows or columns of such a file.
  * 
  * @author Robert Mischke
  */
 public interface BigTableTD extends TypedDatum {
 
+    /**
+     * @return data management reference to the table content
+     */
+    String getTableReference();
+
+    /**
+     * @return the number of rows
+     */
+    long getRowCount();
+
+    /**
+     * @return the number of columns
+     */
+    int getColumnCount();
+
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.core.datamodel.types.api;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import de.rcenvironment.core.datamodel.api.DataType;
+import de.rcenvironment.core.datamodel.api.TypedDatum;
+import de.rcenvironment.core.datamodel.types.api.BigTableFormat.ChunkInfo;
+
+/**
+ * Writes the content of a {@link BigTableTD} to a local file, row by row. Only a single chunk of rows is held in memory at any time, so
+ * tables of arbitrary size can be written. The resulting file can be turned into a {@link BigTableTD} by uploading it to the data
+ * management.
+ * 
+ * This class is not thread-safe.
+ * 
+ * @author agent
+ */
+public final class BigTableWriter implements Closeable {
+
+    /**
+     * The default number of rows per chunk.
+     */
+    public static final int DEFAULT_CHUNK_ROW_COUNT = 4096;
+
+    private static final Set<DataType> ALLOWED_CELL_TYPES =
+        EnumSet.of(DataType.Empty, DataType.Boolean, DataType.Integer, DataType.Float, DataType.DateTime, DataType.ShortText);
+
+    private final int columnCount;
+
+    private final int chunkRowCount;
+
+    private final DataOutputStream output;
+
+    private final ByteArrayOutputStream[] segmentBuffers;
+
+    private final DataOutputStream[] segmentStreams;
+
+    private final List<ChunkInfo> chunks = new ArrayList<>();
+
+    private long position;
+
+    private int rowsInCurrentChunk;
+
+    private long rowCount;
+
+    private boolean closed;
+
+    public BigTableWriter(File file, int columnCount) throws IOException {
+        this(file, columnCount, DEFAULT_CHUNK_ROW_COUNT);
+    }
+
+    public BigTableWriter(File file, int columnCount, int chunkRowCount) throws IOException {
+        if (columnCount < 1 || chunkRowCount < 1) {
+            throw new IllegalArgumentException("Column count and chunk size must be positive");
+        }
+        this.columnCount = columnCount;
+        this.chunkRowCount = chunkRowCount;
+        this.segmentBuffers = new ByteArrayOutputStream[columnCount];
+        this.segmentStreams = new DataOutputStream[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            segmentBuffers[i] = new ByteArrayOutputStream();
+            segmentStreams[i] = new DataOutputStream(segmentBuffers[i]);
+        }
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        output.writeInt(BigTableFormat.MAGIC_NUMBER);
+        output.writeByte(BigTableFormat.FORMAT_VERSION);
+        output.writeInt(columnCount);
+        position = BigTableFormat.HEADER_LENGTH;
+    }
+
+    /**
+     * Appends a row to the table.
+     * 
+     * @param cells the cells of the row; the number of cells must match the column count
+     * @throws IOException on write errors
+     * @throws IllegalArgumentException if the number of cells or a cell's type is invalid; no cell of the row is written in this case
+     */
+    public void appendRow(TypedDatum... cells) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Writer is already closed");
+        }
+        if (cells.length != columnCount) {
+            throw new IllegalArgumentException("Expected " + columnCount + " cells, but got " + cells.length);
+        }
+        // validate all cells first, as a partially written row would shift the rows of the affected columns
+        for (TypedDatum cell : cells) {
+            validateCell(cell);
+        }
+        for (int i = 0; i < columnCount; i++) {
+            writeCell(segmentStreams[i], cells[i]);
+        }
+        rowCount++;
+        if (++rowsInCurrentChunk == chunkRowCount) {
+            writeChunk();
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Writes the remaining rows and the chunk index, and closes the file.
+     * 
+     * @throws IOException on write errors
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (rowsInCurrentChunk > 0) {
+                writeChunk();
+            }
+            final long indexOffset = position;
+            for (ChunkInfo chunk : chunks) {
+                output.writeLong(chunk.offset);
+                output.writeInt(chunk.rowCount);
+                for (int length : chunk.segmentLengths) {
+                    output.writeInt(length);
+                }
+            }
+            output.writeLong(indexOffset);
+            output.writeInt(chunks.size());
+            output.writeLong(rowCount);
+            output.writeInt(BigTableFormat.MAGIC_NUMBER);
+        } finally {
+            output.close();
+        }
+    }
+
+    private void writeChunk() throws IOException {
+        final int[] segmentLengths = new int[columnCount];
+        final long chunkOffset = position;
+        for (int i = 0; i < columnCount; i++) {
+            segmentLengths[i] = segmentBuffers[i].size();
+            segmentBuffers[i].writeTo(output);
+            segmentBuffers[i].reset();
+            position += segmentLengths[i];
+        }
+        chunks.add(new ChunkInfo(chunkOffset, rowsInCurrentChunk, segmentLengths));
+        rowsInCurrentChunk = 0;
+    }
+
+    private void validateCell(TypedDatum cell) {
+        if (cell == null) {
+            throw new IllegalArgumentException("Table cells must not be null");
+        }
+        if (!ALLOWED_CELL_TYPES.contains(cell.getDataType())) {
+            throw new IllegalArgumentException("Data type '" + cell.getDataType() + "' is not allowed in big tables.");
+        }
+    }
+
+    private void writeCell(DataOutputStream stream, TypedDatum cell) throws IOException {
+        final DataType dataType = cell.getDataType();
+        switch (dataType) {
+        case Empty:
+            stream.writeByte(BigTableFormat.TAG_EMPTY);
+            break;
+        case Boolean:
+            stream.writeByte(BigTableFormat.TAG_BOOLEAN);
+            stream.writeBoolean(((BooleanTD) cell).getBooleanValue());
+            break;
+        case Integer:
+            stream.writeByte(BigTableFormat.TAG_INTEGER);
+            stream.writeLong(((IntegerTD) cell).getIntValue());
+            break;
+        case Float:
+            stream.writeByte(BigTableFormat.TAG_FLOAT);
+            stream.writeDouble(((FloatTD) cell).getFloatValue());
+            break;
+        case DateTime:
+            stream.writeByte(BigTableFormat.TAG_DATE_TIME);
+            stream.writeLong(((DateTimeTD) cell).getDateTimeInMilliseconds());
+            break;
+        case ShortText:
+            final byte[] bytes = ((ShortTextTD) cell).getShortTextValue().getBytes(StandardCharsets.UTF_8);
+            stream.writeByte(BigTableFormat.TAG_SHORT_TEXT);
+            stream.writeInt(bytes.length);
+            stream.write(bytes);
+            break;
+        default:
+            // already rejected by validateCell()
+            throw new IllegalStateException("Unexpected data type: " + dataType);
+        }
+    }
+
+}
@@ -88,6 +88,22 @@ public interface MatrixTD extends TypedDatum {
      * @return two dimensional Array
      */
     FloatTD[][] toArray();
+
+    /**
+     * Returns a new double array containing the values of a single row. In contrast to {@link #getRowVector(int)}, this does not create an
+     * object per element, so it should be preferred for bulk access.
+     * 
+     * @param rowIndex zero-based row index
+     * @return new double array
+     */
+    double[] getRow(int rowIndex);
+
+    /**
+     * Returns a new two-dimensional double array containing the values of the matrix, indexed by row first.
+     * 
+     * @return new two-dimensional double array
+     */
+    double[][] toDoubleArray();
     
     /**
      * @param maxLength maximum length of string representation
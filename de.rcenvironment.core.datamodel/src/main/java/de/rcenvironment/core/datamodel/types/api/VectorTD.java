@@ -60,6 +60,14 @@ public interface VectorTD extends TypedDatum {
      * @return new {@link FloatTD} array
      */
     FloatTD[] toArray();
+
+    /**
+     * Returns a new double array containing the values of the vector. In contrast to {@link #toArray()}, this does not create an object per
+     * element, so it should be preferred for bulk access.
+     * 
+     * @return new double array
+     */
+    double[] toDoubleArray();
     
     /**
      * @param maxLength maximum length of string representation
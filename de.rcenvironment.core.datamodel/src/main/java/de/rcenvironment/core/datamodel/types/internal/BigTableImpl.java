@@ -10,6 +10,7 @@ package de.rcenvironment.core.datamodel.types.internal;
 
 import de.rcenvironment.core.datamodel.api.DataType;
 import de.rcenvironment.core.datamodel.types.api.BigTableTD;
+import de.rcenvironment.core.utils.common.StringUtils;
 
 /**
  * Implementation of {@link BigTableTD}.
@@ -18,8 +19,37 @@ import de.rcenvironment.core.datamodel.types.api.BigTableTD;
  */
 public class BigTableImpl extends AbstractTypedDatum implements BigTableTD {
 
-    public BigTableImpl() {
+    private final String tableReference;
+
+    private final long rowCount;
+
+    private final int columnCount;
+
+    public BigTableImpl(String tableReference, long rowCount, int columnCount) {
         super(DataType.BigTable);
+        this.tableReference = tableReference;
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+    }
+
+    @Override
+    public String getTableReference() {
+        return tableReference;
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    @Override
+    public String toString() {
+        return StringUtils.format("Big Table (%dx%d)", rowCount, columnCount);
     }
 
 }
@@ -8,135 +8,259 @@
 
 package de.rcenvironment.core.datamodel.types.internal;
 
-import org.apache.commons.logging.LogFactory;
+import java.util.Arrays;
 
 import de.rcenvironment.core.datamodel.api.DataType;
-import de.rcenvironment.core.datamodel.api.DataTypeException;
-import de.rcenvironment.core.datamodel.api.TypedDatum;
-import de.rcenvironment.core.datamodel.api.TypedDatumConverter;
-import de.rcenvironment.core.datamodel.internal.TypedDatumServiceImpl;
 import de.rcenvironment.core.datamodel.types.api.FloatTD;
 import de.rcenvironment.core.datamodel.types.api.MatrixTD;
-import de.rcenvironment.core.datamodel.types.api.SmallTableTD;
 import de.rcenvironment.core.datamodel.types.api.VectorTD;
 import de.rcenvironment.core.utils.common.StringUtils;
 
 /**
- * Implementation of {@link MatrixTD}.
+ * Implementation of {@link MatrixTD}. The values are stored row by row in a primitive double array; {@link FloatTD} instances are only
+ * created on element access.
+ * 
+ * Sub-matrices and row/column vectors are views on the same array, which is copied on the first write to any instance sharing it (see
+ * {@link VectorTDImpl}).
+ * 
+ * Like the other typed datum implementations, this class is not thread-safe; this includes the views created from an instance.
  * 
  * @author Doreen Seider
  */
 public class MatrixTDImpl extends AbstractTypedDatum implements MatrixTD {
 
-    private SmallTableTD table;
+    private static final String OUT_OF_RANGE_ERROR_MESSAGE = "index out of range: ";
+
+    private double[] data;
+
+    private int offset;
+
+    private final int rows;
+
+    private final int columns;
+
+    private int rowStride;
+
+    // true if the data array may be referenced by another instance
+    private boolean backingArrayShared;
 
     public MatrixTDImpl(FloatTD[][] matrixEntries) {
         super(DataType.Matrix);
-        this.table = new SmallTableTDImpl(matrixEntries);
+        this.rows = matrixEntries.length;
+        if (rows == 0) {
+            this.columns = 0;
+        } else {
+            this.columns = matrixEntries[0].length;
+        }
+        this.rowStride = columns;
+        this.data = new double[rows * columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                data[i * columns + j] = matrixEntries[i][j].getFloatValue();
+            }
+        }
+    }
+
+    /**
+     * Creates a matrix that takes ownership of the given array, i.e. the array must not be modified by the caller afterwards.
+     * 
+     * @param rows the row dimension
+     * @param columns the column dimension
+     * @param rowMajorEntries the matrix entries, row by row; the length must be rows * columns
+     */
+    public MatrixTDImpl(int rows, int columns, double[] rowMajorEntries) {
+        this(rowMajorEntries, 0, rows, columns, columns);
+        if (rowMajorEntries.length != rows * columns) {
+            throw new IllegalArgumentException("Invalid array length " + rowMajorEntries.length + " for a " + rows + "x" + columns
+                + " matrix");
+        }
+    }
+
+    private MatrixTDImpl(double[] data, int offset, int rows, int columns, int rowStride) {
+        super(DataType.Matrix);
+        this.data = data;
+        this.offset = offset;
+        this.rows = rows;
+        this.columns = columns;
+        this.rowStride = rowStride;
+    }
+
+    /**
+     * Creates a matrix from a two-dimensional array; the values are copied.
+     * 
+     * @param matrixEntries the matrix entries, indexed by row first; all rows must have the same length
+     * @return the new matrix
+     */
+    public static MatrixTDImpl fromRows(double[][] matrixEntries) {
+        final int rows = matrixEntries.length;
+        final int columns;
+        if (rows == 0) {
+            columns = 0;
+        } else {
+            columns = matrixEntries[0].length;
+        }
+        final double[] data = new double[rows * columns];
+        for (int i = 0; i < rows; i++) {
+            if (matrixEntries[i].length != columns) {
+                throw new IllegalArgumentException("All rows must have the same length");
+            }
+            System.arraycopy(matrixEntries[i], 0, data, i * columns, columns);
+        }
+        return new MatrixTDImpl(rows, columns, data);
     }
 
     @Override
     public FloatTD getFloatTDOfElement(int rowIndex, int columnIndex) {
-        return (FloatTD) table.getTypedDatumOfCell(rowIndex, columnIndex);
+        return new FloatTDImpl(data[indexOf(rowIndex, columnIndex)]);
     }
 
     @Override
     public void setFloatTDForElement(FloatTD number, int rowIndex, int columnIndex) {
-        table.setTypedDatumForCell(number, rowIndex, columnIndex);
+        if (backingArrayShared) {
+            unshare();
+        }
+        data[indexOf(rowIndex, columnIndex)] = number.getFloatValue();
     }
 
     @Override
     public int getRowDimension() {
-        return table.getRowCount();
+        return rows;
     }
 
     @Override
     public int getColumnDimension() {
-        return table.getColumnCount();
+        return columns;
     }
 
     @Override
     public MatrixTD getSubMatrix(int endRowIndex, int endColumnIndex) {
-        TypedDatumConverter converter = new TypedDatumServiceImpl().getConverter();
-        try {
-            return converter.castOrConvert(table.getSubTable(endRowIndex, endColumnIndex), MatrixTD.class);
-        } catch (DataTypeException e) {
-            // should not happen
-            LogFactory.getLog(getClass()).error("conversion failed", e);
-            return null;
-        }
+        return getSubMatrix(0, 0, endRowIndex, endColumnIndex);
     }
 
     @Override
     public MatrixTD getSubMatrix(int beginRowIndex, int beginColumnIndex, int endRowIndex, int endColumnIndex) {
-        TypedDatumConverter converter = new TypedDatumServiceImpl().getConverter();
-        try {
-            return converter.castOrConvert(table.getSubTable(beginRowIndex, beginColumnIndex,
-                endRowIndex, endColumnIndex), MatrixTD.class);
-        } catch (DataTypeException e) {
-            // should not happen
-            LogFactory.getLog(getClass()).error("conversion failed", e);
-            return null;
+        if (beginRowIndex < 0 || endRowIndex > rows || beginRowIndex > endRowIndex) {
+            throw new IllegalArgumentException(OUT_OF_RANGE_ERROR_MESSAGE + beginRowIndex + " - " + endRowIndex);
+        } else if (beginColumnIndex < 0 || endColumnIndex > columns || beginColumnIndex > endColumnIndex) {
+            throw new IllegalArgumentException(OUT_OF_RANGE_ERROR_MESSAGE + beginColumnIndex + " - " + endColumnIndex);
         }
+        backingArrayShared = true;
+        MatrixTDImpl view = new MatrixTDImpl(data, offset + beginRowIndex * rowStride + beginColumnIndex,
+            endRowIndex - beginRowIndex, endColumnIndex - beginColumnIndex, rowStride);
+        view.backingArrayShared = true;
+        return view;
     }
 
     @Override
     public VectorTD getColumnVector(int columnIndex) {
         if (columnIndex < 0 || columnIndex >= getColumnDimension()) {
-            throw new IllegalArgumentException("index out of range: " + columnIndex);
+            throw new IllegalArgumentException(OUT_OF_RANGE_ERROR_MESSAGE + columnIndex);
         }
-        FloatTD[][] matrixEntries = toArray();
-        FloatTD[] vectorEntries = new FloatTD[getRowDimension()];
-        for (int i = 0; i < getRowDimension(); i++) {
-            vectorEntries[i] = matrixEntries[i][columnIndex];
-        }
-        return new VectorTDImpl(vectorEntries);
+        backingArrayShared = true;
+        return VectorTDImpl.createView(data, offset + columnIndex, rows, rowStride);
     }
 
     @Override
     public VectorTD getRowVector(int rowIndex) {
         if (rowIndex < 0 || rowIndex >= getRowDimension()) {
-            throw new IllegalArgumentException("index out of range: " + rowIndex);
-        }
-        FloatTD[][] matrixEntries = toArray();
-        FloatTD[] vectorEntries = new FloatTD[getColumnDimension()];
-        for (int i = 0; i < getColumnDimension(); i++) {
-            vectorEntries[i] = matrixEntries[rowIndex][i];
+            throw new IllegalArgumentException(OUT_OF_RANGE_ERROR_MESSAGE + rowIndex);
         }
-        return new VectorTDImpl(vectorEntries);
+        backingArrayShared = true;
+        return VectorTDImpl.createView(data, offset + rowIndex * rowStride, columns, 1);
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj != null && obj instanceof MatrixTD) {
             MatrixTD other = (MatrixTD) obj;
-            return table.equals(new SmallTableTDImpl(other.toArray()));
+            if (other.getRowDimension() != rows || other.getColumnDimension() != columns) {
+                return false;
+            }
+            for (int i = 0; i < rows; i++) {
+                final double[] otherRow = other.getRow(i);
+                final int rowStart = offset + i * rowStride;
+                for (int j = 0; j < columns; j++) {
+                    if (Double.doubleToLongBits(data[rowStart + j]) != Double.doubleToLongBits(otherRow[j])) {
+                        return false;
+                    }
+                }
+            }
+            return true;
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        return table.hashCode();
+        final int prime = 31;
+        int result = 1;
+        for (int i = 0; i < rows; i++) {
+            final int rowStart = offset + i * rowStride;
+            for (int j = 0; j < columns; j++) {
+                final long bits = Double.doubleToLongBits(data[rowStart + j]);
+                result = prime * result + (int) (bits ^ (bits >>> Integer.SIZE));
+            }
+        }
+        return result;
     }
 
     @Override
     public FloatTD[][] toArray() {
-        TypedDatum[][] tableAsArray = table.toArray();
-        FloatTD[][] resultArray = new FloatTD[getRowDimension()][getColumnDimension()];
-        for (int i = 0; i < getRowDimension(); i++) {
-            System.arraycopy(tableAsArray[i], 0, resultArray[i], 0, getColumnDimension());
+        FloatTD[][] resultArray = new FloatTD[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            final int rowStart = offset + i * rowStride;
+            for (int j = 0; j < columns; j++) {
+                resultArray[i][j] = new FloatTDImpl(data[rowStart + j]);
+            }
+        }
+        return resultArray;
+    }
+
+    @Override
+    public double[] getRow(int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= rows) {
+            throw new IllegalArgumentException(OUT_OF_RANGE_ERROR_MESSAGE + rowIndex);
+        }
+        final int rowStart = offset + rowIndex * rowStride;
+        return Arrays.copyOfRange(data, rowStart, rowStart + columns);
+    }
+
+    @Override
+    public double[][] toDoubleArray() {
+        double[][] resultArray = new double[rows][];
+        for (int i = 0; i < rows; i++) {
+            resultArray[i] = getRow(i);
         }
         return resultArray;
     }
 
+    private int indexOf(int rowIndex, int columnIndex) {
+        if (rowIndex < 0 || rowIndex >= rows) {
+            throw new ArrayIndexOutOfBoundsException(rowIndex);
+        }
+        if (columnIndex < 0 || columnIndex >= columns) {
+            throw new ArrayIndexOutOfBoundsException(columnIndex);
+        }
+        return offset + rowIndex * rowStride + columnIndex;
+    }
+
+    private void unshare() {
+        final double[] compactData = new double[rows * columns];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(data, offset + i * rowStride, compactData, i * columns, columns);
+        }
+        data = compactData;
+        offset = 0;
+        rowStride = columns;
+        backingArrayShared = false;
+    }
+
     @Override
     public String toLengthLimitedString(int maxLength) {
         StringBuilder strBuilder = new StringBuilder("[");
 
-        VectorTD firstRow = getRowVector(0);
-        for (FloatTD f : firstRow.toArray()) {
-            strBuilder.append(f.toString());
+        for (double value : getRow(0)) {
+            strBuilder.append(String.valueOf(value));
             strBuilder.append(",");
             if (strBuilder.length() > maxLength) {
                 break;
@@ -161,9 +285,8 @@ public class MatrixTDImpl extends AbstractTypedDatum implements MatrixTD {
         StringBuilder strBuilder = new StringBuilder();
 
         for (int i = 0; i < getRowDimension(); i++) {
-            VectorTD row = getRowVector(i);
-            for (FloatTD f : row.toArray()) {
-                strBuilder.append(f.toString());
+            for (double value : getRow(i)) {
+                strBuilder.append(String.valueOf(value));
                 strBuilder.append(", ");
             }
             // remove last comma and whitespace
@@ -8,19 +8,21 @@
 
 package de.rcenvironment.core.datamodel.types.internal;
 
-import org.apache.commons.logging.LogFactory;
+import java.util.Arrays;
 
 import de.rcenvironment.core.datamodel.api.DataType;
-import de.rcenvironment.core.datamodel.api.DataTypeException;
-import de.rcenvironment.core.datamodel.api.TypedDatumConverter;
-import de.rcenvironment.core.datamodel.internal.TypedDatumServiceImpl;
 import de.rcenvironment.core.datamodel.types.api.FloatTD;
-import de.rcenvironment.core.datamodel.types.api.MatrixTD;
 import de.rcenvironment.core.datamodel.types.api.VectorTD;
 import de.rcenvironment.core.utils.common.StringUtils;
 
 /**
- * Implementation of {@link VectorTD}.
+ * Implementation of {@link VectorTD}. The values are stored in a primitive double array; {@link FloatTD} instances are only created on
+ * element access.
+ * 
+ * Sub-vectors, and the row and column vectors of a {@link MatrixTDImpl}, are views on the same array. As the previous implementation
+ * returned independent copies, the array is copied on the first write to any instance that shares it ("copy on write").
+ * 
+ * Like the other typed datum implementations, this class is not thread-safe; this includes the views created from an instance.
  * 
  * @author Doreen Seider
  */
@@ -29,27 +31,70 @@ public class VectorTDImpl extends AbstractTypedDatum implements VectorTD {
     private static final String COMMA = ",";
 
     private static final String OUT_OF_RANGE_ERROR_MESSAGE = "index out of range: ";
-    
-    private MatrixTD matrix;
+
+    private double[] data;
+
+    private int offset;
+
+    private final int length;
+
+    private int stride;
+
+    // true if the data array may be referenced by another instance
+    private boolean backingArrayShared;
 
     public VectorTDImpl(FloatTD[] vectorEntries) {
         super(DataType.Vector);
-        this.matrix = new MatrixTDImpl(toTwoDimensionalArray(vectorEntries));
+        this.data = new double[vectorEntries.length];
+        for (int i = 0; i < vectorEntries.length; i++) {
+            data[i] = vectorEntries[i].getFloatValue();
+        }
+        this.length = vectorEntries.length;
+        this.stride = 1;
     }
-    
+
+    /**
+     * Creates a vector that takes ownership of the given array, i.e. the array must not be modified by the caller afterwards.
+     * 
+     * @param vectorEntries the vector entries
+     */
+    public VectorTDImpl(double[] vectorEntries) {
+        this(vectorEntries, 0, vectorEntries.length, 1);
+    }
+
+    VectorTDImpl(double[] data, int offset, int length, int stride) {
+        super(DataType.Vector);
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        this.stride = stride;
+    }
+
+    /**
+     * Creates a vector that shares the given array with its creator.
+     */
+    static VectorTDImpl createView(double[] data, int offset, int length, int stride) {
+        VectorTDImpl view = new VectorTDImpl(data, offset, length, stride);
+        view.backingArrayShared = true;
+        return view;
+    }
+
     @Override
     public FloatTD getFloatTDOfElement(int rowIndex) {
-        return matrix.getFloatTDOfElement(rowIndex, 0);
+        return new FloatTDImpl(data[indexOf(rowIndex)]);
     }
 
     @Override
     public void setFloatTDForElement(FloatTD number, int rowIndex) {
-        matrix.setFloatTDForElement(number, rowIndex, 0);
+        if (backingArrayShared) {
+            unshare();
+        }
+        data[indexOf(rowIndex)] = number.getFloatValue();
     }
 
     @Override
     public int getRowDimension() {
-        return matrix.getRowDimension();
+        return length;
     }
 
     @Override
@@ -57,14 +102,8 @@ public class VectorTDImpl extends AbstractTypedDatum implements VectorTD {
         if (endRowIndex < 0 || endRowIndex >= getRowDimension()) {
             throw new IllegalArgumentException(OUT_OF_RANGE_ERROR_MESSAGE + endRowIndex);
         }
-        TypedDatumConverter converter = new TypedDatumServiceImpl().getConverter();
-        try {
-            return converter.castOrConvert(matrix.getSubMatrix(endRowIndex, 1), VectorTD.class);            
-        } catch (DataTypeException e) {
-            // should not happen
-            LogFactory.getLog(getClass()).error("conversion failed", e);
-            return null;
-        }
+        backingArrayShared = true;
+        return createView(data, offset, endRowIndex, stride);
     }
 
     @Override
@@ -76,55 +115,81 @@ public class VectorTDImpl extends AbstractTypedDatum implements VectorTD {
         } else if (beginRowIndex > endRowIndex) {
             throw new IllegalArgumentException("begin index must lower than end index: " + beginRowIndex + " - " + endRowIndex);
         }
-        TypedDatumConverter converter = new TypedDatumServiceImpl().getConverter();
-        try {
-            return converter.castOrConvert(matrix.getSubMatrix(beginRowIndex, 0, endRowIndex, 1), VectorTD.class);            
-        } catch (DataTypeException e) {
-            // should not happen
-            LogFactory.getLog(getClass()).error("conversion failed", e);
-            return null;
-        }
+        backingArrayShared = true;
+        return createView(data, offset + beginRowIndex * stride, endRowIndex - beginRowIndex, stride);
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj != null && obj instanceof VectorTD) {
             VectorTD other = (VectorTD) obj;
-            return matrix.equals(new MatrixTDImpl(toTwoDimensionalArray(other.toArray())));            
+            if (other.getRowDimension() != length) {
+                return false;
+            }
+            final double[] otherEntries = other.toDoubleArray();
+            for (int i = 0; i < length; i++) {
+                if (Double.doubleToLongBits(data[offset + i * stride]) != Double.doubleToLongBits(otherEntries[i])) {
+                    return false;
+                }
+            }
+            return true;
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        return matrix.hashCode();
+        final int prime = 31;
+        int result = 1;
+        for (int i = 0; i < length; i++) {
+            final long bits = Double.doubleToLongBits(data[offset + i * stride]);
+            result = prime * result + (int) (bits ^ (bits >>> Integer.SIZE));
+        }
+        return result;
     }
 
     @Override
     public FloatTD[] toArray() {
-        FloatTD[][] matrixEntries = matrix.toArray();
-        FloatTD[] vectorEntries = new FloatTD[getRowDimension()];
-        for (int i = 0; i < getRowDimension(); i++) {
-            vectorEntries[i] = matrixEntries[i][0];
+        FloatTD[] vectorEntries = new FloatTD[length];
+        for (int i = 0; i < length; i++) {
+            vectorEntries[i] = new FloatTDImpl(data[offset + i * stride]);
         }
         return vectorEntries;
     }
-    
-    private FloatTD[][] toTwoDimensionalArray(FloatTD[] vector) {
-        FloatTD[][] matrixEntries = new FloatTD[vector.length][1];
-        for (int i = 0; i < vector.length; i++) {
-            matrixEntries[i][0] = vector[i];
+
+    @Override
+    public double[] toDoubleArray() {
+        if (stride == 1) {
+            return Arrays.copyOfRange(data, offset, offset + length);
+        }
+        double[] result = new double[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = data[offset + i * stride];
+        }
+        return result;
+    }
+
+    private int indexOf(int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= length) {
+            throw new ArrayIndexOutOfBoundsException(rowIndex);
         }
-        return matrixEntries;
+        return offset + rowIndex * stride;
+    }
+
+    private void unshare() {
+        data = toDoubleArray();
+        offset = 0;
+        stride = 1;
+        backingArrayShared = false;
     }
 
     @Override
     public String toLengthLimitedString(int maxLength) {
         StringBuilder strBuilder = new StringBuilder("[");
 
-        for (FloatTD f : toArray()) {
+        for (int i = 0; i < length; i++) {
             // remove comma for integers
-            strBuilder.append(f.toString());
+            strBuilder.append(String.valueOf(data[offset + i * stride]));
             strBuilder.append(COMMA);
             if (strBuilder.length() > maxLength) {
                 break;
@@ -144,8 +209,8 @@ public class VectorTDImpl extends AbstractTypedDatum implements VectorTD {
     @Override
     public String toString() {
         StringBuilder strBuilder = new StringBuilder();
-        for (FloatTD f : toArray()) {
-            strBuilder.append(f.toString());
+        for (int i = 0; i < length; i++) {
+            strBuilder.append(String.valueOf(data[offset + i * stride]));
             strBuilder.append(", ");
         }
         // remove last comma and whitespace
@@ -64,7 +64,9 @@ public final class ScriptingUtils {
     /**
      * Execution of Jython scripts must be synchronized with this lock object to ensure that only one Jython script is executed at the same
      * time within the entire JVM. The reason is that the Jython script engine is not thread safe (console outputs of multiple script
-     * executions are mixed).
+     * executions are mixed). This applies to all Jython script engines using Jython's default system state; engines created with a
+     * separate system state (like the pooled interpreters of the Jython script executor) do not share console streams, and need no
+     * synchronization.
      */
     public static final Object SCRIPT_EVAL_LOCK_OBJECT = new Object();
 
@@ -87,6 +89,8 @@ public final class ScriptingUtils {
 
     private static File jythonPath = null;
 
+    private static String jythonAPIScript = null;
+
     private static final String SLASH = "/";
 
     private static final String ESCAPESLASH = "\\\\";
@@ -165,12 +169,43 @@ public final class ScriptingUtils {
      */
     public static String prepareHeaderScript(Map<String, Object> localStateMap, ComponentContext componentContext, File tempDir,
         List<File> tempFiles) throws ComponentException {
-        String currentHeader = "";
-        try (InputStream in = ScriptingUtils.class.getResourceAsStream("/resources/RCE_Jython.py")) {
-            currentHeader = IOUtils.toString(in);
-        } catch (IOException e) {
-            throw new ComponentException("Internal error: Failed to intialize script that is wrapped around the actual script", e);
+        return getJythonAPIScript() + prepareHeaderVariablesScript(localStateMap, componentContext, tempDir, tempFiles);
+    }
+
+    /**
+     * Returns the static part of the header script, which defines the RCE Python API. It expects the variables RCE_Bundle_Jython_Path and
+     * RCE_Temp_working_path to be set, and must be executed before the script returned by
+     * {@link #prepareHeaderVariablesScript(Map, ComponentContext, File, List)}. As it does not change between runs, it can be compiled
+     * once and reused.
+     * 
+     * @return the API definition script
+     * @throws ComponentException on failure to load the script
+     */
+    public static synchronized String getJythonAPIScript() throws ComponentException {
+        if (jythonAPIScript == null) {
+            try (InputStream in = ScriptingUtils.class.getResourceAsStream("/resources/RCE_Jython.py")) {
+                jythonAPIScript = IOUtils.toString(in);
+            } catch (IOException e) {
+                throw new ComponentException("Internal error: Failed to intialize script that is wrapped around the actual script", e);
+            }
         }
+        return jythonAPIScript;
+    }
+
+    /**
+     * Prepares the run-specific part of the header script, which defines the input values and the state of the component. See
+     * {@link #getJythonAPIScript()} for the static part.
+     * 
+     * @param localStateMap state map of the component
+     * @param componentContext of the component
+     * @param tempDir for creating temp files
+     * @param tempFiles to delete removed
+     * @return prepared script
+     * @throws ComponentException on unexpected error
+     */
+    public static String prepareHeaderVariablesScript(Map<String, Object> localStateMap, ComponentContext componentContext, File tempDir,
+        List<File> tempFiles) throws ComponentException {
+        String currentHeader = "";
 
         String stateMapDefinition = "RCE_STATE_VARIABLES = {";
         boolean first = true;
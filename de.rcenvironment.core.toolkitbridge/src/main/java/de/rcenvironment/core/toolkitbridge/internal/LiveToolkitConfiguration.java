@@ -31,6 +31,12 @@ public final class LiveToolkitConfiguration extends DefaultToolkitConfiguration
     // this is useful in cases where the main pool is too congested to execute new console commands
     private static final String SYSTEM_PROPERTY_ENABLE_PERIODIC_DEBUG_TASK_LOGGING = "rce.threadpool.enableDebugLogging";
 
+    // system property to run non-scheduled tasks on virtual threads (requires Java 21+); intended for instances with many concurrent
+    // blocking tasks, e.g. busy workflow hosts, which would otherwise run into the thread pool limit or allocate excessive native threads;
+    // only recommended on Java 24+, as earlier versions pin the carrier thread while a virtual thread blocks in "synchronized" code or in
+    // Object.wait(), which can stall all virtual threads
+    private static final String SYSTEM_PROPERTY_USE_VIRTUAL_THREADS = "rce.threadpool.useVirtualThreads";
+
     // TODO >=8.0.0: make this configurable via property, too?
     private static final int PERIODIC_DEBUG_TASK_LOGGING_INTERVAL_MSEC = 60 * 1000;
 
@@ -67,5 +73,9 @@ public final class LiveToolkitConfiguration extends DefaultToolkitConfiguration
             configuration.setPeriodicTaskLoggingIntervalMsec(PERIODIC_DEBUG_TASK_LOGGING_INTERVAL_MSEC);
         }
 
+        if (System.getProperty(SYSTEM_PROPERTY_USE_VIRTUAL_THREADS) != null) {
+            configuration.setVirtualThreadsEnabled(true);
+        }
+
     }
 }
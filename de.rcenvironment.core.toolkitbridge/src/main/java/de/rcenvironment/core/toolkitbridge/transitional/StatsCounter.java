@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Map;
 
 import de.rcenvironment.core.toolkitbridge.api.StaticToolkitHolder;
+import de.rcenvironment.toolkit.modules.statistics.api.StatisticsFilterLevel;
 import de.rcenvironment.toolkit.modules.statistics.api.StatisticsTrackerService;
 
 /**
@@ -93,6 +94,19 @@ public final class StatsCounter {
         sharedServiceInstance.getValueEventCategory(category).registerEvent(key, value);
     }
 
+    /**
+     * Same as {@link #registerValue(String, String, long)}, but also tracks the distribution of the registered values, so that percentiles
+     * can be reported via {@link #getValueDistributionReportAsStandardTextRepresentation()}. Intended for latencies on critical paths;
+     * see {@link StatisticsTrackerService#getValueEventCategory(String, StatisticsFilterLevel, boolean)} for details.
+     * 
+     * @param category the category identifier
+     * @param key the key within the category
+     * @param value the value associated with an event
+     */
+    public static void registerValueWithDistribution(String category, String key, long value) {
+        sharedServiceInstance.getValueEventCategory(category, StatisticsFilterLevel.RELEASE, true).registerEvent(key, value);
+    }
+
     /**
      * Gets a map of all counter maps; the outer map holds the categories, while the inner maps hold each categories' counter entries.
      * 
@@ -121,6 +135,15 @@ public final class StatsCounter {
         return sharedServiceInstance.getFullReportAsStandardTextRepresentation();
     }
 
+    /**
+     * Renders the percentiles of all values registered via {@link #registerValueWithDistribution(String, String, long)}.
+     * 
+     * @return the rendered text lines
+     */
+    public static List<String> getValueDistributionReportAsStandardTextRepresentation() {
+        return sharedServiceInstance.getValueDistributionReportAsStandardTextRepresentation("");
+    }
+
     private static StatisticsTrackerService initializeInstance() {
         return StaticToolkitHolder.getServiceWithUnitTestFallback(StatisticsTrackerService.class);
     }
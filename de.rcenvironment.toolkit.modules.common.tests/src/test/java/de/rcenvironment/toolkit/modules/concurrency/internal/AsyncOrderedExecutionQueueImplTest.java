@@ -9,8 +9,12 @@
 package de.rcenvironment.toolkit.modules.concurrency.internal;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
+import java.util.LinkedList;
+import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -24,6 +28,7 @@ import org.junit.Test;
 
 import de.rcenvironment.toolkit.modules.concurrency.api.AsyncCallbackExceptionPolicy;
 import de.rcenvironment.toolkit.modules.concurrency.api.AsyncOrderedExecutionQueue;
+import de.rcenvironment.toolkit.modules.concurrency.api.AsyncTaskService;
 
 /**
  * {@link AsyncOrderedExecutionQueueImpl} unit tests.
@@ -36,6 +41,68 @@ public class AsyncOrderedExecutionQueueImplTest extends AbstractConcurrencyModul
 
     private static final int SHORT_TEST_TIMEOUT = 1000;
 
+    private static final int SHORT_WAIT_MSEC = 100;
+
+    private static final int LONG_TEST_TIMEOUT = 60000;
+
+    private static final int COMPARISON_PRODUCER_COUNT = 8;
+
+    private static final int COMPARISON_TASKS_PER_PRODUCER = 100 * 1000;
+
+    private static final int COMPARISON_ROUNDS = 5;
+
+    // wall-clock measurements are not meaningful on shared build machines, so the throughput comparison only runs on request
+    private static final String RUN_BENCHMARKS_PROPERTY = "rce.tests.runBenchmarks";
+
+    private static final long NANOS_PER_MSEC = 1000000L;
+
+    /**
+     * A minimal ordered execution queue equivalent to the former lock-based {@link AsyncOrderedExecutionQueueImpl}, used as a reference
+     * for throughput comparisons. Cancellation and exception handling are omitted, as they do not affect the measured code path.
+     * 
+     * @author agent
+     */
+    private static final class LockBasedReferenceQueue {
+
+        private final Queue<Runnable> queue = new LinkedList<Runnable>();
+
+        private final AsyncTaskService threadPool;
+
+        private final Runnable dispatchRunnable = new Runnable() {
+
+            @Override
+            public void run() {
+                boolean continueDispatching = true;
+                while (continueDispatching) {
+                    final Runnable task;
+                    synchronized (queue) {
+                        task = queue.peek();
+                    }
+                    task.run();
+                    synchronized (queue) {
+                        queue.remove();
+                        continueDispatching = !queue.isEmpty();
+                    }
+                }
+            }
+        };
+
+        LockBasedReferenceQueue(AsyncTaskService threadPool) {
+            this.threadPool = threadPool;
+        }
+
+        public void enqueue(Runnable task) {
+            boolean isFirst;
+            synchronized (queue) {
+                queue.add(task);
+                isFirst = queue.size() == 1;
+            }
+            if (isFirst) {
+                threadPool.execute(dispatchRunnable);
+            }
+        }
+    }
+
     private final Log log = LogFactory.getLog(getClass());
 
     private AsyncOrderedExecutionQueue queue;
@@ -165,4 +232,247 @@ public class AsyncOrderedExecutionQueueImplTest extends AbstractConcurrencyModul
         assertTrue(cdl.await(MEDIUM_TEST_TIMEOUT, TimeUnit.MILLISECONDS));
     }
 
+    /**
+     * Verifies that the order of tasks enqueued by each of several concurrent producers is preserved, and that no task is lost.
+     * 
+     * @throws InterruptedException on test interruption
+     */
+    @Test
+    public void concurrentProducersPreserveOrder() throws InterruptedException {
+        final int producerCount = 8;
+        final int tasksPerProducer = 100 * 1000;
+        final int[] lastSeenIndex = new int[producerCount];
+        final AtomicInteger orderViolations = new AtomicInteger();
+        final CountDownLatch cdl = new CountDownLatch(producerCount * tasksPerProducer);
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            lastSeenIndex[producer] = -1;
+            getAsyncTaskService().execute("Test producer", new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int i = 0; i < tasksPerProducer; i++) {
+                        final int index = i;
+                        queue.enqueue(new Runnable() {
+
+                            @Override
+                            public void run() {
+                                // only accessed by the queue's dispatcher; visibility between dispatchers is ensured by the queue
+                                if (lastSeenIndex[producer] != index - 1) {
+                                    orderViolations.incrementAndGet();
+                                }
+                                lastSeenIndex[producer] = index;
+                                cdl.countDown();
+                            }
+                        });
+                    }
+                }
+            });
+        }
+        assertTrue(cdl.await(MEDIUM_TEST_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(0, orderViolations.get());
+    }
+
+    /**
+     * Verifies that a bounded queue blocks producers while its capacity is reached, and releases them on cancellation.
+     * 
+     * @throws InterruptedException on test interruption
+     * @throws TimeoutException if canceling hangs unexpectedly
+     */
+    @Test(timeout = MEDIUM_TEST_TIMEOUT)
+    public void boundedQueueBlocksProducers() throws InterruptedException, TimeoutException {
+        final int capacity = 3;
+        final AsyncOrderedExecutionQueue boundedQueue =
+            getConcurrencyUtilsFactory().createAsyncOrderedExecutionQueue(AsyncCallbackExceptionPolicy.LOG_AND_PROCEED, capacity);
+        final CountDownLatch firstTaskStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstTask = new CountDownLatch(1);
+        final CountDownLatch allExecuted = new CountDownLatch(capacity + 1);
+        // the first task blocks the dispatcher
+        boundedQueue.enqueue(new Runnable() {
+
+            @Override
+            public void run() {
+                firstTaskStarted.countDown();
+                try {
+                    releaseFirstTask.await();
+                } catch (InterruptedException e) {
+                    log.error(e);
+                }
+                allExecuted.countDown();
+            }
+        });
+        assertTrue(firstTaskStarted.await(SHORT_TEST_TIMEOUT, TimeUnit.MILLISECONDS));
+
+        final CountDownLatch producerDone = new CountDownLatch(1);
+        getAsyncTaskService().execute("Test producer", new Runnable() {
+
+            @Override
+            public void run() {
+                // the first task still counts towards the capacity, so the last call must block
+                for (int i = 0; i < capacity; i++) {
+                    boundedQueue.enqueue(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            allExecuted.countDown();
+                        }
+                    });
+                }
+                producerDone.countDown();
+            }
+        });
+        assertFalse(producerDone.await(SHORT_WAIT_MSEC, TimeUnit.MILLISECONDS));
+
+        // unblocking the consumer must unblock the producer, too
+        releaseFirstTask.countDown();
+        assertTrue(producerDone.await(SHORT_TEST_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertTrue(allExecuted.await(SHORT_TEST_TIMEOUT, TimeUnit.MILLISECONDS));
+        boundedQueue.cancelAndWaitForLastRunningTask();
+    }
+
+    /**
+     * Verifies that a bounded queue frees capacity as soon as each single element was dispatched, and not only after the dispatcher's
+     * whole batch of pending elements has run.
+     * 
+     * @throws InterruptedException on test interruption
+     * @throws TimeoutException if canceling hangs unexpectedly
+     */
+    @Test(timeout = MEDIUM_TEST_TIMEOUT)
+    public void boundedQueueReleasesCapacityPerElement() throws InterruptedException, TimeoutException {
+        final int capacity = 3;
+        final AsyncOrderedExecutionQueue boundedQueue =
+            getConcurrencyUtilsFactory().createAsyncOrderedExecutionQueue(AsyncCallbackExceptionPolicy.LOG_AND_PROCEED, capacity);
+        final CountDownLatch releaseFirstTask = new CountDownLatch(1);
+        final CountDownLatch lastTaskStarted = new CountDownLatch(1);
+        final CountDownLatch releaseLastTask = new CountDownLatch(1);
+        // fill the queue: a blocking task, a fast one, and another blocking one
+        boundedQueue.enqueue(createAwaitingTask(null, releaseFirstTask));
+        boundedQueue.enqueue(new Runnable() {
+
+            @Override
+            public void run() {}
+        });
+        boundedQueue.enqueue(createAwaitingTask(lastTaskStarted, releaseLastTask));
+
+        final CountDownLatch producerDone = new CountDownLatch(1);
+        getAsyncTaskService().execute("Test producer", new Runnable() {
+
+            @Override
+            public void run() {
+                // requires the capacity of the first two tasks
+                for (int i = 0; i < 2; i++) {
+                    boundedQueue.enqueue(new Runnable() {
+
+                        @Override
+                        public void run() {}
+                    });
+                }
+                producerDone.countDown();
+            }
+        });
+        assertFalse(producerDone.await(SHORT_WAIT_MSEC, TimeUnit.MILLISECONDS));
+
+        // the last task is usually dispatched in the same batch as the fast one, and blocks until the end of the test
+        releaseFirstTask.countDown();
+        assertTrue(lastTaskStarted.await(SHORT_TEST_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertTrue(producerDone.await(SHORT_TEST_TIMEOUT, TimeUnit.MILLISECONDS));
+        releaseLastTask.countDown();
+        boundedQueue.cancelAndWaitForLastRunningTask();
+    }
+
+    /**
+     * Compares the throughput of this queue implementation with several concurrent producers against the former lock-based
+     * implementation, and logs the results. Each implementation is measured in several rounds, and the best round is logged to reduce the
+     * influence of JIT compilation and other one-time effects. Only runs if the "rce.tests.runBenchmarks" system property is set to true.
+     * 
+     * @throws InterruptedException on test interruption
+     */
+    @Test(timeout = LONG_TEST_TIMEOUT)
+    public void multiProducerThroughputComparedToLockBasedQueue() throws InterruptedException {
+        assumeTrue(Boolean.getBoolean(RUN_BENCHMARKS_PROPERTY));
+        long bestLockBasedNanos = Long.MAX_VALUE;
+        long bestLockFreeNanos = Long.MAX_VALUE;
+        for (int round = 0; round < COMPARISON_ROUNDS; round++) {
+            final LockBasedReferenceQueue lockBasedQueue = new LockBasedReferenceQueue(getAsyncTaskService());
+            bestLockBasedNanos = Math.min(bestLockBasedNanos, measureMultiProducerRun(new ProducerAction() {
+
+                @Override
+                public void enqueue(Runnable task) {
+                    lockBasedQueue.enqueue(task);
+                }
+            }));
+            final AsyncOrderedExecutionQueue lockFreeQueue =
+                getConcurrencyUtilsFactory().createAsyncOrderedExecutionQueue(AsyncCallbackExceptionPolicy.LOG_AND_PROCEED);
+            bestLockFreeNanos = Math.min(bestLockFreeNanos, measureMultiProducerRun(new ProducerAction() {
+
+                @Override
+                public void enqueue(Runnable task) {
+                    lockFreeQueue.enqueue(task);
+                }
+            }));
+        }
+        final int totalTasks = COMPARISON_PRODUCER_COUNT * COMPARISON_TASKS_PER_PRODUCER;
+        log.info(String.format("Best time for %d tasks from %d producers: lock-based queue %d msec, current queue %d msec", totalTasks,
+            COMPARISON_PRODUCER_COUNT, bestLockBasedNanos / NANOS_PER_MSEC, bestLockFreeNanos / NANOS_PER_MSEC));
+    }
+
+    /**
+     * The enqueue operation of a measured queue.
+     * 
+     * @author agent
+     */
+    private interface ProducerAction {
+
+        void enqueue(Runnable task);
+    }
+
+    private long measureMultiProducerRun(final ProducerAction queueAction) throws InterruptedException {
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final CountDownLatch cdl = new CountDownLatch(COMPARISON_PRODUCER_COUNT * COMPARISON_TASKS_PER_PRODUCER);
+        final Runnable task = new Runnable() {
+
+            @Override
+            public void run() {
+                cdl.countDown();
+            }
+        };
+        for (int p = 0; p < COMPARISON_PRODUCER_COUNT; p++) {
+            getAsyncTaskService().execute("Test producer", new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                    } catch (InterruptedException e) {
+                        log.error(e);
+                        return;
+                    }
+                    for (int i = 0; i < COMPARISON_TASKS_PER_PRODUCER; i++) {
+                        queueAction.enqueue(task);
+                    }
+                }
+            });
+        }
+        final long startTime = System.nanoTime();
+        startSignal.countDown();
+        assertTrue(cdl.await(MEDIUM_TEST_TIMEOUT, TimeUnit.MILLISECONDS));
+        return System.nanoTime() - startTime;
+    }
+
+    private Runnable createAwaitingTask(final CountDownLatch startedSignal, final CountDownLatch releaseSignal) {
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                if (startedSignal != null) {
+                    startedSignal.countDown();
+                }
+                try {
+                    releaseSignal.await();
+                } catch (InterruptedException e) {
+                    log.error(e);
+                }
+            }
+        };
+    }
 }
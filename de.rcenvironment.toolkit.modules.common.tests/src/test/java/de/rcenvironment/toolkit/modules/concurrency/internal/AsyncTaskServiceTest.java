@@ -29,6 +29,11 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import de.rcenvironment.toolkit.core.api.Toolkit;
+import de.rcenvironment.toolkit.core.api.ToolkitException;
+import de.rcenvironment.toolkit.core.setup.ToolkitConfiguration;
+import de.rcenvironment.toolkit.core.setup.ToolkitFactory;
+import de.rcenvironment.toolkit.core.setup.ToolkitSetup;
 import de.rcenvironment.toolkit.modules.concurrency.api.AsyncTaskService;
 import de.rcenvironment.toolkit.modules.concurrency.api.CallablesGroup;
 import de.rcenvironment.toolkit.modules.concurrency.api.TaskDescription;
@@ -36,6 +41,7 @@ import de.rcenvironment.toolkit.modules.concurrency.api.ThreadPoolManagementAcce
 import de.rcenvironment.toolkit.modules.concurrency.api.threadcontext.ThreadContext;
 import de.rcenvironment.toolkit.modules.concurrency.api.threadcontext.ThreadContextBuilder;
 import de.rcenvironment.toolkit.modules.concurrency.api.threadcontext.ThreadContextHolder;
+import de.rcenvironment.toolkit.modules.concurrency.setup.ConcurrencyModule;
 
 /**
  * Tests for the shared thread pool represented by {@link AsyncTaskService}.
@@ -48,6 +54,10 @@ public class AsyncTaskServiceTest extends AbstractConcurrencyModuleTest {
 
     private static final int NUM_CALLABLES_FOR_GROUP_TEST = 50;
 
+    private static final int NUM_BLOCKING_TASKS_FOR_VIRTUAL_THREAD_TEST = 200;
+
+    private static final int VIRTUAL_THREAD_TEST_TIMEOUT_SEC = 10;
+
     private AsyncTaskService threadPool;
 
     private ThreadPoolManagementAccess threadPoolManagement;
@@ -223,6 +233,51 @@ public class AsyncTaskServiceTest extends AbstractConcurrencyModuleTest {
         verifyContextStateInsideTasks(null, null);
     }
 
+    /**
+     * Verifies that concurrently blocking tasks are executed and tracked in virtual thread mode. On JVMs without virtual thread support,
+     * the service falls back to the standard thread pool, which must pass this test as well.
+     * 
+     * @throws Exception none expected
+     */
+    @Test
+    public void virtualThreadMode() throws Exception {
+        final Toolkit virtualThreadToolkit = ToolkitFactory.create(new ToolkitConfiguration() {
+
+            @Override
+            public void configure(ToolkitSetup setup) throws ToolkitException {
+                setup.configureModule(ConcurrencyModule.class).setVirtualThreadsEnabled(true);
+            }
+        });
+        try {
+            final AsyncTaskService service = virtualThreadToolkit.getServiceRegistry().getService(AsyncTaskService.class);
+            final ThreadPoolManagementAccess management =
+                virtualThreadToolkit.getServiceRegistry().getService(ThreadPoolManagementAccess.class);
+            final String categoryName = "Virtual thread test";
+            final CountDownLatch allStarted = new CountDownLatch(NUM_BLOCKING_TASKS_FOR_VIRTUAL_THREAD_TEST);
+            final CountDownLatch release = new CountDownLatch(1);
+            final CountDownLatch allFinished = new CountDownLatch(NUM_BLOCKING_TASKS_FOR_VIRTUAL_THREAD_TEST);
+            for (int i = 0; i < NUM_BLOCKING_TASKS_FOR_VIRTUAL_THREAD_TEST; i++) {
+                service.execute(categoryName, () -> {
+                    allStarted.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    allFinished.countDown();
+                });
+            }
+            // all tasks must be able to block at the same time
+            assertTrue(allStarted.await(VIRTUAL_THREAD_TEST_TIMEOUT_SEC, TimeUnit.SECONDS));
+            assertTrue(management.getCurrentThreadCount() >= NUM_BLOCKING_TASKS_FOR_VIRTUAL_THREAD_TEST);
+            assertTrue(management.getFormattedStatistics(false).contains(categoryName));
+            release.countDown();
+            assertTrue(allFinished.await(VIRTUAL_THREAD_TEST_TIMEOUT_SEC, TimeUnit.SECONDS));
+        } finally {
+            virtualThreadToolkit.shutdown();
+        }
+    }
+
     private void verifyContextStateInsideTasks(final ThreadContext expectedContext, final String expectedValue)
         throws InterruptedException, ExecutionException, TimeoutException {
 
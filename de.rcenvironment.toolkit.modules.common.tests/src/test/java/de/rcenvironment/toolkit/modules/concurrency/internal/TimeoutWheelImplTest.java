@@ -0,0 +1,87 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.toolkit.modules.concurrency.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.rcenvironment.toolkit.modules.concurrency.api.TimeoutWheel;
+import de.rcenvironment.toolkit.modules.concurrency.api.TimeoutWheel.TimeoutHandle;
+
+/**
+ * Unit test for {@link TimeoutWheelImpl}.
+ * 
+ * @author agent
+ */
+public class TimeoutWheelImplTest extends AbstractConcurrencyModuleTest {
+
+    private static final int TICK_MSEC = 10;
+
+    private static final int WHEEL_SIZE = 16;
+
+    private static final int MAX_WAIT_MSEC = 5000;
+
+    /**
+     * Tests that timeouts expire after (roughly) the specified time, including timeouts that span more than one revolution of the wheel.
+     * 
+     * @throws InterruptedException on interruption
+     */
+    @Test
+    public void timeoutsExpire() throws InterruptedException {
+        final TimeoutWheel wheel = getConcurrencyUtilsFactory().createTimeoutWheel("test", TICK_MSEC, WHEEL_SIZE);
+        try {
+            final CountDownLatch latch = new CountDownLatch(3);
+            final long startTime = System.currentTimeMillis();
+            wheel.schedule(latch::countDown, 0);
+            wheel.schedule(latch::countDown, TICK_MSEC * 3);
+            final long longTimeoutMsec = TICK_MSEC * WHEEL_SIZE * 3;
+            wheel.schedule(latch::countDown, longTimeoutMsec);
+            assertTrue(latch.await(MAX_WAIT_MSEC, TimeUnit.MILLISECONDS));
+            // allow for the tick granularity
+            assertTrue(System.currentTimeMillis() - startTime >= longTimeoutMsec - TICK_MSEC);
+        } finally {
+            wheel.dispose();
+        }
+    }
+
+    /**
+     * Tests that cancelled timeouts do not expire, and that a timeout can only be cancelled or expire once.
+     * 
+     * @throws InterruptedException on interruption
+     */
+    @Test
+    public void cancellation() throws InterruptedException {
+        final TimeoutWheel wheel = getConcurrencyUtilsFactory().createTimeoutWheel("test", TICK_MSEC, WHEEL_SIZE);
+        try {
+            final AtomicInteger cancelledTaskRuns = new AtomicInteger();
+            final int numTimeouts = 1000;
+            for (int i = 0; i < numTimeouts; i++) {
+                final TimeoutHandle handle = wheel.schedule(cancelledTaskRuns::incrementAndGet, TICK_MSEC * (i % (WHEEL_SIZE * 2)));
+                assertTrue(handle.cancel());
+                assertFalse(handle.cancel());
+            }
+
+            final CountDownLatch latch = new CountDownLatch(1);
+            final TimeoutHandle expiringHandle = wheel.schedule(latch::countDown, TICK_MSEC * WHEEL_SIZE * 2);
+            assertTrue(latch.await(MAX_WAIT_MSEC, TimeUnit.MILLISECONDS));
+            assertFalse(expiringHandle.cancel());
+            // by now, all buckets have been swept at least once
+            assertEquals(0, cancelledTaskRuns.get());
+        } finally {
+            wheel.dispose();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.toolkit.modules.statistics.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ValueDistributionTracker} and the underlying {@link LogLinearHistogram}.
+ * 
+ * @author agent
+ */
+public class ValueDistributionTrackerTest {
+
+    private static final long WINDOW_LENGTH = 1000;
+
+    private static final long START_TIME = 100000;
+
+    /**
+     * Verifies that the histogram buckets are contiguous, and that each value is mapped to a bucket whose upper bound is within the
+     * guaranteed relative error.
+     */
+    @Test
+    public void bucketMappingIsContiguousAndAccurate() {
+        long expectedLowestValue = 0;
+        for (int index = 0; index < 20 * 32; index++) {
+            final long highestValue = LogLinearHistogram.getHighestValueInBucket(index);
+            assertEquals(index, LogLinearHistogram.getBucketIndex(expectedLowestValue));
+            assertEquals(index, LogLinearHistogram.getBucketIndex(highestValue));
+            assertTrue(highestValue - expectedLowestValue <= expectedLowestValue / 32);
+            expectedLowestValue = highestValue + 1;
+        }
+        // the highest bucket must not overflow
+        final int highestIndex = LogLinearHistogram.getBucketIndex(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LogLinearHistogram.getHighestValueInBucket(highestIndex));
+    }
+
+    /**
+     * Verifies that percentiles are reported within the guaranteed relative error, and that merging histograms adds their counts.
+     */
+    @Test
+    public void percentilesAndMerging() {
+        final LogLinearHistogram histogram = new LogLinearHistogram();
+        assertNull(histogram.getValuesAtPercentiles(50.0));
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        final double[] percentiles = { 50.0, 90.0, 99.0, 99.9, 100.0 };
+        final long[] expected = { 5000, 9000, 9900, 9990, 10000 };
+        final long[] actual = histogram.getValuesAtPercentiles(percentiles);
+        for (int i = 0; i < expected.length; i++) {
+            assertTrue(actual[i] >= expected[i]);
+            assertTrue(actual[i] <= expected[i] + expected[i] / 32);
+        }
+
+        final LogLinearHistogram merged = new LogLinearHistogram();
+        merged.add(histogram);
+        merged.add(histogram);
+        assertEquals(20000, merged.getTotalCount());
+        assertArrayEquals(actual, merged.getValuesAtPercentiles(percentiles));
+    }
+
+    /**
+     * Verifies that recent values are reported for up to two window lengths, while all-time values are kept.
+     */
+    @Test
+    public void recentWindowRotation() {
+        final ValueDistributionTracker tracker = new ValueDistributionTracker(WINDOW_LENGTH, START_TIME);
+        assertNull(tracker.getRecentValuesAtPercentiles(START_TIME, 50.0));
+        tracker.register(10, START_TIME);
+        // still visible in the following window, as the previous window is included
+        tracker.register(20, START_TIME + WINDOW_LENGTH);
+        assertArrayEquals(new long[] { 10, 20 }, tracker.getRecentValuesAtPercentiles(START_TIME + WINDOW_LENGTH, 50.0, 100.0));
+        // one window later, only the second value is recent
+        assertArrayEquals(new long[] { 20 }, tracker.getRecentValuesAtPercentiles(START_TIME + 2 * WINDOW_LENGTH, 50.0));
+        // after a longer pause, no values are recent anymore
+        assertNull(tracker.getRecentValuesAtPercentiles(START_TIME + 10 * WINDOW_LENGTH, 50.0));
+        assertArrayEquals(new long[] { 10, 20 }, tracker.getAllTimeValuesAtPercentiles(50.0, 100.0));
+    }
+}
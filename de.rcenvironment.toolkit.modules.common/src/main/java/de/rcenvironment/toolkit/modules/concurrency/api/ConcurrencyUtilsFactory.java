@@ -28,6 +28,18 @@ public interface ConcurrencyUtilsFactory {
      */
     AsyncOrderedExecutionQueue createAsyncOrderedExecutionQueue(AsyncCallbackExceptionPolicy exceptionPolicy);
 
+    /**
+     * Creates a new {@link AsyncOrderedExecutionQueue} with a capacity limit. While the given number of elements is pending, further
+     * calls to {@link AsyncOrderedExecutionQueue#enqueue(Runnable)} block until space is available, which slows down producers that are
+     * faster than the queue's consumer. Consequently, tasks of such a queue must not enqueue further tasks into the same queue.
+     * 
+     * @param exceptionPolicy the {@link AsyncCallbackExceptionPolicy} defining the behavior when the callback handler throws an uncaught
+     *        exception
+     * @param capacity the maximum number of pending elements; must be positive
+     * @return the new instance
+     */
+    AsyncOrderedExecutionQueue createAsyncOrderedExecutionQueue(AsyncCallbackExceptionPolicy exceptionPolicy, int capacity);
+
     /**
      * Creates a new {@link AsyncOrderedCallbackManager}.
      * 
@@ -76,4 +88,15 @@ public interface ConcurrencyUtilsFactory {
      * @return the new instance
      */
     <TKey, TResponse> BlockingResponseMapper<TKey, TResponse> createBlockingResponseMapper();
+
+    /**
+     * Creates a new {@link TimeoutWheel}, which immediately starts advancing. Callers should call {@link TimeoutWheel#dispose()} when it is
+     * not needed anymore.
+     * 
+     * @param name a descriptive name for monitoring and log output
+     * @param tickDurationMsec the duration of a single tick, which defines the timeout precision
+     * @param wheelSize the number of buckets; should be chosen so that typical timeouts span less than one revolution of the wheel
+     * @return the new instance
+     */
+    TimeoutWheel createTimeoutWheel(String name, long tickDurationMsec, int wheelSize);
 }
@@ -37,7 +37,7 @@ public interface ThreadPoolManagementAccess {
     int reset();
 
     /**
-     * @return the approximate thread count of the current pool
+     * @return the approximate thread count of the current pool, including active virtual threads
      * 
      * @see {@link ThreadGroup#activeCount()}.
      */
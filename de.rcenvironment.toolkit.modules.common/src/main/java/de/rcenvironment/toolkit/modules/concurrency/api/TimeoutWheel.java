@@ -0,0 +1,51 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.toolkit.modules.concurrency.api;
+
+/**
+ * A hashed timer wheel for large numbers of timeouts that are usually cancelled before they expire, like response timeouts of network
+ * requests. In contrast to {@link AsyncTaskService#scheduleAfterDelay(Runnable, long)}, scheduling and cancelling a timeout are
+ * constant-time operations that do not interact with the shared scheduler; instead, a single periodic task advances the wheel. The price is
+ * a reduced precision, as timeouts are only checked once per tick.
+ * 
+ * Expired timeout tasks are executed asynchronously via the {@link AsyncTaskService}.
+ * 
+ * @author agent
+ */
+public interface TimeoutWheel {
+
+    /**
+     * A handle for a single scheduled timeout.
+     * 
+     * @author agent
+     */
+    interface TimeoutHandle {
+
+        /**
+         * Cancels the timeout if it has not expired yet.
+         * 
+         * @return true if the timeout was cancelled by this call; false if it had already expired or was cancelled before
+         */
+        boolean cancel();
+    }
+
+    /**
+     * Schedules a task to be executed once the given timeout has elapsed, unless it is cancelled before.
+     * 
+     * @param task the task to run on expiry
+     * @param timeoutMsec the timeout; the actual expiry may deviate from it by up to one tick of the wheel
+     * @return the handle to cancel the timeout with
+     */
+    TimeoutHandle schedule(Runnable task, long timeoutMsec);
+
+    /**
+     * Stops advancing the wheel; pending timeouts will not expire anymore.
+     */
+    void dispose();
+}
@@ -8,11 +8,13 @@
 
 package de.rcenvironment.toolkit.modules.concurrency.internal;
 
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -26,6 +28,10 @@ import de.rcenvironment.toolkit.modules.statistics.api.StatisticsFilterLevel;
 
 /**
  * Default {@link AsyncOrderedExecutionQueue} implementation.
+ * <p>
+ * This implementation is lock-free: producers append to a non-blocking queue and increment a counter of pending elements. The producer
+ * that increments the counter from zero schedules a dispatcher, which is then the only consumer until it has reduced the counter back to
+ * zero. This guarantees that at most one dispatcher is active at any time, so tasks are executed in order and without overlap.
  * 
  * @author Robert Mischke
  */
@@ -38,7 +44,7 @@ public class AsyncOrderedExecutionQueueImpl implements AsyncOrderedExecutionQueu
     private final CountDownLatch cancelCompleteLatch = new CountDownLatch(1);
 
     /**
-     * A {@link Runnable} that dispatches the first element from the queue, and enqueues itself again if the queue is not empty afterwards.
+     * A {@link Runnable} that dispatches queued elements until the queue is empty or canceled.
      * 
      * @author Robert Mischke
      */
@@ -47,40 +53,49 @@ public class AsyncOrderedExecutionQueueImpl implements AsyncOrderedExecutionQueu
         @Override
         @TaskDescription(ASYNC_TASK_DESCRIPTION)
         public void run() {
-            // dispatch all currently queued elements in the same execution to avoid thread switching and thread pool overhead
-            while (dispatchSingleElement()) {
-                // sometimes, CheckStyle rules just don't make sense...
-                @SuppressWarnings("unused") int i = 0; // (this should be eliminated by the compiler)
+            // dispatch all currently queued elements in the same execution to avoid thread switching and thread pool overhead;
+            // the elements are processed in batches of the pending count observed, so the shared counter is only updated once per batch;
+            // capacity permits, however, are released per element, so blocked producers can proceed while the batch is still running
+            int batchSize = pendingCount.get();
+            while (true) {
+                for (int i = 0; i < batchSize; i++) {
+                    // cancel flag set? (replaces the former "poison pill" queue marker)
+                    if (cancelled) {
+                        onDispatcherCancelled();
+                        // note: the pending count is intentionally not reduced, so no other dispatcher is started anymore
+                        return;
+                    }
+                    // never null, as elements are added to the queue before they are counted
+                    dispatchSingleElement(queue.poll());
+                    if (capacityPermits != null) {
+                        capacityPermits.release();
+                    }
+                }
+                batchSize = pendingCount.addAndGet(-batchSize);
+                if (batchSize == 0) {
+                    if (cancelled) {
+                        // canceled after the last element was dispatched; cancelAsync() may not have seen the queue as empty
+                        cancelCompleteLatch.countDown();
+                    }
+                    return;
+                }
             }
         }
 
-        /**
-         * @return true if dispatching should continue, ie the queue is neither empty nor canceled
-         */
-        private boolean dispatchSingleElement() {
-            final Runnable preExecutionFirst;
-            synchronized (queue) {
-                preExecutionFirst = queue.peekFirst();
-            }
-            // cancel marker reached? ("poison pill" approach)
-            if (preExecutionFirst == null) {
-                log.debug("Queue cancelled, discarding queued trigger; queue id: " + getLogId());
-                cancelCompleteLatch.countDown();
-                // note: leaving marker in queue for other queued dispatchers
-                return false; // do not continue dispatching
-            }
+        private void dispatchSingleElement(Runnable task) {
             try {
                 if (elementCounter.isEnabled()) {
-                    elementCounter.countClass(preExecutionFirst);
+                    elementCounter.countClass(task);
                 }
-                preExecutionFirst.run();
+                task.run();
             } catch (RuntimeException e) {
                 switch (exceptionPolicy) {
                 case LOG_AND_CANCEL_LISTENER:
                     log.error("Error in asynchronous callback; shutting down queue (as defined by exception policy); queue id: "
                         + getLogId(), e);
+                    // the dispatch loop stops before the next element
                     AsyncOrderedExecutionQueueImpl.this.cancelAsync();
-                    return false; // do not continue dispatching
+                    break;
                 case LOG_AND_PROCEED:
                     log.error("Error in asynchronous callback; continuing (as defined by exception policy); queue id: "
                         + getLogId(), e);
@@ -89,23 +104,12 @@ public class AsyncOrderedExecutionQueueImpl implements AsyncOrderedExecutionQueu
                     throw new IllegalStateException();
                 }
             }
-            synchronized (queue) {
-                // do not remove the first element in case it is the poison pill to ensure proper cancellation
-                Runnable postExecutionFirst = queue.peekFirst();
-                if (postExecutionFirst == null) {
-                    log.debug("Queue cancelled during a task's execution; stopping dispatcher "
-                        + "and waiting for the running task to complete; queue id: " + getLogId());
-                    cancelCompleteLatch.countDown();
-                    return false; // do not continue dispatching
-                }
+        }
 
-                postExecutionFirst = queue.removeFirst();
-                if (preExecutionFirst != postExecutionFirst) {
-                    throw new IllegalStateException("Queue corruption (queue id: " + getLogId() + ")");
-                }
-                // if this was not the last queued callback, continue dispatching
-                return !queue.isEmpty();
-            }
+        private void onDispatcherCancelled() {
+            log.debug("Queue cancelled; stopping dispatcher and discarding remaining elements; queue id: " + getLogId());
+            queue.clear();
+            cancelCompleteLatch.countDown();
         }
 
     }
@@ -114,7 +118,17 @@ public class AsyncOrderedExecutionQueueImpl implements AsyncOrderedExecutionQueu
 
     private final AsyncTaskService threadPool;
 
-    private final Deque<Runnable> queue;
+    private final Queue<Runnable> queue;
+
+    // the number of enqueued, but not yet dispatched elements; a transition from zero triggers the start of a dispatcher
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    // null if unbounded
+    private final Semaphore capacityPermits;
+
+    private final int capacity;
+
+    private volatile boolean cancelled;
 
     private final Runnable dispatchRunnable;
 
@@ -124,28 +138,64 @@ public class AsyncOrderedExecutionQueueImpl implements AsyncOrderedExecutionQueu
 
     public AsyncOrderedExecutionQueueImpl(final AsyncCallbackExceptionPolicy exceptionPolicy,
         final ConcurrencyUtilsServiceHolder internalServiceHolder) {
+        this(exceptionPolicy, 0, internalServiceHolder);
+    }
+
+    /**
+     * Creates a queue with an optional capacity limit.
+     * 
+     * @param exceptionPolicy the {@link AsyncCallbackExceptionPolicy} to apply
+     * @param capacity if positive, the maximum number of pending elements; {@link #enqueue(Runnable)} blocks while this limit is reached.
+     *        If zero, the queue is unbounded.
+     * @param internalServiceHolder the internal service holder
+     */
+    public AsyncOrderedExecutionQueueImpl(final AsyncCallbackExceptionPolicy exceptionPolicy, final int capacity,
+        final ConcurrencyUtilsServiceHolder internalServiceHolder) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
         this.exceptionPolicy = exceptionPolicy;
         this.threadPool = internalServiceHolder.getAsyncTaskService();
-        this.queue = new LinkedList<Runnable>();
+        this.queue = new ConcurrentLinkedQueue<Runnable>();
+        this.capacity = capacity;
+        if (capacity > 0) {
+            this.capacityPermits = new Semaphore(capacity);
+        } else {
+            this.capacityPermits = null;
+        }
         this.dispatchRunnable = new DispatchRunnable();
         this.elementCounter = internalServiceHolder.getStatisticsTrackerService().getCounterCategory(
             "AsyncOrderedExecutionQueue elements dispatched", StatisticsFilterLevel.DEVELOPMENT);
     }
 
     /**
-     * Enqueues a {@link Runnable} task for execution. All tasks are guaranteed to be executed in the order they were enqueued in.
+     * Enqueues a {@link Runnable} task for execution. All tasks are guaranteed to be executed in the order they were enqueued in. Tasks
+     * enqueued after the queue was canceled are discarded.
+     * <p>
+     * If this queue has a capacity limit, this method blocks while the limit is reached. In this case, it must not be called from a task
+     * of the same queue, as this could block forever.
      * 
      * @param task the task to enqueue
      */
     @Override
     public void enqueue(final Runnable task) {
-        boolean isFirst;
-        synchronized (queue) {
-            queue.addLast(task);
-            // if this is the first queued callback, enqueue a new dispatch task
-            isFirst = queue.size() == 1;
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        if (cancelled) {
+            return;
+        }
+        if (capacityPermits != null) {
+            capacityPermits.acquireUninterruptibly();
+            if (cancelled) {
+                // pass on the permit to wake up the next blocked producer, if any
+                capacityPermits.release();
+                return;
+            }
         }
-        if (isFirst) {
+        queue.add(task);
+        // if this is the first pending element, start a new dispatcher
+        if (pendingCount.getAndIncrement() == 0) {
             threadPool.execute(dispatchRunnable);
         }
     }
@@ -156,12 +206,14 @@ public class AsyncOrderedExecutionQueueImpl implements AsyncOrderedExecutionQueu
      */
     @Override
     public void cancelAsync() {
-        synchronized (queue) {
-            if (queue.isEmpty()) {
-                cancelCompleteLatch.countDown();
-            }
-            queue.clear();
-            queue.add(null); // add cancel marker
+        cancelled = true;
+        if (pendingCount.get() == 0) {
+            // no active dispatcher
+            cancelCompleteLatch.countDown();
+        }
+        if (capacityPermits != null) {
+            // release producers blocked on a full queue; they discard their tasks
+            capacityPermits.release(capacity);
         }
     }
 
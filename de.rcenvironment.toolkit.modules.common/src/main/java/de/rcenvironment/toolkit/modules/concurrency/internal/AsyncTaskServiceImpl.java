@@ -58,6 +58,13 @@ import de.rcenvironment.toolkit.utils.text.impl.MultiLineOutputWrapper;
  * 
  * In addition, this method collects execution statistics about the processed {@link Callable}s and {@link Runnable}s.
  * 
+ * Optionally, non-scheduled tasks can be run on virtual threads (see
+ * {@link ConcurrencyModuleConfiguration#setVirtualThreadsEnabled(boolean)}), which avoids allocating a platform thread for each blocked
+ * task. As this code base still targets Java 8, the virtual thread API is accessed via reflection; on older JVMs, the standard thread pool
+ * is used instead. Scheduled tasks always run on a small pool of platform threads. Before Java 24, virtual threads that block in
+ * synchronized code or in {@link Object#wait()} pin their carrier threads, so a warning is logged when virtual threads are used on these
+ * versions.
+ * 
  * @author Robert Mischke
  */
 public final class AsyncTaskServiceImpl implements AsyncTaskService, ThreadPoolManagementAccess {
@@ -81,6 +88,11 @@ public final class AsyncTaskServiceImpl implements AsyncTaskService, ThreadPoolM
 
     private static final float NANOS_TO_MSEC_RATIO = 1000000f;
 
+    private static final String VIRTUAL_THREAD_NAME_INFIX = "v";
+
+    // the first Java version that does not pin carrier threads of virtual threads blocking in synchronized code (JEP 491)
+    private static final int MINIMUM_NON_PINNING_JAVA_VERSION = 24;
+
     /**
      * A simple holder for statistical data.
      * 
@@ -325,6 +337,9 @@ public final class AsyncTaskServiceImpl implements AsyncTaskService, ThreadPoolM
 
     private ThreadGroup currentThreadGroup;
 
+    // virtual threads are not members of the pool's thread group, so they are counted separately
+    private final AtomicInteger activeVirtualThreadCount = new AtomicInteger(0);
+
     // not final to allow re-initialization on reset()
     private Map<String, StatisticsEntry> statisticsEntriesByCategoryName;
 
@@ -582,7 +597,7 @@ public final class AsyncTaskServiceImpl implements AsyncTaskService, ThreadPoolM
 
     @Override
     public int getCurrentThreadCount() {
-        return currentThreadGroup.activeCount();
+        return currentThreadGroup.activeCount() + activeVirtualThreadCount.get();
     }
 
     @Override
@@ -690,7 +705,19 @@ public final class AsyncTaskServiceImpl implements AsyncTaskService, ThreadPoolM
                 return new Thread(threadGroup, r, threadNamePrefix + threadIndex.incrementAndGet());
             }
         };
-        if (System.getProperty(SYSTEM_PROPERTY_USE_70x_THREAD_POOL_CONFIGURATION) == null) {
+        ExecutorService virtualThreadExecutor = null;
+        if (configuration.isVirtualThreadsEnabled()) {
+            virtualThreadExecutor = createVirtualThreadExecutor(threadNamePrefix + VIRTUAL_THREAD_NAME_INFIX);
+        }
+
+        if (virtualThreadExecutor != null) {
+            // unbounded by design; each task gets its own virtual thread, which only occupies a carrier thread while not blocked
+            log.debug("Using virtual threads for non-scheduled tasks");
+            executorService = virtualThreadExecutor;
+
+            // a separate thread pool for scheduled/repeated tasks
+            schedulerService = Executors.newScheduledThreadPool(NUM_THREADS_FOR_SCHEDULED_TASKS, threadFactory);
+        } else if (System.getProperty(SYSTEM_PROPERTY_USE_70x_THREAD_POOL_CONFIGURATION) == null) {
             // 7.1.0+ default behavior
 
             // determine maximum common pool size
@@ -730,6 +757,72 @@ public final class AsyncTaskServiceImpl implements AsyncTaskService, ThreadPoolM
         }
     }
 
+    /**
+     * Creates an executor that starts a new virtual thread for each task, using the Java 21+ API via reflection.
+     * 
+     * @param threadNamePrefix the prefix for the names of the created threads, which are numbered consecutively
+     * @return the new executor, or null if virtual threads are not available in the current JVM
+     */
+    private ExecutorService createVirtualThreadExecutor(String threadNamePrefix) {
+        final ThreadFactory virtualThreadFactory;
+        final Method newThreadPerTaskExecutorMethod;
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 1L);
+            virtualThreadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            newThreadPerTaskExecutorMethod = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // note: on Java 19/20, the API exists but fails unless preview features are enabled
+            log.warn("Virtual threads were requested, but are not available in this JVM (Java 21 or later is required); "
+                + "using the standard thread pool instead (" + e.toString() + ")");
+            return null;
+        }
+        if (getJavaFeatureVersion() < MINIMUM_NON_PINNING_JAVA_VERSION) {
+            log.warn("Virtual threads are used on Java " + System.getProperty("java.specification.version") + "; before Java "
+                + MINIMUM_NON_PINNING_JAVA_VERSION + ", virtual threads blocking in synchronized code or in Object.wait() occupy their "
+                + "carrier threads, which can stall all other virtual threads; consider disabling virtual threads or upgrading Java");
+        }
+
+        final ThreadFactory countingThreadFactory = new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return virtualThreadFactory.newThread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        activeVirtualThreadCount.incrementAndGet();
+                        try {
+                            r.run();
+                        } finally {
+                            activeVirtualThreadCount.decrementAndGet();
+                        }
+                    }
+                });
+            }
+        };
+        try {
+            return (ExecutorService) newThreadPerTaskExecutorMethod.invoke(null, countingThreadFactory);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Failed to create a virtual thread executor; using the standard thread pool instead", e);
+            return null;
+        }
+    }
+
+    private static int getJavaFeatureVersion() {
+        // "1.8" on Java 8, "21" on Java 21; Runtime.version() is not available on Java 8
+        final String specificationVersion = System.getProperty("java.specification.version", "");
+        try {
+            if (specificationVersion.startsWith("1.")) {
+                return Integer.parseInt(specificationVersion.substring(2));
+            }
+            return Integer.parseInt(specificationVersion);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     @Deprecated
     private StatisticsEntry getStatisticsEntry(Class<?> taskClass) {
         // safe as this is a synchronized map, so computeIfAbsent() is atomic
@@ -18,6 +18,7 @@ import de.rcenvironment.toolkit.modules.concurrency.api.BlockingResponseMapper;
 import de.rcenvironment.toolkit.modules.concurrency.api.CallablesGroup;
 import de.rcenvironment.toolkit.modules.concurrency.api.ConcurrencyUtilsFactory;
 import de.rcenvironment.toolkit.modules.concurrency.api.RunnablesGroup;
+import de.rcenvironment.toolkit.modules.concurrency.api.TimeoutWheel;
 import de.rcenvironment.toolkit.modules.statistics.api.CounterCategory;
 import de.rcenvironment.toolkit.modules.statistics.api.StatisticsFilterLevel;
 import de.rcenvironment.toolkit.modules.statistics.api.StatisticsTrackerService;
@@ -50,6 +51,15 @@ public final class ConcurrencyUtilsFactoryImpl implements ConcurrencyUtilsFactor
         return new AsyncOrderedExecutionQueueImpl(exceptionPolicy, internalServiceHolder);
     }
 
+    @Override
+    public AsyncOrderedExecutionQueue createAsyncOrderedExecutionQueue(AsyncCallbackExceptionPolicy exceptionPolicy, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        counterCategory.countStacktrace();
+        return new AsyncOrderedExecutionQueueImpl(exceptionPolicy, capacity, internalServiceHolder);
+    }
+
     @Override
     public <T> AsyncOrderedCallbackManager<T> createAsyncOrderedCallbackManager(AsyncCallbackExceptionPolicy exceptionPolicy) {
         counterCategory.countStacktrace();
@@ -78,4 +88,10 @@ public final class ConcurrencyUtilsFactoryImpl implements ConcurrencyUtilsFactor
     public <TKey, TResponse> BlockingResponseMapper<TKey, TResponse> createBlockingResponseMapper() {
         return new BlockingResponseMapperImpl<>(asyncTaskService);
     }
+
+    @Override
+    public TimeoutWheel createTimeoutWheel(String name, long tickDurationMsec, int wheelSize) {
+        counterCategory.countStacktrace();
+        return new TimeoutWheelImpl(name, tickDurationMsec, wheelSize, asyncTaskService);
+    }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.toolkit.modules.concurrency.internal;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.rcenvironment.toolkit.modules.concurrency.api.AsyncTaskService;
+import de.rcenvironment.toolkit.modules.concurrency.api.TimeoutWheel;
+
+/**
+ * Default {@link TimeoutWheel} implementation. Each timeout is placed into the bucket of the tick it expires on (modulo the wheel size);
+ * a periodic task then sweeps one bucket per tick, expiring all entries that are due and discarding cancelled ones. Entries that are more
+ * than one revolution in the future simply remain in their bucket until a later sweep.
+ * 
+ * @author agent
+ */
+public class TimeoutWheelImpl implements TimeoutWheel {
+
+    /**
+     * A single scheduled timeout.
+     * 
+     * @author agent
+     */
+    private static final class TimeoutEntry implements TimeoutHandle {
+
+        private final Runnable task;
+
+        private final long deadlineTick;
+
+        // set by whichever comes first: cancellation or expiry
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        TimeoutEntry(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        @Override
+        public boolean cancel() {
+            return completed.compareAndSet(false, true);
+        }
+    }
+
+    private final String name;
+
+    private final long tickDurationMsec;
+
+    private final Queue<TimeoutEntry>[] buckets;
+
+    private final long startTime;
+
+    // the tick that is being or was last processed; only written by the sweeper task, and always before processing the tick's bucket
+    private volatile long currentTick;
+
+    private final AsyncTaskService asyncTaskService;
+
+    private final ScheduledFuture<?> sweeperFuture;
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    @SuppressWarnings("unchecked")
+    public TimeoutWheelImpl(String name, long tickDurationMsec, int wheelSize, AsyncTaskService asyncTaskService) {
+        if (tickDurationMsec <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+        this.name = name;
+        this.tickDurationMsec = tickDurationMsec;
+        this.asyncTaskService = asyncTaskService;
+        this.buckets = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.startTime = System.currentTimeMillis();
+        this.sweeperFuture = asyncTaskService.scheduleAtFixedRate("TimeoutWheel: " + name, this::sweep, tickDurationMsec);
+    }
+
+    @Override
+    public TimeoutHandle schedule(Runnable task, long timeoutMsec) {
+        // round up to full ticks, but always at least one tick into the future
+        final long ticks = Math.max(1, (timeoutMsec + tickDurationMsec - 1) / tickDurationMsec);
+        final TimeoutEntry entry = new TimeoutEntry(task, currentTick + ticks);
+        getBucket(entry.deadlineTick).add(entry);
+        // if the sweeper has reached the deadline tick in the meantime, it may have missed the new entry; expire it directly
+        if (currentTick >= entry.deadlineTick) {
+            expireIfPending(entry);
+        }
+        return entry;
+    }
+
+    @Override
+    public void dispose() {
+        sweeperFuture.cancel(false);
+    }
+
+    private void sweep() {
+        // catch up with wall-clock time in case the periodic task was delayed
+        final long targetTick = (System.currentTimeMillis() - startTime) / tickDurationMsec;
+        try {
+            for (long tick = currentTick + 1; tick <= targetTick; tick++) {
+                // publish the tick first; see the consistency check in schedule()
+                currentTick = tick;
+                final Iterator<TimeoutEntry> iterator = getBucket(tick).iterator();
+                while (iterator.hasNext()) {
+                    final TimeoutEntry entry = iterator.next();
+                    if (entry.completed.get()) {
+                        iterator.remove(); // cancelled
+                    } else if (entry.deadlineTick <= tick) {
+                        iterator.remove();
+                        expireIfPending(entry);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // do not let an exception terminate the periodic task
+            log.error("Error while processing the timeouts of timer wheel " + name, e);
+        }
+    }
+
+    private void expireIfPending(TimeoutEntry entry) {
+        if (entry.completed.compareAndSet(false, true)) {
+            asyncTaskService.execute("TimeoutWheel: Run timeout task", entry.task);
+        }
+    }
+
+    private Queue<TimeoutEntry> getBucket(long tick) {
+        return buckets[(int) (tick % buckets.length)];
+    }
+}
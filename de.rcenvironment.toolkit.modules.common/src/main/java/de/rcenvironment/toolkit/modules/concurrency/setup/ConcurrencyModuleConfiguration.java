@@ -23,6 +23,8 @@ public class ConcurrencyModuleConfiguration {
 
     private int periodicTaskLoggingIntervalMsec = 0;
 
+    private boolean virtualThreadsEnabled = false;
+
     /**
      * @param value the maximum number of threads in the thread pool; a value of 0 (the default) selects the implementation's default value
      * @return this configuration instance (for call chaining)
@@ -51,6 +53,20 @@ public class ConcurrencyModuleConfiguration {
         return this;
     }
 
+    /**
+     * @param value true to run non-scheduled {@link AsyncTaskService} tasks on virtual threads instead of pooled platform threads; only
+     *        effective on Java 21 or later, and ignored (with a warning) otherwise. The thread pool size setting does not apply to these
+     *        tasks then. Note that before Java 24, a virtual thread that blocks inside a synchronized block or method, or in
+     *        {@link Object#wait()}, pins its carrier thread; as this code base uses these constructs extensively, many such blocked tasks
+     *        can occupy all carrier threads and stall all other virtual threads. Therefore, this option should only be used on Java 24 or
+     *        later; on earlier versions, a warning is logged. Default: false
+     * @return this configuration instance (for call chaining)
+     */
+    public ConcurrencyModuleConfiguration setVirtualThreadsEnabled(boolean value) {
+        this.virtualThreadsEnabled = value;
+        return this;
+    }
+
     public String getThreadPoolName() {
         return threadPoolName;
     }
@@ -62,4 +78,8 @@ public class ConcurrencyModuleConfiguration {
     public int getPeriodicTaskLoggingIntervalMsec() {
         return periodicTaskLoggingIntervalMsec;
     }
+
+    public boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
 }
@@ -8,9 +8,9 @@
 
 package de.rcenvironment.toolkit.modules.concurrency.utils;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A thread-safe map that creates requested entries on demand if they don't exist yet.
@@ -19,6 +19,8 @@ import java.util.Map;
  * created when the key is used for the first time. Subsequent calls to {@link #get(Object)} return
  * this holder, which can then be incremented or queried for the counter value.
  * 
+ * Lookups of existing entries do not acquire any lock; only the creation of new entries is synchronized.
+ * 
  * @param <K> the key type
  * @param <V> the value type
  * 
@@ -26,8 +28,10 @@ import java.util.Map;
  */
 public abstract class ThreadsafeAutoCreationMap<K, V> {
 
-    // TODO reduce lock contention?
-    private final Map<K, V> innerMap = Collections.synchronizedMap(new HashMap<K, V>());
+    // ConcurrentHashMap does not support null keys, so they are replaced with this marker
+    private static final Object NULL_KEY = new Object();
+
+    private final Map<Object, V> innerMap = new ConcurrentHashMap<Object, V>();
 
     /**
      * Similar to the standard {@link Map#get(Object)}, but with the addition that if no entry
@@ -37,16 +41,17 @@ public abstract class ThreadsafeAutoCreationMap<K, V> {
      * @return the retrieved value
      */
     public V get(K key) {
-        V value = innerMap.get(key);
+        final Object internalKey = toInternalKey(key);
+        V value = innerMap.get(internalKey);
         if (value == null) {
             // NOTE: while this looks similar to the double-checked locking anti-pattern,
-            // it should be safe as statisticsMap is a synchronizedMap; the synchronized block only
-            // serves to prevent race conditions <b>between</b> the already-synchronized calls
+            // it is safe as the inner map is a ConcurrentHashMap; the synchronized block only
+            // serves to ensure that createNewEntry() is called only once per key
             synchronized (innerMap) {
-                value = innerMap.get(key);
+                value = innerMap.get(internalKey);
                 if (value == null) {
                     value = createNewEntry(key);
-                    innerMap.put(key, value);
+                    innerMap.put(internalKey, value);
                 }
             }
         }
@@ -60,7 +65,7 @@ public abstract class ThreadsafeAutoCreationMap<K, V> {
      */
     public void remove(String key) {
         synchronized (innerMap) {
-            innerMap.remove(key);
+            innerMap.remove(toInternalKey(key));
         }
     }
 
@@ -81,12 +86,28 @@ public abstract class ThreadsafeAutoCreationMap<K, V> {
      * 
      * @return a detached map with all key-value pairs
      */
+    @SuppressWarnings("unchecked")
     public Map<K, V> getShallowCopy() {
+        final Map<K, V> copy = new HashMap<K, V>();
         synchronized (innerMap) {
-            return new HashMap<K, V>(innerMap);
+            for (Map.Entry<Object, V> entry : innerMap.entrySet()) {
+                if (entry.getKey() == NULL_KEY) {
+                    copy.put(null, entry.getValue());
+                } else {
+                    copy.put((K) entry.getKey(), entry.getValue());
+                }
+            }
         }
+        return copy;
     }
 
     protected abstract V createNewEntry(K key);
 
+    private static Object toInternalKey(Object key) {
+        if (key == null) {
+            return NULL_KEY;
+        }
+        return key;
+    }
+
 }
@@ -70,6 +70,23 @@ public interface StatisticsTrackerService {
      */
     ValueEventCategory getValueEventCategory(String categoryName, StatisticsFilterLevel filterLevel);
 
+    /**
+     * Same as {@link #getValueEventCategory(String, StatisticsFilterLevel)}, but optionally also tracks the distribution of the registered
+     * values, so that percentiles (for example, the 99th percentile of a call duration) can be reported. The distribution is tracked both
+     * over the whole runtime and over a recent time window (currently, the last one to two minutes), with a relative error of about 3%.
+     * Tracking the distribution requires about 45 KB of memory per key, and each window rotation and each percentile query (for example,
+     * when rendering a report) allocates another 15 KB temporarily, so it should only be enabled for categories with a limited number of
+     * keys.
+     * <p>
+     * Once enabled for a category, distribution tracking stays enabled for it, regardless of the parameter of later calls.
+     * 
+     * @param categoryName the display name of the category, which also serves as its unique key at the moment
+     * @param filterLevel the minimum filter level to enable the returned category
+     * @param trackDistribution true to track the distribution of values
+     * @return the new or cached reference
+     */
+    ValueEventCategory getValueEventCategory(String categoryName, StatisticsFilterLevel filterLevel, boolean trackDistribution);
+
     /**
      * Gets the counter map for a single category.
      * 
@@ -104,4 +121,13 @@ public interface StatisticsTrackerService {
      */
     List<String> getFullReportAsStandardTextRepresentation(String linePrefix);
 
+    /**
+     * Renders the percentiles of all value event trackers that track the distribution of their values (see
+     * {@link #getValueEventCategory(String, StatisticsFilterLevel, boolean)}), both over the whole runtime and over the recent time window.
+     * 
+     * @param linePrefix a string to prefix every line with
+     * @return the rendered text lines
+     */
+    List<String> getValueDistributionReportAsStandardTextRepresentation(String linePrefix);
+
 }
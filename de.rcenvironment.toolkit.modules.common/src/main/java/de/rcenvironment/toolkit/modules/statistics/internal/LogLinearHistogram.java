@@ -0,0 +1,144 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.toolkit.modules.statistics.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative long values with log-linear buckets, similar to the bucket layout of HdrHistogram: values below
+ * {@link #SUB_BUCKET_COUNT} are counted exactly, and each higher power-of-two range is split into {@link #SUB_BUCKET_COUNT} buckets of
+ * equal width. This limits the relative error of reported percentiles to 1/{@link #SUB_BUCKET_COUNT} over the whole value range, at a
+ * constant memory footprint of 1888 counters, or about 15 KB. Histograms can be merged by adding their bucket counts.
+ * 
+ * @author agent
+ */
+final class LogLinearHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+    // the highest bit index of a positive long value is 62
+    private static final int BUCKET_COUNT = (62 - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Registers a value; negative values are counted as zero.
+     * 
+     * @param value the value
+     */
+    public void record(long value) {
+        counts.incrementAndGet(getBucketIndex(Math.max(value, 0)));
+    }
+
+    /**
+     * Adds all counts of the given histogram to this histogram.
+     * 
+     * @param other the histogram to merge into this one
+     */
+    public void add(LogLinearHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+    }
+
+    /**
+     * @return the total number of recorded values
+     */
+    public long getTotalCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Determines the value at the given percentiles. As concurrent modifications are possible, all percentiles are determined from the same
+     * snapshot of the bucket counts to ensure that the results are consistent with each other.
+     * 
+     * @param percentiles the percentiles to determine, in ascending order, each in the range (0, 100]
+     * @return the highest value of the bucket containing each percentile (which is an upper bound of the exact value), or null if no
+     *         values were recorded
+     */
+    public long[] getValuesAtPercentiles(double... percentiles) {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        addCountsTo(snapshot);
+        return getValuesAtPercentiles(snapshot, percentiles);
+    }
+
+    /**
+     * Determines the value at the given percentiles of the combined counts of two histograms, like
+     * {@link #getValuesAtPercentiles(double...)}. Unlike merging the histograms with {@link #add(LogLinearHistogram)} first, this does not
+     * allocate an intermediate histogram.
+     * 
+     * @param first the first histogram
+     * @param second the second histogram
+     * @param percentiles the percentiles to determine, in ascending order, each in the range (0, 100]
+     * @return the highest value of the bucket containing each percentile, or null if no values were recorded in either histogram
+     */
+    public static long[] getCombinedValuesAtPercentiles(LogLinearHistogram first, LogLinearHistogram second, double... percentiles) {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        first.addCountsTo(snapshot);
+        second.addCountsTo(snapshot);
+        return getValuesAtPercentiles(snapshot, percentiles);
+    }
+
+    private void addCountsTo(long[] snapshot) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] += counts.get(i);
+        }
+    }
+
+    private static long[] getValuesAtPercentiles(long[] snapshot, double[] percentiles) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return null;
+        }
+        final long[] result = new long[percentiles.length];
+        int bucket = 0;
+        long cumulativeCount = snapshot[0];
+        for (int p = 0; p < percentiles.length; p++) {
+            final long targetCount = Math.max(1, (long) Math.ceil(percentiles[p] / 100.0 * total));
+            while (cumulativeCount < targetCount && bucket < BUCKET_COUNT - 1) {
+                bucket++;
+                cumulativeCount += snapshot[bucket];
+            }
+            result[p] = getHighestValueInBucket(bucket);
+        }
+        return result;
+    }
+
+    static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = highestBit - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) & SUB_BUCKET_MASK);
+    }
+
+    static long getHighestValueInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKET_COUNT - 1;
+        final long lowestValue = ((long) (SUB_BUCKET_COUNT + (index & SUB_BUCKET_MASK))) << shift;
+        return lowestValue + ((1L << shift) - 1);
+    }
+}
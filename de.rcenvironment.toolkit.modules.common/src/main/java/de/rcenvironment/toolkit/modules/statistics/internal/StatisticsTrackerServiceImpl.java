@@ -16,6 +16,9 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -39,6 +42,11 @@ import de.rcenvironment.toolkit.utils.text.TextLinesReceiver;
  */
 public class StatisticsTrackerServiceImpl implements StatisticsTrackerService {
 
+    /**
+     * The length of the time windows that the "recent" value distributions are tracked in.
+     */
+    static final long DISTRIBUTION_WINDOW_LENGTH_MSEC = 60 * 1000;
+
     /**
      * Default {@link CounterCategory} implementation.
      * 
@@ -103,10 +111,13 @@ public class StatisticsTrackerServiceImpl implements StatisticsTrackerService {
 
                 @Override
                 protected ValueTrackerEntry createNewEntry(String key) {
-                    return new ValueTrackerEntry();
+                    return new ValueTrackerEntry(trackDistribution);
                 }
             };
 
+        // once set, all entries created afterwards also track the distribution of their values
+        private volatile boolean trackDistribution;
+
         @Override
         public boolean isEnabled() {
             return true;
@@ -114,7 +125,18 @@ public class StatisticsTrackerServiceImpl implements StatisticsTrackerService {
 
         @Override
         public void registerEvent(String key, long value) {
-            valueTrackerEntries.get(key).register(value);
+            ValueTrackerEntry entry = valueTrackerEntries.get(key);
+            if (trackDistribution) {
+                // covers entries that were created before distribution tracking was enabled
+                entry.enableDistributionTracking();
+            }
+            entry.register(value);
+        }
+
+        private void enableDistributionTracking() {
+            if (!trackDistribution) {
+                trackDistribution = true;
+            }
         }
     }
 
@@ -160,32 +182,86 @@ public class StatisticsTrackerServiceImpl implements StatisticsTrackerService {
     }
 
     /**
-     * A holder for simple statistics over an unknown number of values added over time.
+     * A holder for simple statistics over an unknown number of values added over time, and optionally, their distribution. All fields are
+     * updated without locking; the striped {@link LongAdder} and {@link LongAccumulator} classes avoid contention between threads
+     * registering values at the same time.
      * 
      * @author Robert Mischke
      */
     private static final class ValueTrackerEntry {
 
-        private long n;
+        private final LongAdder n = new LongAdder();
+
+        private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+        private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
 
-        private long min = Long.MAX_VALUE;
+        private final DoubleAdder sum = new DoubleAdder();
 
-        private long max = Long.MIN_VALUE;
+        // null unless distribution tracking is enabled
+        private volatile ValueDistributionTracker distribution;
 
-        private double sum;
+        ValueTrackerEntry(boolean trackDistribution) {
+            if (trackDistribution) {
+                enableDistributionTracking();
+            }
+        }
+
+        public void register(long value) {
+            min.accumulate(value);
+            max.accumulate(value);
+            sum.add(value);
+            n.increment();
+            final ValueDistributionTracker distributionTracker = distribution;
+            if (distributionTracker != null) {
+                distributionTracker.register(value, System.currentTimeMillis());
+            }
+        }
 
-        public synchronized void register(long value) {
-            min = Math.min(min, value);
-            max = Math.max(max, value);
-            sum += value;
-            n++;
+        public void enableDistributionTracking() {
+            if (distribution == null) {
+                synchronized (this) {
+                    if (distribution == null) {
+                        distribution = new ValueDistributionTracker(DISTRIBUTION_WINDOW_LENGTH_MSEC, System.currentTimeMillis());
+                    }
+                }
+            }
         }
 
         public String render() {
-            if (n == 0) {
+            // note: the individual fields may be slightly inconsistent with each other if values are registered concurrently
+            final long count = n.sum();
+            if (count == 0) {
                 return "-";
             }
-            return StringUtils.format("Total %,.2f, Average %,.2f, Min %,d, Max %,d, counted %,d times", sum, sum / n, min, max, n);
+            final double total = sum.sum();
+            final String basicStatistics = StringUtils.format("Total %,.2f, Average %,.2f, Min %,d, Max %,d, counted %,d times", total,
+                total / count, min.get(), max.get(), count);
+            final ValueDistributionTracker distributionTracker = distribution;
+            if (distributionTracker != null) {
+                final String percentiles = distributionTracker.renderAllTimePercentiles(max.get());
+                if (percentiles != null) {
+                    return basicStatistics + ", " + percentiles;
+                }
+            }
+            return basicStatistics;
+        }
+
+        public String renderDistribution(long currentTimeMsec) {
+            final ValueDistributionTracker distributionTracker = distribution;
+            if (distributionTracker == null) {
+                return null;
+            }
+            final long maxValue = max.get();
+            final String allTime = distributionTracker.renderAllTimePercentiles(maxValue);
+            if (allTime == null) {
+                return null;
+            }
+            String recent = distributionTracker.renderRecentPercentiles(currentTimeMsec, maxValue);
+            if (recent == null) {
+                recent = "-";
+            }
+            return StringUtils.format("counted %,d times; all time: %s, Max %,d; recent: %s", n.sum(), allTime, maxValue, recent);
         }
     }
 
@@ -275,6 +351,16 @@ public class StatisticsTrackerServiceImpl implements StatisticsTrackerService {
         return getValueEventCategory(name, StatisticsFilterLevel.RELEASE);
     }
 
+    @Override
+    public ValueEventCategory getValueEventCategory(String categoryName, StatisticsFilterLevel filterLevel,
+        boolean trackDistribution) {
+        final ValueEventCategory category = getValueEventCategory(categoryName, filterLevel);
+        if (trackDistribution && category instanceof ValueEventCategoryImpl) {
+            ((ValueEventCategoryImpl) category).enableDistributionTracking();
+        }
+        return category;
+    }
+
     @Override
     public ValueEventCategory getValueEventCategory(String categoryName, StatisticsFilterLevel filterLevel) {
         if (filterLevel.compareTo(globalFilterLevel) <= 0) {
@@ -347,6 +433,29 @@ public class StatisticsTrackerServiceImpl implements StatisticsTrackerService {
         return output;
     }
 
+    @Override
+    public List<String> getValueDistributionReportAsStandardTextRepresentation(String linePrefix) {
+        final long now = System.currentTimeMillis();
+        List<String> output = new ArrayList<>();
+        Map<String, ValueEventCategoryImpl> valueTrackersSnapshot = new TreeMap<>(valueTrackerMap.getShallowCopy());
+        for (Entry<String, ValueEventCategoryImpl> category : valueTrackersSnapshot.entrySet()) {
+            Map<String, ValueTrackerEntry> valueTrackersCopy = new TreeMap<>(category.getValue().valueTrackerEntries.getShallowCopy());
+            boolean headerAdded = false;
+            for (Entry<String, ValueTrackerEntry> entry : valueTrackersCopy.entrySet()) {
+                String rendered = entry.getValue().renderDistribution(now);
+                if (rendered == null) {
+                    continue;
+                }
+                if (!headerAdded) {
+                    output.add(StringUtils.format("%s%s", linePrefix, category.getKey()));
+                    headerAdded = true;
+                }
+                output.add(StringUtils.format("%s  %s - %s", linePrefix, rendered, entry.getKey()));
+            }
+        }
+        return output;
+    }
+
     private Map<String, String> renderCategoryCounters(Map<String, AtomicLong> categoryCopy) {
         Map<String, String> categoryResult = new TreeMap<String, String>();
         for (Map.Entry<String, AtomicLong> entry : categoryCopy.entrySet()) {
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2006-2019 DLR, Germany
+ * 
+ * SPDX-License-Identifier: EPL-1.0
+ * 
+ * https://rcenvironment.de/
+ */
+
+package de.rcenvironment.toolkit.modules.statistics.internal;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.rcenvironment.toolkit.utils.internal.StringUtils;
+
+/**
+ * Tracks the distribution of registered values, both over the whole runtime and over a recent time window. For the latter, values are
+ * recorded into the histogram of the current time window, which is rotated when the window length has passed; the reported "recent"
+ * distribution is the merge of the current and the previous window, and therefore covers between one and two window lengths.
+ * 
+ * All operations are lock-free. Each tracker holds three histograms of about 15 KB each (all-time, current and previous window), so it
+ * occupies about 45 KB of memory. Each window rotation allocates one or two new histograms, and each percentile query allocates a
+ * temporary snapshot of the same size.
+ * 
+ * @author agent
+ */
+final class ValueDistributionTracker {
+
+    /**
+     * The percentiles included in the rendered output.
+     */
+    static final double[] REPORTED_PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+
+    private static final String[] REPORTED_PERCENTILE_LABELS = { "p50", "p90", "p99", "p99.9" };
+
+    /**
+     * An immutable pair of the current and the previous time window.
+     * 
+     * @author agent
+     */
+    private static final class Windows {
+
+        private final long currentWindowStart;
+
+        private final LogLinearHistogram current;
+
+        private final LogLinearHistogram previous;
+
+        Windows(long currentWindowStart, LogLinearHistogram current, LogLinearHistogram previous) {
+            this.currentWindowStart = currentWindowStart;
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+
+    private final LogLinearHistogram allTime = new LogLinearHistogram();
+
+    private final AtomicReference<Windows> windows;
+
+    private final long windowLengthMsec;
+
+    ValueDistributionTracker(long windowLengthMsec, long currentTimeMsec) {
+        this.windowLengthMsec = windowLengthMsec;
+        this.windows = new AtomicReference<Windows>(new Windows(currentTimeMsec, new LogLinearHistogram(), new LogLinearHistogram()));
+    }
+
+    /**
+     * Registers a value.
+     * 
+     * @param value the value
+     * @param currentTimeMsec the current time, as returned by {@link System#currentTimeMillis()}
+     */
+    void register(long value, long currentTimeMsec) {
+        allTime.record(value);
+        rotateIfNecessary(currentTimeMsec).current.record(value);
+    }
+
+    /**
+     * @param percentiles the percentiles to determine, in ascending order
+     * @return the values at the given percentiles over the whole runtime, or null if no values were registered
+     */
+    long[] getAllTimeValuesAtPercentiles(double... percentiles) {
+        return allTime.getValuesAtPercentiles(percentiles);
+    }
+
+    /**
+     * @param currentTimeMsec the current time, as returned by {@link System#currentTimeMillis()}
+     * @param percentiles the percentiles to determine, in ascending order
+     * @return the values at the given percentiles over the recent time window, or null if no values were registered in it
+     */
+    long[] getRecentValuesAtPercentiles(long currentTimeMsec, double... percentiles) {
+        final Windows snapshot = rotateIfNecessary(currentTimeMsec);
+        return LogLinearHistogram.getCombinedValuesAtPercentiles(snapshot.previous, snapshot.current, percentiles);
+    }
+
+    /**
+     * Renders the standard percentiles over the whole runtime, limiting each to the given maximum value. As the histogram only provides
+     * upper bounds, this avoids reporting values above the actual maximum.
+     * 
+     * @param maxValue the maximum registered value
+     * @return the rendered percentiles, or null if no values were registered
+     */
+    String renderAllTimePercentiles(long maxValue) {
+        return renderPercentiles(getAllTimeValuesAtPercentiles(REPORTED_PERCENTILES), maxValue);
+    }
+
+    /**
+     * Renders the standard percentiles over the recent time window.
+     * 
+     * @param currentTimeMsec the current time, as returned by {@link System#currentTimeMillis()}
+     * @param maxValue the maximum registered value
+     * @return the rendered percentiles, or null if no values were registered in the recent time window
+     */
+    String renderRecentPercentiles(long currentTimeMsec, long maxValue) {
+        return renderPercentiles(getRecentValuesAtPercentiles(currentTimeMsec, REPORTED_PERCENTILES), maxValue);
+    }
+
+    private String renderPercentiles(long[] values, long maxValue) {
+        if (values == null) {
+            return null;
+        }
+        final StringBuilder buffer = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i != 0) {
+                buffer.append(", ");
+            }
+            buffer.append(StringUtils.format("%s %,d", REPORTED_PERCENTILE_LABELS[i], Math.min(values[i], maxValue)));
+        }
+        return buffer.toString();
+    }
+
+    private Windows rotateIfNecessary(long currentTimeMsec) {
+        while (true) {
+            final Windows current = windows.get();
+            final long elapsed = currentTimeMsec - current.currentWindowStart;
+            if (elapsed < windowLengthMsec) {
+                return current;
+            }
+            final Windows rotated;
+            if (elapsed < 2 * windowLengthMsec) {
+                // the current window becomes the previous one
+                rotated = new Windows(current.currentWindowStart + windowLengthMsec, new LogLinearHistogram(), current.current);
+            } else {
+                // no values were registered during the whole last window
+                rotated = new Windows(currentTimeMsec, new LogLinearHistogram(), new LogLinearHistogram());
+            }
+            // if this fails, another thread has rotated concurrently; re-check
+            if (windows.compareAndSet(current, rotated)) {
+                return rotated;
+            }
+        }
+    }
+}